@@ -10,32 +10,61 @@
 
 package cc.squirreljme.emulator.profiler;
 
-import java.util.Deque;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * This stores information along with the thread information along with the
  * call stack.
  *
- * This class is not thread safe and it is assumed to be called from the same
- * thread each time.
+ * Every location is interned into an identifier and the call tree along
+ * with the stack of active frames are kept in primitive arrays, so entering
+ * and exiting frames does not allocate once a call path has been seen.
+ *
+ * To bound the memory used, frames deeper than the maximum depth are
+ * counted as part of their deepest recorded parent and if the call tree
+ * reaches its node budget then the coldest parts of it are collapsed.
+ *
+ * Frames are assumed to be entered and exited from the same thread each
+ * time, however the tree and the stack are guarded by a lock so that the
+ * snapshot can be read and reset from other threads.
  *
  * @since 2018/11/10
  */
 public final class ProfiledThread
 {
+	/** Maximum stack depth. */
+	public static final int MAX_STACK_DEPTH =
+		64;
+	
 	/** The name of this thread. */
 	protected final String name;
 	
-	/** The root frames for this thread. */
-	final Map<FrameLocation, ProfiledFrame> _frames =
-		new LinkedHashMap<>();
+	/** Is this thread sampled rather than instrumented? */
+	protected final boolean sampled;
+	
+	/** The location identifiers. */
+	final __LocationTable__ _locations;
+	
+	/** The maximum number of nodes in the call tree, zero if unlimited. */
+	protected final int maxnodes;
+	
+	/** The call tree for this thread, replaced when collapsed. */
+	volatile __CallTree__ _tree;
 	
-	/** The stack of currently active frames. */
-	private final Deque<ProfiledFrame> _stack =
-		new LinkedList<>();
+	/** The tree node of each active frame, {@code -1} if too deep. */
+	private int[] _stacknode =
+		new int[ProfiledThread.MAX_STACK_DEPTH];
+	
+	/** The time each active frame was entered. */
+	private long[] _stackstart =
+		new long[ProfiledThread.MAX_STACK_DEPTH];
+	
+	/** The time each active frame spent invoking other frames. */
+	private long[] _stacksub =
+		new long[ProfiledThread.MAX_STACK_DEPTH];
+	
+	/** The number of active frames. */
+	private int _stacksize;
 	
 	/** Grand invocation total. */
 	long _invtotal;
@@ -43,8 +72,12 @@ public final class ProfiledThread
 	/** Total time. */
 	long _totaltime;
 	
-	/** CPU time. */
-	long _cputime;
+	/** The thread to sample the stack of. */
+	private volatile SampleableThread _source;
+	
+	/** The lock which guards the call tree and the stack. */
+	final Object _lock =
+		new Object();
 	
 	/**
 	 * Initializes the thread information.
@@ -56,10 +89,63 @@ public final class ProfiledThread
 	public ProfiledThread(String __n)
 		throws NullPointerException
 	{
-		if (__n == null)
+		this(__n, false);
+	}
+	
+	/**
+	 * Initializes the thread information.
+	 *
+	 * @param __n The name of the thread.
+	 * @param __sampled Is this thread sampled rather than instrumented?
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public ProfiledThread(String __n, boolean __sampled)
+		throws NullPointerException
+	{
+		this(__n, __sampled, new __LocationTable__(),
+			ProfiledThread.MAX_STACK_DEPTH, 0);
+	}
+	
+	/**
+	 * Initializes the thread information.
+	 *
+	 * @param __n The name of the thread.
+	 * @param __sampled Is this thread sampled rather than instrumented?
+	 * @param __locs The location identifiers to use.
+	 * @param __maxdepth The maximum depth of recorded frames, this is capped
+	 * to {@link #MAX_STACK_DEPTH}.
+	 * @param __maxnodes The maximum number of nodes in the call tree, zero
+	 * if it is unlimited. This is never less than twice the maximum stack
+	 * depth so that the active frames always fit.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	ProfiledThread(String __n, boolean __sampled, __LocationTable__ __locs,
+		int __maxdepth, int __maxnodes)
+		throws NullPointerException
+	{
+		if (__n == null || __locs == null)
 			throw new NullPointerException("NARG");
 		
 		this.name = __n;
+		this.sampled = __sampled;
+		this._locations = __locs;
+		this.maxnodes = (__maxnodes <= 0 ? 0 :
+			Math.max(ProfiledThread.MAX_STACK_DEPTH * 2, __maxnodes));
+		this._tree = new __CallTree__(Math.max(2,
+			Math.min(ProfiledThread.MAX_STACK_DEPTH, __maxdepth)));
+	}
+	
+	/**
+	 * Returns the number of frames which are currently active.
+	 *
+	 * @return The number of active frames.
+	 * @since 2020/07/29
+	 */
+	public final int depth()
+	{
+		return this._stacksize;
 	}
 	
 	/**
@@ -68,10 +154,12 @@ public final class ProfiledThread
 	 * @param __cl The name of the class.
 	 * @param __mn The name of the method.
 	 * @param __md The type of the method.
+	 * @return The depth of the entered frame, which is the number of active
+	 * frames including it.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2019/06/30
 	 */
-	public ProfiledFrame enterFrame(String __cl, String __mn, String __md)
+	public int enterFrame(String __cl, String __mn, String __md)
 		throws NullPointerException
 	{
 		return this.enterFrame(__cl, __mn, __md, System.nanoTime());
@@ -84,46 +172,48 @@ public final class ProfiledThread
 	 * @param __mn The name of the method.
 	 * @param __md The type of the method.
 	 * @param __ns The The starting time in nanoseconds.
+	 * @return The depth of the entered frame, which is the number of active
+	 * frames including it.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2018/11/10
 	 */
-	public ProfiledFrame enterFrame(String __cl, String __mn, String __md,
+	public int enterFrame(String __cl, String __mn, String __md,
 		long __ns)
 		throws NullPointerException
 	{
 		if (__cl == null || __mn == null || __md == null)
 			throw new NullPointerException("NARG");
 		
-		// Used as map key
-		FrameLocation loc = new FrameLocation(__cl, __mn, __md);
-		
-		// We need to know the top-most frame because
-		Deque<ProfiledFrame> stack = this._stack;
-		ProfiledFrame top = stack.peek();
-		
-		// If the frame was not already recorded in the map then add a new one
-		// but we always keep existing frames since their times add up and
-		// such. Also remember that there is depth to this, like we cannot
-		// just keep adding to the root and such!
-		Map<FrameLocation, ProfiledFrame> frames = (top == null ?
-			this._frames : top._frames);
-		ProfiledFrame rv = frames.get(loc);
-		if (rv == null)
-			frames.put(loc, (rv = new ProfiledFrame(loc, stack.size() + 1)));
-		
-		// Tell the top-most frame that we are in an invoke, so this removes
-		// self time accordingly
-		if (top != null)
-			top.invokeStart(__ns);
-		
-		// Push the frame to the stack since it is active
-		this._stack.push(rv);
-		
-		// Indicate that this frame has been entered
-		rv.enteredFrame(__ns);
+		int loc = this._locations.id(__cl, __mn, __md);
 		
-		// Using this frame
-		return rv;
+		synchronized (this._lock)
+		{
+			// Grow the stack, frames are always tracked even if they are too
+			// deep to be recorded so that exits always match
+			int sp = this._stacksize;
+			if (sp >= this._stacknode.length)
+			{
+				int cap = sp * 2;
+				this._stacknode = Arrays.copyOf(this._stacknode, cap);
+				this._stackstart = Arrays.copyOf(this._stackstart, cap);
+				this._stacksub = Arrays.copyOf(this._stacksub, cap);
+			}
+			
+			// Find or create the node for this frame, within the top-most
+			// frame
+			__CallTree__ tree = this.__budgetTree();
+			int parent = (sp == 0 ? __CallTree__.ROOT :
+				this._stacknode[sp - 1]);
+			int node = (parent < 0 ? -1 : tree.child(parent, loc));
+			
+			// Push the frame to the stack since it is active
+			this._stacknode[sp] = node;
+			this._stackstart[sp] = __ns;
+			this._stacksub[sp] = 0;
+			this._stacksize = sp + 1;
+			
+			return sp + 1;
+		}
 	}
 	
 	/**
@@ -145,8 +235,7 @@ public final class ProfiledThread
 	public void exitAll(long __ns)
 	{
 		// Empty the frame stack
-		Deque<ProfiledFrame> stack = this._stack;
-		while (!stack.isEmpty())
+		while (this._stacksize > 0)
 			this.exitFrame(__ns);
 	}
 	
@@ -154,53 +243,195 @@ public final class ProfiledThread
 	 * Exits the frame which at the top of the stack, the current time is
 	 * used.
 	 *
-	 * @return The exited frame.
 	 * @throws IllegalStateException If there is no frame to exit.
 	 * @since 2018/11/10
 	 */
-	public ProfiledFrame exitFrame()
+	public void exitFrame()
 		throws IllegalStateException
 	{
-		return this.exitFrame(System.nanoTime());
+		this.exitFrame(System.nanoTime());
 	}
 	
 	/**
 	 * Exits the frame which at the top of the stack.
 	 *
 	 * @param __ns The nanoseconds when the frame exited.
-	 * @return The exited frame.
 	 * @throws IllegalStateException If there is no frame to exit.
 	 * @since 2018/11/10
 	 */
-	public ProfiledFrame exitFrame(long __ns)
+	public void exitFrame(long __ns)
 		throws IllegalStateException
 	{
-		// {@squirreljme.error AH07 No frame is in the stack to exit in.}
-		Deque<ProfiledFrame> stack = this._stack;
-		ProfiledFrame rv = stack.pop();
-		if (rv == null)
-			throw new IllegalStateException("AH07");
+		synchronized (this._lock)
+		{
+			// {@squirreljme.error AH07 No frame is in the stack to exit in.}
+			int sp = this._stacksize - 1;
+			if (sp < 0)
+				throw new IllegalStateException("AH07");
+			this._stacksize = sp;
+			
+			// Determine the cumulative and self time spent
+			long total = __ns - this._stackstart[sp],
+				self = total - this._stacksub[sp];
+			
+			// Record the times for the frame
+			int node = this._stacknode[sp];
+			if (node >= 0)
+			{
+				__CallTree__ tree = this._tree;
+				tree._numcalls[node]++;
+				tree._tracetime[node] += total;
+				tree._frametime[node] += self;
+			}
+			
+			// The frame underneath spent this time invoking, unless this
+			// frame was too deep in which case the time is counted as its own
+			if (sp > 0)
+			{
+				if (node >= 0)
+					this._stacksub[sp - 1] += total;
+			}
+			
+			// If all threads are out, count the times
+			else
+			{
+				this._totaltime += total;
+				
+				// Invocation total goes up after each method ends
+				this._invtotal++;
+			}
+		}
+	}
+	
+	/**
+	 * Is this thread sampled rather than instrumented? If it is sampled
+	 * then frames should not be entered or exited.
+	 *
+	 * @return If this thread is sampled.
+	 * @since 2020/07/29
+	 */
+	public final boolean isSampled()
+	{
+		return this.sampled;
+	}
+	
+	/**
+	 * Sets the thread which is to be sampled for this thread.
+	 *
+	 * @param __src The thread to sample.
+	 * @throws IllegalStateException If this thread is not sampled.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public final void sampleFrom(SampleableThread __src)
+		throws IllegalStateException, NullPointerException
+	{
+		if (__src == null)
+			throw new NullPointerException("NARG");
+		
+		// {@squirreljme.error AH09 Cannot sample a thread which is
+		// instrumented.}
+		if (!this.sampled)
+			throw new IllegalStateException("AH09");
 		
-		// Tell that popped frame we left
-		long[] times = rv.exitedFrame(__ns);
+		this._source = __src;
+	}
+	
+	/**
+	 * Resets the number of calls and times, so that only what happens after
+	 * this point is measured. Frames which are still active are treated as
+	 * if they were entered at the time of the reset.
+	 *
+	 * @param __ns The time of the reset.
+	 * @since 2020/07/29
+	 */
+	final void reset(long __ns)
+	{
+		synchronized (this._lock)
+		{
+			this._tree.reset();
+			
+			// Otherwise the time before the reset would be counted again
+			// when these frames exit
+			long[] stackstart = this._stackstart;
+			long[] stacksub = this._stacksub;
+			for (int i = 0, n = this._stacksize; i < n; i++)
+			{
+				stackstart[i] = __ns;
+				stacksub[i] = 0;
+			}
+			
+			this._totaltime = 0;
+			this._invtotal = 0;
+		}
+	}
+	
+	/**
+	 * Samples the stack of the thread and adds it to the call tree.
+	 *
+	 * @param __ns The time the sample accounts for.
+	 * @since 2020/07/29
+	 */
+	final void sample(long __ns)
+	{
+		SampleableThread source = this._source;
+		if (source == null)
+			return;
 		
-		// If we had a frame underneath, say the invocation has ended
-		ProfiledFrame newtop = stack.peek();
-		if (newtop != null)
-			newtop.invokeEnd(__ns);
+		// Nothing is running in this thread
+		FrameLocation[] stack = source.sampleStack();
+		if (stack == null || stack.length == 0)
+			return;
 		
-		// If all threads are out, count the times
-		else
+		// Walk down the tree to the sampled frame, frames which are too
+		// deep are not recorded
+		__LocationTable__ locations = this._locations;
+		synchronized (this._lock)
 		{
-			this._totaltime += times[0];
-			this._cputime += times[2];
+			__CallTree__ tree = this.__budgetTree();
+			int node = __CallTree__.ROOT;
+			for (int i = 0, n = stack.length; i < n; i++)
+			{
+				int next = tree.child(node, locations.id(stack[i]));
+				if (next < 0)
+					break;
+				node = next;
+				
+				// The number of calls is the number of times this has been
+				// seen
+				tree._numcalls[node]++;
+				tree._tracetime[node] += __ns;
+			}
+			
+			// Only the frame which was executing spent time on its own
+			tree._frametime[node] += __ns;
 			
-			// Invocation total goes up after each method ends
+			// The thread was running for this time
+			this._totaltime += __ns;
 			this._invtotal++;
 		}
+	}
+	
+	/**
+	 * Returns the call tree, collapsing it first if it has reached the node
+	 * budget. This must be called while holding the lock.
+	 *
+	 * @return The call tree to use.
+	 * @since 2020/07/29
+	 */
+	private __CallTree__ __budgetTree()
+	{
+		__CallTree__ tree = this._tree;
 		
-		// Return the frame which was popped
-		return rv;
+		int maxnodes = this.maxnodes;
+		if (maxnodes <= 0 || tree._count < maxnodes)
+			return tree;
+		
+		// Only keep half of the nodes so this is not done often, the
+		// active frames are always kept
+		tree = tree.collapse(Math.max(1, maxnodes / 2), this._stacknode,
+			this._stacksize);
+		this._tree = tree;
+		return tree;
 	}
 }
-
@@ -15,6 +15,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -37,6 +38,122 @@ public final class ProfilerSnapshot
 	private final Map<String, ProfiledThread> _threads =
 		new LinkedHashMap<>();
 	
+	/** The identifiers of every frame location in every thread. */
+	private final __LocationTable__ _locations =
+		new __LocationTable__();
+	
+	/** The sampling interval in milliseconds, zero if instrumenting. */
+	protected final int sampleinterval;
+	
+	/** The maximum depth of frames which are recorded. */
+	protected final int maxdepth;
+	
+	/** The maximum number of nodes for each thread, zero if unlimited. */
+	protected final int maxnodes;
+	
+	/** The rolling interval in seconds, zero if not rolling. */
+	protected final int rollinterval;
+	
+	/** The thread which samples the stacks of threads. */
+	private Thread _sampler;
+	
+	/** The thread which rolls the snapshot. */
+	private Thread _roller;
+	
+	/**
+	 * Initializes the snapshot, how threads are measured depends on the
+	 * system properties.
+	 *
+	 * {@squirreljme.property cc.squirreljme.emulator.profiler.sample=int
+	 * If this is a positive value then instead of measuring every frame
+	 * which is entered and exited, the stacks of every thread are sampled
+	 * at this interval in milliseconds. This has much lower overhead but is
+	 * not exact.}
+	 *
+	 * {@squirreljme.property cc.squirreljme.emulator.profiler.depth=int
+	 * The maximum depth of frames which are recorded, deeper frames are
+	 * counted as part of their deepest recorded parent.}
+	 *
+	 * {@squirreljme.property cc.squirreljme.emulator.profiler.nodes=int
+	 * The maximum number of nodes in the call tree of each thread, when this
+	 * is reached the coldest parts of the tree are collapsed into their
+	 * parents. Zero means there is no limit.}
+	 *
+	 * {@squirreljme.property cc.squirreljme.emulator.profiler.roll=int
+	 * If this is a positive value and a snapshot path is set, then a
+	 * snapshot of only what happened since the last one is written at
+	 * this interval in seconds.}
+	 *
+	 * @since 2020/07/29
+	 */
+	public ProfilerSnapshot()
+	{
+		this(Integer.getInteger("cc.squirreljme.emulator.profiler.sample",
+				0),
+			Integer.getInteger("cc.squirreljme.emulator.profiler.depth",
+				ProfiledThread.MAX_STACK_DEPTH),
+			Integer.getInteger("cc.squirreljme.emulator.profiler.nodes",
+				0),
+			Integer.getInteger("cc.squirreljme.emulator.profiler.roll",
+				0));
+	}
+	
+	/**
+	 * Initializes the snapshot.
+	 *
+	 * @param __interval If this is a positive value then threads are sampled
+	 * at this interval in milliseconds, otherwise every frame is measured.
+	 * @since 2020/07/29
+	 */
+	public ProfilerSnapshot(int __interval)
+	{
+		this(__interval, ProfiledThread.MAX_STACK_DEPTH, 0, 0);
+	}
+	
+	/**
+	 * Initializes the snapshot.
+	 *
+	 * @param __interval If this is a positive value then threads are sampled
+	 * at this interval in milliseconds, otherwise every frame is measured.
+	 * @param __maxdepth The maximum depth of frames which are recorded, this
+	 * is capped to {@link ProfiledThread#MAX_STACK_DEPTH}.
+	 * @param __maxnodes The maximum number of nodes in the call tree of each
+	 * thread, zero if this is unlimited.
+	 * @param __roll If this is a positive value then the snapshot is rolled
+	 * at this interval in seconds once {@link #rollTo(Path)} is called.
+	 * @since 2020/07/29
+	 */
+	public ProfilerSnapshot(int __interval, int __maxdepth, int __maxnodes,
+		int __roll)
+	{
+		this.sampleinterval = Math.max(0, __interval);
+		this.maxdepth = Math.min(ProfiledThread.MAX_STACK_DEPTH, __maxdepth);
+		this.maxnodes = Math.max(0, __maxnodes);
+		this.rollinterval = Math.max(0, __roll);
+	}
+	
+	/**
+	 * Returns whether the snapshot is rolled.
+	 *
+	 * @return If the snapshot is rolled.
+	 * @since 2020/07/29
+	 */
+	public final boolean isRolling()
+	{
+		return this.rollinterval > 0;
+	}
+	
+	/**
+	 * Returns whether threads are sampled rather than instrumented.
+	 *
+	 * @return If threads are sampled.
+	 * @since 2020/07/29
+	 */
+	public final boolean isSampling()
+	{
+		return this.sampleinterval > 0;
+	}
+	
 	/**
 	 * Starts profiling the given thread.
 	 *
@@ -51,7 +168,9 @@ public final class ProfilerSnapshot
 		if (__name == null)
 			throw new NullPointerException("NARG");
 		
-		ProfiledThread rv = new ProfiledThread(__name);
+		boolean sampling = this.isSampling();
+		ProfiledThread rv = new ProfiledThread(__name, sampling,
+			this._locations, this.maxdepth, this.maxnodes);
 		
 		// Although the frames are not thread safe, this may be called at
 		// any time from any thread although the returned class is only inteded
@@ -60,6 +179,17 @@ public final class ProfilerSnapshot
 		synchronized (threads)
 		{
 			threads.put(__name, rv);
+			
+			// Start sampling when there is a thread to sample
+			if (sampling && this._sampler == null)
+			{
+				Thread sampler = new Thread(new __Sampler__(this,
+					this.sampleinterval), "ProfilerSampler");
+				sampler.setDaemon(true);
+				sampler.start();
+				
+				this._sampler = sampler;
+			}
 		}
 		
 		return rv;
@@ -92,6 +222,46 @@ public final class ProfilerSnapshot
 		}
 	}
 	
+	/**
+	 * Starts rolling the snapshot, if it is rolled. At every interval the
+	 * snapshot is written to a new file next to the given path and then
+	 * reset, so every file only has what happened since the previous one.
+	 * As such, when the snapshot is finally written it only has what
+	 * happened since the last roll.
+	 *
+	 * Each thread is copied and reset at the same time, so frames which
+	 * are still active when the snapshot is rolled only count the time
+	 * after the roll in the next file.
+	 *
+	 * @param __path The path the snapshot is to be written to, the rolled
+	 * files have a sequence number added to the name.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public final void rollTo(Path __path)
+		throws NullPointerException
+	{
+		if (__path == null)
+			throw new NullPointerException("NARG");
+		
+		if (!this.isRolling())
+			return;
+		
+		// Only a single roller is used
+		synchronized (this._threads)
+		{
+			if (this._roller != null)
+				return;
+			
+			Thread roller = new Thread(new __Roller__(this, __path,
+				this.rollinterval), "ProfilerRoller");
+			roller.setDaemon(true);
+			roller.start();
+			
+			this._roller = roller;
+		}
+	}
+	
 	/**
 	 * Writes snapshot information to the given stream.
 	 *
@@ -119,7 +289,13 @@ public final class ProfilerSnapshot
 				__ps.println(':');
 				
 				// Dump frame info
-				ProfilerSnapshot.__dumpFrames(__ps, 4, t._frames.values());
+				synchronized (t._lock)
+				{
+					__CallTree__ tree = t._tree;
+					for (int sub = tree._child[__CallTree__.ROOT]; sub >= 0;
+						sub = tree._sibling[sub])
+						ProfilerSnapshot.__dumpFrames(__ps, 4, t, tree, sub);
+				}
 			}
 		}
 	}
@@ -138,6 +314,35 @@ public final class ProfilerSnapshot
 		if (__os == null)
 			throw new NullPointerException("NARG");
 		
+		// Parse the node tables for every thread
+		Map<String, ProfiledThread> threads = this._threads;
+		synchronized (threads)
+		{
+			int numthreads = threads.size(), at = 0;
+			__NodeTable__[] tables = new __NodeTable__[numthreads];
+			for (ProfiledThread t : threads.values())
+				tables[at++] = new __NodeTable__(t);
+			
+			this.__writeTo(__os, tables);
+		}
+	}
+	
+	/**
+	 * Writes the snapshot information of the given node tables to the
+	 * given output stream.
+	 *
+	 * @param __os The stream to write to.
+	 * @param __tables The node tables of every thread.
+	 * @throws IOException On write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	final void __writeTo(OutputStream __os, __NodeTable__[] __tables)
+		throws IOException, NullPointerException
+	{
+		if (__os == null || __tables == null)
+			throw new NullPointerException("NARG");
+		
 		// We write to this because we need the data
 		DataOutputStream cont = new DataOutputStream(__os);
 		
@@ -169,37 +374,32 @@ public final class ProfilerSnapshot
 				long start = this.startmillis;
 				cpu.writeLong(start);
 				
-				// Threads are needed now
-				Map<String, ProfiledThread> threads = this._threads;
-				synchronized (threads)
-				{
-					// The duration of the trace is the maximum time any
-					// thread has spent
-					long maxtime = 0;
-					for (ProfiledThread t : threads.values())
-						maxtime = Math.max(maxtime, t._totaltime);
-					cpu.writeLong(maxtime);
-					
-					// Thread time is always measured
-					cpu.writeBoolean(true);
-					
-					// Build and write the instrumented method table
-					Map<FrameLocation, Integer> mids = this.__doMethodTable();
-					cpu.writeInt(mids.size());
-					for (FrameLocation loc : mids.keySet())
-					{
-						cpu.writeUTF(loc.inclass);
-						cpu.writeUTF(loc.methodname);
-						cpu.writeUTF(loc.methodtype);
-					}
+				// The duration of the trace is the maximum time any
+				// thread has spent
+				long maxtime = 0;
+				for (__NodeTable__ table : __tables)
+					maxtime = Math.max(maxtime, table.totalTime());
+				cpu.writeLong(maxtime);
 				
-					// Write thread data
-					cpu.writeInt(threads.size());
+				// Thread time is always measured
+				cpu.writeBoolean(true);
 				
-					// Write individual thread
-					for (ProfiledThread t : threads.values())
-						this.__doWriteThread(cpu, t, mids);
+				// Build and write the instrumented method table
+				FrameLocation[] mids = this.__doMethodTable();
+				cpu.writeInt(mids.length);
+				for (FrameLocation loc : mids)
+				{
+					cpu.writeUTF(loc.inclass);
+					cpu.writeUTF(loc.methodname);
+					cpu.writeUTF(loc.methodtype);
 				}
+				
+				// Write thread data
+				cpu.writeInt(__tables.length);
+				
+				// Write individual thread
+				for (__NodeTable__ table : __tables)
+					this.__doWriteThread(cpu, table.thread, table);
 			}
 			
 			// Store sizes, which are important
@@ -240,73 +440,23 @@ public final class ProfilerSnapshot
 	/**
 	 * Builds the the method table.
 	 *
-	 * @return The table of instrumented methods.
+	 * @return The method table, the index of each location is its ID.
 	 * @since 2018/11/11
 	 */
-	private final Map<FrameLocation, Integer> __doMethodTable()
+	private final FrameLocation[] __doMethodTable()
 	{
-		// The table and the ID, which must be passable to sub-builders
-		Map<FrameLocation, Integer> rv = new LinkedHashMap<>();
-		int[] next = new int[1];
-		
-		// Need root frame for the entry point, used virtually to refer to
-		// multiple initial points in the entry frame since that is a thing
-		rv.put(FrameLocation.ENTRY_POINT, next[0]++);
-		
-		// Have to go through all threads recursively due to all the frames
-		// that exist to build IDs
-		Map<String, ProfiledThread> threads = this._threads;
-		synchronized (threads)
+		// Every location has already been given an ID as it was entered,
+		// including the root frame for the entry point
+		__LocationTable__ locations = this._locations;
+		synchronized (locations)
 		{
-			// Go through all threads
-			for (ProfiledThread t : threads.values())
-				this.__doMethodTableSub(rv, next, t._frames.values());
-		}
-		
-		return rv;
-	}
-	
-	/**
-	 * Builds the method table for frames.
-	 *
-	 * @param __rv The table to write to.
-	 * @param __nid The next ID.
-	 * @param __fs The frames to process.
-	 * @return The table of instrumented methods.
-	 * @throws NullPointerException On null arguments.
-	 * @since 2018/11/11
-	 */
-	private final Map<FrameLocation, Integer> __doMethodTableSub(
-		Map<FrameLocation, Integer> __rv,
-		int[] __nid, Iterable<ProfiledFrame> __fs)
-		throws NullPointerException
-	{
-		if (__rv == null || __nid == null || __fs == null)
-			throw new NullPointerException("NARG");
-		
-		// Handle each frame
-		for (ProfiledFrame f : __fs)
-		{
-			// Ignore if limit has been reached
-			if (f._depth >= ProfiledFrame.MAX_STACK_DEPTH)
-				continue;
+			int n = locations.size();
+			FrameLocation[] rv = new FrameLocation[n];
+			for (int i = 0; i < n; i++)
+				rv[i] = locations.location(i);
 			
-			// If the location is not in the map, set the ID
-			FrameLocation loc = f.location;
-			if (!__rv.containsKey(loc))
-			{
-				// Generate new ID
-				int id = __nid[0]++;
-				
-				// Store
-				__rv.put(loc, id);
-			}
-			
-			// Go into this frame's sub-frames
-			this.__doMethodTableSub(__rv, __nid, f._frames.values());
+			return rv;
 		}
-		
-		return __rv;
 	}
 	
 	/**
@@ -314,16 +464,16 @@ public final class ProfilerSnapshot
 	 *
 	 * @param __cpu The stream to write to.
 	 * @param __t The thread information to write.
-	 * @param __mids The method IDs.
+	 * @param __nodes The node table of the thread.
 	 * @throws IOException On write errors.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2018/11/11
 	 */
 	private final void __doWriteThread(DataOutputStream __cpu,
-		ProfiledThread __t, Map<FrameLocation, Integer> __mids)
+		ProfiledThread __t, __NodeTable__ __nodes)
 		throws IOException, NullPointerException
 	{
-		if (__cpu == null || __t == null || __mids == null)
+		if (__cpu == null || __t == null || __nodes == null)
 			throw new NullPointerException("NARG");
 		
 		// ID and name
@@ -333,15 +483,11 @@ public final class ProfilerSnapshot
 		// Always measure thread time
 		__cpu.writeBoolean(true);
 		
-		// Parse the node table for this thread
-		__NodeTable__ nodes = new __NodeTable__();
-		nodes.parseThread(__t);
-		
 		// Write the node table
 		try (ByteArrayOutputStream baos = new ByteArrayOutputStream(1024))
 		{
 			// Write to the temporary buffer
-			nodes.writeTo(baos, __mids);
+			__nodes.writeTo(baos);
 			
 			// Store the node table
 			__cpu.writeInt(baos.size());
@@ -351,9 +497,10 @@ public final class ProfilerSnapshot
 		// Node size is always 28
 		__cpu.writeInt(28);
 		
-		// Whole graph time
-		__cpu.writeLong(__t._totaltime);
-		__cpu.writeLong(__t._cputime);
+		// Whole graph time, this includes frames which are still active
+		long total = __nodes.totalTime();
+		__cpu.writeLong(total);
+		__cpu.writeLong(total);
 		
 		// No injected methods used
 		__cpu.writeLong(0);
@@ -364,52 +511,102 @@ public final class ProfilerSnapshot
 		__cpu.writeLong(Integer.MAX_VALUE);
 		
 		// Net time
-		__cpu.writeLong(__t._totaltime);
-		__cpu.writeLong(__t._cputime);
+		__cpu.writeLong(total);
+		__cpu.writeLong(total);
 		
 		// The number of methods invoked
-		__cpu.writeLong(__t._invtotal);
+		__cpu.writeLong(__nodes.invtotal);
 		
 		// Always display CPU time
 		__cpu.writeBoolean(true);
 	}
 	
 	/**
-	 * Dumps the frames to the given stream.
+	 * Copies the node tables of every thread and then resets them, the
+	 * tables are written later with {@link #__writeTo(OutputStream,
+	 * __NodeTable__[])}.
+	 *
+	 * @return The node tables of every thread.
+	 * @since 2020/07/29
+	 */
+	final __NodeTable__[] __roll()
+	{
+		// Nothing can be sampled or started until the reset is done
+		Map<String, ProfiledThread> threads = this._threads;
+		synchronized (threads)
+		{
+			int numthreads = threads.size(), at = 0;
+			__NodeTable__[] rv = new __NodeTable__[numthreads];
+			for (ProfiledThread t : threads.values())
+			{
+				// Each thread is copied and reset at the same time, so
+				// nothing is missing from either file
+				synchronized (t._lock)
+				{
+					rv[at++] = new __NodeTable__(t);
+					t.reset(System.nanoTime());
+				}
+			}
+			
+			return rv;
+		}
+	}
+	
+	/**
+	 * Samples every thread.
+	 *
+	 * @param __ns The time the samples account for.
+	 * @since 2020/07/29
+	 */
+	final void __sample(long __ns)
+	{
+		// This is locked so that the frame trees are never written while
+		// they are being sampled
+		Map<String, ProfiledThread> threads = this._threads;
+		synchronized (threads)
+		{
+			for (ProfiledThread thread : threads.values())
+				if (thread.sampled)
+					thread.sample(__ns);
+		}
+	}
+	
+	/**
+	 * Dumps the frame and its sub-frames to the given stream.
 	 *
 	 * @param __ps The stream to print to.
 	 * @param __tab The current tab level.
-	 * @param __fs The frames to dump.
+	 * @param __t The thread the frame is in.
+	 * @param __tree The call tree of the thread.
+	 * @param __node The node of the frame to dump.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2018/11/11
 	 */
 	private static final void __dumpFrames(PrintStream __ps, int __tab,
-		Iterable<ProfiledFrame> __fs)
+		ProfiledThread __t, __CallTree__ __tree, int __node)
 		throws NullPointerException
 	{
-		if (__ps == null || __fs == null)
+		if (__ps == null || __t == null || __tree == null)
 			throw new NullPointerException("NARG");
 		
-		// Go through each frame
-		for (ProfiledFrame f : __fs)
-		{
-			// Write tabs first
-			for (int i = 0; i < __tab; i++)
-				__ps.print(' ');
-			
-			// Write the frame itself
-			__ps.print(f.location);
-			
-			// Write information on the frame
-			__ps.printf(" [n=%d, t=%d, s=%d]",
-				f._numcalls,
-				f._traceruntime,
-				f._frameruntime);
-			__ps.println();
-			
-			// Go into this frame's frames
-			ProfilerSnapshot.__dumpFrames(__ps, __tab + 1, f._frames.values());
-		}
+		// Write tabs first
+		for (int i = 0; i < __tab; i++)
+			__ps.print(' ');
+		
+		// Write the frame itself
+		__CallTree__ tree = __tree;
+		__ps.print(__t._locations.location(tree._location[__node]));
+		
+		// Write information on the frame
+		__ps.printf(" [n=%d, t=%d, s=%d]",
+			tree._numcalls[__node],
+			tree._tracetime[__node],
+			tree._frametime[__node]);
+		__ps.println();
+		
+		// Go into this frame's frames
+		for (int sub = tree._child[__node]; sub >= 0;
+			sub = tree._sibling[sub])
+			ProfilerSnapshot.__dumpFrames(__ps, __tab + 1, __t, tree, sub);
 	}
 }
-
@@ -0,0 +1,32 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.emulator.profiler;
+
+/**
+ * This is a thread whose stack can be periodically sampled by the profiler,
+ * this is used when the profiler is not instrumenting every frame.
+ *
+ * @see ProfilerSnapshot#isSampling()
+ * @since 2020/07/29
+ */
+public interface SampleableThread
+{
+	/**
+	 * Samples the current stack of the thread, this will be called from
+	 * another thread.
+	 *
+	 * @return The frames which are in the stack, the first entry is the
+	 * bottom-most frame of the stack. If the stack is empty or the thread
+	 * cannot be sampled then this may return {@code null}.
+	 * @since 2020/07/29
+	 */
+	FrameLocation[] sampleStack();
+}
@@ -0,0 +1,360 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.emulator.profiler;
+
+import java.util.Arrays;
+
+/**
+ * This is the call tree of a single thread, every node is a frame location
+ * that was reached by a given path of calls. All of the nodes are stored in
+ * primitive arrays and are referred to by their index, so that the tree can
+ * be updated without allocating.
+ *
+ * Node {@link #ROOT} is the virtual entry point which every thread starts
+ * from, since the thread may have multiple bottom-most frames. A child node
+ * always has a higher index than its parent and its older siblings.
+ *
+ * This class is not thread safe.
+ *
+ * @since 2020/07/29
+ */
+final class __CallTree__
+{
+	/** The root node. */
+	public static final int ROOT =
+		0;
+	
+	/** The initial node capacity. */
+	private static final int _INITIAL_CAPACITY =
+		64;
+	
+	/** The maximum depth of nodes. */
+	protected final int maxdepth;
+	
+	/** The location of each node. */
+	int[] _location;
+	
+	/** The parent of each node. */
+	int[] _parent;
+	
+	/** The first child of each node. */
+	int[] _child;
+	
+	/** The last child of each node, so children are kept in order. */
+	int[] _lastchild;
+	
+	/** The next sibling of each node. */
+	int[] _sibling;
+	
+	/** The depth of each node. */
+	int[] _depth;
+	
+	/** The number of calls made into each node. */
+	int[] _numcalls;
+	
+	/** Cumulative time spent in each node and its children. */
+	long[] _tracetime;
+	
+	/** Time spent only in each node. */
+	long[] _frametime;
+	
+	/** The number of nodes. */
+	int _count;
+	
+	/** Open addressed index of nodes by parent and location. */
+	private int[] _index;
+	
+	/**
+	 * Initializes the tree with only the root node.
+	 *
+	 * @param __maxdepth The maximum depth of nodes, frames deeper than this
+	 * are not recorded.
+	 * @since 2020/07/29
+	 */
+	__CallTree__(int __maxdepth)
+	{
+		this(__maxdepth, __CallTree__._INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * Initializes the tree with only the root node.
+	 *
+	 * @param __maxdepth The maximum depth of nodes, frames deeper than this
+	 * are not recorded.
+	 * @param __cap The initial node capacity.
+	 * @since 2020/07/29
+	 */
+	private __CallTree__(int __maxdepth, int __cap)
+	{
+		this.maxdepth = __maxdepth;
+		
+		int cap = Math.max(__CallTree__._INITIAL_CAPACITY,
+			Integer.highestOneBit(Math.max(1, __cap - 1)) << 1);
+		this._location = new int[cap];
+		this._parent = new int[cap];
+		this._child = new int[cap];
+		this._lastchild = new int[cap];
+		this._sibling = new int[cap];
+		this._depth = new int[cap];
+		this._numcalls = new int[cap];
+		this._tracetime = new long[cap];
+		this._frametime = new long[cap];
+		this._index = new int[cap * 2];
+		
+		// Setup the root
+		this.__add(-1, __LocationTable__.ENTRY_POINT, 0);
+	}
+	
+	/**
+	 * Returns the child of the given node which is at the given location,
+	 * it is created if it does not exist.
+	 *
+	 * @param __parent The parent node.
+	 * @param __loc The location of the child.
+	 * @return The child node, or {@code -1} if it would be too deep.
+	 * @since 2020/07/29
+	 */
+	public final int child(int __parent, int __loc)
+	{
+		// Find an existing node in the index
+		int[] index = this._index;
+		int mask = index.length - 1;
+		int[] parents = this._parent;
+		int[] locations = this._location;
+		for (int at = __CallTree__.__hash(__parent, __loc) & mask;;
+			at = (at + 1) & mask)
+		{
+			int node = index[at] - 1;
+			if (node < 0)
+				break;
+			
+			if (parents[node] == __parent && locations[node] == __loc)
+				return node;
+		}
+		
+		// Frames which are too deep are not recorded
+		int depth = this._depth[__parent] + 1;
+		if (depth >= this.maxdepth)
+			return -1;
+		
+		return this.__add(__parent, __loc, depth);
+	}
+	
+	/**
+	 * Collapses the coldest nodes into their parents and returns the new
+	 * tree. The time spent in a collapsed node and its children becomes
+	 * time spent in the parent.
+	 *
+	 * @param __target The number of nodes which should be kept.
+	 * @param __keep Nodes which must be kept along with their parents, this
+	 * is updated to the nodes in the new tree. Nodes which are negative are
+	 * ignored.
+	 * @param __numkeep The number of nodes to keep.
+	 * @return The collapsed tree.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public final __CallTree__ collapse(int __target, int[] __keep,
+		int __numkeep)
+		throws NullPointerException
+	{
+		if (__keep == null)
+			throw new NullPointerException("NARG");
+		
+		int n = this._count;
+		int[] parents = this._parent;
+		long[] tracetime = this._tracetime;
+		
+		// Nodes which must be kept, since their frames are active
+		boolean[] keep = new boolean[n];
+		keep[__CallTree__.ROOT] = true;
+		for (int i = 0; i < __numkeep; i++)
+			for (int node = __keep[i]; node >= 0 && !keep[node];
+				node = parents[node])
+				keep[node] = true;
+		
+		// Nodes which spent at least this much time are kept
+		long[] sorted = Arrays.copyOf(tracetime, n);
+		Arrays.sort(sorted);
+		long threshold = sorted[Math.max(0, n - Math.max(1, __target))];
+		
+		// Since parents always come before their children, the nodes which
+		// are kept are known when their children are reached
+		__CallTree__ rv = new __CallTree__(this.maxdepth, __target);
+		int[] remap = new int[n];
+		remap[__CallTree__.ROOT] = __CallTree__.ROOT;
+		rv.__copyStats(__CallTree__.ROOT, this, __CallTree__.ROOT);
+		for (int i = 1; i < n; i++)
+		{
+			// Parent was collapsed, so it already has this time
+			int parent = remap[parents[i]];
+			if (parent < 0)
+			{
+				remap[i] = -1;
+				continue;
+			}
+			
+			if (keep[i] || (tracetime[i] >= threshold &&
+				rv._count < __target))
+			{
+				int node = rv.__add(parent, this._location[i],
+					this._depth[i]);
+				rv.__copyStats(node, this, i);
+				remap[i] = node;
+			}
+			
+			// The parent gets all of the time spent in this node
+			else
+			{
+				rv._frametime[parent] += tracetime[i];
+				remap[i] = -1;
+			}
+		}
+		
+		// Use the new nodes
+		for (int i = 0; i < __numkeep; i++)
+			if (__keep[i] >= 0)
+				__keep[i] = remap[__keep[i]];
+		
+		return rv;
+	}
+	
+	/**
+	 * Resets the number of calls and times of every node.
+	 *
+	 * @since 2020/07/29
+	 */
+	public final void reset()
+	{
+		int n = this._count;
+		Arrays.fill(this._numcalls, 0, n, 0);
+		Arrays.fill(this._tracetime, 0, n, 0);
+		Arrays.fill(this._frametime, 0, n, 0);
+	}
+	
+	/**
+	 * Adds a new node.
+	 *
+	 * @param __parent The parent node, {@code -1} if this is the root.
+	 * @param __loc The location of the node.
+	 * @param __depth The depth of the node.
+	 * @return The new node.
+	 * @since 2020/07/29
+	 */
+	private int __add(int __parent, int __loc, int __depth)
+	{
+		int node = this._count;
+		
+		// Grow the storage, the index is kept at most half full
+		int cap = this._location.length;
+		if (node >= cap)
+			this.__grow(cap * 2);
+		
+		this._location[node] = __loc;
+		this._parent[node] = __parent;
+		this._child[node] = -1;
+		this._lastchild[node] = -1;
+		this._sibling[node] = -1;
+		this._depth[node] = __depth;
+		this._count = node + 1;
+		
+		// Link into the end of the parent's children
+		if (__parent >= 0)
+		{
+			int last = this._lastchild[__parent];
+			if (last < 0)
+				this._child[__parent] = node;
+			else
+				this._sibling[last] = node;
+			this._lastchild[__parent] = node;
+		}
+		
+		// Index it
+		__CallTree__.__index(this._index, __parent, __loc, node);
+		
+		return node;
+	}
+	
+	/**
+	 * Copies the number of calls and times from the given node.
+	 *
+	 * @param __node The node to copy to.
+	 * @param __from The tree to copy from.
+	 * @param __fromnode The node to copy from.
+	 * @since 2020/07/29
+	 */
+	private void __copyStats(int __node, __CallTree__ __from, int __fromnode)
+	{
+		this._numcalls[__node] = __from._numcalls[__fromnode];
+		this._tracetime[__node] = __from._tracetime[__fromnode];
+		this._frametime[__node] = __from._frametime[__fromnode];
+	}
+	
+	/**
+	 * Grows the node storage and rebuilds the index.
+	 *
+	 * @param __cap The new capacity.
+	 * @since 2020/07/29
+	 */
+	private void __grow(int __cap)
+	{
+		this._location = Arrays.copyOf(this._location, __cap);
+		this._parent = Arrays.copyOf(this._parent, __cap);
+		this._child = Arrays.copyOf(this._child, __cap);
+		this._lastchild = Arrays.copyOf(this._lastchild, __cap);
+		this._sibling = Arrays.copyOf(this._sibling, __cap);
+		this._depth = Arrays.copyOf(this._depth, __cap);
+		this._numcalls = Arrays.copyOf(this._numcalls, __cap);
+		this._tracetime = Arrays.copyOf(this._tracetime, __cap);
+		this._frametime = Arrays.copyOf(this._frametime, __cap);
+		
+		// Rebuild the index
+		int[] index = new int[__cap * 2];
+		int[] parents = this._parent;
+		int[] locations = this._location;
+		for (int i = 0, n = this._count; i < n; i++)
+			__CallTree__.__index(index, parents[i], locations[i], i);
+		this._index = index;
+	}
+	
+	/**
+	 * Returns the hash for the given parent and location.
+	 *
+	 * @param __parent The parent node.
+	 * @param __loc The location.
+	 * @return The hash for the node.
+	 * @since 2020/07/29
+	 */
+	private static int __hash(int __parent, int __loc)
+	{
+		int h = (__parent * 0x9E3779B1) ^ __loc;
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * Places the node into the index.
+	 *
+	 * @param __index The index.
+	 * @param __parent The parent node.
+	 * @param __loc The location.
+	 * @param __node The node.
+	 * @since 2020/07/29
+	 */
+	private static void __index(int[] __index, int __parent, int __loc,
+		int __node)
+	{
+		int mask = __index.length - 1;
+		int at = __CallTree__.__hash(__parent, __loc) & mask;
+		while (__index[at] != 0)
+			at = (at + 1) & mask;
+		__index[at] = __node + 1;
+	}
+}
@@ -0,0 +1,150 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.emulator.profiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This interns every frame location into an integer identifier, so that
+ * locations are only ever created once and the call trees only need to
+ * store integers. The identifiers are the same ones which are written to
+ * the method table of the snapshot.
+ *
+ * Looking up a location which was already interned does not allocate and
+ * does not lock.
+ *
+ * @since 2020/07/29
+ */
+final class __LocationTable__
+{
+	/** The identifier of {@link FrameLocation#ENTRY_POINT}. */
+	public static final int ENTRY_POINT =
+		0;
+	
+	/** Identifiers by class, method name, and then method type. */
+	private final Map<String, Map<String, Map<String, Integer>>> _ids =
+		new ConcurrentHashMap<>();
+	
+	/** Locations by their identifier. */
+	private final List<FrameLocation> _locations =
+		new ArrayList<>();
+	
+	/**
+	 * Initializes the table with only the entry point.
+	 *
+	 * @since 2020/07/29
+	 */
+	__LocationTable__()
+	{
+		this.id(FrameLocation.ENTRY_POINT);
+	}
+	
+	/**
+	 * Returns the identifier of the given location.
+	 *
+	 * @param __loc The location to get.
+	 * @return The identifier for the location.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public final int id(FrameLocation __loc)
+		throws NullPointerException
+	{
+		if (__loc == null)
+			throw new NullPointerException("NARG");
+		
+		return this.id(__loc.inclass, __loc.methodname, __loc.methodtype);
+	}
+	
+	/**
+	 * Returns the identifier of the given location.
+	 *
+	 * @param __cl The class.
+	 * @param __mn The method name.
+	 * @param __mt The method type.
+	 * @return The identifier for the location.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public final int id(String __cl, String __mn, String __mt)
+		throws NullPointerException
+	{
+		if (__cl == null || __mn == null || __mt == null)
+			throw new NullPointerException("NARG");
+		
+		// Fast path, the location is almost always known
+		Map<String, Map<String, Integer>> names = this._ids.get(__cl);
+		if (names != null)
+		{
+			Map<String, Integer> types = names.get(__mn);
+			if (types != null)
+			{
+				Integer rv = types.get(__mt);
+				if (rv != null)
+					return rv;
+			}
+		}
+		
+		// Slow path, this has to be created but another thread might have
+		// done so already
+		synchronized (this)
+		{
+			names = this._ids.get(__cl);
+			if (names == null)
+				this._ids.put(__cl, (names = new ConcurrentHashMap<>()));
+			
+			Map<String, Integer> types = names.get(__mn);
+			if (types == null)
+				names.put(__mn, (types = new ConcurrentHashMap<>()));
+			
+			Integer rv = types.get(__mt);
+			if (rv != null)
+				return rv;
+			
+			List<FrameLocation> locations = this._locations;
+			int id = locations.size();
+			locations.add((id == __LocationTable__.ENTRY_POINT ?
+				FrameLocation.ENTRY_POINT :
+				new FrameLocation(__cl, __mn, __mt)));
+			
+			types.put(__mt, id);
+			return id;
+		}
+	}
+	
+	/**
+	 * Returns the location of the given identifier.
+	 *
+	 * @param __id The identifier.
+	 * @return The location for the identifier.
+	 * @throws IndexOutOfBoundsException If the identifier is not valid.
+	 * @since 2020/07/29
+	 */
+	public final synchronized FrameLocation location(int __id)
+		throws IndexOutOfBoundsException
+	{
+		return this._locations.get(__id);
+	}
+	
+	/**
+	 * Returns the number of interned locations.
+	 *
+	 * @return The number of locations.
+	 * @since 2020/07/29
+	 */
+	public final synchronized int size()
+	{
+		return this._locations.size();
+	}
+}
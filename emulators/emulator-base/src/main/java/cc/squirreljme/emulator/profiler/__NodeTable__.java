@@ -13,12 +13,7 @@ package cc.squirreljme.emulator.profiler;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 /**
  * This class contains the parsed node table which defines the structure for
@@ -28,185 +23,238 @@ import java.util.Map;
  */
 final class __NodeTable__
 {
-	/** Linear set of frame nodes. */
-	private final List<ProfiledFrame> _linear = 
-		new ArrayList<>();
+	/** The thread the table is for. */
+	protected final ProfiledThread thread;
 	
-	/** Offsets for each node. */
-	private final Map<ProfiledFrame, __Position__> _offsets =
-		new HashMap<>();
+	/** The number of methods which were invoked. */
+	protected final long invtotal;
 	
-	/** Current position. */
-	private final __Position__ _at =
-		new __Position__();
+	/** The location of each node. */
+	private final int[] _location;
 	
-	/** Overflowed narrow point? */
-	private boolean _overflowed;
+	/** The number of calls of each node. */
+	private final int[] _numcalls;
+	
+	/** The cumulative time of each node. */
+	private final long[] _tracetime;
+	
+	/** The self time of each node. */
+	private final long[] _frametime;
+	
+	/** The first child of each node. */
+	private final int[] _child;
+	
+	/** The next sibling of each node. */
+	private final int[] _sibling;
+	
+	/** Nodes in the order they are written. */
+	private final int[] _linear;
+	
+	/** The number of nodes which are written. */
+	private final int _count;
+	
+	/** The offset of each node within the table. */
+	private final int[] _offsets;
+	
+	/** Are offsets wider than 24 bits? */
+	private final boolean _wide;
 	
 	/**
-	 * Parses the frames and loads into a node table.
+	 * Parses the call tree of the given thread into a node table.
+	 *
+	 * The tree may still be in use by its thread, so a copy of it is made
+	 * first while holding the lock of the thread. Since children always come
+	 * after their parents and siblings, any link which does not is ignored.
 	 *
-	 * @param __fs The input frames to map.
+	 * @param __t The thread to parse.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2018/11/11
 	 */
-	public final void parse(Iterable<ProfiledFrame> __fs)
+	__NodeTable__(ProfiledThread __t)
 		throws NullPointerException
 	{
-		if (__fs == null)
+		if (__t == null)
 			throw new NullPointerException("NARG");
+		
+		this.thread = __t;
+		
+		// Copy the tree so that the thread can continue to use it
+		int[] location;
+		int[] child;
+		int[] sibling;
+		int n;
+		long totaltime;
+		synchronized (__t._lock)
+		{
+			__CallTree__ tree = __t._tree;
+			n = tree._count;
 			
-		List<ProfiledFrame> linear = this._linear;
-		Map<ProfiledFrame, __Position__> offsets = this._offsets;
+			this._location = (location = Arrays.copyOf(tree._location, n));
+			this._numcalls = Arrays.copyOf(tree._numcalls, n);
+			this._tracetime = Arrays.copyOf(tree._tracetime, n);
+			this._frametime = Arrays.copyOf(tree._frametime, n);
+			this._child = (child = Arrays.copyOf(tree._child, n));
+			this._sibling = (sibling = Arrays.copyOf(tree._sibling, n));
+			
+			totaltime = __t._totaltime;
+			this.invtotal = __t._invtotal;
+		}
+		
+		for (int i = 0; i < n; i++)
+		{
+			if (child[i] <= i || child[i] >= n)
+				child[i] = -1;
+			if (sibling[i] <= i || sibling[i] >= n)
+				sibling[i] = -1;
+		}
 		
-		// Overflow check for wider offsets
-		boolean overflowed = false;
+		// The tree root is the entry point which the profiler format uses
+		// as the single root node, since the thread can have multiple
+		// methods forking from it
+		int[] linear = new int[n];
+		int[] narrow = new int[n];
+		int[] wide = new int[n];
 		
-		// Determine positions for all nodes
-		__Position__ at = this._at;
-		for (ProfiledFrame f : __fs)
+		// Go through the tree in order, every node is only ever pending once
+		int at = 0, narrowat = 0, wideat = 0;
+		int[] pending = new int[n];
+		int numpending = 0;
+		pending[numpending++] = __CallTree__.ROOT;
+		while (numpending > 0)
 		{
-			// Too deep?
-			if (f._depth >= ProfiledFrame.MAX_STACK_DEPTH)
-				continue;
+			int node = pending[--numpending];
+			linear[at++] = node;
 			
-			// Will need to know how many sub-frames there are
-			Collection<ProfiledFrame> sub = f._frames.values();
+			// Count and queue the sub-frames, they are pushed in reverse so
+			// that they are visited in order
+			int numsubs = 0;
+			for (int sub = child[node]; sub >= 0; sub = sibling[sub])
+				numsubs++;
+			for (int i = numpending + numsubs - 1, sub = child[node];
+				sub >= 0; sub = sibling[sub], i--)
+				pending[i] = sub;
+			numpending += numsubs;
 			
 			// Track position of this frame
-			linear.add(f);
-			offsets.put(f, at.increment(sub.size()));
+			narrow[node] = narrowat;
+			wide[node] = wideat;
+			narrowat += 28 + (numsubs * 3);
+			wideat += 28 + (numsubs * 4);
+		}
+		
+		this._linear = linear;
+		this._count = at;
+		
+		// Frames which are still active have not had their time counted
+		// yet, so they at least took as long as their sub-frames did. Since
+		// children come after their parents, they are handled first here.
+		long[] trace = this._tracetime;
+		for (int i = at - 1; i >= 0; i--)
+		{
+			int node = linear[i];
 			
-			// Handle sub-frames for this frame
-			this.parse(sub);
+			long subs = 0;
+			for (int sub = child[node]; sub >= 0; sub = sibling[sub])
+				subs += trace[sub];
 			
-			// If these many bytes were written we overflow now
-			if (at._narrow > 16777215)
-				overflowed = true;
+			if (node == __CallTree__.ROOT)
+				trace[node] = Math.max(totaltime, subs);
+			else if (trace[node] < subs)
+				trace[node] = subs;
 		}
 		
-		// Did we overflow?
-		if (overflowed)
-			this._overflowed = true;
+		// If there were a large number of entries written then sub-node
+		// offsets use more bytes
+		boolean overflowed = (narrowat > 16777215);
+		this._offsets = (overflowed ? wide : narrow);
+		this._wide = overflowed;
 	}
 	
 	/**
-	 * Parses the frames and loads into a node table.
+	 * Returns the total time of the thread.
 	 *
-	 * @param __t The thread to parse.
-	 * @throws NullPointerException On null arguments.
-	 * @since 2018/11/11
+	 * @return The total time of the thread.
+	 * @since 2020/07/29
 	 */
-	public final void parseThread(ProfiledThread __t)
-		throws NullPointerException
+	public final long totalTime()
 	{
-		if (__t == null)
-			throw new NullPointerException("NARG");
-		
-		Iterable<ProfiledFrame> frames = __t._frames.values();
-		
-		// Create virtual frame since the root actually can have multiple
-		// methods forking from it and the profiler format can only handle
-		// a single root
-		ProfiledFrame vframe = new ProfiledFrame(FrameLocation.ENTRY_POINT,
-			0);
-		
-		// Only ever called once
-		vframe._numcalls = 1;
-		
-		// Initialize frame times with thread times
-		vframe._traceruntime = __t._totaltime;
-		vframe._tracecputime = __t._cputime;
-		
-		// There is no self time since this is purely a virtual node
-		vframe._frameruntime = 0;
-		vframe._framecputime = 0;
-		
-		// Store the thread sub-frames into this virtual thread
-		Map<FrameLocation, ProfiledFrame> vsubf = vframe._frames;
-		for (ProfiledFrame f : frames)
-			vsubf.put(f.location, f);
-		
-		// Parse this special frame, which will then parse its sub-frames
-		// accordingly
-		this.parse(Arrays.<ProfiledFrame>asList(vframe));
-	}		
+		return this._tracetime[__CallTree__.ROOT];
+	}
 	
 	/**
 	 * Writes the node table to the given stream.
 	 *
 	 * @param __os The stream to write to.
-	 * @param __mids Node IDs.
 	 * @throws IOException On write errors.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2018/11/11
 	 */
-	public final void writeTo(OutputStream __os,
-		Map<FrameLocation, Integer> __mids)
+	public final void writeTo(OutputStream __os)
 		throws IOException, NullPointerException
 	{
-		if (__os == null || __mids == null)
+		if (__os == null)
 			throw new NullPointerException("NARG");
 		
 		DataOutputStream dos = new DataOutputStream(__os);
 		
-		// If there were a large number of entries written then sub-node
-		// offsets use more bytes
-		List<ProfiledFrame> linear = this._linear;
-		boolean wide = this._overflowed;
+		int[] location = this._location;
+		int[] numcalls = this._numcalls;
+		long[] tracetime = this._tracetime;
+		long[] frametime = this._frametime;
+		int[] child = this._child;
+		int[] sibling = this._sibling;
 		
 		// Just go through every frame and write it using a simple linear
 		// index
-		Map<ProfiledFrame, __Position__> offsets = this._offsets;
-		for (ProfiledFrame f : linear)
+		boolean wide = this._wide;
+		int[] linear = this._linear;
+		int[] offsets = this._offsets;
+		for (int i = 0, n = this._count; i < n; i++)
 		{
-			// Too deep or missing location ID?
-			FrameLocation location = f.location;
-			Integer flid = __mids.get(f.location);
-			if (f._depth >= ProfiledFrame.MAX_STACK_DEPTH || flid == null)
-				continue;
+			int node = linear[i];
+			
+			// The entry point is only ever called once and there is no self
+			// time since it is purely virtual
+			long trace = tracetime[node],
+				self;
+			int calls;
+			if (node == __CallTree__.ROOT)
+			{
+				calls = 1;
+				self = 0;
+			}
+			else
+			{
+				calls = numcalls[node];
+				self = frametime[node];
+			}
 			
 			// The frame location ID, this is data stored in a previous table
-			dos.writeShort(flid);
+			dos.writeShort(location[node]);
 			
 			// Number of calls
-			dos.writeInt((int)Math.min(Integer.MAX_VALUE, f._numcalls));
+			dos.writeInt(calls);
 			
 			// Total time and self time
-			__NodeTable__.__writeLong40(dos, f._traceruntime);
-			__NodeTable__.__writeLong40(dos, f._frameruntime);
+			__NodeTable__.__writeLong40(dos, trace);
+			__NodeTable__.__writeLong40(dos, self);
 			
 			// Total time and self time (not sleeping/blocking)
-			__NodeTable__.__writeLong40(dos, f._tracecputime);
-			__NodeTable__.__writeLong40(dos, f._framecputime);
-			
-			// Write offsets to the sub-frame nodes
-			Collection<ProfiledFrame> sub = f._frames.values();
+			__NodeTable__.__writeLong40(dos, trace);
+			__NodeTable__.__writeLong40(dos, self);
 			
-			// Determine and write the actual number of sub-frames used
-			int actsubs = 0;
-			for (ProfiledFrame sf : sub)
-				if (sf._depth >= ProfiledFrame.MAX_STACK_DEPTH)
-					continue;
-				else
-					actsubs++;
-			dos.writeShort(actsubs);
+			// Write the number of sub-frames
+			int numsubs = 0;
+			for (int sub = child[node]; sub >= 0; sub = sibling[sub])
+				numsubs++;
+			dos.writeShort(numsubs);
 			
-			// Write sub-frame table
-			for (ProfiledFrame sf : sub)
-			{
-				// Too deep
-				if (sf._depth >= ProfiledFrame.MAX_STACK_DEPTH)
-					continue;
-				
-				__Position__ p = offsets.get(sf);
-				
-				// Nodes will either be wide or narrow
+			// Write sub-frame table, nodes will either be wide or narrow
+			for (int sub = child[node]; sub >= 0; sub = sibling[sub])
 				if (wide)
-					dos.writeInt(p._wide);
+					dos.writeInt(offsets[sub]);
 				else
-					__NodeTable__.__writeInt24(dos, p._narrow);
-			}
+					__NodeTable__.__writeInt24(dos, offsets[sub]);
 		}
 	}
 	
@@ -261,70 +309,4 @@ final class __NodeTable__
 		__dos.writeByte((byte)(__v >>> 8));
 		__dos.writeByte((byte)(__v));
 	}
-	
-	/**
-	 * Position of a node within the node table.
-	 *
-	 * @since 2018/11/11
-	 */
-	private static final class __Position__
-	{
-		/** Narrow position. */
-		int _narrow;
-		
-		/** Wide position. */
-		int _wide;
-		
-		/**
-		 * Initializes default position.
-		 *
-		 * @since 2018/11/11
-		 */
-		__Position__()
-		{
-		}
-		
-		/**
-		 * Initializes for the given positions.
-		 *
-		 * @param __n The narrow position.
-		 * @param __w The wide position.
-		 * @since 2018/11/11
-		 */
-		__Position__(int __n, int __w)
-		{
-			this._narrow = __n;
-			this._wide = __w;
-		}
-		
-		/**
-		 * Increments this position by the given number of sub-node units
-		 * and returns the old one.
-		 *
-		 * @param __num The number of sub-node references to increment by.
-		 * @return The old position in a new object.
-		 * @throws IllegalArgumentException If the number of nodes is negative.
-		 * @since 2018/11/11
-		 */
-		public __Position__ increment(int __num)
-			throws IllegalArgumentException
-		{
-			// {@squirreljme.error AH08 Cannot write negative number of
-			// nodes.}
-			if (__num < 0)
-				throw new IllegalArgumentException("AH08");
-			
-			// Store the old position first
-			int narrow = this._narrow,
-				wide = this._wide;
-			__Position__ rv = new __Position__(narrow, wide);
-			
-			// Increment with new offsets
-			this._narrow = narrow + 28 + (__num * 3);
-			this._wide = wide + 28 + (__num * 4);
-			
-			return rv;
-		}
-	}
 }
-
@@ -0,0 +1,172 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.emulator.profiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Deque;
+import java.util.LinkedList;
+
+/**
+ * This runs in a background thread and periodically writes the snapshot to
+ * a sequence of files, resetting it after each one. Intervals which could
+ * not be written are kept and written again on the next roll.
+ *
+ * @since 2020/07/29
+ */
+final class __Roller__
+	implements Runnable
+{
+	/** The maximum number of intervals which wait to be written. */
+	private static final int _MAX_PENDING =
+		16;
+	
+	/** The snapshot to roll, weak so the roller stops when it is gone. */
+	private final Reference<ProfilerSnapshot> _snapshot;
+	
+	/** The path the snapshot is written to. */
+	private final Path _path;
+	
+	/** The rolling interval in seconds. */
+	private final long _interval;
+	
+	/**
+	 * Initializes the roller.
+	 *
+	 * @param __ps The snapshot to roll.
+	 * @param __path The path the snapshot is written to.
+	 * @param __interval The rolling interval in seconds.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	__Roller__(ProfilerSnapshot __ps, Path __path, long __interval)
+		throws NullPointerException
+	{
+		if (__ps == null || __path == null)
+			throw new NullPointerException("NARG");
+		
+		this._snapshot = new WeakReference<>(__ps);
+		this._path = __path;
+		this._interval = Math.max(1, __interval);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public void run()
+	{
+		// Rolled files are placed next to the snapshot with a number
+		Path path = this._path;
+		String base = path.getFileName().toString();
+		if (base.endsWith(".nps"))
+			base = base.substring(0, base.length() - 4);
+		
+		// Intervals which could not be written yet, they are kept so that
+		// they can be written on the next roll
+		Deque<__NodeTable__[]> pending = new LinkedList<>();
+		
+		long interval = this._interval * 1000L;
+		for (int seq = 1;;)
+		{
+			try
+			{
+				Thread.sleep(interval);
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			
+			// Stop rolling once the snapshot is no longer used
+			ProfilerSnapshot snapshot = this._snapshot.get();
+			if (snapshot == null)
+				return;
+			
+			// The threads are reset now, so they continue to be profiled
+			// while this interval is written
+			pending.addLast(snapshot.__roll());
+			
+			// Write every interval in order, stopping at the first failure
+			while (!pending.isEmpty())
+			{
+				Path roll = path.resolveSibling(
+					String.format("%s-%04d.nps", base, seq));
+				try
+				{
+					__Roller__.__write(snapshot, roll, pending.peekFirst());
+				}
+				catch (IOException e)
+				{
+					todo.DEBUG.note("Could not write profiler snapshot " +
+						"%s: %s", roll, e);
+					break;
+				}
+				
+				pending.removeFirst();
+				seq++;
+			}
+			
+			// Do not keep too many intervals if writing keeps failing
+			while (pending.size() > __Roller__._MAX_PENDING)
+			{
+				pending.removeFirst();
+				
+				todo.DEBUG.note("Dropped profiler snapshot %s-%04d.nps.",
+					base, seq++);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the given interval to the given file, it is written to a
+	 * temporary file first so that a failed write does not leave a partial
+	 * snapshot behind.
+	 *
+	 * @param __ps The snapshot being rolled.
+	 * @param __roll The file to write to.
+	 * @param __tables The node tables of the interval.
+	 * @throws IOException On write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private static void __write(ProfilerSnapshot __ps, Path __roll,
+		__NodeTable__[] __tables)
+		throws IOException, NullPointerException
+	{
+		if (__ps == null || __roll == null || __tables == null)
+			throw new NullPointerException("NARG");
+		
+		Path parent = __roll.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		
+		Path temp = Files.createTempFile(parent, "roll", ".tmp");
+		try
+		{
+			try (OutputStream out = Files.newOutputStream(temp))
+			{
+				__ps.__writeTo(out, __tables);
+			}
+			
+			Files.move(temp, __roll, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			Files.deleteIfExists(temp);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.emulator.profiler;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+
+/**
+ * This runs in a background thread and periodically samples the stacks of
+ * every thread in a snapshot.
+ *
+ * @since 2020/07/29
+ */
+final class __Sampler__
+	implements Runnable
+{
+	/** The snapshot to sample, weak so the sampler stops when it is gone. */
+	private final Reference<ProfilerSnapshot> _snapshot;
+	
+	/** The sampling interval in milliseconds. */
+	private final long _interval;
+	
+	/**
+	 * Initializes the sampler.
+	 *
+	 * @param __ps The snapshot to sample.
+	 * @param __interval The sampling interval in milliseconds.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	__Sampler__(ProfilerSnapshot __ps, long __interval)
+		throws NullPointerException
+	{
+		if (__ps == null)
+			throw new NullPointerException("NARG");
+		
+		this._snapshot = new WeakReference<>(__ps);
+		this._interval = Math.max(1, __interval);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public void run()
+	{
+		long interval = this._interval;
+		long last = System.nanoTime();
+		for (;;)
+		{
+			try
+			{
+				Thread.sleep(interval);
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			
+			// Stop sampling once the snapshot is no longer used
+			ProfilerSnapshot snapshot = this._snapshot.get();
+			if (snapshot == null)
+				return;
+			
+			// Each sample accounts for the time since the last one, since
+			// sleeping is not exact
+			long now = System.nanoTime();
+			snapshot.__sample(now - last);
+			last = now;
+		}
+	}
+}
@@ -261,6 +261,10 @@ public abstract class VMFactory
 				systemProperties,
 				mainArgs.<String>toArray(new String[mainArgs.size()]));
 			
+			// Periodically write the snapshot if it is rolled
+			if (snapshotPath != null)
+				profilerSnapshot.rollTo(snapshotPath);
+			
 			// Run the virtual machine until it exits, but do not exit yet
 			// because we want the snapshot to be created
 			exitCode = vm.runVm();
@@ -0,0 +1,227 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.springcoat;
+
+/**
+ * This is a resolved method reference at a single invocation instruction,
+ * it is stored so that the class and method do not need to be looked up and
+ * checked every time the instruction executes.
+ *
+ * For virtual and interface invocations this is also an inline cache of
+ * the methods which were invoked for a small number of receiver classes, if
+ * more classes are seen then the call site is megamorphic and the virtual
+ * or interface method tables are used instead.
+ *
+ * @since 2020/07/20
+ */
+final class CallSite
+{
+	/** The number of receiver classes which may be cached. */
+	private static final int _POLYMORPHIC_LIMIT =
+		4;
+	
+	/** The empty cache. */
+	private static final Object[] _EMPTY_CACHE =
+		new Object[0];
+	
+	/** The class the method reference refers to. */
+	protected final SpringClass refClass;
+	
+	/** The method which was resolved. */
+	protected final SpringMethod refMethod;
+	
+	/** The number of arguments to pop, including the instance. */
+	protected final int argCount;
+	
+	/** The slot of the method in the virtual or interface table. */
+	protected final int slot;
+	
+	/** The handler for the method, if it is native. */
+	protected final MLEDispatcherTarget nativeTarget;
+	
+	/** Receiver classes followed by their target methods. */
+	private volatile Object[] _cache =
+		CallSite._EMPTY_CACHE;
+	
+	/** Has this call site seen too many receiver classes? */
+	private volatile boolean _megamorphic;
+	
+	/**
+	 * Initializes the call site.
+	 *
+	 * @param __refClass The referenced class.
+	 * @param __refMethod The resolved method.
+	 * @param __argCount The number of arguments to pop.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/20
+	 */
+	CallSite(SpringClass __refClass, SpringMethod __refMethod,
+		int __argCount)
+		throws NullPointerException
+	{
+		this(__refClass, __refMethod, __argCount, -1);
+	}
+	
+	/**
+	 * Initializes the call site for a virtual or interface invocation.
+	 *
+	 * @param __refClass The referenced class.
+	 * @param __refMethod The resolved method.
+	 * @param __argCount The number of arguments to pop.
+	 * @param __slot The slot of the method in the virtual table of the
+	 * referenced class.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/23
+	 */
+	CallSite(SpringClass __refClass, SpringMethod __refMethod,
+		int __argCount, int __slot)
+		throws NullPointerException
+	{
+		this(__refClass, __refMethod, __argCount, __slot, null);
+	}
+	
+	/**
+	 * Initializes the call site.
+	 *
+	 * @param __refClass The referenced class.
+	 * @param __refMethod The resolved method.
+	 * @param __argCount The number of arguments to pop.
+	 * @param __slot The slot of the method in the virtual table of the
+	 * referenced class, negative if not used.
+	 * @param __native The handler of the method if it is native, may be
+	 * {@code null}.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/26
+	 */
+	CallSite(SpringClass __refClass, SpringMethod __refMethod,
+		int __argCount, int __slot, MLEDispatcherTarget __native)
+		throws NullPointerException
+	{
+		if (__refClass == null || __refMethod == null)
+			throw new NullPointerException("NARG");
+		
+		this.refClass = __refClass;
+		this.refMethod = __refMethod;
+		this.argCount = __argCount;
+		this.slot = __slot;
+		this.nativeTarget = __native;
+	}
+	
+	/**
+	 * Returns the method to invoke for an interface invocation on the given
+	 * receiver class.
+	 *
+	 * @param __cl The class of the receiver.
+	 * @return The method to invoke.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/23
+	 */
+	final SpringMethod interfaceTarget(SpringClass __cl)
+		throws NullPointerException
+	{
+		if (__cl == null)
+			throw new NullPointerException("NARG");
+		
+		SpringMethod rv = this.__cached(__cl);
+		if (rv == null)
+		{
+			rv = __cl.interfaceMethod(this.refClass, this.slot,
+				this.refMethod.nameAndType());
+			this.__cache(__cl, rv);
+		}
+		
+		return rv;
+	}
+	
+	/**
+	 * Returns the method to invoke for a virtual invocation on the given
+	 * receiver class.
+	 *
+	 * @param __cl The class of the receiver.
+	 * @return The method to invoke.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/23
+	 */
+	final SpringMethod virtualTarget(SpringClass __cl)
+		throws NullPointerException
+	{
+		if (__cl == null)
+			throw new NullPointerException("NARG");
+		
+		SpringMethod rv = this.__cached(__cl);
+		if (rv == null)
+		{
+			rv = __cl.virtualMethod(this.slot, this.refMethod.nameAndType());
+			this.__cache(__cl, rv);
+		}
+		
+		return rv;
+	}
+	
+	/**
+	 * Caches the target method for the given receiver class, if the limit
+	 * is reached then the call site becomes megamorphic.
+	 *
+	 * @param __cl The class of the receiver.
+	 * @param __m The method to invoke.
+	 * @since 2020/07/23
+	 */
+	private void __cache(SpringClass __cl, SpringMethod __m)
+	{
+		// Nothing is cached for megamorphic call sites
+		if (this._megamorphic)
+			return;
+		
+		synchronized (this)
+		{
+			if (this._megamorphic)
+				return;
+			
+			// Too many classes to cache?
+			Object[] cache = this._cache;
+			int n = cache.length;
+			if (n >= CallSite._POLYMORPHIC_LIMIT * 2)
+			{
+				this._megamorphic = true;
+				this._cache = CallSite._EMPTY_CACHE;
+				return;
+			}
+			
+			// Could have been cached in another thread
+			for (int i = 0; i < n; i += 2)
+				if (cache[i] == __cl)
+					return;
+			
+			// Copy and add to the end, so readers never see partial caches
+			Object[] add = new Object[n + 2];
+			System.arraycopy(cache, 0, add, 0, n);
+			add[n] = __cl;
+			add[n + 1] = __m;
+			this._cache = add;
+		}
+	}
+	
+	/**
+	 * Returns the cached target method for the given receiver class.
+	 *
+	 * @param __cl The class of the receiver.
+	 * @return The cached method or {@code null} if it is not cached.
+	 * @since 2020/07/23
+	 */
+	private SpringMethod __cached(SpringClass __cl)
+	{
+		Object[] cache = this._cache;
+		for (int i = 0, n = cache.length; i < n; i += 2)
+			if (cache[i] == __cl)
+				return (SpringMethod)cache[i + 1];
+		return null;
+	}
+}
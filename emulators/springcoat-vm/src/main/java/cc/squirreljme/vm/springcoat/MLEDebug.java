@@ -43,10 +43,8 @@ public enum MLEDebug
 				__thread.resolveClass("java/lang/Throwable")))
 				throw new SpringMLECallError("Not a Throwable.");
 			
-			return ((SpringSimpleObject)object).fieldByNameAndType(
-				false, "_stack",
-				"[Lcc/squirreljme/jvm/mle/brackets/TracePointBracket;")
-				.get();
+			return ((SpringSimpleObject)object).getField("_stack",
+				"[Lcc/squirreljme/jvm/mle/brackets/TracePointBracket;");
 		}
 	},
 	
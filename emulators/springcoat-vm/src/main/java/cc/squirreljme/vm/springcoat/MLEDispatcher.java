@@ -155,6 +155,27 @@ public enum MLEDispatcher
 		if (__thread == null || __class == null)
 			throw new NullPointerException("NARG");
 		
+		// Find and call it
+		return MLEDispatcher.target(__class, __func).handle(__thread, __args);
+	}
+	
+	/**
+	 * Returns the target which handles the given native method, this may
+	 * be kept so that later calls do not need to look it up again.
+	 *
+	 * @param __class The native class being called.
+	 * @param __func The method being called.
+	 * @return The target for the function.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/26
+	 */
+	public static MLEDispatcherTarget target(ClassName __class,
+		MethodNameAndType __func)
+		throws NullPointerException
+	{
+		if (__class == null || __func == null)
+			throw new NullPointerException("NARG");
+		
 		// Find the sub-tree
 		Map<String, MLEDispatcherTarget> subTree = MLEDispatcher._fnTree.get(
 			__class.toString());
@@ -168,7 +189,6 @@ public enum MLEDispatcher
 			throw new SpringVirtualMachineException(String.format(
 				"Unknown MLE Shelf Function: %s::%s", __class, __func));
 		
-		// Call it
-		return target.handle(__thread, __args);
+		return target;
 	}
 }
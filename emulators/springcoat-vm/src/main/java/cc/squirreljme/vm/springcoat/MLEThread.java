@@ -168,13 +168,12 @@ public enum MLEThread
 		@Override
 		public Object handle(SpringThreadWorker __thread, Object... __args)
 		{
-			SpringFieldStorage field = MLEThread.__javaThread(__thread,
-				__args[0]).fieldByNameAndType(false, 
-				"_interrupted", "Z");
+			SpringSimpleObject javaThread = MLEThread.__javaThread(__thread,
+				__args[0]);
 			
 			// Get and clear the field value
-			Object old = field.get();
-			field.set(false);
+			Object old = javaThread.getField("_interrupted", "Z");
+			javaThread.setField("_interrupted", "Z", false);
 			return old;
 		}
 	}, 
@@ -191,8 +190,8 @@ public enum MLEThread
 		public Object handle(SpringThreadWorker __thread, Object... __args)
 		{
 			// Just set the started field to true
-			MLEThread.__javaThread(__thread, __args[0]).fieldByNameAndType(
-				false, "_started", "Z").set(true);
+			MLEThread.__javaThread(__thread, __args[0]).setField(
+				"_started", "Z", true);
 			return null;
 		}
 	},
@@ -209,8 +208,7 @@ public enum MLEThread
 		{
 			// Just get the state of the given field
 			return MLEThread.__javaThread(__thread, __args[0])
-				.fieldByNameAndType(false, 
-					"_started", "Z").get();
+				.getField("_started", "Z");
 		}
 	},
 	
@@ -223,9 +221,7 @@ public enum MLEThread
 		{
 			// Just get the state of the given field
 			return MLEThread.__javaThread(__thread, __args[0])
-				.fieldByNameAndType(
-				false, "_runnable",
-				"Ljava/lang/Runnable;").get();
+				.getField("_runnable", "Ljava/lang/Runnable;");
 		}
 	},
 	
@@ -240,9 +236,8 @@ public enum MLEThread
 		public Object handle(SpringThreadWorker __thread, Object... __args)
 		{
 			// Just set the started field to true
-			MLEThread.__javaThread(__thread, __args[0]).fieldByNameAndType(
-				false, "_isAlive", "Z")
-				.set((int)__args[1] != 0);
+			MLEThread.__javaThread(__thread, __args[0]).setField(
+				"_isAlive", "Z", (int)__args[1] != 0);
 			return null;
 		}
 	},
@@ -373,11 +368,10 @@ public enum MLEThread
 		@Override
 		public Object handle(SpringThreadWorker __thread, Object... __args)
 		{
-			return MLEThread.__javaThread(__thread, __args[0]).fieldByField(
+			return MLEThread.__javaThread(__thread, __args[0]).getField(
 				__thread.resolveClass("java/lang/Thread")
 				.lookupField(false, "_vmThread",
-				"Lcc/squirreljme/jvm/mle/brackets/VMThreadBracket;"))
-				.get();
+				"Lcc/squirreljme/jvm/mle/brackets/VMThreadBracket;"));
 		}
 	},
 	
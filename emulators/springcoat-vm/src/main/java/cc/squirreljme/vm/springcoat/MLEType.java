@@ -73,10 +73,10 @@ public enum MLEType
 		@Override
 		public Object handle(SpringThreadWorker __thread, Object... __args)
 		{
-			return MLEType.__simple(__args[0]).fieldByField(
+			return MLEType.__simple(__args[0]).getField(
 				__thread.resolveClass(new ClassName("java/lang/Class"))
 				.lookupField(false, "_type",
-				"Lcc/squirreljme/jvm/mle/brackets/TypeBracket;")).get();
+				"Lcc/squirreljme/jvm/mle/brackets/TypeBracket;"));
 		}
 	},
 	
@@ -0,0 +1,266 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.springcoat;
+
+import cc.squirreljme.vm.springcoat.exceptions.SpringVirtualMachineException;
+import net.multiphasicapps.classfile.ByteCode;
+import net.multiphasicapps.classfile.Instruction;
+import net.multiphasicapps.classfile.InstructionIndex;
+import net.multiphasicapps.classfile.InstructionJumpTarget;
+
+/**
+ * This contains the byte code of a method which has been decoded ahead of
+ * time, so that each instruction, its operation, its integer and jump
+ * operands, and the address following it do not need to be derived again
+ * every time the instruction is executed.
+ *
+ * @since 2020/07/21
+ */
+final class PreDecodedCode
+{
+	/** The byte code this was decoded from. */
+	protected final ByteCode code;
+	
+	/** Mapping of addresses to instruction indexes, invalid is negative. */
+	private final int[] _addressToIndex;
+	
+	/** The instructions. */
+	private final Instruction[] _instructions;
+	
+	/** The operation of each instruction. */
+	private final int[] _operations;
+	
+	/** Whether safe point checks are needed after each instruction. */
+	private final boolean[] _safePoints;
+	
+	/** The address which follows each instruction. */
+	private final int[] _nextAddresses;
+	
+	/** The jump target of each instruction, if it has one. */
+	private final int[] _jumpTargets;
+	
+	/** The first integer argument of each instruction, if it has one. */
+	private final int[] _intArgumentA;
+	
+	/** The second integer argument of each instruction, if it has one. */
+	private final int[] _intArgumentB;
+	
+	/**
+	 * Decodes the given byte code.
+	 *
+	 * @param __code The byte code to decode.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/21
+	 */
+	PreDecodedCode(ByteCode __code)
+		throws NullPointerException
+	{
+		if (__code == null)
+			throw new NullPointerException("NARG");
+		
+		this.code = __code;
+		
+		// Setup storage
+		int count = __code.instructionCount(),
+			length = __code.length();
+		int[] addressToIndex = new int[length];
+		Instruction[] instructions = new Instruction[count];
+		int[] operations = new int[count];
+		int[] nextAddresses = new int[count];
+		boolean[] safePoints = new boolean[count];
+		int[] jumpTargets = new int[count];
+		int[] intArgumentA = new int[count];
+		int[] intArgumentB = new int[count];
+		
+		// Addresses which are in the middle of instructions are not valid
+		for (int i = 0; i < length; i++)
+			addressToIndex[i] = -1;
+		
+		// Decode every instruction
+		for (int i = 0; i < count; i++)
+		{
+			int address = __code.indexToAddress(i);
+			Instruction inst = __code.getByAddress(address);
+			
+			addressToIndex[address] = i;
+			instructions[i] = inst;
+			operations[i] = inst.operation();
+			nextAddresses[i] = __code.addressFollowing(address);
+			safePoints[i] = PreDecodedCode.__isSafePoint(inst.operation());
+			
+			// Extract integer and jump arguments, if there are any
+			Object[] args = inst.arguments();
+			int numArgs = args.length;
+			if (numArgs > 0)
+			{
+				Object a = args[0];
+				if (a instanceof Integer)
+					intArgumentA[i] = (Integer)a;
+				else if (a instanceof InstructionJumpTarget)
+					jumpTargets[i] = ((InstructionJumpTarget)a).target();
+			}
+			if (numArgs > 1 && args[1] instanceof Integer)
+				intArgumentB[i] = (Integer)args[1];
+		}
+		
+		this._addressToIndex = addressToIndex;
+		this._instructions = instructions;
+		this._operations = operations;
+		this._nextAddresses = nextAddresses;
+		this._safePoints = safePoints;
+		this._jumpTargets = jumpTargets;
+		this._intArgumentA = intArgumentA;
+		this._intArgumentB = intArgumentB;
+	}
+	
+	/**
+	 * Returns the index of the instruction at the given address.
+	 *
+	 * @param __pc The address of the instruction.
+	 * @return The index of the instruction.
+	 * @throws SpringVirtualMachineException If the address is not valid.
+	 * @since 2020/07/21
+	 */
+	public final int addressToIndex(int __pc)
+		throws SpringVirtualMachineException
+	{
+		int[] addressToIndex = this._addressToIndex;
+		int rv;
+		
+		// {@squirreljme.error BK3c The address is not at the start of an
+		// instruction. (The address)}
+		if (__pc < 0 || __pc >= addressToIndex.length ||
+			(rv = addressToIndex[__pc]) < 0)
+			throw new SpringVirtualMachineException(
+				String.format("BK3c %d", __pc));
+		
+		return rv;
+	}
+	
+	/**
+	 * Returns the instruction at the given index.
+	 *
+	 * @param __dx The instruction index.
+	 * @return The instruction.
+	 * @since 2020/07/21
+	 */
+	public final Instruction instruction(int __dx)
+	{
+		return this._instructions[__dx];
+	}
+	
+	/**
+	 * Returns the first integer argument of the instruction.
+	 *
+	 * @param __dx The instruction index.
+	 * @return The first integer argument.
+	 * @since 2020/07/21
+	 */
+	public final int intArgumentA(int __dx)
+	{
+		return this._intArgumentA[__dx];
+	}
+	
+	/**
+	 * Returns the second integer argument of the instruction.
+	 *
+	 * @param __dx The instruction index.
+	 * @return The second integer argument.
+	 * @since 2020/07/21
+	 */
+	public final int intArgumentB(int __dx)
+	{
+		return this._intArgumentB[__dx];
+	}
+	
+	/**
+	 * Returns whether the safe point checks must be performed after the
+	 * given instruction executes, this is for instructions which may change
+	 * the current frame or block.
+	 *
+	 * @param __dx The instruction index.
+	 * @return If safe point checks are needed.
+	 * @since 2020/07/22
+	 */
+	public final boolean isSafePoint(int __dx)
+	{
+		return this._safePoints[__dx];
+	}
+	
+	/**
+	 * Returns the jump target address of the instruction.
+	 *
+	 * @param __dx The instruction index.
+	 * @return The jump target address.
+	 * @since 2020/07/21
+	 */
+	public final int jumpTarget(int __dx)
+	{
+		return this._jumpTargets[__dx];
+	}
+	
+	/**
+	 * Returns the address of the instruction which follows this one.
+	 *
+	 * @param __dx The instruction index.
+	 * @return The address of the following instruction.
+	 * @since 2020/07/21
+	 */
+	public final int nextAddress(int __dx)
+	{
+		return this._nextAddresses[__dx];
+	}
+	
+	/**
+	 * Returns the operation of the instruction.
+	 *
+	 * @param __dx The instruction index.
+	 * @return The operation of the instruction.
+	 * @since 2020/07/21
+	 */
+	public final int operation(int __dx)
+	{
+		return this._operations[__dx];
+	}
+	
+	/**
+	 * Returns whether the given operation needs safe point checks to be
+	 * performed after it executes.
+	 *
+	 * @param __op The operation.
+	 * @return If safe point checks are needed.
+	 * @since 2020/07/22
+	 */
+	private static boolean __isSafePoint(int __op)
+	{
+		switch (__op)
+		{
+			case InstructionIndex.ARETURN:
+			case InstructionIndex.ATHROW:
+			case InstructionIndex.DRETURN:
+			case InstructionIndex.FRETURN:
+			case InstructionIndex.INVOKEDYNAMIC:
+			case InstructionIndex.INVOKEINTERFACE:
+			case InstructionIndex.INVOKESPECIAL:
+			case InstructionIndex.INVOKESTATIC:
+			case InstructionIndex.INVOKEVIRTUAL:
+			case InstructionIndex.IRETURN:
+			case InstructionIndex.LRETURN:
+			case InstructionIndex.MONITORENTER:
+			case InstructionIndex.MONITOREXIT:
+			case InstructionIndex.RETURN:
+				return true;
+			
+			default:
+				return false;
+		}
+	}
+}
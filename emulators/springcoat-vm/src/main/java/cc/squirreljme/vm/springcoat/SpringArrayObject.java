@@ -25,14 +25,6 @@ import java.lang.ref.WeakReference;
 public abstract class SpringArrayObject
 	implements SpringObject
 {
-	/** The monitor for this array. */
-	protected final SpringMonitor monitor =
-		new SpringMonitor();
-	
-	/** The reference link holder. */
-	protected final RefLinkHolder refLink =
-		new RefLinkHolder();
-	
 	/** The type of this object itself. */
 	protected final SpringClass selftype;
 	
@@ -42,6 +34,12 @@ public abstract class SpringArrayObject
 	/** The length of the array. */
 	protected final int length;
 	
+	/** The monitor for this array, created when first used. */
+	private volatile SpringMonitor _monitor;
+	
+	/** The reference link holder, created when first used. */
+	private volatile RefLinkHolder _refLink;
+	
 	/** String representation. */
 	private Reference<String> _string;
 	
@@ -134,7 +132,17 @@ public abstract class SpringArrayObject
 	@Override
 	public final SpringMonitor monitor()
 	{
-		return this.monitor;
+		SpringMonitor rv = this._monitor;
+		if (rv != null)
+			return rv;
+		
+		synchronized (this)
+		{
+			rv = this._monitor;
+			if (rv == null)
+				this._monitor = (rv = new SpringMonitor());
+			return rv;
+		}
 	}
 	
 	/**
@@ -144,7 +152,17 @@ public abstract class SpringArrayObject
 	@Override
 	public final RefLinkHolder refLink()
 	{
-		return this.refLink;
+		RefLinkHolder rv = this._refLink;
+		if (rv != null)
+			return rv;
+		
+		synchronized (this)
+		{
+			rv = this._refLink;
+			if (rv == null)
+				this._refLink = (rv = new RefLinkHolder());
+			return rv;
+		}
 	}
 	
 	/**
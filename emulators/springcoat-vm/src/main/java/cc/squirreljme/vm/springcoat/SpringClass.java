@@ -21,9 +21,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import net.multiphasicapps.classfile.ClassFile;
 import net.multiphasicapps.classfile.ClassFlags;
 import net.multiphasicapps.classfile.ClassName;
+import net.multiphasicapps.classfile.ConstantValue;
 import net.multiphasicapps.classfile.Field;
 import net.multiphasicapps.classfile.FieldDescriptor;
 import net.multiphasicapps.classfile.FieldName;
@@ -33,6 +36,7 @@ import net.multiphasicapps.classfile.Method;
 import net.multiphasicapps.classfile.MethodDescriptor;
 import net.multiphasicapps.classfile.MethodName;
 import net.multiphasicapps.classfile.MethodNameAndType;
+import net.multiphasicapps.classfile.SimpleStorageType;
 
 /**
  * This is a representation of a class file as it is seen by the virtual
@@ -56,6 +60,18 @@ public final class SpringClass
 	/** The number of instance fields that exist. */
 	protected final int instancefieldcount;
 	
+	/** The number of instance fields which are stored as values. */
+	protected final int instancevaluecount;
+	
+	/** The number of instance fields which are stored as objects. */
+	protected final int instanceobjectcount;
+	
+	/** The number of volatile instance fields stored as values. */
+	protected final int instancevolatilevaluecount;
+	
+	/** The number of volatile instance fields stored as objects. */
+	protected final int instancevolatileobjectcount;
+	
 	/** The dimentions of this class. */
 	protected final int dimensions;
 	
@@ -86,8 +102,30 @@ public final class SpringClass
 	/** The table of fields defined in this class, includes super classes. */
 	private final SpringField[] _fieldtable;
 	
-	/** Has this class been initialized? */
-	private volatile boolean _initialized;
+	/** Initial values of instance fields stored as values. */
+	private final long[] _instancevalues;
+	
+	/** Initial values of instance fields stored as objects. */
+	private final Object[] _instanceobjects;
+	
+	/** Initial values of volatile instance fields stored as values. */
+	private final long[] _instancevolatilevalues;
+	
+	/** Initial values of volatile instance fields stored as objects. */
+	private final Object[] _instancevolatileobjects;
+	
+	/** Interface method tables for this class, built when first used. */
+	private final Map<SpringClass, SpringMethod[]> _itables =
+		new HashMap<>();
+	
+	/** The virtual method table, built when first used. */
+	private volatile SpringMethod[] _vtable;
+	
+	/** The name and type of each slot in the virtual method table. */
+	private volatile MethodNameAndType[] _vtableslots;
+	
+	/** The slot indexes of methods in the virtual method table. */
+	private volatile Map<MethodNameAndType, Integer> _vtableindex;
 	
 	/**
 	 * Initializes the spring class.
@@ -151,6 +189,18 @@ public final class SpringClass
 			__super.instancefieldcount);
 		int instancefieldcount = superfieldcount;
 		
+		// Instance fields are stored in either the value or object storage
+		// of an object, super class fields keep the same slots. Volatile
+		// fields have their own storage so they can be accessed atomically.
+		int instancevaluecount = (__super == null ? 0 :
+				__super.instancevaluecount),
+			instanceobjectcount = (__super == null ? 0 :
+				__super.instanceobjectcount),
+			instancevolatilevaluecount = (__super == null ? 0 :
+				__super.instancevolatilevaluecount),
+			instancevolatileobjectcount = (__super == null ? 0 :
+				__super.instancevolatileobjectcount);
+		
 		// Calculate the instance size
 		this.instancesize = (__super == null ? Constants.OBJECT_BASE_SIZE :
 			(name.dimensions() > 0 ? Constants.ARRAY_BASE_SIZE :
@@ -163,11 +213,26 @@ public final class SpringClass
 		{
 			boolean isinstance = f.flags().isInstance();
 			
+			// Determine the slot the field is stored in
+			int slot = -1;
+			if (isinstance)
+			{
+				boolean isobject = (f.nameAndType().type()
+					.simpleStorageType() == SimpleStorageType.OBJECT);
+				
+				if (f.flags().isVolatile())
+					slot = (isobject ? instancevolatileobjectcount++ :
+						instancevolatilevaluecount++);
+				else
+					slot = (isobject ? instanceobjectcount++ :
+						instancevaluecount++);
+			}
+			
 			// {@squirreljme.error BK0u Duplicated field in class. (The field)}
 			SpringField sf;
 			if (null != fields.put(f.nameAndType(),
 				(sf = new SpringField(name, f,
-					(isinstance ? instancefieldcount++ : -1)))))
+					(isinstance ? instancefieldcount++ : -1), slot))))
 				throw new SpringClassFormatException(name, String.format(
 					"BK0u %s", f.nameAndType()));
 			
@@ -198,6 +263,45 @@ public final class SpringClass
 		
 		// Used to quickly determine how big to set storage for a class
 		this.instancefieldcount = instancefieldcount;
+		this.instancevaluecount = instancevaluecount;
+		this.instanceobjectcount = instanceobjectcount;
+		this.instancevolatilevaluecount = instancevolatilevaluecount;
+		this.instancevolatileobjectcount = instancevolatileobjectcount;
+		
+		// Initial values for instances, objects start as null unless there
+		// is a constant value
+		long[] instancevalues = new long[instancevaluecount],
+			volatilevalues = new long[instancevolatilevaluecount];
+		Object[] instanceobjects = new Object[instanceobjectcount],
+			volatileobjects = new Object[instancevolatileobjectcount];
+		for (int i = 0; i < instanceobjectcount; i++)
+			instanceobjects[i] = SpringNullObject.NULL;
+		for (int i = 0; i < instancevolatileobjectcount; i++)
+			volatileobjects[i] = SpringNullObject.NULL;
+		for (SpringField f : fieldtable)
+		{
+			ConstantValue cv = f.field.constantValue();
+			if (cv == null)
+				continue;
+			
+			if (f.isObject())
+			{
+				Object[] into = (f.isvolatile ? volatileobjects :
+					instanceobjects);
+				into[f.slot] = cv.boxedValue();
+			}
+			else
+			{
+				long[] into = (f.isvolatile ? volatilevalues :
+					instancevalues);
+				into[f.slot] = SpringSimpleObject.toRawValue(f.storagetype,
+					cv.boxedValue());
+			}
+		}
+		this._instancevalues = instancevalues;
+		this._instanceobjects = instanceobjects;
+		this._instancevolatilevalues = volatilevalues;
+		this._instancevolatileobjects = volatileobjects;
 		
 		// Go through super and interfaces and add non-static methods which
 		// exist in sub-classes
@@ -324,6 +428,98 @@ public final class SpringClass
 		return this.instancefieldcount;
 	}
 	
+	/**
+	 * Returns a copy of the initial values of instance fields which are
+	 * stored as objects.
+	 *
+	 * @return The initial object values.
+	 * @since 2020/07/24
+	 */
+	final Object[] instanceObjects()
+	{
+		return this._instanceobjects.clone();
+	}
+	
+	/**
+	 * Returns a copy of the initial values of instance fields which are
+	 * stored as values.
+	 *
+	 * @return The initial values.
+	 * @since 2020/07/24
+	 */
+	final long[] instanceValues()
+	{
+		return this._instancevalues.clone();
+	}
+	
+	/**
+	 * Returns a copy of the initial values of volatile instance fields which
+	 * are stored as objects.
+	 *
+	 * @return The initial object values, or {@code null} if there are no
+	 * such fields.
+	 * @since 2020/07/24
+	 */
+	final AtomicReferenceArray<Object> instanceVolatileObjects()
+	{
+		if (this.instancevolatileobjectcount == 0)
+			return null;
+		return new AtomicReferenceArray<>(this._instancevolatileobjects);
+	}
+	
+	/**
+	 * Returns a copy of the initial values of volatile instance fields which
+	 * are stored as values.
+	 *
+	 * @return The initial values, or {@code null} if there are no such
+	 * fields.
+	 * @since 2020/07/24
+	 */
+	final AtomicLongArray instanceVolatileValues()
+	{
+		if (this.instancevolatilevaluecount == 0)
+			return null;
+		return new AtomicLongArray(this._instancevolatilevalues);
+	}
+	
+	/**
+	 * Returns the method to invoke for the given slot of the given
+	 * interface, this uses the interface method table of this class.
+	 *
+	 * @param __iface The interface the method is in.
+	 * @param __slot The slot of the method in the interface, from
+	 * {@link #virtualSlot(MethodNameAndType)}.
+	 * @param __nat The name and type of the method.
+	 * @return The method which was found.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIncompatibleClassChangeException If the target method
+	 * does not match staticness.
+	 * @throws SpringNoSuchMethodException If the specified method does not
+	 * exist.
+	 * @since 2020/07/23
+	 */
+	public final SpringMethod interfaceMethod(SpringClass __iface, int __slot,
+		MethodNameAndType __nat)
+		throws NullPointerException, SpringIncompatibleClassChangeException,
+			SpringNoSuchMethodException
+	{
+		if (__iface == null || __nat == null)
+			throw new NullPointerException("NARG");
+		
+		// Use the table if the slot is valid for this method
+		MethodNameAndType[] slots = __iface.__virtualSlots();
+		if (__slot >= 0 && __slot < slots.length &&
+			__nat.equals(slots[__slot]))
+		{
+			SpringMethod rv = this.__interfaceTable(__iface)[__slot];
+			if (rv != null && !rv.isStatic())
+				return rv;
+		}
+		
+		// Otherwise a normal lookup is done, which fails appropriately
+		return this.lookupMethod(false, __nat);
+	}
+	
 	/**
 	 * Returns the interfaces that this class implements.
 	 *
@@ -460,17 +656,6 @@ public final class SpringClass
 		return this.flags().isEnum();
 	}
 	
-	/**
-	 * Has this class been initialized?
-	 *
-	 * @return If the class has been initialized.
-	 * @since 2018/09/08
-	 */
-	public final boolean isInitialized()
-	{
-		return this._initialized;
-	}
-	
 	/**
 	 * Is this the object class?
 	 *
@@ -736,25 +921,6 @@ public final class SpringClass
 		return this.name;
 	}
 	
-	/**
-	 * Sets the class as initialized.
-	 *
-	 * @throws SpringVirtualMachineException If the class has already been
-	 * initialized.
-	 * @since 2018/09/08
-	 */
-	public final void setInitialized()
-		throws SpringVirtualMachineException
-	{
-		// {@squirreljme.error BK11 Class attempted to be initialized twice.
-		// (This class)}
-		if (this._initialized)
-			throw new SpringVirtualMachineException(String.format(
-				"BK11 %s", this.name));
-		
-		this._initialized = true;
-	}
-	
 	/**
 	 * Returns the super class of this class.
 	 *
@@ -776,6 +942,102 @@ public final class SpringClass
 		return this.name.toString();
 	}
 	
+	/**
+	 * Returns the method to invoke for the given virtual table slot, this
+	 * class must be the class the slot was obtained from or a sub-class of
+	 * it.
+	 *
+	 * @param __slot The slot of the method, from
+	 * {@link #virtualSlot(MethodNameAndType)}.
+	 * @param __nat The name and type of the method.
+	 * @return The method which was found.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIncompatibleClassChangeException If the target method
+	 * does not match staticness.
+	 * @throws SpringNoSuchMethodException If the specified method does not
+	 * exist.
+	 * @since 2020/07/23
+	 */
+	public final SpringMethod virtualMethod(int __slot,
+		MethodNameAndType __nat)
+		throws NullPointerException, SpringIncompatibleClassChangeException,
+			SpringNoSuchMethodException
+	{
+		if (__nat == null)
+			throw new NullPointerException("NARG");
+		
+		// Use the table if the slot is valid for this method
+		SpringMethod[] vtable = this.__virtualTable();
+		if (__slot >= 0 && __slot < vtable.length &&
+			__nat.equals(this._vtableslots[__slot]))
+		{
+			SpringMethod rv = vtable[__slot];
+			if (rv != null && !rv.isStatic())
+				return rv;
+		}
+		
+		// Otherwise a normal lookup is done, which fails appropriately
+		return this.lookupMethod(false, __nat);
+	}
+	
+	/**
+	 * Returns the slot of the given method in the virtual method table, the
+	 * same slot is used by all sub-classes of this class.
+	 *
+	 * @param __nat The name and type of the method.
+	 * @return The slot of the method or {@code -1} if it is not in the
+	 * virtual method table.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/23
+	 */
+	public final int virtualSlot(MethodNameAndType __nat)
+		throws NullPointerException
+	{
+		if (__nat == null)
+			throw new NullPointerException("NARG");
+		
+		// Make sure the table exists
+		this.__virtualTable();
+		
+		Integer rv = this._vtableindex.get(__nat);
+		return (rv == null ? -1 : rv);
+	}
+	
+	/**
+	 * Returns the interface method table of this class for the given class,
+	 * it is indexed by the virtual table slots of that class.
+	 *
+	 * @param __iface The interface to get the table of.
+	 * @return The interface method table.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/23
+	 */
+	private SpringMethod[] __interfaceTable(SpringClass __iface)
+		throws NullPointerException
+	{
+		if (__iface == null)
+			throw new NullPointerException("NARG");
+		
+		Map<SpringClass, SpringMethod[]> itables = this._itables;
+		synchronized (itables)
+		{
+			SpringMethod[] rv = itables.get(__iface);
+			if (rv != null)
+				return rv;
+			
+			// Map every interface slot to the method in this class
+			MethodNameAndType[] slots = __iface.__virtualSlots();
+			Map<MethodNameAndType, SpringMethod> methods = this._methods;
+			int n = slots.length;
+			rv = new SpringMethod[n];
+			for (int i = 0; i < n; i++)
+				rv[i] = methods.get(slots[i]);
+			
+			itables.put(__iface, rv);
+			return rv;
+		}
+	}
+	
 	/**
 	 * Returns the root type, the base of the component.
 	 *
@@ -789,5 +1051,86 @@ public final class SpringClass
 			rv = r;
 		return rv;
 	}
+	
+	/**
+	 * Returns the name and type of each slot in the virtual table.
+	 *
+	 * @return The virtual table slots.
+	 * @since 2020/07/23
+	 */
+	private MethodNameAndType[] __virtualSlots()
+	{
+		// Make sure the table exists
+		this.__virtualTable();
+		
+		return this._vtableslots;
+	}
+	
+	/**
+	 * Returns the virtual method table, it is built when it is first
+	 * requested. The slots of the super class are kept, so that the same
+	 * slot may be used for every sub-class.
+	 *
+	 * @return The virtual method table.
+	 * @since 2020/07/23
+	 */
+	private SpringMethod[] __virtualTable()
+	{
+		SpringMethod[] rv = this._vtable;
+		if (rv != null)
+			return rv;
+		
+		synchronized (this)
+		{
+			// Could have been built in another thread
+			rv = this._vtable;
+			if (rv != null)
+				return rv;
+			
+			// Start with the slots of the super class
+			List<MethodNameAndType> slots = new ArrayList<>();
+			Map<MethodNameAndType, Integer> index = new HashMap<>();
+			SpringClass superclass = this.superclass;
+			if (superclass != null)
+			{
+				superclass.__virtualTable();
+				for (MethodNameAndType nat : superclass._vtableslots)
+				{
+					index.put(nat, slots.size());
+					slots.add(nat);
+				}
+			}
+			
+			// Then add any new instance methods which are inherited
+			Map<MethodNameAndType, SpringMethod> methods = this._methods;
+			for (Map.Entry<MethodNameAndType, SpringMethod> e :
+				methods.entrySet())
+			{
+				MethodNameAndType k = e.getKey();
+				SpringMethod v = e.getValue();
+				
+				// Only virtual methods are placed in the table
+				if (v.isStatic() || v.isInstanceInitializer() ||
+					v.isStaticInitializer() || v.flags().isPrivate() ||
+					index.containsKey(k))
+					continue;
+				
+				index.put(k, slots.size());
+				slots.add(k);
+			}
+			
+			// Map every slot to the method in this class
+			int n = slots.size();
+			rv = new SpringMethod[n];
+			for (int i = 0; i < n; i++)
+				rv[i] = methods.get(slots.get(i));
+			
+			// Store, the table is set last since it is checked first
+			this._vtableslots = slots.<MethodNameAndType>toArray(
+				new MethodNameAndType[n]);
+			this._vtableindex = index;
+			this._vtable = rv;
+			return rv;
+		}
+	}
 }
-
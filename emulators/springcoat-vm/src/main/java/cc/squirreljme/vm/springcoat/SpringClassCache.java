@@ -0,0 +1,201 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.springcoat;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import net.multiphasicapps.classfile.ClassName;
+
+/**
+ * This is a cache of classes which is shared by every class loader and as
+ * such every task, so that the class metadata is only parsed and built
+ * once. Anything which is specific to a task, such as static fields,
+ * class objects and whether a class was initialized, is kept by the
+ * {@link SpringMachine}.
+ *
+ * A class is only the same for two class loaders if it and every class it
+ * depends on is found in the same libraries. So classes are keyed by the
+ * names of the libraries on the class path up to the last library which
+ * the class or any of its dependencies are in.
+ *
+ * Classes are only weakly held, so once no task uses a class anymore it
+ * is removed from the cache. This way the classes of tasks which have
+ * finished do not remain forever.
+ *
+ * @since 2020/07/28
+ */
+public final class SpringClassCache
+{
+	/** The cached classes, by class path prefix and name. */
+	private final Map<String, __Cached__> _classes =
+		new ConcurrentHashMap<>();
+	
+	/** The class path depth each class depends on. */
+	private final Map<SpringClass, Integer> _depths =
+		Collections.synchronizedMap(new WeakHashMap<SpringClass, Integer>());
+	
+	/** Classes which are no longer used by any task. */
+	private final ReferenceQueue<SpringClass> _gc =
+		new ReferenceQueue<>();
+	
+	/**
+	 * Returns the class path depth the given class depends on.
+	 *
+	 * @param __cl The class to get the depth of.
+	 * @return The depth of the class, this is the index of the last library
+	 * on the class path that the class or any of its dependencies are in.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/28
+	 */
+	public final int depth(SpringClass __cl)
+		throws NullPointerException
+	{
+		if (__cl == null)
+			throw new NullPointerException("NARG");
+		
+		Integer rv = this._depths.get(__cl);
+		return (rv == null ? 0 : rv);
+	}
+	
+	/**
+	 * Returns the cached class.
+	 *
+	 * @param __prefix The class path prefix key.
+	 * @param __cn The name of the class.
+	 * @return The cached class or {@code null} if there is none.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/28
+	 */
+	public final SpringClass get(String __prefix, ClassName __cn)
+		throws NullPointerException
+	{
+		if (__prefix == null || __cn == null)
+			throw new NullPointerException("NARG");
+		
+		this.__cleanup();
+		
+		__Cached__ ref = this._classes.get(
+			SpringClassCache.__key(__prefix, __cn));
+		return (ref == null ? null : ref.get());
+	}
+	
+	/**
+	 * Shares the given class with every other class loader.
+	 *
+	 * @param __prefix The class path prefix key.
+	 * @param __depth The class path depth of the class.
+	 * @param __cl The class to share.
+	 * @return The shared class, which will be a different class if another
+	 * class loader shared the same class first.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/28
+	 */
+	public final SpringClass share(String __prefix, int __depth,
+		SpringClass __cl)
+		throws NullPointerException
+	{
+		if (__prefix == null || __cl == null)
+			throw new NullPointerException("NARG");
+		
+		this.__cleanup();
+		
+		// The depth must be known before other loaders can see the class
+		this._depths.put(__cl, __depth);
+		
+		Map<String, __Cached__> classes = this._classes;
+		String key = SpringClassCache.__key(__prefix, __cl.name());
+		__Cached__ ref = new __Cached__(key, __cl, this._gc);
+		for (;;)
+		{
+			__Cached__ was = classes.putIfAbsent(key, ref);
+			if (was == null)
+				return __cl;
+			
+			// Use the class which was shared first
+			SpringClass rv = was.get();
+			if (rv != null)
+			{
+				this._depths.remove(__cl);
+				return rv;
+			}
+			
+			// That class is no longer used, so this one replaces it
+			if (classes.replace(key, was, ref))
+				return __cl;
+		}
+	}
+	
+	/**
+	 * Removes any classes which are no longer used from the cache.
+	 *
+	 * @since 2020/07/29
+	 */
+	private void __cleanup()
+	{
+		Map<String, __Cached__> classes = this._classes;
+		ReferenceQueue<SpringClass> gc = this._gc;
+		for (Reference<? extends SpringClass> ref = gc.poll();
+			ref != null; ref = gc.poll())
+			classes.remove(((__Cached__)ref).key, ref);
+	}
+	
+	/**
+	 * Returns the key for the given class.
+	 *
+	 * @param __prefix The class path prefix key.
+	 * @param __cn The name of the class.
+	 * @return The key for the class.
+	 * @since 2020/07/28
+	 */
+	private static String __key(String __prefix, ClassName __cn)
+	{
+		return __prefix + '\n' + __cn;
+	}
+	
+	/**
+	 * A class which is held by the cache.
+	 *
+	 * @since 2020/07/29
+	 */
+	private static final class __Cached__
+		extends WeakReference<SpringClass>
+	{
+		/** The key the class is cached under. */
+		protected final String key;
+		
+		/**
+		 * Initializes the cached class.
+		 *
+		 * @param __key The key the class is cached under.
+		 * @param __cl The cached class.
+		 * @param __q The queue the class is placed in when it is no longer
+		 * used.
+		 * @throws NullPointerException On null arguments.
+		 * @since 2020/07/29
+		 */
+		__Cached__(String __key, SpringClass __cl,
+			ReferenceQueue<SpringClass> __q)
+			throws NullPointerException
+		{
+			super(__cl, __q);
+			
+			if (__key == null)
+				throw new NullPointerException("NARG");
+			
+			this.key = __key;
+		}
+	}
+}
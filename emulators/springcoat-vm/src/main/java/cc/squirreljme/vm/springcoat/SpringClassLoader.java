@@ -18,8 +18,10 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import net.multiphasicapps.classfile.ClassFile;
 import net.multiphasicapps.classfile.ClassName;
 import net.multiphasicapps.classfile.InvalidClassFormatException;
@@ -32,16 +34,32 @@ import net.multiphasicapps.classfile.InvalidClassFormatException;
  */
 public final class SpringClassLoader
 {
-	/** Class loading lock. */
+	/** Class initialization lock, classes are loaded without it. */
 	protected final Object loaderlock =
 		new Object();
 	
 	/** The class path for the machine. */
 	private final VMClassLibrary[] _classpath;
 	
+	/** The cache of classes which are shared with other class loaders. */
+	private final SpringClassCache _cache;
+	
+	/** The keys for each prefix of the class path, for the shared cache. */
+	private final String[] _prefixes;
+	
 	/** The classes which have been loaded by the virtual machine. */
 	private final Map<ClassName, SpringClass> _classes =
-		new HashMap<>();
+		new ConcurrentHashMap<>();
+	
+	/** Classes which are currently being loaded. */
+	private final Map<ClassName, __InFlightClass__> _inflight =
+		new ConcurrentHashMap<>();
+	
+	/** The index of the first library each resource is in. */
+	private volatile Map<String, Integer> _resourceindex;
+	
+	/** Libraries which could not be indexed and must be searched. */
+	private volatile int[] _unindexed;
 	
 	/** Next special class index. */
 	private int _nexcsi =
@@ -50,18 +68,38 @@ public final class SpringClassLoader
 	/**
 	 * Initializes the class loader.
 	 *
+	 * @param __cache The cache of classes shared with other class loaders.
 	 * @param __classpath The classpath.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2018/09/01
 	 */
-	public SpringClassLoader(VMClassLibrary... __classpath)
+	public SpringClassLoader(SpringClassCache __cache,
+		VMClassLibrary... __classpath)
 		throws NullPointerException
 	{
+		if (__cache == null)
+			throw new NullPointerException("NARG");
+		
 		for (VMClassLibrary b : __classpath = (__classpath == null ?
 			new VMClassLibrary[0] : __classpath.clone()))
 			if (b == null)
 				throw new NullPointerException("NARG");
 		this._classpath = __classpath;
+		this._cache = __cache;
+		
+		// Classes are shared by the libraries they come from
+		int numlibs = __classpath.length;
+		String[] prefixes = new String[numlibs];
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < numlibs; i++)
+		{
+			if (i > 0)
+				sb.append('\n');
+			sb.append(__classpath[i].name());
+			
+			prefixes[i] = sb.toString();
+		}
+		this._prefixes = prefixes;
 	}
 	
 	/**
@@ -137,59 +175,56 @@ public final class SpringClassLoader
 		if (__cn == null)
 			throw new NullPointerException("NARG");
 		
-		// Lock on classes
+		// If the class has already been loaded, use that
 		Map<ClassName, SpringClass> classes = this._classes;
-		synchronized (this.loaderlock)
+		SpringClass rv = classes.get(__cn);
+		if (rv != null)
+			return rv;
+		
+		// If another thread is loading this class then wait for it
+		Thread self = Thread.currentThread();
+		__InFlightClass__ inflight = new __InFlightClass__(self);
+		__InFlightClass__ other = this._inflight.putIfAbsent(__cn, inflight);
+		if (other != null)
 		{
-			// If the class has already been initialized, use that
-			SpringClass rv = classes.get(__cn);
-			if (rv != null)
-				return rv;
-			
-			// Debug
-			/*todo.DEBUG.note("Loading class `%s`...", __cn);*/
+			// {@squirreljme.error BK3d Class circularity, the class depends
+			// on itself while it is being loaded. (The class)}
+			if (other.owner == self)
+				throw new SpringClassFormatException(__cn,
+					String.format("BK3d %s", __cn));
 			
-			// Load class file for this class
-			ClassFile cf;
-			VMClassLibrary[] inJar = new VMClassLibrary[1];
-			try
-			{
-				cf = this.loadClassFile(__cn, inJar);
-			}
-			catch (InvalidClassFormatException e)
+			return other.await();
+		}
+		
+		// This thread is loading the class now
+		try
+		{
+			// The class may have been loaded after it was checked
+			rv = classes.get(__cn);
+			if (rv == null)
 			{
-				// {@squirreljme.error BK12 Could not load class. (The class
-				// to load)}
-				throw new InvalidClassFormatException(
-					String.format("BK12 %s", __cn), e);
+				rv = this.__sharedClass(__cn);
+				
+				// Store for later use
+				classes.put(__cn, rv);
 			}
 			
-			// Load the super class
-			ClassName supername = cf.superName();
-			SpringClass superclass = (supername == null ? null :
-				this.loadClass(supername));
-			
-			// Load any interfaces
-			ClassName[] interfacenames = cf.interfaceNames().toArray();
-			int numinterfaces = interfacenames.length;
-			SpringClass[] interfaceclasses = new SpringClass[numinterfaces];
-			for (int i = 0; i < numinterfaces; i++)
-				interfaceclasses[i] = this.loadClass(interfacenames[i]);
-			
-			// Component?
-			SpringClass component = null;
-			if (__cn.isArray())
-				component = this.loadClass(__cn.componentType());
-			
-			// Load class information
-			rv = new SpringClass(superclass, interfaceclasses, cf,
-				component, inJar[0]);
-			
-			// Store for later use
-			classes.put(__cn, rv);
-			
+			inflight.finish(rv, null);
 			return rv;
 		}
+		
+		// Other threads waiting for this class fail the same way
+		catch (RuntimeException|Error e)
+		{
+			inflight.finish(null, e);
+			throw e;
+		}
+		
+		// No longer being loaded
+		finally
+		{
+			this._inflight.remove(__cn, inflight);
+		}
 	}
 	
 	/**
@@ -222,16 +257,12 @@ public final class SpringClassLoader
 		// This is the class that is read, in binary form
 		String fileform = __cn.toString() + ".class";
 		
-		// Otherwise we need to go through every single binary to find
-		// the class we want, which can take awhile
+		// Find the library the class is in, then read it
 		byte[] data = null;
-		for (VMClassLibrary b : this._classpath)
+		VMClassLibrary b = this.__findResource(fileform);
+		if (b != null)
 			try (InputStream in = b.resourceAsStream(fileform))
 			{
-				// Class or file does not exist
-				if (in == null)
-					continue;
-				
 				// Read in the data
 				byte[] buf = new byte[512];
 				try (ByteArrayOutputStream baos =
@@ -255,8 +286,6 @@ public final class SpringClassLoader
 				// Record the binary
 				if (__ij != null && __ij.length > 0)
 					__ij[0] = b;
-				
-				break;
 			}
 			catch (IOException e)
 			{
@@ -304,5 +333,227 @@ public final class SpringClassLoader
 	{
 		return this._classpath[0];
 	}
+	
+	/**
+	 * Defines the given class, its super class, interfaces and component
+	 * type are loaded first. The class is then shared with other class
+	 * loaders.
+	 *
+	 * @param __cn The class to define.
+	 * @return The defined class.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringClassFormatException If the class is not formatted
+	 * properly.
+	 * @throws SpringClassNotFoundException If the class was not found.
+	 * @since 2020/07/27
+	 */
+	private SpringClass __defineClass(ClassName __cn)
+		throws NullPointerException, SpringClassFormatException,
+			SpringClassNotFoundException
+	{
+		if (__cn == null)
+			throw new NullPointerException("NARG");
+		
+		// Debug
+		/*todo.DEBUG.note("Loading class `%s`...", __cn);*/
+		
+		// Load class file for this class
+		ClassFile cf;
+		VMClassLibrary[] inJar = new VMClassLibrary[1];
+		try
+		{
+			cf = this.loadClassFile(__cn, inJar);
+		}
+		catch (InvalidClassFormatException e)
+		{
+			// {@squirreljme.error BK12 Could not load class. (The class
+			// to load)}
+			throw new InvalidClassFormatException(
+				String.format("BK12 %s", __cn), e);
+		}
+		
+		// The depth of the class is the last library it depends on
+		SpringClassCache cache = this._cache;
+		VMClassLibrary[] classpath = this._classpath;
+		int depth = 0;
+		if (inJar[0] != null)
+			for (int i = 0, n = classpath.length; i < n; i++)
+				if (classpath[i] == inJar[0])
+				{
+					depth = i;
+					break;
+				}
+		
+		// Load the super class
+		ClassName supername = cf.superName();
+		SpringClass superclass = (supername == null ? null :
+			this.loadClass(supername));
+		if (superclass != null)
+			depth = Math.max(depth, cache.depth(superclass));
+		
+		// Load any interfaces
+		ClassName[] interfacenames = cf.interfaceNames().toArray();
+		int numinterfaces = interfacenames.length;
+		SpringClass[] interfaceclasses = new SpringClass[numinterfaces];
+		for (int i = 0; i < numinterfaces; i++)
+		{
+			interfaceclasses[i] = this.loadClass(interfacenames[i]);
+			depth = Math.max(depth, cache.depth(interfaceclasses[i]));
+		}
+		
+		// Component?
+		SpringClass component = null;
+		if (__cn.isArray())
+		{
+			component = this.loadClass(__cn.componentType());
+			depth = Math.max(depth, cache.depth(component));
+		}
+		
+		// Load class information
+		SpringClass rv = new SpringClass(superclass, interfaceclasses, cf,
+			component, inJar[0]);
+		
+		// Share the class, but another loader may have shared it first
+		String[] prefixes = this._prefixes;
+		if (prefixes.length == 0)
+			return rv;
+		return cache.share(prefixes[depth], depth, rv);
+	}
+	
+	/**
+	 * Finds the first library on the class path which contains the given
+	 * resource.
+	 *
+	 * @param __rc The resource to find.
+	 * @return The library containing the resource or {@code null} if no
+	 * library has it.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/27
+	 */
+	private VMClassLibrary __findResource(String __rc)
+		throws NullPointerException
+	{
+		if (__rc == null)
+			throw new NullPointerException("NARG");
+		
+		VMClassLibrary[] classpath = this._classpath;
+		
+		// The index only knows about libraries which could be listed
+		Integer indexed = this.__resourceIndex().get(__rc);
+		int limit = (indexed == null ? classpath.length : indexed);
+		
+		// Libraries which could not be listed must be probed, but only those
+		// which come before the indexed one
+		for (int i : this._unindexed)
+		{
+			if (i >= limit)
+				break;
+			
+			VMClassLibrary b = classpath[i];
+			try (InputStream in = b.resourceAsStream(__rc))
+			{
+				if (in != null)
+					return b;
+			}
+			catch (IOException e)
+			{
+				// {@squirreljme.error BK3e Failed to probe the class path
+				// for a resource. (The resource)}
+				throw new SpringException("BK3e " + __rc, e);
+			}
+		}
+		
+		return (indexed == null ? null : classpath[indexed]);
+	}
+	
+	/**
+	 * Returns the index which maps resources to the first library on the
+	 * class path which has it, it is built when first used.
+	 *
+	 * @return The resource index.
+	 * @since 2020/07/27
+	 */
+	private Map<String, Integer> __resourceIndex()
+	{
+		Map<String, Integer> rv = this._resourceindex;
+		if (rv != null)
+			return rv;
+		
+		synchronized (this)
+		{
+			rv = this._resourceindex;
+			if (rv != null)
+				return rv;
+			
+			// Go through every library on the class path
+			VMClassLibrary[] classpath = this._classpath;
+			int numlibs = classpath.length;
+			int[] unindexed = new int[numlibs];
+			int numunindexed = 0;
+			rv = new HashMap<>();
+			for (int i = 0; i < numlibs; i++)
+			{
+				String[] resources;
+				try
+				{
+					resources = classpath[i].listResources();
+				}
+				
+				// Some libraries cannot list their contents
+				catch (RuntimeException|Error e)
+				{
+					resources = null;
+				}
+				
+				if (resources == null)
+				{
+					unindexed[numunindexed++] = i;
+					continue;
+				}
+				
+				// Earlier libraries take precedence
+				for (String resource : resources)
+					if (!rv.containsKey(resource))
+						rv.put(resource, i);
+			}
+			
+			// The index is checked first, so this must be set before it
+			this._unindexed = Arrays.copyOf(unindexed, numunindexed);
+			this._resourceindex = rv;
+			return rv;
+		}
+	}
+	
+	/**
+	 * Returns the class from the shared cache if another class loader with
+	 * the same class path has loaded it, otherwise it is defined.
+	 *
+	 * @param __cn The class to get.
+	 * @return The class.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringClassFormatException If the class is not formatted
+	 * properly.
+	 * @throws SpringClassNotFoundException If the class was not found.
+	 * @since 2020/07/28
+	 */
+	private SpringClass __sharedClass(ClassName __cn)
+		throws NullPointerException, SpringClassFormatException,
+			SpringClassNotFoundException
+	{
+		if (__cn == null)
+			throw new NullPointerException("NARG");
+		
+		// If the class and all of its dependencies are in the same libraries
+		// then it is the same class
+		SpringClassCache cache = this._cache;
+		for (String prefix : this._prefixes)
+		{
+			SpringClass rv = cache.get(prefix, __cn);
+			if (rv != null)
+				return rv;
+		}
+		
+		return this.__defineClass(__cn);
+	}
 }
 
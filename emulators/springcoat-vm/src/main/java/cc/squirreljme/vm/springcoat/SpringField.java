@@ -14,6 +14,7 @@ import net.multiphasicapps.classfile.ClassName;
 import net.multiphasicapps.classfile.Field;
 import net.multiphasicapps.classfile.FieldFlags;
 import net.multiphasicapps.classfile.FieldNameAndType;
+import net.multiphasicapps.classfile.SimpleStorageType;
 
 /**
  * This contains and stores the definition of a single field.
@@ -32,6 +33,21 @@ public final class SpringField
 	/** The field index. */
 	protected final int index;
 	
+	/**
+	 * The slot in the value or object storage of instances, volatile fields
+	 * use the volatile storage instead.
+	 */
+	protected final int slot;
+	
+	/** The storage type of the field. */
+	protected final SimpleStorageType storagetype;
+	
+	/** Is this field volatile? */
+	protected final boolean isvolatile;
+	
+	/** Is this field final? */
+	protected final boolean isfinal;
+	
 	/**
 	 * Initializes the field.
 	 *
@@ -39,11 +55,13 @@ public final class SpringField
 	 * @param __f The field definition.
 	 * @param __dx The field index, this is ignored for statics and cannot be
 	 * negative for instances.
+	 * @param __slot The slot in the value or object storage of instances,
+	 * this is ignored for statics.
 	 * @throws IllegalArgumentException If the field index is negative.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2018/09/08
 	 */
-	SpringField(ClassName __cl, Field __f, int __dx)
+	SpringField(ClassName __cl, Field __f, int __dx, int __slot)
 		throws IllegalArgumentException, NullPointerException
 	{
 		if (__cl == null || __f == null)
@@ -51,20 +69,27 @@ public final class SpringField
 		
 		this.inclass = __cl;
 		this.field = __f;
+		this.storagetype = __f.nameAndType().type().simpleStorageType();
+		this.isvolatile = __f.flags().isVolatile();
+		this.isfinal = __f.flags().isFinal();
 		
 		// Instance fields require an index
 		if (__f.flags().isInstance())
 		{
 			// {@squirreljme.error BK17 Negative field index.}
-			if (__dx < 0)
+			if (__dx < 0 || __slot < 0)
 				throw new IllegalArgumentException("BK17");	
 			
 			this.index = __dx;
+			this.slot = __slot;
 		}
 		
 		// Not used for statics
 		else
+		{
 			this.index = -1;
+			this.slot = -1;
+		}
 	}
 	
 	/**
@@ -98,6 +123,17 @@ public final class SpringField
 		return this.index;
 	}
 	
+	/**
+	 * Is this field stored as an object?
+	 *
+	 * @return If this field is stored as an object.
+	 * @since 2020/07/24
+	 */
+	public final boolean isObject()
+	{
+		return this.storagetype == SimpleStorageType.OBJECT;
+	}
+	
 	/**
 	 * Is this a static field?
 	 *
@@ -0,0 +1,450 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.springcoat;
+
+import java.util.HashMap;
+import java.util.Map;
+import net.multiphasicapps.classfile.FieldDescriptor;
+import net.multiphasicapps.classfile.FieldName;
+import net.multiphasicapps.classfile.FieldNameAndType;
+
+/**
+ * These are intrinsics which replace the interpreted code of commonly used
+ * library methods with host implementations which operate directly on the
+ * backing storage of objects and arrays.
+ *
+ * An intrinsic may decline to handle a call by returning
+ * {@link #NOT_HANDLED}, in which case the method is interpreted as normal.
+ * This is used for any case which would throw an exception or would need
+ * to allocate, so that the behavior is always the same as the interpreted
+ * method.
+ *
+ * @since 2020/07/27
+ */
+public enum SpringIntrinsic
+	implements MLEDispatcherKey, MLEDispatcherTarget
+{
+	/** {@link Math#abs(int)}. */
+	MATH_ABS_INT("java/lang/Math", "abs:(I)I")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			return Math.abs((int)__args[0]);
+		}
+	},
+	
+	/** {@link Math#abs(long)}. */
+	MATH_ABS_LONG("java/lang/Math", "abs:(J)J")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			return Math.abs((long)__args[0]);
+		}
+	},
+	
+	/** {@link Math#max(int, int)}. */
+	MATH_MAX_INT("java/lang/Math", "max:(II)I")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			return Math.max((int)__args[0], (int)__args[1]);
+		}
+	},
+	
+	/** {@link Math#max(long, long)}. */
+	MATH_MAX_LONG("java/lang/Math", "max:(JJ)J")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			return Math.max((long)__args[0], (long)__args[1]);
+		}
+	},
+	
+	/** {@link Math#min(int, int)}. */
+	MATH_MIN_INT("java/lang/Math", "min:(II)I")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			return Math.min((int)__args[0], (int)__args[1]);
+		}
+	},
+	
+	/** {@link Math#min(long, long)}. */
+	MATH_MIN_LONG("java/lang/Math", "min:(JJ)J")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			return Math.min((long)__args[0], (long)__args[1]);
+		}
+	},
+	
+	/** {@link String#charAt(int)}. */
+	STRING_CHAR_AT("java/lang/String", "charAt:(I)C")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			char[] chars = SpringIntrinsic.__stringChars(__args[0]);
+			int dx = (int)__args[1];
+			
+			// Out of bounds access throws an exception
+			if (chars == null || dx < 0 || dx >= chars.length)
+				return SpringIntrinsic.NOT_HANDLED;
+			
+			return (int)chars[dx];
+		}
+	},
+	
+	/** {@link String#equals(Object)}. */
+	STRING_EQUALS("java/lang/String", "equals:(Ljava/lang/Object;)Z")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			// The same string is always equal
+			Object a = __args[0],
+				b = __args[1];
+			if (a == b)
+				return 1;
+			
+			// Only strings can be equal to strings
+			if (!(b instanceof SpringSimpleObject) ||
+				((SpringObject)b).type() != ((SpringObject)a).type())
+				return 0;
+			
+			char[] ac = SpringIntrinsic.__stringChars(a),
+				bc = SpringIntrinsic.__stringChars(b);
+			if (ac == null || bc == null)
+				return SpringIntrinsic.NOT_HANDLED;
+			
+			// If the length differs, they are not equal
+			int n = ac.length;
+			if (n != bc.length)
+				return 0;
+			
+			// Compare individual characters
+			for (int i = 0; i < n; i++)
+				if (ac[i] != bc[i])
+					return 0;
+			
+			return 1;
+		}
+	},
+	
+	/** {@link String#hashCode()}. */
+	STRING_HASH_CODE("java/lang/String", "hashCode:()I")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			SpringSimpleObject string = (SpringSimpleObject)__args[0];
+			SpringField hashField = string.type().lookupField(false,
+				SpringIntrinsic._STRING_HASH_CODE);
+			
+			// If the hashcode was already determined before then use that
+			int rv = (int)string.getField(hashField);
+			if (rv != 0)
+				return rv;
+			
+			char[] chars = SpringIntrinsic.__stringChars(string);
+			if (chars == null)
+				return SpringIntrinsic.NOT_HANDLED;
+			
+			// Calculate the hashCode and cache it for later
+			for (int i = 0, n = chars.length; i < n; i++)
+				rv = ((rv << 5) - rv) + chars[i];
+			string.setField(hashField, rv);
+			
+			return rv;
+		}
+	},
+	
+	/** {@link String#length()}. */
+	STRING_LENGTH("java/lang/String", "length:()I")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			char[] chars = SpringIntrinsic.__stringChars(__args[0]);
+			if (chars == null)
+				return SpringIntrinsic.NOT_HANDLED;
+			
+			return chars.length;
+		}
+	},
+	
+	/** {@link StringBuilder#append(char)}. */
+	STRING_BUILDER_APPEND_CHAR("java/lang/StringBuilder",
+		"append:(C)Ljava/lang/StringBuilder;")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			SpringSimpleObject builder = (SpringSimpleObject)__args[0];
+			SpringClass type = builder.type();
+			SpringField atField = type.lookupField(false,
+				SpringIntrinsic._STRING_BUILDER_AT);
+			
+			// The buffer has to be grown, so let the method handle that
+			int at = (int)builder.getField(atField);
+			if (at + 1 > (int)builder.getField(type.lookupField(false,
+				SpringIntrinsic._STRING_BUILDER_LIMIT)))
+				return SpringIntrinsic.NOT_HANDLED;
+			
+			// Add to the end
+			Object buffer = builder.getField(type.lookupField(false,
+				SpringIntrinsic._STRING_BUILDER_BUFFER));
+			if (!(buffer instanceof SpringArrayObjectChar))
+				return SpringIntrinsic.NOT_HANDLED;
+			((SpringArrayObjectChar)buffer).array()[at] =
+				(char)(int)__args[1];
+			builder.setField(atField, at + 1);
+			
+			// Self
+			return builder;
+		}
+	},
+	
+	/** {@link System#arraycopy(Object, int, Object, int, int)}. */
+	SYSTEM_ARRAY_COPY("java/lang/System",
+		"arraycopy:(Ljava/lang/Object;ILjava/lang/Object;II)V")
+	{
+		/**
+		 * {@inheritDoc}
+		 * @since 2020/07/27
+		 */
+		@Override
+		public Object handle(SpringThreadWorker __thread, Object... __args)
+		{
+			// Only arrays of exactly the same type are handled here, since
+			// the stored values are always compatible
+			Object src = __args[0],
+				dest = __args[2];
+			if (!(src instanceof SpringArrayObject) ||
+				!(dest instanceof SpringArrayObject) ||
+				((SpringArrayObject)src).type() !=
+				((SpringArrayObject)dest).type())
+				return SpringIntrinsic.NOT_HANDLED;
+			
+			// Anything out of bounds throws an exception
+			SpringArrayObject srcArray = (SpringArrayObject)src,
+				destArray = (SpringArrayObject)dest;
+			int srcOff = (int)__args[1],
+				destOff = (int)__args[3],
+				copyLen = (int)__args[4];
+			if (srcOff < 0 || destOff < 0 || copyLen < 0 ||
+				copyLen > srcArray.length() - srcOff ||
+				copyLen > destArray.length() - destOff)
+				return SpringIntrinsic.NOT_HANDLED;
+			
+			System.arraycopy(srcArray.array(), srcOff,
+				destArray.array(), destOff, copyLen);
+			return null;
+		}
+	},
+	
+	/* End. */
+	;
+	
+	/** Returned when the intrinsic does not handle the call. */
+	public static final Object NOT_HANDLED =
+		new Object();
+	
+	/**
+	 * {@squirreljme.property cc.squirreljme.vm.springcoat.intrinsics=bool
+	 * Enable intrinsics in SpringCoat? Individual intrinsics may be disabled
+	 * with {@code cc.squirreljme.vm.springcoat.intrinsic.NAME=false} where
+	 * {@code NAME} is the name of the intrinsic.}
+	 */
+	private static final String _PROPERTY =
+		"cc.squirreljme.vm.springcoat.intrinsics";
+	
+	/** The character storage of strings. */
+	private static final FieldNameAndType _STRING_CHARS =
+		new FieldNameAndType(new FieldName("_chars"),
+			new FieldDescriptor("[C"));
+	
+	/** The cached hash code of strings. */
+	private static final FieldNameAndType _STRING_HASH_CODE =
+		new FieldNameAndType(new FieldName("_hashcode"),
+			new FieldDescriptor("I"));
+	
+	/** The position in string builders. */
+	private static final FieldNameAndType _STRING_BUILDER_AT =
+		new FieldNameAndType(new FieldName("_at"),
+			new FieldDescriptor("I"));
+	
+	/** The buffer of string builders. */
+	private static final FieldNameAndType _STRING_BUILDER_BUFFER =
+		new FieldNameAndType(new FieldName("_buffer"),
+			new FieldDescriptor("[C"));
+	
+	/** The buffer limit of string builders. */
+	private static final FieldNameAndType _STRING_BUILDER_LIMIT =
+		new FieldNameAndType(new FieldName("_limit"),
+			new FieldDescriptor("I"));
+	
+	/** The enabled intrinsics, by class and then by method. */
+	private static final Map<String, Map<String, SpringIntrinsic>> _TABLE;
+	
+	/** The class the method is in. */
+	protected final String inClass;
+	
+	/** The method key. */
+	protected final String key;
+	
+	static
+	{
+		Map<String, Map<String, SpringIntrinsic>> table = new HashMap<>();
+		
+		// Only add intrinsics which were not disabled
+		String property = SpringIntrinsic._PROPERTY;
+		if (Boolean.parseBoolean(System.getProperty(property, "true")))
+			for (SpringIntrinsic intrinsic : SpringIntrinsic.values())
+			{
+				if (!Boolean.parseBoolean(System.getProperty(
+					"cc.squirreljme.vm.springcoat.intrinsic." +
+					intrinsic.name(), "true")))
+					continue;
+				
+				Map<String, SpringIntrinsic> methods =
+					table.get(intrinsic.inClass);
+				if (methods == null)
+					table.put(intrinsic.inClass,
+						(methods = new HashMap<>()));
+				methods.put(intrinsic.key, intrinsic);
+			}
+		
+		_TABLE = table;
+	}
+	
+	/**
+	 * Initializes the intrinsic.
+	 *
+	 * @param __inClass The class the method is in.
+	 * @param __key The method key.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/27
+	 */
+	SpringIntrinsic(String __inClass, String __key)
+		throws NullPointerException
+	{
+		if (__inClass == null || __key == null)
+			throw new NullPointerException("NARG");
+		
+		this.inClass = __inClass;
+		this.key = __key;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/27
+	 */
+	@Override
+	public String key()
+	{
+		return this.key;
+	}
+	
+	/**
+	 * Returns the enabled intrinsic for the given method.
+	 *
+	 * @param __m The method to get the intrinsic for.
+	 * @return The intrinsic or {@code null} if there is none.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/27
+	 */
+	public static SpringIntrinsic of(SpringMethod __m)
+		throws NullPointerException
+	{
+		if (__m == null)
+			throw new NullPointerException("NARG");
+		
+		Map<String, SpringIntrinsic> methods = SpringIntrinsic._TABLE.get(
+			__m.inClass().toString());
+		if (methods == null)
+			return null;
+		
+		return methods.get(__m.nameAndType().toString());
+	}
+	
+	/**
+	 * Returns the characters of the given string.
+	 *
+	 * @param __s The string object.
+	 * @return The characters of the string or {@code null} if they could
+	 * not be obtained.
+	 * @since 2020/07/27
+	 */
+	private static char[] __stringChars(Object __s)
+	{
+		if (!(__s instanceof SpringSimpleObject))
+			return null;
+		
+		SpringSimpleObject string = (SpringSimpleObject)__s;
+		Object chars = string.getField(string.type().lookupField(false,
+			SpringIntrinsic._STRING_CHARS));
+		if (!(chars instanceof SpringArrayObjectChar))
+			return null;
+		
+		return ((SpringArrayObjectChar)chars).array();
+	}
+}
@@ -10,6 +10,7 @@
 
 package cc.squirreljme.vm.springcoat;
 
+import cc.squirreljme.emulator.profiler.ProfiledThread;
 import cc.squirreljme.emulator.profiler.ProfilerSnapshot;
 import cc.squirreljme.emulator.terminal.TerminalPipeManager;
 import cc.squirreljme.emulator.vm.VMResourceAccess;
@@ -25,10 +26,13 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import net.multiphasicapps.classfile.ClassName;
 import net.multiphasicapps.classfile.ConstantValueString;
 import net.multiphasicapps.classfile.MethodDescriptor;
@@ -96,6 +100,14 @@ public final class SpringMachine
 	private final Map<SpringObject, ClassName> _namesbyclass =
 		new HashMap<>();
 	
+	/** Classes which have been initialized in this machine. */
+	private final Set<SpringClass> _initialized =
+		new HashSet<>();
+	
+	/** Resolved references for each method used by this machine. */
+	private final Map<SpringMethod, Object[]> _resolved =
+		new ConcurrentHashMap<>();
+	
 	/** Main entry point arguments. */
 	private final String[] _args;
 	
@@ -109,7 +121,7 @@ public final class SpringMachine
 	private volatile boolean _exiting;
 	
 	/** Exit code of the VM. */
-	private int _exitcode;
+	private volatile int _exitcode;
 	
 	/** The stored call trace. */
 	private CallTraceStorage _storedTrace;
@@ -188,12 +200,17 @@ public final class SpringMachine
 			
 			// Initialize new thread
 			int v;
-			SpringThread rv = new SpringThread(
-				(v = ++this._nextthreadid), __main,
-				usedName,
-				this.profiler.measureThread(String.format("%s-vm%08x-%d-%s",
+			ProfiledThread profiled = this.profiler.measureThread(
+				String.format("%s-vm%08x-%d-%s",
 				this.classloader.bootLibrary().name(),
-				System.identityHashCode(this), v, usedName)));
+				System.identityHashCode(this), v = ++this._nextthreadid,
+				usedName));
+			SpringThread rv = new SpringThread(v, __main, usedName,
+				profiled);
+			
+			// If the profiler is sampling, it needs the stack of the thread
+			if (profiled.isSampled())
+				profiled.sampleFrom(rv);
 			
 			// Signal that a major state has changed
 			this.notifyAll();
@@ -230,12 +247,10 @@ public final class SpringMachine
 	public final void exitCheck()
 		throws SpringMachineExitException
 	{
-		synchronized (this)
-		{
-			// Only if exiting
-			if (this._exiting)
-				throw new SpringMachineExitException(this._exitcode);
-		}
+		// This is polled by every thread, so no lock is taken here. The exit
+		// code is always written before the exiting flag is.
+		if (this._exiting)
+			throw new SpringMachineExitException(this._exitcode);
 	}
 	
 	/**
@@ -276,10 +291,7 @@ public final class SpringMachine
 	 */
 	public int getExitCode()
 	{
-		synchronized (this)
-		{
-			return this._exitcode;
-		}
+		return this._exitcode;
 	}
 	
 	/**
@@ -411,10 +423,7 @@ public final class SpringMachine
 	 */
 	public final boolean isExiting()
 	{
-		synchronized (this)
-		{
-			return this._exiting;
-		}
+		return this._exiting;
 	}
 	
 	/**
@@ -433,6 +442,25 @@ public final class SpringMachine
 		}
 	}
 	
+	/**
+	 * Returns the previously resolved reference for the instruction at the
+	 * given address, since classes may be shared by multiple machines
+	 * these are kept by the machine.
+	 *
+	 * @param __m The method the instruction is in.
+	 * @param __pc The address of the instruction.
+	 * @return The resolved reference or {@code null} if it has not been
+	 * resolved yet.
+	 * @since 2020/07/28
+	 */
+	final Object resolvedReference(SpringMethod __m, int __pc)
+	{
+		Object[] resolved = this._resolved.get(__m);
+		if (resolved == null)
+			return null;
+		return resolved[__pc];
+	}
+	
 	/**
 	 * Returns the access for resources.
 	 *
@@ -503,6 +531,8 @@ public final class SpringMachine
 			// Debug
 			Debugging.debugNote("VM exited normally: %d",
 				this.getExitCode());
+			Debugging.debugNote("Inflated monitors: %d",
+				SpringMonitor.inflationCount());
 			
 			// Success, maybe
 			return this.getExitCode();
@@ -513,6 +543,8 @@ public final class SpringMachine
 		{
 			// Debug
 			Debugging.debugNote("VM Exited via exception: %d", e.code());
+			Debugging.debugNote("Inflated monitors: %d",
+				SpringMonitor.inflationCount());
 			
 			return e.code();
 		}
@@ -555,6 +587,39 @@ public final class SpringMachine
 		}
 	}
 	
+	/**
+	 * Sets the resolved reference for the instruction at the given address,
+	 * this is done once the reference has been resolved and access to it
+	 * has been checked so that it does not need to be done again.
+	 *
+	 * @param __m The method the instruction is in.
+	 * @param __pc The address of the instruction.
+	 * @param __v The resolved reference.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/28
+	 */
+	final void setResolvedReference(SpringMethod __m, int __pc, Object __v)
+		throws NullPointerException
+	{
+		if (__m == null || __v == null)
+			throw new NullPointerException("NARG");
+		
+		// Lazily allocated since most methods never resolve anything, if
+		// another thread added the table first then that one is used
+		Map<SpringMethod, Object[]> all = this._resolved;
+		Object[] resolved = all.get(__m);
+		if (resolved == null)
+		{
+			resolved = new Object[__m.byteCode().length()];
+			
+			Object[] was = all.putIfAbsent(__m, resolved);
+			if (was != null)
+				resolved = was;
+		}
+		
+		resolved[__pc] = __v;
+	}
+	
 	/**
 	 * Signals that the given thread terminated.
 	 * 
@@ -645,6 +710,17 @@ public final class SpringMachine
 		return this._namesbyclass;
 	}
 	
+	/**
+	 * Returns the set of classes which have been initialized.
+	 *
+	 * @return The initialized classes.
+	 * @since 2020/07/28
+	 */
+	final Set<SpringClass> __initializedClasses()
+	{
+		return this._initialized;
+	}
+	
 	/**
 	 * Returns the map of static fields.
 	 *
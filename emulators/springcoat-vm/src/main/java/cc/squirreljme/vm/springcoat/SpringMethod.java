@@ -34,6 +34,15 @@ public final class SpringMethod
 	/** The file this method is in. */
 	protected final String infile;
 	
+	/** The pre-decoded byte code of this method. */
+	private volatile PreDecodedCode _decoded;
+	
+	/** The intrinsic which replaces this method, if any. */
+	private volatile SpringIntrinsic _intrinsic;
+	
+	/** Has the intrinsic been looked up? */
+	private volatile boolean _intrinsicbound;
+	
 	/**
 	 * Initializes the method representation.
 	 *
@@ -64,6 +73,22 @@ public final class SpringMethod
 		return this.method.byteCode();
 	}
 	
+	/**
+	 * Returns the pre-decoded byte code of this method, it is decoded when
+	 * it is first requested.
+	 *
+	 * @return The pre-decoded byte code.
+	 * @since 2020/07/21
+	 */
+	final PreDecodedCode decodedCode()
+	{
+		PreDecodedCode rv = this._decoded;
+		if (rv == null)
+			this._decoded = (rv = new PreDecodedCode(
+				this.method.byteCode()));
+		return rv;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 * @since 2018/09/09
@@ -95,6 +120,24 @@ public final class SpringMethod
 		return this.infile;
 	}
 	
+	/**
+	 * Returns the intrinsic which replaces this method, it is looked up
+	 * when it is first requested.
+	 *
+	 * @return The intrinsic or {@code null} if there is none.
+	 * @since 2020/07/27
+	 */
+	final SpringIntrinsic intrinsic()
+	{
+		if (this._intrinsicbound)
+			return this._intrinsic;
+		
+		SpringIntrinsic rv = SpringIntrinsic.of(this);
+		this._intrinsic = rv;
+		this._intrinsicbound = true;
+		return rv;
+	}
+	
 	/**
 	 * Returns whether this method is abstract.
 	 *
@@ -12,15 +12,47 @@ package cc.squirreljme.vm.springcoat;
 
 import cc.squirreljme.jvm.mle.constants.MonitorResultType;
 import cc.squirreljme.vm.springcoat.exceptions.SpringIllegalMonitorStateException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * This is a monitor which is associated with an object.
  *
+ * Monitors start out thin, where the owner is set with a single atomic
+ * operation and no host lock is used. A monitor is inflated to use the host
+ * lock only when another thread contends for it or when it is waited on,
+ * once inflated it remains inflated.
+ *
  * @since 2018/09/15
  */
 public final class SpringMonitor
 {
-	/** The thread which owns this monitor. */
+	/** The lock word value when the monitor is inflated. */
+	private static final Object _INFLATED =
+		new Object();
+	
+	/** Updater for the lock word. */
+	private static final AtomicReferenceFieldUpdater<SpringMonitor, Object>
+		_LOCK_WORD = AtomicReferenceFieldUpdater.<SpringMonitor, Object>
+			newUpdater(SpringMonitor.class, Object.class, "_lockword");
+	
+	/** The number of monitors which were inflated. */
+	private static final AtomicInteger _INFLATION_COUNT =
+		new AtomicInteger();
+	
+	/**
+	 * The lock word, this is {@code null} if unlocked, the owning thread
+	 * when it is thin locked, or {@link #_INFLATED}.
+	 */
+	private volatile Object _lockword;
+	
+	/** The entry count when thin locked, only used by the owner. */
+	private int _thincount;
+	
+	/** Is a thread waiting for the thin lock to be released? */
+	private volatile boolean _contended;
+	
+	/** The thread which owns this monitor, when inflated. */
 	volatile SpringThread _owner;
 	
 	/** Number of threads which are waiting on this monitor. */
@@ -45,6 +77,220 @@ public final class SpringMonitor
 		if (__t == null)
 			throw new NullPointerException("NARG");
 		
+		AtomicReferenceFieldUpdater<SpringMonitor, Object> lockWord =
+			SpringMonitor._LOCK_WORD;
+		boolean contended = false;
+		for (;;)
+		{
+			Object word = this._lockword;
+			
+			// Not locked, if another thread held it then inflate it
+			if (word == null)
+			{
+				if (!contended && lockWord.compareAndSet(this, null, __t))
+				{
+					this._thincount = 1;
+					return;
+				}
+				
+				// Inflate, the loop continues to the inflated case
+				else if (contended && lockWord.compareAndSet(this, null,
+					SpringMonitor._INFLATED))
+					SpringMonitor._INFLATION_COUNT.incrementAndGet();
+			}
+			
+			// We own the monitor, so increase the count
+			else if (word == __t)
+			{
+				this._thincount++;
+				return;
+			}
+			
+			// Use the inflated monitor
+			else if (word == SpringMonitor._INFLATED)
+			{
+				this.__inflatedEnter(__t);
+				return;
+			}
+			
+			// Another thread holds the thin lock, wait for it to be released
+			else
+			{
+				contended = true;
+				synchronized (this)
+				{
+					// The owner checks this after it releases the lock
+					this._contended = true;
+					
+					// Could have been released already
+					if (this._lockword == word)
+						try
+						{
+							this.wait();
+						}
+						catch (InterruptedException e)
+						{
+							// Ignore
+						}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Exits the monitor.
+	 *
+	 * @param __t The thread exiting the monitor.
+	 * @param __notify Should threads be notified that an unlock happened?
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIllegalMonitorStateException If the monitor is not owned
+	 * by this thread.
+	 * @since 2018/09/15
+	 */
+	public final void exit(SpringThread __t, boolean __notify)
+		throws NullPointerException, SpringIllegalMonitorStateException
+	{
+		if (__t == null)
+			throw new NullPointerException("NARG");
+		
+		// Use the inflated monitor
+		Object word = this._lockword;
+		if (word == SpringMonitor._INFLATED)
+		{
+			this.__inflatedExit(__t, __notify);
+			return;
+		}
+		
+		// {@squirreljme.error BK1c This thread does not own the
+		// monitor.}
+		if (word != __t)
+			throw new SpringIllegalMonitorStateException("BK1c");
+		
+		// Still held?
+		if (--this._thincount > 0)
+			return;
+		
+		// Release the lock, only the owner may set the word here
+		this._lockword = null;
+		
+		// Wake up any threads which are waiting for the lock
+		if (this._contended)
+			synchronized (this)
+			{
+				this._contended = false;
+				this.notifyAll();
+			}
+	}
+	
+	/**
+	 * Checks if this monitor is held by the given thread.
+	 * 
+	 * @param __vmThread The virtual machine thread.
+	 * @return If this is held by the given thread.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/06/27
+	 */
+	public boolean isHeldBy(SpringThread __vmThread)
+		throws NullPointerException
+	{
+		if (__vmThread == null)
+			throw new NullPointerException("NARG");
+		
+		// Thin locked?
+		Object word = this._lockword;
+		if (word != SpringMonitor._INFLATED)
+			return word == __vmThread;
+		
+		synchronized (this)
+		{
+			return this._owner == __vmThread;
+		}
+	}
+	
+	/**
+	 * Notifies on this monitor and returns the status.
+	 *
+	 * @param __by The thread that is doing the notify.
+	 * @param __all Notify all threads?
+	 * @return The {@link MonitorResultType}.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2018/11/20
+	 */
+	public final int monitorNotify(SpringThread __by, boolean __all)
+		throws NullPointerException
+	{
+		if (__by == null)
+			throw new NullPointerException("NARG");
+		
+		// Threads only wait on inflated monitors, so there is nothing to
+		// notify if this is thin
+		Object word = this._lockword;
+		if (word != SpringMonitor._INFLATED)
+			return (word == __by ? 0 : MonitorResultType.NOT_OWNED);
+		
+		return this.__inflatedNotify(__by, __all);
+	}
+	
+	/**
+	 * Waits on the monitor.
+	 *
+	 * @param __by The thread doing the wait.
+	 * @param __ms The milliseconds to wait.
+	 * @param __ns The nanoseconds to wait.
+	 * @return The {@link MonitorResultType}.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2018/11/21
+	 */
+	public final int monitorWait(SpringThread __by, long __ms, int __ns)
+		throws NullPointerException
+	{
+		if (__by == null)
+			throw new NullPointerException("NARG");
+		
+		// Waiting needs the inflated monitor, the owner of the thin lock
+		// moves its ownership over to it
+		Object word = this._lockword;
+		if (word != SpringMonitor._INFLATED)
+		{
+			// Wrong thread?
+			if (word != __by)
+				return MonitorResultType.NOT_OWNED;
+			
+			synchronized (this)
+			{
+				this._owner = __by;
+				this._count = this._thincount;
+				this._lockword = SpringMonitor._INFLATED;
+				
+				// Threads waiting for the thin lock use the inflated one
+				this.notifyAll();
+			}
+			
+			SpringMonitor._INFLATION_COUNT.incrementAndGet();
+		}
+		
+		return this.__inflatedWait(__by, __ms, __ns);
+	}
+	
+	/**
+	 * Returns the number of monitors which were inflated.
+	 *
+	 * @return The number of inflated monitors.
+	 * @since 2020/07/25
+	 */
+	public static int inflationCount()
+	{
+		return SpringMonitor._INFLATION_COUNT.get();
+	}
+	
+	/**
+	 * Enters the inflated monitor.
+	 *
+	 * @param __t The thread trying to lock the monitor.
+	 * @since 2020/07/25
+	 */
+	private void __inflatedEnter(SpringThread __t)
+	{
 		// Lock on the monitor lock
 		for (;;)
 			synchronized (this)
@@ -82,21 +328,17 @@ public final class SpringMonitor
 	}
 	
 	/**
-	 * Exits the monitor.
+	 * Exits the inflated monitor.
 	 *
 	 * @param __t The thread exiting the monitor.
 	 * @param __notify Should threads be notified that an unlock happened?
-	 * @throws NullPointerException On null arguments.
 	 * @throws SpringIllegalMonitorStateException If the monitor is not owned
 	 * by this thread.
-	 * @since 2018/09/15
+	 * @since 2020/07/25
 	 */
-	public final void exit(SpringThread __t, boolean __notify)
-		throws NullPointerException, SpringIllegalMonitorStateException
+	private void __inflatedExit(SpringThread __t, boolean __notify)
+		throws SpringIllegalMonitorStateException
 	{
-		if (__t == null)
-			throw new NullPointerException("NARG");
-		
 		// Lock on the monitor lock
 		synchronized (this)
 		{
@@ -127,40 +369,15 @@ public final class SpringMonitor
 	}
 	
 	/**
-	 * Checks if this monitor is held by the given thread.
-	 * 
-	 * @param __vmThread The virtual machine thread.
-	 * @return If this is held by the given thread.
-	 * @throws NullPointerException On null arguments.
-	 * @since 2020/06/27
-	 */
-	public boolean isHeldBy(SpringThread __vmThread)
-		throws NullPointerException
-	{
-		if (__vmThread == null)
-			throw new NullPointerException("NARG");
-		
-		synchronized (this)
-		{
-			return this._owner == __vmThread;
-		}
-	}
-	
-	/**
-	 * Notifies on this monitor and returns the status.
+	 * Notifies on the inflated monitor and returns the status.
 	 *
 	 * @param __by The thread that is doing the notify.
 	 * @param __all Notify all threads?
 	 * @return The {@link MonitorResultType}.
-	 * @throws NullPointerException On null arguments.
-	 * @since 2018/11/20
+	 * @since 2020/07/25
 	 */
-	public final int monitorNotify(SpringThread __by, boolean __all)
-		throws NullPointerException
+	private int __inflatedNotify(SpringThread __by, boolean __all)
 	{
-		if (__by == null)
-			throw new NullPointerException("NARG");
-		
 		// Lock on the monitor lock
 		synchronized (this)
 		{
@@ -187,21 +404,16 @@ public final class SpringMonitor
 	}
 	
 	/**
-	 * Waits on the monitor.
+	 * Waits on the inflated monitor.
 	 *
 	 * @param __by The thread doing the wait.
 	 * @param __ms The milliseconds to wait.
 	 * @param __ns The nanoseconds to wait.
 	 * @return The {@link MonitorResultType}.
-	 * @throws NullPointerException On null arguments.
-	 * @since 2018/11/21
+	 * @since 2020/07/25
 	 */
-	public final int monitorWait(SpringThread __by, long __ms, int __ns)
-		throws NullPointerException
+	private int __inflatedWait(SpringThread __by, long __ms, int __ns)
 	{
-		if (__by == null)
-			throw new NullPointerException("NARG");
-		
 		// Lock on the monitor lock
 		synchronized (this)
 		{
@@ -11,12 +11,24 @@
 package cc.squirreljme.vm.springcoat;
 
 import cc.squirreljme.vm.springcoat.brackets.RefLinkHolder;
+import cc.squirreljme.vm.springcoat.exceptions.SpringIllegalAccessException;
+import cc.squirreljme.vm.springcoat.exceptions.SpringVirtualMachineException;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.multiphasicapps.classfile.SimpleStorageType;
 
 /**
  * This is a representation of an object within the virtual machine.
  *
+ * Instance fields are stored flat, primitive fields are stored as raw values
+ * and the remaining fields are stored as objects, each field has a slot
+ * within one of these which is determined by the class. Volatile fields are
+ * stored in atomic arrays instead, so they are accessed without locking. The
+ * monitor and the reference link holder are only created when they are
+ * first used.
+ *
  * @since 2018/09/08
  */
 public final class SpringSimpleObject
@@ -25,16 +37,23 @@ public final class SpringSimpleObject
 	/** The type of object this is. */
 	protected final SpringClass type;
 	
-	/** The monitor for this object, every object has one. */
-	protected final SpringMonitor monitor =
-		new SpringMonitor();
+	/** Field values which are stored as raw values. */
+	private final long[] _values;
+	
+	/** Field values which are stored as objects. */
+	private final Object[] _objects;
+	
+	/** Volatile field values which are stored as raw values. */
+	private final AtomicLongArray _volatileValues;
 	
-	/** The reference link holder. */
-	protected final RefLinkHolder refLink =
-		new RefLinkHolder();
+	/** Volatile field values which are stored as objects. */
+	private final AtomicReferenceArray<Object> _volatileObjects;
 	
-	/** Field storage in the class. */
-	private final SpringFieldStorage[] _fields;
+	/** The monitor for this object, created when first used. */
+	private volatile SpringMonitor _monitor;
+	
+	/** The reference link holder, created when first used. */
+	private volatile RefLinkHolder _refLink;
 	
 	/** String representation. */
 	private Reference<String> _string;
@@ -54,61 +73,43 @@ public final class SpringSimpleObject
 		
 		this.type = __cl;
 		
-		// Setup field array
-		int n;
-		SpringFieldStorage[] fields;
-		this._fields = (fields =
-			new SpringFieldStorage[(n = __cl.instanceFieldCount())]);
-		
-		// Initialize variable for all fields
-		int i = 0;
-		for (SpringField f : __cl.fieldTable())
-			fields[i++] = new SpringFieldStorage(f);
+		// Initialize field storage
+		this._values = __cl.instanceValues();
+		this._objects = __cl.instanceObjects();
+		this._volatileValues = __cl.instanceVolatileValues();
+		this._volatileObjects = __cl.instanceVolatileObjects();
 	}
 	
 	/**
-	 * Returns the field by the given field.
+	 * Returns the value of the given field.
 	 *
 	 * @param __f The field to get.
-	 * @return The storage for the field.
+	 * @return The value of the field.
 	 * @throws NullPointerException On null arguments.
-	 * @since 2018/11/19
+	 * @since 2020/07/24
 	 */
-	public final SpringFieldStorage fieldByField(SpringField __f)
+	public final Object getField(SpringField __f)
 		throws NullPointerException
 	{
 		if (__f == null)
 			throw new NullPointerException("NARG");
 		
-		return this.fieldByIndex(__f.index());
+		return this.__get(__f);
 	}
 	
 	/**
-	 * Returns the field by the given index.
+	 * Returns the value of the given field by its name and type.
 	 *
-	 * @param __dx The field to get.
-	 * @return The storage for the field by the specified index.
-	 * @since 2018/09/16
-	 */
-	public final SpringFieldStorage fieldByIndex(int __dx)
-	{
-		return this._fields[__dx];
-	}
-	
-	/**
-	 * Returns the field by the name and type.
-	 *
-	 * @param __static Is this field static?
 	 * @param __name The name of the field.
 	 * @param __type The type of the field.
-	 * @return The storage for the field.
-	 * @since 2020/06/17
+	 * @return The value of the field.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/24
 	 */
-	public final SpringFieldStorage fieldByNameAndType(boolean __static,
-		String __name, String __type)
+	public final Object getField(String __name, String __type)
+		throws NullPointerException
 	{
-		return this.fieldByField(
-			this.type().lookupField(__static, __name, __type));
+		return this.getField(this.type.lookupField(false, __name, __type));
 	}
 	
 	/**
@@ -118,7 +119,17 @@ public final class SpringSimpleObject
 	@Override
 	public final SpringMonitor monitor()
 	{
-		return this.monitor;
+		SpringMonitor rv = this._monitor;
+		if (rv != null)
+			return rv;
+		
+		synchronized (this)
+		{
+			rv = this._monitor;
+			if (rv == null)
+				this._monitor = (rv = new SpringMonitor());
+			return rv;
+		}
 	}
 	
 	/**
@@ -128,7 +139,74 @@ public final class SpringSimpleObject
 	@Override
 	public RefLinkHolder refLink()
 	{
-		return this.refLink;
+		RefLinkHolder rv = this._refLink;
+		if (rv != null)
+			return rv;
+		
+		synchronized (this)
+		{
+			rv = this._refLink;
+			if (rv == null)
+				this._refLink = (rv = new RefLinkHolder());
+			return rv;
+		}
+	}
+	
+	/**
+	 * Sets the value of the given field.
+	 *
+	 * @param __f The field to set.
+	 * @param __v The value to set.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIllegalAccessException If the field is final.
+	 * @since 2020/07/24
+	 */
+	public final void setField(SpringField __f, Object __v)
+		throws NullPointerException, SpringIllegalAccessException
+	{
+		this.setField(__f, __v, false);
+	}
+	
+	/**
+	 * Sets the value of the given field, final may be overridden.
+	 *
+	 * @param __f The field to set.
+	 * @param __v The value to set.
+	 * @param __writetofinal If true then final is overridden.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIllegalAccessException If the field is final and we
+	 * are not allowed to write to final fields.
+	 * @since 2020/07/24
+	 */
+	public final void setField(SpringField __f, Object __v,
+		boolean __writetofinal)
+		throws NullPointerException, SpringIllegalAccessException
+	{
+		if (__f == null || __v == null)
+			throw new NullPointerException("NARG");
+		
+		// {@squirreljme.error BK18 Attempt to write to final field.}
+		if (__f.isfinal && !__writetofinal)
+			throw new SpringIllegalAccessException("BK18");
+		
+		this.__set(__f, __v);
+	}
+	
+	/**
+	 * Sets the value of the given field by its name and type.
+	 *
+	 * @param __name The name of the field.
+	 * @param __type The type of the field.
+	 * @param __v The value to set.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIllegalAccessException If the field is final.
+	 * @since 2020/07/24
+	 */
+	public final void setField(String __name, String __type, Object __v)
+		throws NullPointerException, SpringIllegalAccessException
+	{
+		this.setField(this.type.lookupField(false, __name, __type), __v,
+			false);
 	}
 	
 	/**
@@ -157,5 +235,112 @@ public final class SpringSimpleObject
 	{
 		return this.type;
 	}
+	
+	/**
+	 * Reads the value of the field.
+	 *
+	 * @param __f The field to read.
+	 * @return The boxed field value.
+	 * @since 2020/07/24
+	 */
+	private Object __get(SpringField __f)
+	{
+		// Objects are used as is
+		if (__f.storagetype == SimpleStorageType.OBJECT)
+			return (__f.isvolatile ? this._volatileObjects.get(__f.slot) :
+				this._objects[__f.slot]);
+		
+		long raw = (__f.isvolatile ? this._volatileValues.get(__f.slot) :
+			this._values[__f.slot]);
+		switch (__f.storagetype)
+		{
+			case INTEGER:
+				return (int)raw;
+			
+			case LONG:
+				return raw;
+			
+			case FLOAT:
+				return Float.intBitsToFloat((int)raw);
+			
+			case DOUBLE:
+				return Double.longBitsToDouble(raw);
+			
+				// {@squirreljme.error BK3f Field has an unknown storage type.
+				// (The field; The storage type)}
+			default:
+				throw new SpringVirtualMachineException(String.format(
+					"BK3f %s %s", __f, __f.storagetype));
+		}
+	}
+	
+	/**
+	 * Writes the value of the field.
+	 *
+	 * @param __f The field to write.
+	 * @param __v The value to write.
+	 * @since 2020/07/24
+	 */
+	private void __set(SpringField __f, Object __v)
+	{
+		// Objects are used as is
+		if (__f.storagetype == SimpleStorageType.OBJECT)
+		{
+			if (__f.isvolatile)
+				this._volatileObjects.set(__f.slot, __v);
+			else
+				this._objects[__f.slot] = __v;
+			return;
+		}
+		
+		long raw = SpringSimpleObject.toRawValue(__f.storagetype, __v);
+		if (__f.isvolatile)
+			this._volatileValues.set(__f.slot, raw);
+		else
+			this._values[__f.slot] = raw;
+	}
+	
+	/**
+	 * Converts the given boxed value to the raw value which is stored for
+	 * primitive fields.
+	 *
+	 * @param __t The storage type of the field.
+	 * @param __v The value to convert.
+	 * @return The raw value.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/24
+	 */
+	static long toRawValue(SimpleStorageType __t, Object __v)
+		throws NullPointerException
+	{
+		if (__t == null || __v == null)
+			throw new NullPointerException("NARG");
+		
+		// Booleans and characters may be used for integer fields
+		if (__v instanceof Boolean)
+			__v = (((Boolean)__v) ? 1 : 0);
+		else if (__v instanceof Character)
+			__v = (int)((Character)__v);
+		
+		Number n = (Number)__v;
+		switch (__t)
+		{
+			case INTEGER:
+				return n.intValue();
+			
+			case LONG:
+				return n.longValue();
+			
+			case FLOAT:
+				return Float.floatToRawIntBits(n.floatValue());
+			
+			case DOUBLE:
+				return Double.doubleToRawLongBits(n.doubleValue());
+			
+				// {@squirreljme.error BK3g Cannot store a value with an
+				// unknown storage type. (The storage type)}
+			default:
+				throw new SpringVirtualMachineException("BK3g " + __t);
+		}
+	}
 }
-
@@ -42,6 +42,9 @@ public final class SpringTaskManager
 	/** Global state. */
 	protected final GlobalState globalState;
 	
+	/** Classes which are shared by every task. */
+	protected final SpringClassCache classCache;
+	
 	/** The machine queue. */
 	private final ReferenceQueue<SpringMachine> _machineGc =
 		new ReferenceQueue<>(); 
@@ -67,6 +70,7 @@ public final class SpringTaskManager
 		this.suites = __sm;
 		this.profiler = (__ps == null ? new ProfilerSnapshot() : __ps);
 		this.globalState = new GlobalState();
+		this.classCache = new SpringClassCache();
 	}
 	
 	/**
@@ -101,7 +105,8 @@ public final class SpringTaskManager
 		pipes.registerByType(StandardPipeType.STDERR, __stdErrMode);
 		
 		// Spawn the machine
-		SpringClassLoader classloader = new SpringClassLoader(__classpath);
+		SpringClassLoader classloader = new SpringClassLoader(
+			this.classCache, __classpath);
 		SpringMachine machine = new SpringMachine(this.suites,
 			classloader, this, __mainClass,
 			this.profiler, new LinkedHashMap<>(__sysProps), this.globalState,
@@ -10,7 +10,9 @@
 
 package cc.squirreljme.vm.springcoat;
 
+import cc.squirreljme.emulator.profiler.FrameLocation;
 import cc.squirreljme.emulator.profiler.ProfiledThread;
+import cc.squirreljme.emulator.profiler.SampleableThread;
 import cc.squirreljme.runtime.cldc.debug.CallTraceElement;
 import cc.squirreljme.runtime.cldc.debug.CallTraceUtils;
 import cc.squirreljme.vm.springcoat.brackets.VMThreadObject;
@@ -29,11 +31,16 @@ import net.multiphasicapps.classfile.ByteCode;
  * @since 2018/09/01
  */
 public final class SpringThread
+	implements SampleableThread
 {
 	/** Maximum depth of the stack. */
 	public static final int MAX_STACK_DEPTH =
 		64;
 	
+	/** The location of blank frames. */
+	private static final FrameLocation _BLANK_LOCATION =
+		new FrameLocation("<blank>", "<blank>", "()V");
+	
 	/** The thread ID. */
 	protected final int id;
 	
@@ -141,9 +148,11 @@ public final class SpringThread
 			frames.add(rv);
 		}
 		
-		// Profile for this frame
-		this.profiler.enterFrame("<blank>", "<blank>", "()V",
-			System.nanoTime());
+		// Profile for this frame, unless it is sampled
+		ProfiledThread profiler = this.profiler;
+		if (!profiler.isSampled())
+			profiler.enterFrame("<blank>", "<blank>", "()V",
+				System.nanoTime());
 		
 		// Had one frame (started)
 		this._hadoneframe = true;
@@ -190,10 +199,12 @@ public final class SpringThread
 		List<SpringThread.Frame> frames = this._frames;
 		Frame rv = new Frame(frames.size(), __m, __args);
 		
-		// Profile for this frame
-		this.profiler.enterFrame(__m.inClass().toString(),
-			__m.nameAndType().name().toString(),
-			__m.nameAndType().type().toString(), System.nanoTime());
+		// Profile for this frame, unless it is sampled
+		ProfiledThread profiler = this.profiler;
+		if (!profiler.isSampled())
+			profiler.enterFrame(__m.inClass().toString(),
+				__m.nameAndType().name().toString(),
+				__m.nameAndType().type().toString(), System.nanoTime());
 		
 		// Lock on frames as a new one is added
 		synchronized (this)
@@ -458,7 +469,9 @@ public final class SpringThread
 		throws SpringVirtualMachineException
 	{
 		// Exit the frame
-		this.profiler.exitFrame(System.nanoTime());
+		ProfiledThread profiler = this.profiler;
+		if (!profiler.isSampled())
+			profiler.exitFrame(System.nanoTime());
 		
 		// Pop from the stack
 		SpringThread.Frame rv;
@@ -501,6 +514,37 @@ public final class SpringThread
 			0);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final FrameLocation[] sampleStack()
+	{
+		// Only the frames are copied while locked, since the locations are
+		// built from the methods which never change
+		SpringThread.Frame[] frames = this.frames();
+		
+		int n = frames.length;
+		FrameLocation[] rv = new FrameLocation[n];
+		for (int i = 0; i < n; i++)
+		{
+			SpringThread.Frame frame = frames[i];
+			
+			if (frame.isBlank())
+				rv[i] = SpringThread._BLANK_LOCATION;
+			else
+			{
+				SpringMethod method = frame.method();
+				rv[i] = new FrameLocation(method.inClass().toString(),
+					method.nameAndType().name().toString(),
+					method.nameAndType().type().toString());
+			}
+		}
+		
+		return rv;
+	}
+	
 	/**
 	 * Sets the {@link Thread} instance.
 	 *
@@ -615,6 +659,34 @@ public final class SpringThread
 	 */
 	public static class Frame
 	{
+		/** Slot has no value. */
+		private static final byte _TYPE_NONE =
+			0;
+		
+		/** Slot contains an integer. */
+		private static final byte _TYPE_INTEGER =
+			1;
+		
+		/** Slot contains a long. */
+		private static final byte _TYPE_LONG =
+			2;
+		
+		/** Slot contains a float. */
+		private static final byte _TYPE_FLOAT =
+			3;
+		
+		/** Slot contains a double. */
+		private static final byte _TYPE_DOUBLE =
+			4;
+		
+		/** Slot contains an object. */
+		private static final byte _TYPE_OBJECT =
+			5;
+		
+		/** Slot is the top of a long or double. */
+		private static final byte _TYPE_TOP =
+			6;
+		
 		/** The frame level. */
 		public final int level;
 		
@@ -630,11 +702,23 @@ public final class SpringThread
 		/** Is this frame blank? */
 		protected final boolean isblank;
 		
-		/** Local variables. */
-		private final Object[] _locals;
+		/** The types of each local variable. */
+		private final byte[] _localTypes;
+		
+		/** The primitive value of local variables, in raw bits. */
+		private final long[] _localValues;
+		
+		/** The object value of local variables. */
+		private final Object[] _localObjects;
+		
+		/** The types of each stack entry. */
+		private final byte[] _stackTypes;
+		
+		/** The primitive value of stack entries, in raw bits. */
+		private final long[] _stackValues;
 		
-		/** The stack. */
-		private final Object[] _stack;
+		/** The object value of stack entries. */
+		private final Object[] _stackObjects;
 		
 		/** The top of the stack. */
 		private volatile int _stacktop;
@@ -667,8 +751,14 @@ public final class SpringThread
 			this.code = null;
 			this.thisobject = null;
 			this.isblank = true;
-			this._locals = new Object[0];
-			this._stack = new Object[2];
+			
+			this._localTypes = new byte[0];
+			this._localValues = new long[0];
+			this._localObjects = new Object[0];
+			
+			this._stackTypes = new byte[2];
+			this._stackValues = new long[2];
+			this._stackObjects = new Object[2];
 		}
 		
 		/**
@@ -686,7 +776,8 @@ public final class SpringThread
 			if (__m == null)
 				throw new NullPointerException("NARG");
 			
-			__args = (__args == null ? new Object[0] : __args.clone());
+			if (__args == null)
+				__args = new Object[0];
 			
 			this.level = __level;
 			this.isblank = false;
@@ -698,19 +789,25 @@ public final class SpringThread
 			this.code = (code = __m.byteCode());
 			
 			// Initialize variable storage
-			Object[] locals;
-			this._locals = (locals = new Object[code.maxLocals()]);
-			this._stack = new Object[code.maxStack()];
+			int maxLocals = code.maxLocals(),
+				maxStack = code.maxStack();
+			this._localTypes = new byte[maxLocals];
+			this._localValues = new long[maxLocals];
+			this._localObjects = new Object[maxLocals];
+			this._stackTypes = new byte[maxStack];
+			this._stackValues = new long[maxStack];
+			this._stackObjects = new Object[maxStack];
 			
 			// Copy arguments passed to the method
+			byte[] localTypes = this._localTypes;
 			for (int i = 0, n = __args.length, o = 0; i < n; i++)
 			{
-				Object av;
-				locals[o++] = (av = __args[i]);
+				Object av = __args[i];
+				this.storeLocal(o++, av);
 				
 				// Add additional top for long/double
 				if (av instanceof Long || av instanceof Double)
-					locals[o++] = SpringStackTop.TOP;
+					localTypes[o++] = Frame._TYPE_TOP;
 			}
 			
 			// Store the this object, if needed
@@ -718,8 +815,8 @@ public final class SpringThread
 				(SpringObject)__args[0]);
 			
 			// Debug
-			/*todo.DEBUG.note("Frame has %d locals, %d stack", locals.length,
-				this._stack.length);*/
+			/*todo.DEBUG.note("Frame has %d locals, %d stack", maxLocals,
+				maxStack);*/
 		}
 		
 		/**
@@ -740,18 +837,26 @@ public final class SpringThread
 		 */
 		public final void clearStack()
 		{
+			// Clear any objects so they are not kept alive
+			Object[] stackObjects = this._stackObjects;
+			for (int i = 0, n = this._stacktop; i < n; i++)
+				stackObjects[i] = null;
+			
 			this._stacktop = 0;
 		}
 		
 		/**
 		 * Increments the execution counter for this frame.
 		 *
+		 * @param __n The number of instructions which were executed.
 		 * @return The original execution count.
 		 * @since 2018/10/12
 		 */
-		public final int incrementExecCount()
+		public final int incrementExecCount(int __n)
 		{
-			return this._execcount++;
+			int rv = this._execcount;
+			this._execcount = rv + __n;
+			return rv;
 		}
 		
 		/**
@@ -803,7 +908,24 @@ public final class SpringThread
 		public final <C> C loadLocal(Class<C> __cl, int __dx)
 			throws NullPointerException
 		{
-			return __cl.cast(this._locals[__dx]);
+			return __cl.cast(Frame.__box(this._localTypes[__dx],
+				this._localValues[__dx], this._localObjects[__dx]));
+		}
+		
+		/**
+		 * Loads an integer from a local variable.
+		 *
+		 * @param __dx The index to load from.
+		 * @return The read value.
+		 * @throws SpringVirtualMachineException If the local is not an
+		 * integer.
+		 * @since 2020/07/19
+		 */
+		public final int loadLocalInt(int __dx)
+			throws SpringVirtualMachineException
+		{
+			return (int)this._localValues[this.__checkLocal(__dx,
+				Frame._TYPE_INTEGER)];
 		}
 		
 		/**
@@ -816,20 +938,25 @@ public final class SpringThread
 		 */
 		public final void loadToStack(Class<?> __cl, int __dx)
 		{
-			Object[] locals = this._locals;
+			byte type = this._localTypes[__dx];
+			long value = this._localValues[__dx];
+			Object object = this._localObjects[__dx];
 			
 			// {@squirreljme.error BK1p Cannot push local variable to the stack
 			// because it of the incorrect type. (The varible to push; The
 			// index to load from; The expected class; The value to push;
 			// The type of value to push)}
-			Object pushy = locals[__dx];
-			if (!__cl.isInstance(pushy))
+			if (Frame.__typeOf(__cl) != type ||
+				(type == Frame._TYPE_OBJECT && !__cl.isInstance(object)))
+			{
+				Object pushy = Frame.__box(type, value, object);
 				throw new SpringVirtualMachineException(String.format(
 					"BK1p %s %d %s %s %s", pushy, __dx, __cl, pushy,
 					(pushy == null ? "null" : pushy.getClass())));
+			}
 			
-			// Just copy to the stack
-			this.pushToStack(pushy);
+			// Just copy to the stack, without needing to box anything
+			this.__push(type, value, object);
 		}
 		
 		/**
@@ -875,40 +1002,16 @@ public final class SpringThread
 		public final Object popFromStack()
 			throws SpringVirtualMachineException
 		{
-			Object[] stack = this._stack;
-			int stacktop = this._stacktop;
-			
-			// {@squirreljme.error BK1q Stack underflow. (The current top of
-			// the stack; The stack limit)}
-			if (stacktop <= 0)
-				throw new SpringVirtualMachineException(String.format(
-					"BK1q %d %d", stacktop, stack.length));
-			
-			// Read value and clear the value that was there
-			Object rv = stack[--stacktop];
-			stack[stacktop] = null;
-			this._stacktop = stacktop;
-			
-			// {@squirreljme.error BK1r Popped a null value of the stack, which
-			// should not occur.}
-			if (rv == null)
-				throw new SpringVirtualMachineException("BK1r");
+			int at = this.__pop();
 			
-			// Is top, so pop again to read the actual desired value
-			if (rv == SpringStackTop.TOP)
-			{
-				rv = this.popFromStack();
-				
-				// {@squirreljme.error BK1s Expected long or double below
-				// top entry in stack. (The current top of the stack; The
-				// stack limit)}
-				if (!(rv instanceof Long || rv instanceof Double))
-					throw new SpringVirtualMachineException(String.format(
-						"BK1s %d %d", stacktop, stack.length));
-			}
+			// Box the value and clear the object so it is not kept alive
+			Object[] stackObjects = this._stackObjects;
+			Object rv = Frame.__box(this._stackTypes[at],
+				this._stackValues[at], stackObjects[at]);
+			stackObjects[at] = null;
 			
 			// Debug
-			/*todo.DEBUG.note("popped(%s) <- %d", rv, stacktop);*/
+			/*todo.DEBUG.note("popped(%s) <- %d", rv, at);*/
 			
 			return rv;
 		}
@@ -941,6 +1044,66 @@ public final class SpringThread
 			return __cl.cast(rv);
 		}
 		
+		/**
+		 * Pops a double from the stack.
+		 *
+		 * @return The popped value.
+		 * @throws SpringVirtualMachineException If the type does not match or
+		 * the stack underflows.
+		 * @since 2020/07/19
+		 */
+		public final double popFromStackDouble()
+			throws SpringVirtualMachineException
+		{
+			return Double.longBitsToDouble(this._stackValues[
+				this.__pop(Frame._TYPE_DOUBLE, Double.class)]);
+		}
+		
+		/**
+		 * Pops a float from the stack.
+		 *
+		 * @return The popped value.
+		 * @throws SpringVirtualMachineException If the type does not match or
+		 * the stack underflows.
+		 * @since 2020/07/19
+		 */
+		public final float popFromStackFloat()
+			throws SpringVirtualMachineException
+		{
+			return Float.intBitsToFloat((int)this._stackValues[
+				this.__pop(Frame._TYPE_FLOAT, Float.class)]);
+		}
+		
+		/**
+		 * Pops an integer from the stack.
+		 *
+		 * @return The popped value.
+		 * @throws SpringVirtualMachineException If the type does not match or
+		 * the stack underflows.
+		 * @since 2020/07/19
+		 */
+		public final int popFromStackInt()
+			throws SpringVirtualMachineException
+		{
+			return (int)this._stackValues[
+				this.__pop(Frame._TYPE_INTEGER, Integer.class)];
+		}
+		
+		/**
+		 * Pops a long from the stack.
+		 *
+		 * @return The popped value.
+		 * @throws SpringVirtualMachineException If the type does not match or
+		 * the stack underflows.
+		 * @since 2020/07/19
+		 */
+		public final long popFromStackLong()
+			throws SpringVirtualMachineException
+		{
+			return this._stackValues[
+				this.__pop(Frame._TYPE_LONG, Long.class)];
+		}
+		
 		/**
 		 * Pops the given class from the stack and throws an exception if it
 		 * is null.
@@ -995,25 +1158,66 @@ public final class SpringThread
 			if (__v == null)
 				throw new NullPointerException("NARG");
 			
-			Object[] stack = this._stack;
-			int stacktop = this._stacktop;
-			
 			// Debug
-			/*todo.DEBUG.note("push(%s) -> %d", __v, stacktop);*/
-			
-			// {@squirreljme.error BK1w Stack overflow pushing value. (The
-			// value; The current top of the stack; The stack limit)}
-			if (stacktop >= stack.length)
-				throw new SpringVirtualMachineException(String.format(
-					"BK1w %s %d %d", __v, stacktop, stack.length));
+			/*todo.DEBUG.note("push(%s) -> %d", __v, this._stacktop);*/
 			
-			// Store
-			stack[stacktop++] = __v;
-			this._stacktop = stacktop;
-			
-			// Push an extra top for long and double
-			if (__v instanceof Long || __v instanceof Double)
-				this.pushToStack(SpringStackTop.TOP);
+			byte type = Frame.__typeOf(__v.getClass());
+			this.__push(type, Frame.__unbox(type, __v),
+				(type == Frame._TYPE_OBJECT ? __v : null));
+		}
+		
+		/**
+		 * Pushes the specified double to the stack.
+		 *
+		 * @param __v The value to push.
+		 * @throws SpringVirtualMachineException If the stack overflows.
+		 * @since 2020/07/19
+		 */
+		public final void pushToStack(double __v)
+			throws SpringVirtualMachineException
+		{
+			this.__push(Frame._TYPE_DOUBLE, Double.doubleToRawLongBits(__v),
+				null);
+		}
+		
+		/**
+		 * Pushes the specified float to the stack.
+		 *
+		 * @param __v The value to push.
+		 * @throws SpringVirtualMachineException If the stack overflows.
+		 * @since 2020/07/19
+		 */
+		public final void pushToStack(float __v)
+			throws SpringVirtualMachineException
+		{
+			this.__push(Frame._TYPE_FLOAT, Float.floatToRawIntBits(__v),
+				null);
+		}
+		
+		/**
+		 * Pushes the specified integer to the stack.
+		 *
+		 * @param __v The value to push.
+		 * @throws SpringVirtualMachineException If the stack overflows.
+		 * @since 2020/07/19
+		 */
+		public final void pushToStack(int __v)
+			throws SpringVirtualMachineException
+		{
+			this.__push(Frame._TYPE_INTEGER, __v, null);
+		}
+		
+		/**
+		 * Pushes the specified long to the stack.
+		 *
+		 * @param __v The value to push.
+		 * @throws SpringVirtualMachineException If the stack overflows.
+		 * @since 2020/07/19
+		 */
+		public final void pushToStack(long __v)
+			throws SpringVirtualMachineException
+		{
+			this.__push(Frame._TYPE_LONG, __v, null);
 		}
 		
 		/**
@@ -1052,7 +1256,59 @@ public final class SpringThread
 			if (__v == null)
 				throw new NullPointerException("NARG");
 			
-			this._locals[__dx] = __v;
+			byte type = Frame.__typeOf(__v.getClass());
+			this.__storeLocal(__dx, type, Frame.__unbox(type, __v),
+				(type == Frame._TYPE_OBJECT ? __v : null));
+		}
+		
+		/**
+		 * Stores the specified double at the given local variable index.
+		 *
+		 * @param __dx The index to store into.
+		 * @param __v The value to store.
+		 * @since 2020/07/19
+		 */
+		public final void storeLocal(int __dx, double __v)
+		{
+			this.__storeLocal(__dx, Frame._TYPE_DOUBLE,
+				Double.doubleToRawLongBits(__v), null);
+		}
+		
+		/**
+		 * Stores the specified float at the given local variable index.
+		 *
+		 * @param __dx The index to store into.
+		 * @param __v The value to store.
+		 * @since 2020/07/19
+		 */
+		public final void storeLocal(int __dx, float __v)
+		{
+			this.__storeLocal(__dx, Frame._TYPE_FLOAT,
+				Float.floatToRawIntBits(__v), null);
+		}
+		
+		/**
+		 * Stores the specified integer at the given local variable index.
+		 *
+		 * @param __dx The index to store into.
+		 * @param __v The value to store.
+		 * @since 2020/07/19
+		 */
+		public final void storeLocal(int __dx, int __v)
+		{
+			this.__storeLocal(__dx, Frame._TYPE_INTEGER, __v, null);
+		}
+		
+		/**
+		 * Stores the specified long at the given local variable index.
+		 *
+		 * @param __dx The index to store into.
+		 * @param __v The value to store.
+		 * @since 2020/07/19
+		 */
+		public final void storeLocal(int __dx, long __v)
+		{
+			this.__storeLocal(__dx, Frame._TYPE_LONG, __v, null);
 		}
 		
 		/**
@@ -1087,6 +1343,248 @@ public final class SpringThread
 		{
 			this._tossedexception = __o;
 		}
+		
+		/**
+		 * Checks that the given local variable is of the given type.
+		 *
+		 * @param __dx The local variable index.
+		 * @param __type The expected type.
+		 * @return {@code __dx}.
+		 * @throws SpringVirtualMachineException If the type is not correct.
+		 * @since 2020/07/19
+		 */
+		private int __checkLocal(int __dx, byte __type)
+			throws SpringVirtualMachineException
+		{
+			// {@squirreljme.error BK3b Local variable is not of the expected
+			// type. (The index; The expected type; The actual type)}
+			byte type = this._localTypes[__dx];
+			if (type != __type)
+				throw new SpringVirtualMachineException(String.format(
+					"BK3b %d %d %d", __dx, __type, type));
+			
+			return __dx;
+		}
+		
+		/**
+		 * Pops a single slot from the stack, a long or double will have
+		 * its top popped as well.
+		 *
+		 * @return The index of the slot which was popped.
+		 * @throws SpringVirtualMachineException If the stack underflows.
+		 * @since 2020/07/19
+		 */
+		private int __pop()
+			throws SpringVirtualMachineException
+		{
+			byte[] stackTypes = this._stackTypes;
+			int stacktop = this._stacktop;
+			
+			// {@squirreljme.error BK1q Stack underflow. (The current top of
+			// the stack; The stack limit)}
+			if (stacktop <= 0)
+				throw new SpringVirtualMachineException(String.format(
+					"BK1q %d %d", stacktop, stackTypes.length));
+			
+			// Is top, so pop again to read the actual desired value
+			int at = stacktop - 1;
+			byte type = stackTypes[at];
+			if (type == Frame._TYPE_TOP)
+			{
+				// {@squirreljme.error BK1s Expected long or double below
+				// top entry in stack. (The current top of the stack; The
+				// stack limit)}
+				if (at <= 0 || (stackTypes[at - 1] != Frame._TYPE_LONG &&
+					stackTypes[at - 1] != Frame._TYPE_DOUBLE))
+					throw new SpringVirtualMachineException(String.format(
+						"BK1s %d %d", stacktop, stackTypes.length));
+				
+				at--;
+			}
+			
+			// {@squirreljme.error BK1r Popped a null value of the stack, which
+			// should not occur.}
+			else if (type == Frame._TYPE_NONE)
+				throw new SpringVirtualMachineException("BK1r");
+			
+			this._stacktop = at;
+			return at;
+		}
+		
+		/**
+		 * Pops a single value from the stack and checks its type.
+		 *
+		 * @param __type The expected type.
+		 * @param __cl The class representing the type, for errors.
+		 * @return The index of the slot which was popped.
+		 * @throws SpringVirtualMachineException If the stack underflows or
+		 * the type is not correct.
+		 * @since 2020/07/19
+		 */
+		private int __pop(byte __type, Class<?> __cl)
+			throws SpringVirtualMachineException
+		{
+			int at = this.__pop();
+			
+			// {@squirreljme.error BK1t Popped the wrong kind of value from the
+			// stack. (The popped type; The expected type)}
+			byte type = this._stackTypes[at];
+			if (type != __type)
+			{
+				Object rv = Frame.__box(type, this._stackValues[at],
+					this._stackObjects[at]);
+				throw new SpringVirtualMachineException(
+					String.format("BK1t %s %s",
+						(rv == null ? null : rv.getClass()), __cl));
+			}
+			
+			return at;
+		}
+		
+		/**
+		 * Pushes the given value to the stack, a long or double will have
+		 * a top pushed as well.
+		 *
+		 * @param __type The type of value to push.
+		 * @param __value The primitive value, in raw bits.
+		 * @param __object The object value.
+		 * @throws SpringVirtualMachineException If the stack overflows.
+		 * @since 2020/07/19
+		 */
+		private void __push(byte __type, long __value, Object __object)
+			throws SpringVirtualMachineException
+		{
+			byte[] stackTypes = this._stackTypes;
+			int stacktop = this._stacktop,
+				limit = stackTypes.length;
+			boolean wide = (__type == Frame._TYPE_LONG ||
+				__type == Frame._TYPE_DOUBLE);
+			
+			// {@squirreljme.error BK1w Stack overflow pushing value. (The
+			// value; The current top of the stack; The stack limit)}
+			if (stacktop + (wide ? 2 : 1) > limit)
+				throw new SpringVirtualMachineException(String.format(
+					"BK1w %s %d %d", Frame.__box(__type, __value, __object),
+					stacktop, limit));
+			
+			// Store
+			stackTypes[stacktop] = __type;
+			this._stackValues[stacktop] = __value;
+			this._stackObjects[stacktop++] = __object;
+			
+			// Push an extra top for long and double
+			if (wide)
+			{
+				stackTypes[stacktop] = Frame._TYPE_TOP;
+				this._stackObjects[stacktop++] = null;
+			}
+			
+			this._stacktop = stacktop;
+		}
+		
+		/**
+		 * Stores the given value into a local variable.
+		 *
+		 * @param __dx The index to store into.
+		 * @param __type The type of value to store.
+		 * @param __value The primitive value, in raw bits.
+		 * @param __object The object value.
+		 * @since 2020/07/19
+		 */
+		private void __storeLocal(int __dx, byte __type, long __value,
+			Object __object)
+		{
+			this._localTypes[__dx] = __type;
+			this._localValues[__dx] = __value;
+			this._localObjects[__dx] = __object;
+		}
+		
+		/**
+		 * Boxes the given slot value.
+		 *
+		 * @param __type The slot type.
+		 * @param __value The primitive value, in raw bits.
+		 * @param __object The object value.
+		 * @return The boxed value or {@code null} if there is no value.
+		 * @since 2020/07/19
+		 */
+		private static Object __box(byte __type, long __value,
+			Object __object)
+		{
+			switch (__type)
+			{
+				case Frame._TYPE_INTEGER:
+					return (int)__value;
+				
+				case Frame._TYPE_LONG:
+					return __value;
+				
+				case Frame._TYPE_FLOAT:
+					return Float.intBitsToFloat((int)__value);
+				
+				case Frame._TYPE_DOUBLE:
+					return Double.longBitsToDouble(__value);
+				
+				case Frame._TYPE_TOP:
+					return SpringStackTop.TOP;
+				
+				case Frame._TYPE_OBJECT:
+					return __object;
+				
+				default:
+					return null;
+			}
+		}
+		
+		/**
+		 * Returns the slot type for the given class.
+		 *
+		 * @param __cl The class to get the slot type of.
+		 * @return The slot type for the class.
+		 * @since 2020/07/19
+		 */
+		private static byte __typeOf(Class<?> __cl)
+		{
+			if (__cl == Integer.class)
+				return Frame._TYPE_INTEGER;
+			else if (__cl == Long.class)
+				return Frame._TYPE_LONG;
+			else if (__cl == Float.class)
+				return Frame._TYPE_FLOAT;
+			else if (__cl == Double.class)
+				return Frame._TYPE_DOUBLE;
+			else if (__cl == SpringStackTop.class)
+				return Frame._TYPE_TOP;
+			return Frame._TYPE_OBJECT;
+		}
+		
+		/**
+		 * Unboxes the given value to its raw bits.
+		 *
+		 * @param __type The slot type of the value.
+		 * @param __v The value to unbox.
+		 * @return The raw bits of the value or zero if it is not primitive.
+		 * @since 2020/07/19
+		 */
+		private static long __unbox(byte __type, Object __v)
+		{
+			switch (__type)
+			{
+				case Frame._TYPE_INTEGER:
+					return (Integer)__v;
+				
+				case Frame._TYPE_LONG:
+					return (Long)__v;
+				
+				case Frame._TYPE_FLOAT:
+					return Float.floatToRawIntBits((Float)__v);
+				
+				case Frame._TYPE_DOUBLE:
+					return Double.doubleToRawLongBits((Double)__v);
+				
+				default:
+					return 0;
+			}
+		}
 	}
 }
-
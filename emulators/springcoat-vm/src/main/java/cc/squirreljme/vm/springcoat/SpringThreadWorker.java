@@ -10,7 +10,7 @@
 
 package cc.squirreljme.vm.springcoat;
 
-import cc.squirreljme.emulator.profiler.ProfiledFrame;
+import cc.squirreljme.emulator.profiler.ProfiledThread;
 import cc.squirreljme.jvm.mle.constants.VerboseDebugFlag;
 import cc.squirreljme.runtime.cldc.debug.Debugging;
 import cc.squirreljme.vm.springcoat.brackets.TypeObject;
@@ -28,7 +28,6 @@ import cc.squirreljme.vm.springcoat.exceptions.SpringNoSuchMethodException;
 import cc.squirreljme.vm.springcoat.exceptions.SpringNullPointerException;
 import cc.squirreljme.vm.springcoat.exceptions.SpringVirtualMachineException;
 import java.io.PrintStream;
-import java.util.Arrays;
 import java.util.Map;
 import net.multiphasicapps.classfile.ByteCode;
 import net.multiphasicapps.classfile.ClassFlags;
@@ -40,7 +39,6 @@ import net.multiphasicapps.classfile.ExceptionHandler;
 import net.multiphasicapps.classfile.FieldReference;
 import net.multiphasicapps.classfile.Instruction;
 import net.multiphasicapps.classfile.InstructionIndex;
-import net.multiphasicapps.classfile.InstructionJumpTarget;
 import net.multiphasicapps.classfile.IntMatchingJumpTable;
 import net.multiphasicapps.classfile.MemberFlags;
 import net.multiphasicapps.classfile.MethodDescriptor;
@@ -64,6 +62,15 @@ public final class SpringThreadWorker
 	public static final boolean TRACING_ENABLED =
 		Boolean.getBoolean("cc.squirreljme.vm.trace");
 	
+	/**
+	 * {@squirreljme.property cc.squirreljme.vm.springcoat.budget=int
+	 * The maximum number of straight-line instructions which may be executed
+	 * before the exit, exception and stuck checks are performed again.}
+	 */
+	private static final int _INSTRUCTION_BUDGET =
+		Math.max(1, Integer.getInteger(
+			"cc.squirreljme.vm.springcoat.budget", 256));
+	
 	/** Number of instructions which can be executed before warning. */
 	private static final int _EXECUTION_THRESHOLD =
 		200000;
@@ -247,8 +254,8 @@ public final class SpringThreadWorker
 			{
 				case "java/lang/Integer":
 					return Integer.valueOf((Integer)
-						sso.fieldByField(sscl.lookupField(false,
-						"_value", "I")).get());
+						sso.getField(sscl.lookupField(false,
+						"_value", "I")));
 				
 				case "java/lang/String":
 					return new String(this.<char[]>asNativeObject(
@@ -866,14 +873,9 @@ public final class SpringThreadWorker
 		if (__cn == null)
 			throw new NullPointerException("NARG");
 		
-		// Use the class loading lock to prevent other threads from loading or
-		// initializing classes while this thread does such things
-		SpringClassLoader classloader = this.machine.classLoader();
-		synchronized (classloader.classLoadingLock())
-		{
-			// Load the class from the class loader
-			return this.loadClass(classloader.loadClass(__cn));
-		}
+		// Load the class from the class loader, this is done concurrently
+		// and only initialization needs to be locked
+		return this.loadClass(this.machine.classLoader().loadClass(__cn));
 	}
 	
 	/**
@@ -897,8 +899,12 @@ public final class SpringThreadWorker
 		synchronized (classloader.classLoadingLock())
 		{
 			// If the class has already been initialized then the class is
-			// ready to be used
-			if (__cl.isInitialized())
+			// ready to be used, otherwise it is set as initialized early to
+			// prevent loops, because a super class might call something from
+			// the base class which might be seen as initialized when it
+			// should not be. So this is to prevent bad things from happening.
+			// Classes may be shared, so this is tracked by the machine.
+			if (!machine.__initializedClasses().add(__cl))
 				return __cl;
 			
 			// Verbosity?
@@ -906,12 +912,6 @@ public final class SpringThreadWorker
 				Debugging.debugNote("Need to initialize %s.", 
 					__cl.name());
 			
-			// Set the class as initialized early to prevent loops, because
-			// a super class might call something from the base class which
-			// might be seen as initialized when it should not be. So this is
-			// to prevent bad things from happening.
-			__cl.setInitialized();
-			
 			// Initialize the static field map
 			Map<SpringField, SpringFieldStorage> sfm =
 				machine.__staticFieldMap();
@@ -998,32 +998,53 @@ public final class SpringThreadWorker
 		if (__class == null || __method == null || __args == null)
 			throw new NullPointerException("NARG");
 		
+		// Debug
+		/*Debugging.debugNote("Call native %s::%s %s", __class, __method,
+			Arrays.asList(__args));*/
+		
+		return SpringThreadWorker.nativeTarget(__class, __method)
+			.handle(this, __args);
+	}
+	
+	/**
+	 * Returns the target which handles the given native method, the target
+	 * may be kept and called directly for later calls.
+	 *
+	 * @param __class The class the function is in.
+	 * @param __method The method being called.
+	 * @return The target which handles the native method.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringVirtualMachineException If the native method is not
+	 * valid or does not exist.
+	 * @since 2020/07/26
+	 */
+	static MLEDispatcherTarget nativeTarget(ClassName __class,
+		MethodNameAndType __method)
+		throws NullPointerException, SpringVirtualMachineException
+	{
+		if (__class == null || __method == null)
+			throw new NullPointerException("NARG");
+		
 		// All low-level calls are considered invalid in SpringCoat because
 		// it does not have the given functionality.
-		if (__class.toString().startsWith("cc/squirreljme/jvm/Assembly") ||
-			__class.toString().startsWith("cc/squirreljme/jvm/mle/lle/"))
+		String className = __class.toString();
+		if (className.startsWith("cc/squirreljme/jvm/Assembly") ||
+			className.startsWith("cc/squirreljme/jvm/mle/lle/"))
 			throw new SpringVirtualMachineException(String.format(
-				"Invalid LLE native call: %s %s", __class,
-				Arrays.asList(__args)));
+				"Invalid LLE native call: %s %s", __class, __method));
 		
 		// Do not allow the older SpringCoat "asm" classes to be called as
 		// the interfaces are very different with the MLE layer.
-		if (__class.toString().startsWith("cc/squirreljme/runtime/cldc/asm/"))
+		if (className.startsWith("cc/squirreljme/runtime/cldc/asm/"))
 			throw new SpringVirtualMachineException(String.format(
-				"Old-SpringCoat native call: %s %s", __class,
-				Arrays.asList(__args)));
+				"Old-SpringCoat native call: %s %s", __class, __method));
 		
 		// Only allow mid-level native calls
-		if (!__class.toString().startsWith("cc/squirreljme/jvm/mle/"))
+		if (!className.startsWith("cc/squirreljme/jvm/mle/"))
 			throw new SpringVirtualMachineException(String.format(
-				"Non-MLE native call: %s %s", __class,
-				Arrays.asList(__args)));
-		
-		// Debug
-		/*Debugging.debugNote("Call native %s::%s %s", __class, __method,
-			Arrays.asList(__args));*/
+				"Non-MLE native call: %s %s", __class, __method));
 		
-		return MLEDispatcher.dispatch(this, __class, __method, __args);
+		return MLEDispatcher.target(__class, __method);
 	}
 	
 	/**
@@ -1169,12 +1190,50 @@ public final class SpringThreadWorker
 				throw new IllegalArgumentException(String.format("BK27 %d",
 					__framelimit));
 			
+			// The frame being executed, the number of instructions which
+			// were executed in it since the last safe point, and whether
+			// instructions are to be traced
+			SpringThread.Frame frame = null;
+			int steps = 0;
+			boolean safePoint = true,
+				verbose = false;
+			
 			// The thread is alive as long as there are still frames of
-			// execution
-			while (thread.numFrames() > __framelimit)
+			// execution, frames only change at safe points
+			for (;;)
 			{
+				// Exits, exceptions and frame changes are only checked at
+				// back-edges, invokes, returns, exceptions and when the
+				// instruction budget has been used up
+				if (safePoint ||
+					steps >= SpringThreadWorker._INSTRUCTION_BUDGET)
+				{
+					// Count the instructions which were executed
+					if (frame != null)
+						this.__countSteps(frame, steps);
+					steps = 0;
+					
+					// Stop when the frame limit was reached
+					if (thread.numFrames() <= __framelimit)
+						break;
+					
+					// If an exception was handled, the frame may have changed
+					if (this.__safePoint())
+					{
+						frame = null;
+						safePoint = true;
+						continue;
+					}
+					
+					// Frames and verbosity only change at safe points
+					frame = thread.currentFrame();
+					verbose = this._verbose.check(frame.level,
+						VerboseDebugFlag.INSTRUCTIONS);
+				}
+				
 				// Single step executing the top frame
-				this.__singleStep();
+				safePoint = this.__singleStep(frame, verbose);
+				steps++;
 			}
 		}
 		
@@ -1430,6 +1489,92 @@ public final class SpringThreadWorker
 		}
 	}
 	
+	/**
+	 * Returns whether resolved references may be cached. These cannot be
+	 * cached while classes are being initialized because other threads
+	 * would then be able to see classes which are not yet fully
+	 * initialized.
+	 *
+	 * @return If resolved references may be cached.
+	 * @since 2020/07/20
+	 */
+	private boolean __canCacheResolved()
+	{
+		return !Thread.holdsLock(
+			this.machine.classLoader().classLoadingLock());
+	}
+	
+	/**
+	 * Invokes the given method, if the method has an intrinsic and it
+	 * handles the call then no frame is entered and the result is pushed
+	 * to the current frame.
+	 *
+	 * @param __t The current thread.
+	 * @param __f The current frame.
+	 * @param __m The method to invoke.
+	 * @param __args The arguments to the method.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/27
+	 */
+	private void __enterFrame(SpringThread __t, SpringThread.Frame __f,
+		SpringMethod __m, Object... __args)
+		throws NullPointerException
+	{
+		if (__t == null || __f == null || __m == null)
+			throw new NullPointerException("NARG");
+		
+		// Use the intrinsic, provided it handles the call
+		SpringIntrinsic intrinsic = __m.intrinsic();
+		if (intrinsic != null)
+		{
+			Object rv = intrinsic.handle(this, __args);
+			if (rv != SpringIntrinsic.NOT_HANDLED)
+			{
+				if (__m.nameAndType().type().hasReturnValue())
+					__f.pushToStack(this.asVMObject(rv, true));
+				return;
+			}
+		}
+		
+		__t.enterFrame(__m, __args);
+	}
+	
+	/**
+	 * Looks up the instance field referenced by the given instruction, the
+	 * result is cached for the instruction.
+	 *
+	 * @param __f The current frame.
+	 * @param __i The instruction referencing the field.
+	 * @return The specified for the field.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIncompatibleClassChangeException If the field is static.
+	 * @throws SpringNoSuchFieldException If the field does not exist.
+	 * @since 2020/07/20
+	 */
+	private final SpringField __lookupInstanceField(SpringThread.Frame __f,
+		Instruction __i)
+		throws NullPointerException, SpringIncompatibleClassChangeException,
+			SpringNoSuchFieldException
+	{
+		if (__f == null || __i == null)
+			throw new NullPointerException("NARG");
+		
+		// Was this already resolved?
+		SpringMethod method = __f.method();
+		int pc = __i.address();
+		Object cached = this.machine.resolvedReference(method, pc);
+		if (cached != null)
+			return (SpringField)cached;
+		
+		// Resolve and cache it for later
+		SpringField rv = this.__lookupInstanceField(
+			__i.<FieldReference>argument(0, FieldReference.class));
+		if (this.__canCacheResolved())
+			this.machine.setResolvedReference(method, pc, rv);
+		
+		return rv;
+	}
+	
 	/**
 	 * Looks up the specified instance field specifier and returns the
 	 * information for it.
@@ -1466,6 +1611,43 @@ public final class SpringThreadWorker
 		return field;
 	}
 	
+	/**
+	 * Looks up the static field referenced by the given instruction and
+	 * returns the storage for it, the result is cached for the instruction.
+	 *
+	 * @param __f The current frame.
+	 * @param __i The instruction referencing the field.
+	 * @return The static field storage.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIncompatibleClassChangeException If the target field is
+	 * not static.
+	 * @throws SpringNoSuchFieldException If the field does not exist.
+	 * @since 2020/07/20
+	 */
+	private final SpringFieldStorage __lookupStaticField(
+		SpringThread.Frame __f, Instruction __i)
+		throws NullPointerException, SpringIncompatibleClassChangeException,
+			SpringNoSuchFieldException
+	{
+		if (__f == null || __i == null)
+			throw new NullPointerException("NARG");
+		
+		// Was this already resolved?
+		SpringMethod method = __f.method();
+		int pc = __i.address();
+		Object cached = this.machine.resolvedReference(method, pc);
+		if (cached != null)
+			return (SpringFieldStorage)cached;
+		
+		// Resolve and cache it for later
+		SpringFieldStorage rv = this.__lookupStaticField(
+			__i.<FieldReference>argument(0, FieldReference.class));
+		if (this.__canCacheResolved())
+			this.machine.setResolvedReference(method, pc, rv);
+		
+		return rv;
+	}
+	
 	/**
 	 * Looks up the specified static field and returns the storage for it.
 	 *
@@ -1503,23 +1685,89 @@ public final class SpringThreadWorker
 	}
 	
 	/**
-	 * Single step through handling a single instruction.
+	 * Resolves the class referenced by the given instruction, the result is
+	 * cached for the instruction.
 	 *
-	 * This method uses strict floating point to make operations consistent.
+	 * @param __f The current frame.
+	 * @param __i The instruction referencing the class.
+	 * @param __cl The class to resolve.
+	 * @return The resolved class.
+	 * @throws NullPointerException On null arguments.
+	 * @throws SpringIllegalAccessException If the class cannot be accessed.
+	 * @since 2020/07/20
+	 */
+	private final SpringClass __resolveClass(SpringThread.Frame __f,
+		Instruction __i, ClassName __cl)
+		throws NullPointerException, SpringIllegalAccessException
+	{
+		if (__f == null || __i == null || __cl == null)
+			throw new NullPointerException("NARG");
+		
+		// Was this already resolved?
+		SpringMethod method = __f.method();
+		int pc = __i.address();
+		Object cached = this.machine.resolvedReference(method, pc);
+		if (cached != null)
+			return (SpringClass)cached;
+		
+		// Resolve and cache it for later
+		SpringClass rv = this.resolveClass(__cl);
+		if (this.__canCacheResolved())
+			this.machine.setResolvedReference(method, pc, rv);
+		
+		return rv;
+	}
+	
+	/**
+	 * Counts the instructions which were executed in the given frame since
+	 * the last safe point, and warns if execution appears to be stuck.
 	 *
-	 * @since 2018/09/03
+	 * @param __frame The frame the instructions were executed in.
+	 * @param __steps The number of instructions executed.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/22
 	 */
-	private strictfp void __singleStep()
+	private void __countSteps(SpringThread.Frame __frame, int __steps)
+		throws NullPointerException
 	{
-		// Need the current frame and its byte code
-		SpringThread thread = this.thread;
+		if (__frame == null)
+			throw new NullPointerException("NARG");
+		
+		// Increase the step count
+		this._stepcount += __steps;
 		
+		// Warn when a multiple of the threshold was passed
+		int was = __frame.incrementExecCount(__steps),
+			now = was + __steps;
+		if ((now - 1) / SpringThreadWorker._EXECUTION_THRESHOLD !=
+			(was - 1) / SpringThreadWorker._EXECUTION_THRESHOLD)
+		{
+			// {@squirreljme.error BK2c Execution seems to be stuck in this
+			// method.}
+			System.err.println("BK2c");
+			this.thread.printStackTrace(System.err);
+		}
+	}
+	
+	/**
+	 * Performs the checks which are done at safe points, these are if the
+	 * virtual machine is exiting and if an exception was tossed into the
+	 * current frame.
+	 *
+	 * @return If an exception was handled, in which case the current frame
+	 * and its address may have changed.
+	 * @throws SpringMachineExitException If the virtual machine is exiting.
+	 * @since 2020/07/22
+	 */
+	private boolean __safePoint()
+		throws SpringMachineExitException
+	{
 		// Check if the VM is exiting, to discontinue execution if it has been
 		// requested by any thread
-		SpringMachine machine = this.machine;
+		SpringThread thread = this.thread;
 		try
 		{
-			machine.exitCheck();
+			this.machine.exitCheck();
 		}
 		
 		// If the VM is exiting then clear the execution stack before we go
@@ -1535,49 +1783,48 @@ public final class SpringThreadWorker
 			throw e;
 		}
 		
-		// Increase the step count
-		this._stepcount++;
-		
-		SpringThread.Frame frame = thread.currentFrame();
-		ByteCode code = frame.byteCode();
-		
-		// Frame is execution
-		int iec = frame.incrementExecCount();
-		if (iec > 0 && (iec % SpringThreadWorker._EXECUTION_THRESHOLD) == 0)
-		{
-			// {@squirreljme.error BK2c Execution seems to be stuck in this
-			// method.}
-			System.err.println("BK2c");
-			this.thread.printStackTrace(System.err);
-		}
-		
-		// Are these certain kinds of initializers? Because final fields are
-		// writable during initialization accordingly
-		SpringClass currentclass = this.contextClass();
+		// If we are tossing an exception, we need to handle it
+		return this.__checkException();
+	}
+	
+	/**
+	 * Single step through handling a single instruction, the checks which
+	 * are performed at safe points are not performed here.
+	 *
+	 * This method uses strict floating point to make operations consistent.
+	 *
+	 * @param __frame The current frame.
+	 * @param __verbose Are instructions being traced?
+	 * @return If the safe point checks must be performed before the next
+	 * instruction is executed.
+	 * @since 2018/09/03
+	 */
+	private strictfp boolean __singleStep(SpringThread.Frame __frame,
+		boolean __verbose)
+	{
+		SpringThread thread = this.thread;
+		SpringMachine machine = this.machine;
+		SpringThread.Frame frame = __frame;
 		SpringMethod method = frame.method();
-		boolean isstaticinit = method.isStaticInitializer(),
-			isinstanceinit = method.isInstanceInitializer();
+		PreDecodedCode decoded = method.decodedCode();
 		
 		// Determine the current instruction of execution
-		int pc = frame.pc();
-		Instruction inst = code.getByAddress(pc);
-		
-		// If we are tossing an exception, we need to handle it
-		if (this.__checkException())
-			return;
+		int pc = frame.pc(),
+			index = decoded.addressToIndex(pc);
+		Instruction inst = decoded.instruction(index);
 		
 		// This PC is about to be executed, so set it as executed since if an
 		// exception is thrown this could change potentially
 		frame.setLastExecutedPc(pc);
 		
 		// Debugging instructions?
-		if (this._verbose.check(frame.level, VerboseDebugFlag.INSTRUCTIONS))
+		if (__verbose)
 			Debugging.debugNote("step(%s %s::%s) -> %s", thread.name(),
 				method.inClass(), method.nameAndType(), inst);
 		
 		// Used to detect the next instruction of execution following this,
 		// may be set accordingly in the frame manually
-		int nextpc = code.addressFollowing(pc),
+		int nextpc = decoded.nextAddress(index),
 			orignextpc = nextpc;
 		
 		// Handle individual instructions
@@ -1585,7 +1832,7 @@ public final class SpringThreadWorker
 		try
 		{
 			// Handle it
-			switch ((opid = inst.operation()))
+			switch ((opid = decoded.operation(index)))
 			{
 					// Do absolutely nothing!
 				case InstructionIndex.NOP:
@@ -1594,7 +1841,7 @@ public final class SpringThreadWorker
 					// Load object from array
 				case InstructionIndex.AALOAD:
 					{
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -1608,7 +1855,7 @@ public final class SpringThreadWorker
 					{
 						SpringObject value = frame.<SpringObject>popFromStack(
 							SpringObject.class);
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -1625,7 +1872,7 @@ public final class SpringThreadWorker
 				case InstructionIndex.ALOAD:
 				case InstructionIndex.WIDE_ALOAD:
 					frame.loadToStack(SpringObject.class,
-						inst.<Integer>argument(0, Integer.class));
+						decoded.intArgumentA(index));
 					break;
 					
 					// Load reference from local (short)
@@ -1639,10 +1886,10 @@ public final class SpringThreadWorker
 				
 					// Allocate new array
 				case InstructionIndex.ANEWARRAY:
-					frame.pushToStack(this.allocateArray(this.resolveClass(
-						inst.<ClassName>argument(0, ClassName.class)
-						.addDimensions(1)),
-						frame.<Integer>popFromStack(Integer.class)));
+					frame.pushToStack(this.allocateArray(this.__resolveClass(
+						frame, inst, inst.<ClassName>argument(0,
+						ClassName.class).addDimensions(1)),
+						frame.popFromStackInt()));
 					break;
 					
 					// Return reference
@@ -1662,7 +1909,7 @@ public final class SpringThreadWorker
 					// Store reference to local variable
 				case InstructionIndex.ASTORE:
 				case InstructionIndex.WIDE_ASTORE:
-					frame.storeLocal(inst.<Integer>argument(0, Integer.class),
+					frame.storeLocal(decoded.intArgumentA(index),
 						frame.<SpringObject>popFromStack(SpringObject.class));
 					break;
 					
@@ -1683,21 +1930,20 @@ public final class SpringThreadWorker
 					nextpc = this.__handleException(
 						frame.<SpringObject>popFromStack(SpringObject.class));
 					if (nextpc < 0)
-						return;
+						return true;
 					break;
 					
 					// Push value
 				case InstructionIndex.BIPUSH:
 				case InstructionIndex.SIPUSH:
-					frame.pushToStack(inst.<Integer>argument(
-						0, Integer.class));
+					frame.pushToStack(decoded.intArgumentA(index));
 					break;
 					
 					// Checks casting from a type to another
 				case InstructionIndex.CHECKCAST:
 					{
-						SpringClass as = this.resolveClass(inst.
-							<ClassName>argument(0, ClassName.class));
+						SpringClass as = this.__resolveClass(frame, inst,
+							inst.<ClassName>argument(0, ClassName.class));
 						
 						// This is just popped back on if it passes
 						SpringObject pop = frame.<SpringObject>popFromStack(
@@ -1721,32 +1967,32 @@ public final class SpringThreadWorker
 					// Double to float
 				case InstructionIndex.D2F:
 					{
-						double value = frame.<Double>popFromStack(Double.class);
-						frame.pushToStack(Float.valueOf((float)value));
+						double value = frame.popFromStackDouble();
+						frame.pushToStack((float)value);
 					}
 					break;
 					
 					// Double to int
 				case InstructionIndex.D2I:
 					{
-						double value = frame.<Double>popFromStack(Double.class);
-						frame.pushToStack(Integer.valueOf((int)value));
+						double value = frame.popFromStackDouble();
+						frame.pushToStack((int)value);
 					}
 					break;
 					
 					// Double to long
 				case InstructionIndex.D2L:
 					{
-						double value = frame.<Double>popFromStack(Double.class);
-						frame.pushToStack(Long.valueOf((long)value));
+						double value = frame.popFromStackDouble();
+						frame.pushToStack((long)value);
 					}
 					break;
 				
 					// Addiply double
 				case InstructionIndex.DADD:
 					{
-						double b = frame.<Double>popFromStack(Double.class),
-							a = frame.<Double>popFromStack(Double.class);
+						double b = frame.popFromStackDouble(),
+							a = frame.popFromStackDouble();
 						frame.pushToStack(a + b);
 					}
 					break;
@@ -1754,8 +2000,8 @@ public final class SpringThreadWorker
 					// Compare double, NaN is positive
 				case InstructionIndex.DCMPG:
 					{
-						double b = frame.<Float>popFromStack(Float.class),
-							a = frame.<Float>popFromStack(Float.class);
+						double b = frame.popFromStackDouble(),
+							a = frame.popFromStackDouble();
 						
 						if (Double.isNaN(a) || Double.isNaN(b))
 							frame.pushToStack(1);
@@ -1767,8 +2013,8 @@ public final class SpringThreadWorker
 					// Compare double, NaN is negative
 				case InstructionIndex.DCMPL:
 					{
-						double b = frame.<Double>popFromStack(Double.class),
-							a = frame.<Double>popFromStack(Double.class);
+						double b = frame.popFromStackDouble(),
+							a = frame.popFromStackDouble();
 						
 						if (Double.isNaN(a) || Double.isNaN(b))
 							frame.pushToStack(-1);
@@ -1781,14 +2027,14 @@ public final class SpringThreadWorker
 				case InstructionIndex.DCONST_0:
 				case InstructionIndex.DCONST_1:
 					frame.pushToStack(
-						Double.valueOf(opid - InstructionIndex.DCONST_0));
+						(double)(opid - InstructionIndex.DCONST_0));
 					break;
 				
 					// Divide double
 				case InstructionIndex.DDIV:
 					{
-						double b = frame.<Double>popFromStack(Double.class),
-							a = frame.<Double>popFromStack(Double.class);
+						double b = frame.popFromStackDouble(),
+							a = frame.popFromStackDouble();
 						frame.pushToStack(a / b);
 					}
 					break;
@@ -1797,7 +2043,7 @@ public final class SpringThreadWorker
 				case InstructionIndex.DLOAD:
 				case InstructionIndex.WIDE_DLOAD:
 					frame.loadToStack(Double.class,
-						inst.<Integer>argument(0, Integer.class));
+						decoded.intArgumentA(index));
 					break;
 					
 					// Load double from local variable
@@ -1812,8 +2058,8 @@ public final class SpringThreadWorker
 					// Multiply double
 				case InstructionIndex.DMUL:
 					{
-						double b = frame.<Double>popFromStack(Double.class),
-							a = frame.<Double>popFromStack(Double.class);
+						double b = frame.popFromStackDouble(),
+							a = frame.popFromStackDouble();
 						frame.pushToStack(a * b);
 					}
 					break;
@@ -1821,7 +2067,7 @@ public final class SpringThreadWorker
 					// Negate double
 				case InstructionIndex.DNEG:
 					{
-						double a = frame.<Double>popFromStack(Double.class);
+						double a = frame.popFromStackDouble();
 						frame.pushToStack(-a);
 					}
 					break;
@@ -1829,8 +2075,8 @@ public final class SpringThreadWorker
 					// Remainder double
 				case InstructionIndex.DREM:
 					{
-						double b = frame.<Double>popFromStack(Double.class),
-							a = frame.<Double>popFromStack(Double.class);
+						double b = frame.popFromStackDouble(),
+							a = frame.popFromStackDouble();
 						frame.pushToStack(a % b);
 					}
 					break;
@@ -1838,15 +2084,15 @@ public final class SpringThreadWorker
 					// Return double
 				case InstructionIndex.DRETURN:
 					this.__vmReturn(thread,
-						frame.<Double>popFromStack(Double.class));
+						frame.popFromStackDouble());
 					nextpc = Integer.MIN_VALUE;
 					break;
 				
 					// Subtract double
 				case InstructionIndex.DSUB:
 					{
-						double b = frame.<Double>popFromStack(Double.class),
-							a = frame.<Double>popFromStack(Double.class);
+						double b = frame.popFromStackDouble(),
+							a = frame.popFromStackDouble();
 						frame.pushToStack(a - b);
 					}
 					break;
@@ -1854,8 +2100,8 @@ public final class SpringThreadWorker
 					// Store double to local variable
 				case InstructionIndex.DSTORE:
 				case InstructionIndex.WIDE_DSTORE:
-					frame.storeLocal(inst.<Integer>argument(0, Integer.class),
-						frame.<Double>popFromStack(Double.class));
+					frame.storeLocal(decoded.intArgumentA(index),
+						frame.popFromStackDouble());
 					break;
 					
 					// Store long to double variable
@@ -1864,7 +2110,7 @@ public final class SpringThreadWorker
 				case InstructionIndex.DSTORE_2:
 				case InstructionIndex.DSTORE_3:
 					frame.storeLocal(opid - InstructionIndex.DSTORE_0,
-						frame.<Double>popFromStack(Double.class));
+						frame.popFromStackDouble());
 					break;
 					
 					// Duplicate top-most stack entry
@@ -2094,32 +2340,32 @@ public final class SpringThreadWorker
 					// Float to double
 				case InstructionIndex.F2D:
 					{
-						float value = frame.<Float>popFromStack(Float.class);
-						frame.pushToStack(Double.valueOf((double)value));
+						float value = frame.popFromStackFloat();
+						frame.pushToStack((double)value);
 					}
 					break;
 					
 					// Float to integer
 				case InstructionIndex.F2I:
 					{
-						float value = frame.<Float>popFromStack(Float.class);
-						frame.pushToStack(Integer.valueOf((int)value));
+						float value = frame.popFromStackFloat();
+						frame.pushToStack((int)value);
 					}
 					break;
 					
 					// Float to long
 				case InstructionIndex.F2L:
 					{
-						float value = frame.<Float>popFromStack(Float.class);
-						frame.pushToStack(Long.valueOf((long)value));
+						float value = frame.popFromStackFloat();
+						frame.pushToStack((long)value);
 					}
 					break;
 				
 					// Add float
 				case InstructionIndex.FADD:
 					{
-						float b = frame.<Float>popFromStack(Float.class),
-							a = frame.<Float>popFromStack(Float.class);
+						float b = frame.popFromStackFloat(),
+							a = frame.popFromStackFloat();
 						frame.pushToStack(a + b);
 					}
 					break;
@@ -2127,8 +2373,8 @@ public final class SpringThreadWorker
 					// Compare float, NaN is positive
 				case InstructionIndex.FCMPG:
 					{
-						float b = frame.<Float>popFromStack(Float.class),
-							a = frame.<Float>popFromStack(Float.class);
+						float b = frame.popFromStackFloat(),
+							a = frame.popFromStackFloat();
 						
 						if (Float.isNaN(a) || Float.isNaN(b))
 							frame.pushToStack(1);
@@ -2140,8 +2386,8 @@ public final class SpringThreadWorker
 					// Compare float, NaN is negative
 				case InstructionIndex.FCMPL:
 					{
-						float b = frame.<Float>popFromStack(Float.class),
-							a = frame.<Float>popFromStack(Float.class);
+						float b = frame.popFromStackFloat(),
+							a = frame.popFromStackFloat();
 						
 						if (Float.isNaN(a) || Float.isNaN(b))
 							frame.pushToStack(-1);
@@ -2155,14 +2401,14 @@ public final class SpringThreadWorker
 				case InstructionIndex.FCONST_1:
 				case InstructionIndex.FCONST_2:
 					frame.pushToStack(
-						Float.valueOf(opid - InstructionIndex.FCONST_0));
+						(float)(opid - InstructionIndex.FCONST_0));
 					break;
 				
 					// Divide float
 				case InstructionIndex.FDIV:
 					{
-						float b = frame.<Float>popFromStack(Float.class),
-							a = frame.<Float>popFromStack(Float.class);
+						float b = frame.popFromStackFloat(),
+							a = frame.popFromStackFloat();
 						frame.pushToStack(a / b);
 					}
 					break;
@@ -2171,7 +2417,7 @@ public final class SpringThreadWorker
 				case InstructionIndex.FLOAD:
 				case InstructionIndex.WIDE_FLOAD:
 					frame.loadToStack(Float.class,
-						inst.<Integer>argument(0, Integer.class));
+						decoded.intArgumentA(index));
 					break;
 					
 					// Load float from local variable
@@ -2186,8 +2432,8 @@ public final class SpringThreadWorker
 					// Multiply float
 				case InstructionIndex.FMUL:
 					{
-						float b = frame.<Float>popFromStack(Float.class),
-							a = frame.<Float>popFromStack(Float.class);
+						float b = frame.popFromStackFloat(),
+							a = frame.popFromStackFloat();
 						frame.pushToStack(a * b);
 					}
 					break;
@@ -2195,7 +2441,7 @@ public final class SpringThreadWorker
 					// Negate float
 				case InstructionIndex.FNEG:
 					{
-						float a = frame.<Float>popFromStack(Float.class);
+						float a = frame.popFromStackFloat();
 						frame.pushToStack(-a);
 					}
 					break;
@@ -2203,8 +2449,8 @@ public final class SpringThreadWorker
 					// Remainder float
 				case InstructionIndex.FREM:
 					{
-						float b = frame.<Float>popFromStack(Float.class),
-							a = frame.<Float>popFromStack(Float.class);
+						float b = frame.popFromStackFloat(),
+							a = frame.popFromStackFloat();
 						frame.pushToStack(a % b);
 					}
 					break;
@@ -2212,15 +2458,15 @@ public final class SpringThreadWorker
 					// Return float
 				case InstructionIndex.FRETURN:
 					this.__vmReturn(thread,
-						frame.<Float>popFromStack(Float.class));
+						frame.popFromStackFloat());
 					nextpc = Integer.MIN_VALUE;
 					break;
 				
 					// Subtract float
 				case InstructionIndex.FSUB:
 					{
-						float b = frame.<Float>popFromStack(Float.class),
-							a = frame.<Float>popFromStack(Float.class);
+						float b = frame.popFromStackFloat(),
+							a = frame.popFromStackFloat();
 						frame.pushToStack(a - b);
 					}
 					break;
@@ -2228,8 +2474,8 @@ public final class SpringThreadWorker
 					// Store float to local variable
 				case InstructionIndex.FSTORE:
 				case InstructionIndex.WIDE_FSTORE:
-					frame.storeLocal(inst.<Integer>argument(0, Integer.class),
-						frame.<Float>popFromStack(Float.class));
+					frame.storeLocal(decoded.intArgumentA(index),
+						frame.popFromStackFloat());
 					break;
 					
 					// Store float to local variable
@@ -2238,7 +2484,7 @@ public final class SpringThreadWorker
 				case InstructionIndex.FSTORE_2:
 				case InstructionIndex.FSTORE_3:
 					frame.storeLocal(opid - InstructionIndex.FSTORE_0,
-						frame.<Float>popFromStack(Float.class));
+						frame.popFromStackFloat());
 					break;
 					
 					// Read from instance field
@@ -2246,8 +2492,7 @@ public final class SpringThreadWorker
 					{
 						// Lookup field
 						SpringField ssf = this.__lookupInstanceField(
-							inst.<FieldReference>argument(0,
-							FieldReference.class));
+							frame, inst);
 						
 						// Pop the object to read from
 						SpringObject ref = frame.<SpringObject>popFromStack(
@@ -2267,7 +2512,7 @@ public final class SpringThreadWorker
 						
 						// Read and push to the stack
 						frame.pushToStack(this.asVMObject(
-							sso.fieldByIndex(ssf.index()).get()));
+							sso.getField(ssf)));
 					}
 					break;
 					
@@ -2276,8 +2521,7 @@ public final class SpringThreadWorker
 					{
 						// Lookup field
 						SpringFieldStorage ssf = this.__lookupStaticField(
-							inst.<FieldReference>argument(0,
-							FieldReference.class));
+							frame, inst);
 						
 						// Push read value to stack
 						frame.pushToStack(this.asVMObject(ssf.get()));
@@ -2287,8 +2531,7 @@ public final class SpringThreadWorker
 					// Go to address
 				case InstructionIndex.GOTO:
 				case InstructionIndex.GOTO_W:
-					nextpc = inst.<InstructionJumpTarget>argument(0,
-						InstructionJumpTarget.class).target();
+					nextpc = decoded.jumpTarget(index);
 					break;
 					
 					// Load integer from array
@@ -2297,7 +2540,7 @@ public final class SpringThreadWorker
 				case InstructionIndex.SALOAD:
 				case InstructionIndex.IALOAD:
 					{
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -2308,7 +2551,7 @@ public final class SpringThreadWorker
 					// Load double from array
 				case InstructionIndex.DALOAD:
 					{
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -2319,7 +2562,7 @@ public final class SpringThreadWorker
 					// Load float from array
 				case InstructionIndex.FALOAD:
 					{
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -2331,7 +2574,7 @@ public final class SpringThreadWorker
 					// Load long from array
 				case InstructionIndex.LALOAD:
 					{
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -2345,8 +2588,8 @@ public final class SpringThreadWorker
 				case InstructionIndex.SASTORE:
 				case InstructionIndex.IASTORE:
 					{
-						int value = frame.<Integer>popFromStack(Integer.class);
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						int value = frame.popFromStackInt();
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -2357,9 +2600,8 @@ public final class SpringThreadWorker
 					// Store double to array
 				case InstructionIndex.DASTORE:
 					{
-						double value = frame.<Double>popFromStack(
-							Double.class);
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						double value = frame.popFromStackDouble();
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -2370,8 +2612,8 @@ public final class SpringThreadWorker
 					// Store float to array
 				case InstructionIndex.FASTORE:
 					{
-						float value = frame.<Float>popFromStack(Float.class);
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						float value = frame.popFromStackFloat();
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -2382,8 +2624,8 @@ public final class SpringThreadWorker
 					// Store long to array
 				case InstructionIndex.LASTORE:
 					{
-						long value = frame.<Long>popFromStack(Long.class);
-						int dx = frame.<Integer>popFromStack(Integer.class);
+						long value = frame.popFromStackLong();
+						int dx = frame.popFromStackInt();
 						SpringArrayObject obj = frame.<SpringArrayObject>
 							popFromStackNotNull(SpringArrayObject.class);
 						
@@ -2394,49 +2636,48 @@ public final class SpringThreadWorker
 					// Integer to byte
 				case InstructionIndex.I2B:
 					{
-						int value = frame.<Integer>popFromStack(Integer.class);
-						frame.pushToStack(Byte.valueOf((byte)value).
-							intValue());
+						int value = frame.popFromStackInt();
+						frame.pushToStack((int)(byte)value);
 					}
 					break;
 					
 					// Integer to double
 				case InstructionIndex.I2D:
 					{
-						int value = frame.<Integer>popFromStack(Integer.class);
-						frame.pushToStack(Double.valueOf(value));
+						int value = frame.popFromStackInt();
+						frame.pushToStack((double)value);
 					}
 					break;
 					
 					// Integer to long
 				case InstructionIndex.I2L:
 					{
-						int value = frame.<Integer>popFromStack(Integer.class);
-						frame.pushToStack(Long.valueOf(value));
+						int value = frame.popFromStackInt();
+						frame.pushToStack((long)value);
 					}
 					break;
 					
 					// Integer to character
 				case InstructionIndex.I2C:
 					{
-						int value = frame.<Integer>popFromStack(Integer.class);
-						frame.pushToStack(Integer.valueOf((char)value));
+						int value = frame.popFromStackInt();
+						frame.pushToStack((int)(char)value);
 					}
 					break;
 					
 					// Integer to short
 				case InstructionIndex.I2S:
 					{
-						int value = frame.<Integer>popFromStack(Integer.class);
-						frame.pushToStack(Integer.valueOf((short)value));
+						int value = frame.popFromStackInt();
+						frame.pushToStack((int)(short)value);
 					}
 					break;
 					
 					// Integer to float
 				case InstructionIndex.I2F:
 					{
-						int value = frame.<Integer>popFromStack(Integer.class);
-						frame.pushToStack(Float.valueOf(value));
+						int value = frame.popFromStackInt();
+						frame.pushToStack((float)value);
 					}
 					break;
 					
@@ -2448,8 +2689,8 @@ public final class SpringThreadWorker
 				case InstructionIndex.ICONST_3:
 				case InstructionIndex.ICONST_4:
 				case InstructionIndex.ICONST_5:
-					frame.pushToStack(Integer.valueOf(
-						-1 + (opid - InstructionIndex.ICONST_M1)));
+					frame.pushToStack(
+						-1 + (opid - InstructionIndex.ICONST_M1));
 					break;
 					
 					// Object a == b
@@ -2461,8 +2702,7 @@ public final class SpringThreadWorker
 								SpringObject.class);
 						
 						if (a == b)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
@@ -2475,131 +2715,117 @@ public final class SpringThreadWorker
 								SpringObject.class);
 						
 						if (a != b)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
 					// int a == b
 				case InstructionIndex.IF_ICMPEQ:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						
 						if (a == b)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
 					// int a >= b
 				case InstructionIndex.IF_ICMPGE:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						
 						if (a >= b)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
 					// int a > b
 				case InstructionIndex.IF_ICMPGT:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						
 						if (a > b)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
 					// int a <= b
 				case InstructionIndex.IF_ICMPLE:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						
 						if (a <= b)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
 					// int a < b
 				case InstructionIndex.IF_ICMPLT:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						
 						if (a < b)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
 					// int a != b
 				case InstructionIndex.IF_ICMPNE:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						
 						if (a != b)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
 					// int a == 0
 				case InstructionIndex.IFEQ:
-					if (frame.<Integer>popFromStack(Integer.class) == 0)
-						nextpc = inst.<InstructionJumpTarget>argument(0,
-							InstructionJumpTarget.class).target();
+					if (frame.popFromStackInt() == 0)
+						nextpc = decoded.jumpTarget(index);
 					break;
 					
 					// int a >= 0
 				case InstructionIndex.IFGE:
-					if (frame.<Integer>popFromStack(Integer.class) >= 0)
-						nextpc = inst.<InstructionJumpTarget>argument(0,
-							InstructionJumpTarget.class).target();
+					if (frame.popFromStackInt() >= 0)
+						nextpc = decoded.jumpTarget(index);
 					break;
 					
 					// int a > 0
 				case InstructionIndex.IFGT:
-					if (frame.<Integer>popFromStack(Integer.class) > 0)
-						nextpc = inst.<InstructionJumpTarget>argument(0,
-							InstructionJumpTarget.class).target();
+					if (frame.popFromStackInt() > 0)
+						nextpc = decoded.jumpTarget(index);
 					break;
 					
 					// int a <= 0
 				case InstructionIndex.IFLE:
-					if (frame.<Integer>popFromStack(Integer.class) <= 0)
-						nextpc = inst.<InstructionJumpTarget>argument(0,
-							InstructionJumpTarget.class).target();
+					if (frame.popFromStackInt() <= 0)
+						nextpc = decoded.jumpTarget(index);
 					break;
 					
 					// int a < 0
 				case InstructionIndex.IFLT:
-					if (frame.<Integer>popFromStack(Integer.class) < 0)
-						nextpc = inst.<InstructionJumpTarget>argument(0,
-							InstructionJumpTarget.class).target();
+					if (frame.popFromStackInt() < 0)
+						nextpc = decoded.jumpTarget(index);
 					break;
 					
 					// int a != 0
 				case InstructionIndex.IFNE:
-					if (frame.<Integer>popFromStack(Integer.class) != 0)
-						nextpc = inst.<InstructionJumpTarget>argument(0,
-							InstructionJumpTarget.class).target();
+					if (frame.popFromStackInt() != 0)
+						nextpc = decoded.jumpTarget(index);
 					break;
 					
 					// If reference is not null
 				case InstructionIndex.IFNONNULL:
 					if (frame.<SpringObject>popFromStack(
 						SpringObject.class) != SpringNullObject.NULL)
-						nextpc = inst.<InstructionJumpTarget>argument(0,
-							InstructionJumpTarget.class).target();
+						nextpc = decoded.jumpTarget(index);
 					break;
 					
 					// If reference is null
@@ -2608,8 +2834,7 @@ public final class SpringThreadWorker
 						SpringObject a = frame.<SpringObject>popFromStack(
 							SpringObject.class);
 						if (a == SpringNullObject.NULL)
-							nextpc = inst.<InstructionJumpTarget>argument(0,
-								InstructionJumpTarget.class).target();
+							nextpc = decoded.jumpTarget(index);
 					}
 					break;
 					
@@ -2617,10 +2842,9 @@ public final class SpringThreadWorker
 				case InstructionIndex.IINC:
 				case InstructionIndex.WIDE_IINC:
 					{
-						int dx = inst.<Integer>argument(0, Integer.class);
-						frame.storeLocal(dx, frame.<Integer>loadLocal(
-							Integer.class, dx) + inst.<Integer>argument(1,
-							Integer.class));
+						int dx = decoded.intArgumentA(index);
+						frame.storeLocal(dx, frame.loadLocalInt(dx) +
+							decoded.intArgumentB(index));
 					}
 					break;
 					
@@ -2628,7 +2852,7 @@ public final class SpringThreadWorker
 				case InstructionIndex.ILOAD:
 				case InstructionIndex.WIDE_ILOAD:
 					frame.loadToStack(Integer.class,
-						inst.<Integer>argument(0, Integer.class));
+						decoded.intArgumentA(index));
 					break;
 					
 					// Load integer from local variable
@@ -2643,8 +2867,8 @@ public final class SpringThreadWorker
 					// Addly integer
 				case InstructionIndex.IADD:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a + b);
 					}
 					break;
@@ -2652,8 +2876,8 @@ public final class SpringThreadWorker
 					// AND integer
 				case InstructionIndex.IAND:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a & b);
 					}
 					break;
@@ -2661,8 +2885,8 @@ public final class SpringThreadWorker
 					// Divide integer
 				case InstructionIndex.IDIV:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a / b);
 					}
 					break;
@@ -2670,8 +2894,8 @@ public final class SpringThreadWorker
 					// Multiply integer
 				case InstructionIndex.IMUL:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a * b);
 					}
 					break;
@@ -2679,7 +2903,7 @@ public final class SpringThreadWorker
 					// Negate integer
 				case InstructionIndex.INEG:
 					{
-						int a = frame.<Integer>popFromStack(Integer.class);
+						int a = frame.popFromStackInt();
 						frame.pushToStack(-a);
 					}
 					break;
@@ -2688,8 +2912,8 @@ public final class SpringThreadWorker
 				case InstructionIndex.INSTANCEOF:
 					{
 						// Check against this
-						SpringClass as = this.resolveClass(inst.
-							<ClassName>argument(0, ClassName.class));
+						SpringClass as = this.__resolveClass(frame, inst,
+							inst.<ClassName>argument(0, ClassName.class));
 						
 						SpringClass vtype = frame.<SpringObject>popFromStack(
 							SpringObject.class).type();
@@ -2708,7 +2932,7 @@ public final class SpringThreadWorker
 					
 					// Exception to be handled?
 					if (this.__checkException())
-						return;
+						return true;
 					break;
 					
 					// Invoke special method (constructor, superclass,
@@ -2722,7 +2946,7 @@ public final class SpringThreadWorker
 					
 					// Exception to be handled?
 					if (this.__checkException())
-						return;
+						return true;
 					break;
 					
 					// Invoke static method
@@ -2736,7 +2960,7 @@ public final class SpringThreadWorker
 					
 					// Exception to be handled?
 					if (this.__checkException())
-						return;
+						return true;
 					break;
 					
 					// Invoke virtual method
@@ -2749,14 +2973,14 @@ public final class SpringThreadWorker
 					
 					// Exception to be handled?
 					if (this.__checkException())
-						return;
+						return true;
 					break;
 				
 					// OR integer
 				case InstructionIndex.IOR:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a | b);
 					}
 					break;
@@ -2764,8 +2988,8 @@ public final class SpringThreadWorker
 					// Remainder integer
 				case InstructionIndex.IREM:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a % b);
 					}
 					break;
@@ -2773,15 +2997,15 @@ public final class SpringThreadWorker
 					// Return integer
 				case InstructionIndex.IRETURN:
 					this.__vmReturn(thread,
-						frame.<Integer>popFromStack(Integer.class));
+						frame.popFromStackInt());
 					nextpc = Integer.MIN_VALUE;
 					break;
 				
 					// Shift left integer
 				case InstructionIndex.ISHL:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a << (b & 0x1F));
 					}
 					break;
@@ -2789,8 +3013,8 @@ public final class SpringThreadWorker
 					// Shift right integer
 				case InstructionIndex.ISHR:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a >> (b & 0x1F));
 					}
 					break;
@@ -2798,8 +3022,8 @@ public final class SpringThreadWorker
 					// Store integer to local variable
 				case InstructionIndex.ISTORE:
 				case InstructionIndex.WIDE_ISTORE:
-					frame.storeLocal(inst.<Integer>argument(0, Integer.class),
-						frame.<Integer>popFromStack(Integer.class));
+					frame.storeLocal(decoded.intArgumentA(index),
+						frame.popFromStackInt());
 					break;
 					
 					// Store integer to local variable
@@ -2808,14 +3032,14 @@ public final class SpringThreadWorker
 				case InstructionIndex.ISTORE_2:
 				case InstructionIndex.ISTORE_3:
 					frame.storeLocal(opid - InstructionIndex.ISTORE_0,
-						frame.<Integer>popFromStack(Integer.class));
+						frame.popFromStackInt());
 					break;
 				
 					// Subtract integer
 				case InstructionIndex.ISUB:
 					{
-						Integer b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a - b);
 					}
 					break;
@@ -2823,8 +3047,8 @@ public final class SpringThreadWorker
 					// Unsigned shift right integer
 				case InstructionIndex.IUSHR:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a >>> (b & 0x1F));
 					}
 					break;
@@ -2832,8 +3056,8 @@ public final class SpringThreadWorker
 					// XOR integer
 				case InstructionIndex.IXOR:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class),
-							a = frame.<Integer>popFromStack(Integer.class);
+						int b = frame.popFromStackInt(),
+							a = frame.popFromStackInt();
 						frame.pushToStack(a ^ b);
 					}
 					break;
@@ -2841,32 +3065,32 @@ public final class SpringThreadWorker
 					// Long to double
 				case InstructionIndex.L2D:
 					{
-						long value = frame.<Long>popFromStack(Long.class);
-						frame.pushToStack(Double.valueOf((double)value));
+						long value = frame.popFromStackLong();
+						frame.pushToStack((double)value);
 					}
 					break;
 					
 					// Long to float
 				case InstructionIndex.L2F:
 					{
-						long value = frame.<Long>popFromStack(Long.class);
-						frame.pushToStack(Float.valueOf((float)value));
+						long value = frame.popFromStackLong();
+						frame.pushToStack((float)value);
 					}
 					break;
 					
 					// Long to integer
 				case InstructionIndex.L2I:
 					{
-						long value = frame.<Long>popFromStack(Long.class);
-						frame.pushToStack(Integer.valueOf((int)value));
+						long value = frame.popFromStackLong();
+						frame.pushToStack((int)value);
 					}
 					break;
 					
 					// Add long
 				case InstructionIndex.LADD:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack(a + b);
 					}
 					break;
@@ -2874,8 +3098,8 @@ public final class SpringThreadWorker
 					// And long
 				case InstructionIndex.LAND:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack(a & b);
 					}
 					break;
@@ -2883,8 +3107,8 @@ public final class SpringThreadWorker
 					// Compare long
 				case InstructionIndex.LCMP:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack((a < b ? -1 : (a > b ? 1 : 0)));
 					}
 					break;
@@ -2892,8 +3116,8 @@ public final class SpringThreadWorker
 					// Long constant
 				case InstructionIndex.LCONST_0:
 				case InstructionIndex.LCONST_1:
-					frame.pushToStack(Long.valueOf(
-						(opid - InstructionIndex.LCONST_0)));
+					frame.pushToStack(
+						(long)(opid - InstructionIndex.LCONST_0));
 					break;
 					
 					// Load from constant pool, push to the stack
@@ -2928,8 +3152,8 @@ public final class SpringThreadWorker
 					// Divide long
 				case InstructionIndex.LDIV:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack(a / b);
 					}
 					break;
@@ -2938,7 +3162,7 @@ public final class SpringThreadWorker
 				case InstructionIndex.LLOAD:
 				case InstructionIndex.WIDE_LLOAD:
 					frame.loadToStack(Long.class,
-						inst.<Integer>argument(0, Integer.class));
+						decoded.intArgumentA(index));
 					break;
 					
 					// Load integer from local variable
@@ -2953,8 +3177,8 @@ public final class SpringThreadWorker
 					// Multiply long
 				case InstructionIndex.LMUL:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack(a * b);
 					}
 					break;
@@ -2962,7 +3186,7 @@ public final class SpringThreadWorker
 					// Negate long
 				case InstructionIndex.LNEG:
 					{
-						long a = frame.<Long>popFromStack(Long.class);
+						long a = frame.popFromStackLong();
 						frame.pushToStack(-a);
 					}
 					break;
@@ -2970,8 +3194,8 @@ public final class SpringThreadWorker
 					// OR long
 				case InstructionIndex.LOR:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack(a | b);
 					}
 					break;
@@ -2979,8 +3203,8 @@ public final class SpringThreadWorker
 					// Subtract long
 				case InstructionIndex.LSUB:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack(a - b);
 					}
 					break;
@@ -2990,14 +3214,14 @@ public final class SpringThreadWorker
 				case InstructionIndex.TABLESWITCH:
 					nextpc = inst.<IntMatchingJumpTable>argument(0,
 						IntMatchingJumpTable.class).match(
-						frame.<Integer>popFromStack(Integer.class)).target();
+						frame.popFromStackInt()).target();
 					break;
 				
 					// Remainder long
 				case InstructionIndex.LREM:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack(a % b);
 					}
 					break;
@@ -3005,15 +3229,15 @@ public final class SpringThreadWorker
 					// Return long
 				case InstructionIndex.LRETURN:
 					this.__vmReturn(thread,
-						frame.<Long>popFromStack(Long.class));
+						frame.popFromStackLong());
 					nextpc = Integer.MIN_VALUE;
 					break;
 				
 					// Shift left long
 				case InstructionIndex.LSHL:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class);
-						long a = frame.<Long>popFromStack(Long.class);
+						int b = frame.popFromStackInt();
+						long a = frame.popFromStackLong();
 						frame.pushToStack(a << (((long)b) & 0x3F));
 					}
 					break;
@@ -3021,8 +3245,8 @@ public final class SpringThreadWorker
 					// Shift right long
 				case InstructionIndex.LSHR:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class);
-						long a = frame.<Long>popFromStack(Long.class);
+						int b = frame.popFromStackInt();
+						long a = frame.popFromStackLong();
 						frame.pushToStack(a >> (((long)b) & 0x3F));
 					}
 					break;
@@ -3030,8 +3254,8 @@ public final class SpringThreadWorker
 					// Store long to local variable
 				case InstructionIndex.LSTORE:
 				case InstructionIndex.WIDE_LSTORE:
-					frame.storeLocal(inst.<Integer>argument(0, Integer.class),
-						frame.<Long>popFromStack(Long.class));
+					frame.storeLocal(decoded.intArgumentA(index),
+						frame.popFromStackLong());
 					break;
 					
 					// Store long to local variable
@@ -3040,14 +3264,14 @@ public final class SpringThreadWorker
 				case InstructionIndex.LSTORE_2:
 				case InstructionIndex.LSTORE_3:
 					frame.storeLocal(opid - InstructionIndex.LSTORE_0,
-						frame.<Long>popFromStack(Long.class));
+						frame.popFromStackLong());
 					break;
 				
 					// Unsigned shift right long
 				case InstructionIndex.LUSHR:
 					{
-						int b = frame.<Integer>popFromStack(Integer.class);
-						long a = frame.<Long>popFromStack(Long.class);
+						int b = frame.popFromStackInt();
+						long a = frame.popFromStackLong();
 						frame.pushToStack(a >>> (((long)b) & 0x3F));
 					}
 					break;
@@ -3055,8 +3279,8 @@ public final class SpringThreadWorker
 					// XOR long
 				case InstructionIndex.LXOR:
 					{
-						long b = frame.<Long>popFromStack(Long.class),
-							a = frame.<Long>popFromStack(Long.class);
+						long b = frame.popFromStackLong(),
+							a = frame.popFromStackLong();
 						frame.pushToStack(a ^ b);
 					}
 					break;
@@ -3077,15 +3301,14 @@ public final class SpringThreadWorker
 				case InstructionIndex.MULTIANEWARRAY:
 					{
 						// Determine component type and dimension count
-						SpringClass ccl = this.resolveClass(
+						SpringClass ccl = this.__resolveClass(frame, inst,
 							inst.<ClassName>argument(0, ClassName.class));
-						int n = inst.<Integer>argument(1, Integer.class);
+						int n = decoded.intArgumentB(index);
 						
 						// Pop values into array
 						int[] pops = new int[n];
 						for (int i = n - 1; i >= 0; i--)
-							pops[i] = frame.<Integer>popFromStack(
-								Integer.class);
+							pops[i] = frame.popFromStackInt();
 						
 						// Call method within the class library since it is
 						// easier, becuse this is one super complex
@@ -3099,7 +3322,7 @@ public final class SpringThreadWorker
 						
 						// Exception to be handled?
 						if (this.__checkException())
-							return;
+							return true;
 					}
 					break;
 					
@@ -3110,11 +3333,11 @@ public final class SpringThreadWorker
 				
 					// Allocate new primitive array
 				case InstructionIndex.NEWARRAY:
-					frame.pushToStack(this.allocateArray(this.resolveClass(
-						ClassName.fromPrimitiveType(
+					frame.pushToStack(this.allocateArray(this.__resolveClass(
+						frame, inst, ClassName.fromPrimitiveType(
 						inst.<PrimitiveType>argument(0,
 							PrimitiveType.class)).addDimensions(1)),
-						frame.<Integer>popFromStack(Integer.class)));
+						frame.popFromStackInt()));
 					break;
 					
 					// Return from method with no return value
@@ -3156,8 +3379,7 @@ public final class SpringThreadWorker
 					{
 						// Lookup field
 						SpringField ssf = this.__lookupInstanceField(
-							inst.<FieldReference>argument(0,
-							FieldReference.class));
+							frame, inst);
 						
 						// Pop the value and the object to mess with
 						Object value = frame.popFromStack();
@@ -3183,8 +3405,8 @@ public final class SpringThreadWorker
 							throw new SpringClassCastException("BK2u");
 						
 						// Set
-						sso.fieldByIndex(ssf.index()).set(value,
-							isinstanceinit);
+						sso.setField(ssf, value,
+							method.isInstanceInitializer());
 					}
 					break;
 				
@@ -3193,12 +3415,12 @@ public final class SpringThreadWorker
 					{
 						// Lookup field
 						SpringFieldStorage ssf = this.__lookupStaticField(
-							inst.<FieldReference>argument(0,
-							FieldReference.class));
+							frame, inst);
 						
 						// Set value, note that static initializers can set
 						// static field values even if they are final
-						ssf.set(frame.popFromStack(), isstaticinit);
+						ssf.set(frame.popFromStack(),
+							method.isStaticInitializer());
 					}
 					break;
 					
@@ -3245,7 +3467,7 @@ public final class SpringThreadWorker
 			
 			// Do not set PC address?
 			if (nextpc < 0)
-				return;
+				return true;
 		}
 		
 		// Use the original exception, just add a suppression note on it since
@@ -3279,7 +3501,7 @@ public final class SpringThreadWorker
 				
 				// Do not set PC address?
 				if (nextpc < 0)
-					return;
+					return true;
 			}
 			
 			// Not a wrapped exception, kill the VM
@@ -3300,7 +3522,7 @@ public final class SpringThreadWorker
 				// Location information if debugging is used, this makes it
 				// easier to see exactly where failed code happened
 				String onfile = inclass.file().sourceFile();
-				int online = code.lineOfAddress(pc);
+				int online = decoded.code.lineOfAddress(pc);
 				
 				// {@squirreljme.error BK2y An exception was thrown in the
 				// virtual machine while executing the specified location.
@@ -3320,6 +3542,11 @@ public final class SpringThreadWorker
 		// address was actually changed
 		if (nextpc != orignextpc || pc == frame.pc())
 			frame.setPc(nextpc);
+		
+		// Back-edges, invokes, returns and tossed exceptions need the safe
+		// point checks to be performed before the next instruction
+		return nextpc <= pc || decoded.isSafePoint(index) ||
+			frame.tossedException() != null;
 	}
 	
 	/**
@@ -3341,19 +3568,33 @@ public final class SpringThreadWorker
 		MethodReference ref = __i.<MethodReference>argument(
 			0, MethodReference.class);
 		
-		// Resolve the method reference
-		SpringClass refclass = this.loadClass(ref.className());
-		SpringMethod refmethod = refclass.lookupMethod(false,
-			ref.memberNameAndType());
-		
-		// {@squirreljme.error BK30 Could not access the target
-		// method for interface invoke. (The target method)}
-		if (!this.checkAccess(refmethod))
-			throw new SpringIncompatibleClassChangeException(
-				String.format("BK30 %s", ref));
+		// Use the already resolved call site, if it was resolved
+		SpringMethod inMethod = __f.method();
+		int pc = __i.address();
+		CallSite site = (CallSite)this.machine.resolvedReference(inMethod, pc);
+		if (site == null)
+		{
+			// Resolve the method reference
+			SpringClass refclass = this.loadClass(ref.className());
+			SpringMethod refmethod = refclass.lookupMethod(false,
+				ref.memberNameAndType());
+			
+			// {@squirreljme.error BK30 Could not access the target
+			// method for interface invoke. (The target method)}
+			if (!this.checkAccess(refmethod))
+				throw new SpringIncompatibleClassChangeException(
+					String.format("BK30 %s", ref));
+			
+			// Arguments include the instance it acts on
+			site = new CallSite(refclass, refmethod,
+				refmethod.nameAndType().type().argumentCount() + 1,
+				refclass.virtualSlot(ref.memberNameAndType()));
+			if (this.__canCacheResolved())
+				this.machine.setResolvedReference(inMethod, pc, site);
+		}
 		
 		// Load arguments, includes the instance it acts on
-		int nargs = refmethod.nameAndType().type().argumentCount() + 1;
+		int nargs = site.argCount;
 		Object[] args = new Object[nargs];
 		for (int i = nargs - 1; i >= 0; i--)
 			args[i] = __f.popFromStack();
@@ -3367,14 +3608,14 @@ public final class SpringThreadWorker
 		// {@squirreljme.error BK32 Cannot invoke the method in the object
 		// because it is of the wrong type. (The reference class; The class
 		// of the target object; The first argument)}
+		SpringClass refclass = site.refClass;
 		SpringClass objclass = onthis.type();
 		if (objclass == null || !refclass.isAssignableFrom(objclass))
 			throw new SpringClassCastException(
 				String.format("BK32 %s %s %s", refclass, objclass, args[0]));
 		
-		// Re-lookup the method since we need to the right one! Then invoke it
-		__t.enterFrame(objclass.lookupMethod(false,
-			ref.memberNameAndType()), args);
+		// Use the method for the class of the object, then invoke it
+		this.__enterFrame(__t, __f, site.interfaceTarget(objclass), args);
 	}
 	
 	/**
@@ -3393,57 +3634,68 @@ public final class SpringThreadWorker
 		if (__i == null || __t == null || __f == null)
 			throw new NullPointerException("NARG");
 		
-		MethodReference ref = __i.<MethodReference>argument(
-			0, MethodReference.class);
-		
-		// Resolve the method reference
-		SpringClass refclass = this.loadClass(ref.className());
-		SpringMethod refmethod = refclass.lookupMethod(false,
-			ref.memberNameAndType());
-		
-		// {@squirreljme.error BK34 Could not access the target
-		// method for special invoke. (The target method)}
-		if (!this.checkAccess(refmethod))
-			throw new SpringIncompatibleClassChangeException(
-				String.format("BK34 %s", ref));
+		// Use the already resolved call site, if it was resolved
+		SpringMethod inMethod = __f.method();
+		int pc = __i.address();
+		CallSite site = (CallSite)this.machine.resolvedReference(inMethod, pc);
+		if (site == null)
+		{
+			MethodReference ref = __i.<MethodReference>argument(
+				0, MethodReference.class);
+			
+			// Resolve the method reference
+			SpringClass refclass = this.loadClass(ref.className());
+			SpringMethod refmethod = refclass.lookupMethod(false,
+				ref.memberNameAndType());
+			
+			// {@squirreljme.error BK34 Could not access the target
+			// method for special invoke. (The target method)}
+			if (!this.checkAccess(refmethod))
+				throw new SpringIncompatibleClassChangeException(
+					String.format("BK34 %s", ref));
+			
+			// Get the class of the current method being executed, lookup
+			// depends on it
+			SpringClass currentclass = this.loadClass(inMethod.inClass());
+			
+			// These modify the action to be performed
+			boolean insame = (currentclass == refclass),
+				insuper = currentclass.isSuperClass(refclass),
+				isinit = refmethod.name().isInstanceInitializer(),
+				isprivate = refmethod.flags().isPrivate();
+			
+			// {@squirreljme.error BK36 Cannot call private method that is
+			// not in the same class. (The method reference)}
+			if (isprivate && !insame)
+				throw new SpringIncompatibleClassChangeException(
+					String.format("BK36 %s", ref));
+			
+			// Call superclass method instead?
+			else if (!isprivate && insuper && !isinit)
+				refmethod = currentclass.superClass().lookupMethod(false,
+					ref.memberNameAndType());
+			
+			// The target method is always the same for this instruction
+			site = new CallSite(refclass, refmethod,
+				refmethod.nameAndType().type().argumentCount() + 1);
+			if (this.__canCacheResolved())
+				this.machine.setResolvedReference(inMethod, pc, site);
+		}
 		
 		// Load arguments
-		int nargs = refmethod.nameAndType().type().
-			argumentCount() + 1;
+		int nargs = site.argCount;
 		Object[] args = new Object[nargs];
 		for (int i = nargs - 1; i >= 0; i--)
 			args[i] = __f.popFromStack();
 		
-		// Get the class of the current method being executed, lookup depends
-		// on it
-		SpringClass currentclass = this.loadClass(
-			this.thread.currentFrame().method().inClass());
-		
 		// {@squirreljme.error BK35 Instance object for special invoke is
 		// null.}
 		SpringObject onthis = (SpringObject)args[0];
 		if (onthis == null || onthis == SpringNullObject.NULL)
 			throw new SpringNullPointerException("BK35");
 		
-		// These modify the action to be performed
-		boolean insame = (currentclass == refclass),
-			insuper = currentclass.isSuperClass(refclass),
-			isinit = refmethod.name().isInstanceInitializer(),
-			isprivate = refmethod.flags().isPrivate();
-		
-		// {@squirreljme.error BK36 Cannot call private method that is not
-		// in the same class. (The method reference)}
-		if (isprivate && !insame)
-			throw new SpringIncompatibleClassChangeException(
-				String.format("BK36 %s", ref));
-		
-		// Call superclass method instead?
-		else if (!isprivate && insuper && !isinit)
-			refmethod = currentclass.superClass().lookupMethod(false,
-				ref.memberNameAndType());
-		
 		// Invoke this method
-		__t.enterFrame(refmethod, args);
+		this.__enterFrame(__t, __f, site.refMethod, args);
 	}
 	
 	/**
@@ -3465,40 +3717,58 @@ public final class SpringThreadWorker
 		MethodReference ref = __i.<MethodReference>argument(
 			0, MethodReference.class);
 		
-		// Resolve the method reference
-		SpringClass refclass = this.loadClass(ref.className());
-		SpringMethod refmethod = refclass.lookupMethod(true,
-			ref.memberNameAndType());
-		
-		// {@squirreljme.error BK37 Could not access the target
-		// method for static invoke. (The target method)}
-		if (!this.checkAccess(refmethod))
-			throw new SpringIncompatibleClassChangeException(
-				String.format("BK37 %s", ref));
+		// Use the already resolved call site, if it was resolved
+		SpringMethod inMethod = __f.method();
+		int pc = __i.address();
+		CallSite site = (CallSite)this.machine.resolvedReference(inMethod, pc);
+		if (site == null)
+		{
+			// Resolve the method reference
+			SpringClass refclass = this.loadClass(ref.className());
+			SpringMethod refmethod = refclass.lookupMethod(true,
+				ref.memberNameAndType());
+			
+			// {@squirreljme.error BK37 Could not access the target
+			// method for static invoke. (The target method)}
+			if (!this.checkAccess(refmethod))
+				throw new SpringIncompatibleClassChangeException(
+					String.format("BK37 %s", ref));
+			
+			// Native methods are bound to their handler now
+			site = new CallSite(refclass, refmethod,
+				refmethod.nameAndType().type().argumentCount(), -1,
+				(refmethod.flags().isNative() ? SpringThreadWorker
+					.nativeTarget(ref.className(), ref.memberNameAndType()) :
+					null));
+			if (this.__canCacheResolved())
+				this.machine.setResolvedReference(inMethod, pc, site);
+		}
 		
 		// Load arguments
-		int nargs = refmethod.nameAndType().type().
-			argumentCount();
+		SpringMethod refmethod = site.refMethod;
+		int nargs = site.argCount;
 		Object[] args = new Object[nargs];
 		for (int i = nargs - 1; i >= 0; i--)
 			args[i] = __f.popFromStack();
 		
 		// Virtualized native call, depends on what it is
-		if (refmethod.flags().isNative())
+		MLEDispatcherTarget nativeTarget = site.nativeTarget;
+		if (nativeTarget != null)
 		{
 			// Add profiler point for native calls to track them there along
-			// with being able to handle that
-			ProfiledFrame pFrame = this.thread.profiler.enterFrame(
-				ref.className().toString(),
-				ref.memberName().toString(), ref.memberType().toString());
+			// with being able to handle that, sampled threads do not see
+			// native calls since they have no frame
+			ProfiledThread profiler = this.thread.profiler;
+			int pDepth = (profiler.isSampled() ? 0 :
+				profiler.enterFrame(ref.className().toString(),
+				ref.memberName().toString(), ref.memberType().toString()));
 			
 			// Now perform the actual call
 			try
 			{
 				// Calculate result of method
 				MethodDescriptor type = ref.memberType();
-				Object rv = this.nativeMethod(ref.className(),
-					ref.memberNameAndType(), args);
+				Object rv = nativeTarget.handle(this, args);
 				
 				// Push native object to the stack
 				if (type.hasReturnValue())
@@ -3508,14 +3778,14 @@ public final class SpringThreadWorker
 			// Exit the profiler frame to it is no longer tracked
 			finally
 			{
-				if (pFrame.inCallCount() > 0)
-					this.thread.profiler.exitFrame();
+				if (pDepth > 0 && profiler.depth() >= pDepth)
+					profiler.exitFrame();
 			}
 		}
 		
 		// Real code that exists in class file format
 		else
-			__t.enterFrame(refmethod, args);
+			this.__enterFrame(__t, __f, refmethod, args);
 	}
 	
 	/**
@@ -3537,19 +3807,33 @@ public final class SpringThreadWorker
 		MethodReference ref = __i.<MethodReference>argument(
 			0, MethodReference.class);
 		
-		// Resolve the method reference
-		SpringClass refclass = this.loadClass(ref.className());
-		SpringMethod refmethod = refclass.lookupMethod(false,
-			ref.memberNameAndType());
-		
-		// {@squirreljme.error BK38 Could not access the target
-		// method for virtual invoke. (The target method)}
-		if (!this.checkAccess(refmethod))
-			throw new SpringIncompatibleClassChangeException(
-				String.format("BK38 %s", ref));
+		// Use the already resolved call site, if it was resolved
+		SpringMethod inMethod = __f.method();
+		int pc = __i.address();
+		CallSite site = (CallSite)this.machine.resolvedReference(inMethod, pc);
+		if (site == null)
+		{
+			// Resolve the method reference
+			SpringClass refclass = this.loadClass(ref.className());
+			SpringMethod refmethod = refclass.lookupMethod(false,
+				ref.memberNameAndType());
+			
+			// {@squirreljme.error BK38 Could not access the target
+			// method for virtual invoke. (The target method)}
+			if (!this.checkAccess(refmethod))
+				throw new SpringIncompatibleClassChangeException(
+					String.format("BK38 %s", ref));
+			
+			// Arguments include the instance it acts on
+			site = new CallSite(refclass, refmethod,
+				refmethod.nameAndType().type().argumentCount() + 1,
+				refclass.virtualSlot(ref.memberNameAndType()));
+			if (this.__canCacheResolved())
+				this.machine.setResolvedReference(inMethod, pc, site);
+		}
 		
 		// Load arguments, includes the instance it acts on
-		int nargs = refmethod.nameAndType().type().argumentCount() + 1;
+		int nargs = site.argCount;
 		Object[] args = new Object[nargs];
 		for (int i = nargs - 1; i >= 0; i--)
 			args[i] = __f.popFromStack();
@@ -3560,12 +3844,11 @@ public final class SpringThreadWorker
 		if (onthis == null || onthis == SpringNullObject.NULL)
 			throw new SpringNullPointerException("BK39");
 		
-		// Re-resolve method for this object's class
-		refmethod = onthis.type().lookupMethod(false,
-			ref.memberNameAndType());
+		// Resolve the method for this object's class
+		SpringMethod refmethod = site.virtualTarget(onthis.type());
 		
 		// Enter frame for static method
-		__t.enterFrame(refmethod, args);
+		this.__enterFrame(__t, __f, refmethod, args);
 	}
 	
 	/**
@@ -3583,16 +3866,28 @@ public final class SpringThreadWorker
 		if (__i == null || __f == null)
 			throw new NullPointerException("NARG");
 		
-		// Lookup class we want to allocate
-		ClassName allocName;
-		SpringClass toAlloc = this.loadClass((allocName =
-			__i.<ClassName>argument(0, ClassName.class)));
-		
-		// {@squirreljme.error BK3a Cannot allocate an instance of the given
-		// class because it cannot be accessed. (The class to allocate)}
-		if (!this.checkAccess(toAlloc))
-			throw new SpringIncompatibleClassChangeException(
-				String.format("BK3a %s", allocName));
+		// Use the already resolved class, if it was resolved
+		SpringMethod inMethod = __f.method();
+		int pc = __i.address();
+		SpringClass toAlloc = (SpringClass)this.machine.resolvedReference(
+			inMethod, pc);
+		if (toAlloc == null)
+		{
+			// Lookup class we want to allocate
+			ClassName allocName;
+			toAlloc = this.loadClass((allocName =
+				__i.<ClassName>argument(0, ClassName.class)));
+			
+			// {@squirreljme.error BK3a Cannot allocate an instance of the
+			// given class because it cannot be accessed. (The class to
+			// allocate)}
+			if (!this.checkAccess(toAlloc))
+				throw new SpringIncompatibleClassChangeException(
+					String.format("BK3a %s", allocName));
+			
+			if (this.__canCacheResolved())
+				this.machine.setResolvedReference(inMethod, pc, toAlloc);
+		}
 		
 		// Push a new allocation to the stack
 		__f.pushToStack(this.allocateObject(toAlloc));
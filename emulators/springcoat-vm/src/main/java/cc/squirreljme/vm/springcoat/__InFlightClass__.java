@@ -0,0 +1,99 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.springcoat;
+
+/**
+ * This represents a class which is currently being loaded by a single
+ * thread, any other threads which need the same class wait on this for it
+ * to be finished.
+ *
+ * @since 2020/07/27
+ */
+final class __InFlightClass__
+{
+	/** The thread which is loading the class. */
+	protected final Thread owner;
+	
+	/** The loaded class. */
+	private SpringClass _class;
+	
+	/** The reason the class could not be loaded. */
+	private Throwable _failure;
+	
+	/** Has loading finished? */
+	private boolean _done;
+	
+	/**
+	 * Initializes the in-flight class.
+	 *
+	 * @param __owner The thread loading the class.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/27
+	 */
+	__InFlightClass__(Thread __owner)
+		throws NullPointerException
+	{
+		if (__owner == null)
+			throw new NullPointerException("NARG");
+		
+		this.owner = __owner;
+	}
+	
+	/**
+	 * Waits for the class to be loaded.
+	 *
+	 * @return The loaded class.
+	 * @since 2020/07/27
+	 */
+	public final synchronized SpringClass await()
+	{
+		// Wait for the owner to finish, interrupts are kept for later
+		boolean interrupted = false;
+		while (!this._done)
+			try
+			{
+				this.wait();
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		
+		// The same failure is seen by every thread
+		Throwable failure = this._failure;
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException)failure;
+		else if (failure instanceof Error)
+			throw (Error)failure;
+		
+		return this._class;
+	}
+	
+	/**
+	 * Finishes loading of the class.
+	 *
+	 * @param __cl The class which was loaded, {@code null} if it failed.
+	 * @param __failure The reason the class failed to load.
+	 * @since 2020/07/27
+	 */
+	public final synchronized void finish(SpringClass __cl,
+		Throwable __failure)
+	{
+		this._class = __cl;
+		this._failure = __failure;
+		this._done = true;
+		
+		this.notifyAll();
+	}
+}
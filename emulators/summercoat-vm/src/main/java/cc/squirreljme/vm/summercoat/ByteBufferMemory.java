@@ -0,0 +1,142 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.summercoat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This is a region of memory which uses a read-only byte buffer, this is
+ * used for memory mapped files so that they do not need to be copied.
+ *
+ * @since 2020/07/29
+ */
+public final class ByteBufferMemory
+	extends AbstractReadableMemory
+	implements ReadableMemory
+{
+	/** The offset to this address. */
+	protected final int offset;
+	
+	/** The size of the buffer. */
+	protected final int size;
+	
+	/** The backing buffer. */
+	private final ByteBuffer _buffer;
+	
+	/**
+	 * Initializes the byte buffer memory, the entire buffer from position
+	 * zero up to its limit is used.
+	 *
+	 * @param __mo The memory offset.
+	 * @param __b The memory buffer.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public ByteBufferMemory(int __mo, ByteBuffer __b)
+		throws NullPointerException
+	{
+		if (__b == null)
+			throw new NullPointerException("NARG");
+		
+		this.offset = __mo;
+		this._buffer = __b.duplicate().order(ByteOrder.BIG_ENDIAN);
+		this.size = __b.limit();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public int memReadByte(int __addr)
+	{
+		// Treat out of region reads as invalid data
+		if (__addr < 0 || __addr >= this.size)
+			return -1;
+		
+		return this._buffer.get(__addr) & 0xFF;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public void memReadBytes(int __addr, byte[] __b, int __o, int __l)
+		throws IndexOutOfBoundsException, NullPointerException
+	{
+		if (__b == null)
+			throw new NullPointerException("NARG");
+		if (__o < 0 || __l < 0 || (__o + __l) > __b.length)
+			throw new IndexOutOfBoundsException("IOOB");
+		
+		// Reads partially outside of the buffer are invalid data
+		if (__addr < 0 || __addr > this.size - __l)
+		{
+			for (int i = 0; i < __l; i++)
+				__b[__o++] = (byte)this.memReadByte(__addr++);
+			return;
+		}
+		
+		// The position is not safe to share between threads
+		ByteBuffer dup = this._buffer.duplicate();
+		dup.position(__addr);
+		dup.get(__b, __o, __l);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public int memReadInt(int __addr)
+	{
+		// Treat out of region reads as invalid data
+		if (__addr < 0 || __addr >= this.size - 3)
+			return -1;
+		
+		return this._buffer.getInt(__addr);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public int memReadShort(int __addr)
+	{
+		// Treat out of region reads as invalid data
+		if (__addr < 0 || __addr >= this.size - 1)
+			return -1;
+		
+		return this._buffer.getShort(__addr);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public int memRegionOffset()
+	{
+		return this.offset;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final int memRegionSize()
+	{
+		return this.size;
+	}
+}
@@ -16,7 +16,6 @@ import cc.squirreljme.jvm.SystemCallError;
 import cc.squirreljme.jvm.SystemCallIndex;
 import cc.squirreljme.runtime.cldc.debug.CallTraceElement;
 import cc.squirreljme.emulator.vm.VMException;
-import dev.shadowtail.classfile.nncc.ArgumentFormat;
 import dev.shadowtail.classfile.nncc.InvalidInstructionException;
 import dev.shadowtail.classfile.nncc.NativeCode;
 import dev.shadowtail.classfile.nncc.NativeInstruction;
@@ -27,6 +26,7 @@ import dev.shadowtail.classfile.xlate.MathType;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.LinkedList;
 import cc.squirreljme.emulator.profiler.ProfiledThread;
@@ -52,13 +52,9 @@ public final class NativeCPU
 	public static final int MAX_REGISTERS =
 		64;
 	
-	/** The size of the method cache. */
-	public static final int METHOD_CACHE =
-		2048;
-	
-	/** Spill over protection for the cache. */
-	public static final int METHOD_CACHE_SPILL =
-		1024;
+	/** The number of decoded instructions to cache, a power of two. */
+	public static final int DECODE_CACHE =
+		4096;
 	
 	/** The number of execution slices to store. */
 	public static final int MAX_EXECUTION_SLICES =
@@ -85,8 +81,8 @@ public final class NativeCPU
 	protected final int vcpuid;
 	
 	/** Stack frames. */
-	private final LinkedList<Frame> _frames =
-		new LinkedList<>();
+	private final __FrameStack__ _frames =
+		new __FrameStack__();
 	
 	/** System call error states for this CPU. */
 	private final int[] _syscallerrors =
@@ -100,6 +96,16 @@ public final class NativeCPU
 	private final Deque<Deque<ExecutionSlice>> _sopf =
 		(NativeCPU.ENABLE_DEBUG ? new LinkedList<Deque<ExecutionSlice>>() : null);
 	
+	/** Decoded instructions, by their address. */
+	private final __DecodedInstruction__[] _decoded =
+		new __DecodedInstruction__[NativeCPU.DECODE_CACHE];
+	
+	/** The memory code is read from, if decoded code can be cached. */
+	private final VirtualMemory _codememory;
+	
+	/** The code generation the decoded instructions are from. */
+	private int _decodedgen;
+	
 	/** IPC Exception register. */
 	private int _ipcexception;
 	
@@ -122,6 +128,8 @@ public final class NativeCPU
 		
 		this.state = __ms;
 		this.memory = __mem;
+		this._codememory = (__mem instanceof VirtualMemory ?
+			(VirtualMemory)__mem : null);
 		this.vcpuid = __vcid;
 		this.profiler = (__ps == null ? null :
 			__ps.measureThread("cpu-" + __vcid));
@@ -138,18 +146,15 @@ public final class NativeCPU
 	public final Frame enterFrame(int __pc, int... __args)
 	{
 		// Old frame, to source globals from
-		LinkedList<Frame> frames = this._frames;
+		__FrameStack__ frames = this._frames;
 		Frame lastframe = frames.peekLast();
 		
-		// Setup new frame
-		Frame rv = new Frame();
+		// Setup new frame, this may be one which was used before
+		Frame rv = frames.push();
 		rv._pc = __pc;
 		rv._entrypc = __pc;
 		rv._lastpc = __pc;
 		
-		// Add to frame list
-		frames.addLast(rv);
-		
 		// Seed initial registers, if valid
 		int[] dest = rv._registers;
 		if (lastframe != null)
@@ -212,8 +217,11 @@ public final class NativeCPU
 			if (NativeCPU.ENABLE_DEBUG)
 			{
 				// Each frame has its own slices
-				for (Frame l : this._frames)
+				__FrameStack__ frames = this._frames;
+				for (int fi = 0, fn = frames.size(); fi < fn; fi++)
 				{
+					Frame l = frames.get(fi);
+					
 					// Traces for this frame
 					System.err.print(">>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>");
 					System.err.println(">>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>");
@@ -300,18 +308,11 @@ public final class NativeCPU
 		int[] lr = null;
 		int pc = -1;
 		
-		// Per operation handling
-		final int[] args = new int[6];
-		
-		// Method cache to reduce tons of method reads
-		final byte[] icache = new byte[NativeCPU.METHOD_CACHE];
-		int lasticache = -(NativeCPU.METHOD_CACHE_SPILL + 1);
-		
 		// Debug point counter
 		int pointcounter = 0;
 		
 		// Execution is effectively an infinite loop
-		LinkedList<Frame> frames = this._frames;
+		__FrameStack__ frames = this._frames;
 		for (int frameat = frames.size(), lastframe = -1; frameat >= __fl;
 			frameat = frames.size())
 		{
@@ -339,114 +340,19 @@ public final class NativeCPU
 				reload = false;
 			}
 			
-			// For a bit faster execution of the method, cache a bunch of
-			// the code that is being executed in memory. Constantly performing
-			// the method calls to read single bytes of memory is a bit so, so
-			// this should hopefully improve performance slightly.
-			int pcdiff = pc - lasticache;
-			if (pcdiff < 0 || pcdiff >= NativeCPU.METHOD_CACHE_SPILL)
-			{
-				memory.memReadBytes(pc, icache, 0, NativeCPU.METHOD_CACHE);
-				lasticache = pc;
-			}
-			
-			// Calculate last PC base address
-			int bpc = pc - lasticache;
-			
 			// Always set PC address for debugging frames
 			nowframe._pc = pc;
 			
-			// Read operation
+			// Read operation, this is only decoded the first time it is
+			// executed
 			nowframe._lastpc = pc;
-			int op = icache[bpc] & 0xFF;
-			
-			// Reset all input arguments
-			for (int i = 0, n = args.length; i < n; i++)
-				args[i] = 0;
-			
-			// Register list, just one is used everywhere
-			int[] reglist = null;
-			
-			// Load arguments for this instruction
-			ArgumentFormat[] af = NativeInstruction.argumentFormat(op);
-			int rargp = bpc + 1;
-			for (int i = 0, n = af.length; i < n; i++)
-				switch (af[i])
-				{
-					// Variable sized entries, may be pool values
-					case VUINT:
-					case VUREG:
-					case VPOOL:
-					case VJUMP:
-						{
-							// Long value?
-							int base = (icache[rargp++] & 0xFF);
-							if ((base & 0x80) != 0)
-							{
-								base = ((base & 0x7F) << 8);
-								base |= (icache[rargp++] & 0xFF);
-							}
-							
-							// Set
-							if (af[i] == ArgumentFormat.VJUMP)
-								args[i] = (short)(base |
-									((base & 0x4000) << 1));
-							else
-								args[i] = base;
-							
-							// {@squirreljme.error AE03 Reference to register
-							// which is out of range of maximum number of
-							// registers. (The register index)}
-							if (af[i] == ArgumentFormat.VUREG &&
-								(base < 0 || base >= NativeCode.MAX_REGISTERS))
-								throw new VMException("AE03 " + base);
-						}
-						break;
-					
-					// Register list.
-					case REGLIST:
-						{
-							// Wide
-							int count = (icache[rargp++] & 0xFF);
-							if ((count & 0x80) != 0)
-							{
-								count = ((count & 0x7F) << 8) |
-									(icache[rargp++] & 0xFF);
-								
-								// Read values
-								reglist = new int[count];
-								for (int r = 0; r < count; r++)
-									reglist[r] =
-										((icache[rargp++] & 0xFF) << 8) |
-										(icache[rargp++] & 0xFF);
-							}
-							// Narrow
-							else
-							{
-								reglist = new int[count];
-								
-								// Read values
-								for (int r = 0; r < count; r++)
-									reglist[r] = (icache[rargp++] & 0xFF);
-							}
-						}
-						break;
-					
-					// 32-bit integer/float
-					case INT32:
-					case FLOAT32:
-						args[i] = ((icache[rargp++] & 0xFF) << 24) |
-							((icache[rargp++] & 0xFF) << 16) |
-							((icache[rargp++] & 0xFF) << 8) |
-							((icache[rargp++] & 0xFF));
-						break;
-					
-					default:
-						throw new todo.OOPS(af[i].name());
-				}
+			__DecodedInstruction__ inst = this.__decode(pc);
+			int op = inst.op;
+			int[] args = inst.args;
+			int[] reglist = inst.reglist;
 			
 			// Determine the encoding
-			int encoding = NativeInstruction.encoding(op);
+			int encoding = inst.encoding;
 			
 			// Set first point flag
 			if (encoding == NativeInstructionType.DEBUG_ENTRY)
@@ -457,7 +363,7 @@ public final class NativeCPU
 			{
 				// Get slice for this instruction
 				ExecutionSlice el = ExecutionSlice.of(this.trace(nowframe),
-					nowframe, op, args, af.length, reglist);
+					nowframe, op, args, inst.numargs, reglist);
 				
 				// Add to previous instructions, do not exceed slice limits
 				Deque<ExecutionSlice> execslices = nowframe._execslices;
@@ -485,7 +391,7 @@ public final class NativeCPU
 			
 			// By default the next instruction is the address after all
 			// arguments have been read
-			int nextpc = lasticache + rargp;
+			int nextpc = inst.nextpc;
 			
 			// Handle the operation
 			switch (encoding)
@@ -646,12 +552,15 @@ public final class NativeCPU
 					// Invoke a pointer
 				case NativeInstructionType.INVOKE:
 					{
-						// Load values into the register list
-						for (int i = 0, n = reglist.length; i < n; i++)
-							reglist[i] = lr[reglist[i]];
+						// Load values into the arguments, the register list
+						// is shared by every execution of this instruction
+						int n = reglist.length;
+						int[] callargs = new int[n];
+						for (int i = 0; i < n; i++)
+							callargs[i] = lr[reglist[i]];
 						
 						// Enter the frame
-						this.enterFrame(lr[args[0]], reglist);
+						this.enterFrame(lr[args[0]], callargs);
 						
 						// Entering some other frame
 						reload = true;
@@ -1036,7 +945,7 @@ public final class NativeCPU
 	 */
 	public final CallTraceElement[] trace()
 	{
-		LinkedList<Frame> frames = this._frames;
+		__FrameStack__ frames = this._frames;
 		
 		// Need to store all the frames
 		int numframes = frames.size();
@@ -1063,6 +972,9 @@ public final class NativeCPU
 		if (__f == null)
 			throw new NullPointerException("NARG");
 		
+		// The strings are only loaded when they are needed
+		this.__loadDebugStrings(__f);
+		
 		// Build trace
 		return new CallTraceElement(
 			__f._inclass,
@@ -1083,7 +995,7 @@ public final class NativeCPU
 	 */
 	public final CallTraceElement traceTop()
 	{
-		LinkedList<Frame> frames = this._frames;
+		__FrameStack__ frames = this._frames;
 		
 		// Only look at the top most frame
 		Frame top = frames.peekLast();
@@ -1093,7 +1005,48 @@ public final class NativeCPU
 	}
 	
 	/**
-	 * Sets the frame information string from the given pool entries.
+	 * Returns the decoded instruction at the given address, this is only
+	 * decoded again if it is not cached or code has been written to.
+	 *
+	 * @param __pc The address of the instruction.
+	 * @return The decoded instruction.
+	 * @since 2020/07/29
+	 */
+	private __DecodedInstruction__ __decode(int __pc)
+	{
+		// Decoded instructions cannot be invalidated, so always decode
+		VirtualMemory codememory = this._codememory;
+		if (codememory == null)
+			return new __DecodedInstruction__(this.memory, __pc);
+		
+		// If code was written to then everything has to be decoded again
+		__DecodedInstruction__[] decoded = this._decoded;
+		int gen = codememory.codeGeneration();
+		if (gen != this._decodedgen)
+		{
+			Arrays.fill(decoded, null);
+			this._decodedgen = gen;
+		}
+		
+		// Already decoded?
+		int slot = (__pc ^ (__pc >>> 12)) & (NativeCPU.DECODE_CACHE - 1);
+		__DecodedInstruction__ rv = decoded[slot];
+		if (rv != null && rv.pc == __pc)
+			return rv;
+		
+		// Mark the code before it is read, so any write after this point
+		// is noticed
+		codememory.markCode(__pc);
+		rv = new __DecodedInstruction__(codememory, __pc);
+		codememory.markCode(rv.nextpc - 1);
+		
+		decoded[slot] = rv;
+		return rv;
+	}
+	
+	/**
+	 * Sets the frame information string pointers from the given pool
+	 * entries, the strings themselves are only loaded when needed.
 	 *
 	 * @param __f The frame.
 	 * @param __pcl The class string from the pool.
@@ -1123,26 +1076,52 @@ public final class NativeCPU
 		__f._inmethodnamep = imn;
 		__f._inmethodtypep = imt;
 		__f._insourcefilep = isf;
+		__f._indebugloaded = false;
 		
-		// Load strings
-		String scl, smn, smt, ssf;
-		WritableMemory memory = this.memory;
-		__f._inclass = 
-			(scl = (icl == 0 ? null : this.__loadUtfString(icl)));
-		__f._inmethodname = 
-			(smn = (imn == 0 ? null : this.__loadUtfString(imn)));
-		__f._inmethodtype = 
-			(smt = (imt == 0 ? null : this.__loadUtfString(imt)));
-		__f._insourcefile = 
-			(ssf = (isf == 0 ? null : this.__loadUtfString(isf)));
-		
-		// Enter it on the profiler
+		// Enter it on the profiler, which needs the strings now
 		ProfiledThread profiler = this.profiler;
 		if (profiler != null)
+		{
+			this.__loadDebugStrings(__f);
+			
+			String scl = __f._inclass,
+				smn = __f._inmethodname,
+				smt = __f._inmethodtype;
 			profiler.enterFrame(
 				(scl == null ? "<AClass>" : scl),
 				(smn == null ? "<AMethod>" : smn),
 				(smt == null ? "<AType>" : smt));
+		}
+	}
+	
+	/**
+	 * Loads the debug strings of the frame from their pointers, if they
+	 * have not yet been loaded.
+	 *
+	 * @param __f The frame to load for.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private void __loadDebugStrings(Frame __f)
+		throws NullPointerException
+	{
+		if (__f == null)
+			throw new NullPointerException("NARG");
+		
+		// Already loaded
+		if (__f._indebugloaded)
+			return;
+		
+		int icl = __f._inclassp,
+			imn = __f._inmethodnamep,
+			imt = __f._inmethodtypep,
+			isf = __f._insourcefilep;
+		
+		__f._inclass = (icl == 0 ? null : this.__loadUtfString(icl));
+		__f._inmethodname = (imn == 0 ? null : this.__loadUtfString(imn));
+		__f._inmethodtype = (imt == 0 ? null : this.__loadUtfString(imt));
+		__f._insourcefile = (isf == 0 ? null : this.__loadUtfString(isf));
+		__f._indebugloaded = true;
 	}
 	
 	/**
@@ -1299,7 +1278,7 @@ public final class NativeCPU
 				{
 					// Locate frame
 					int fr = __args[0];
-					LinkedList<Frame> frames = this._frames;
+					__FrameStack__ frames = this._frames;
 					int numframes = frames.size();
 					Frame frame = ((fr < 0 || fr >= numframes) ? null :
 						frames.get((numframes - 1) - fr));
@@ -1421,7 +1400,7 @@ public final class NativeCPU
 				// Gets the frame task ID
 			case SystemCallIndex.FRAME_TASK_ID_GET:
 				{
-					LinkedList<Frame> frames = this._frames;
+					__FrameStack__ frames = this._frames;
 					Frame frame = frames.getLast();
 					
 					// Is fine
@@ -1433,7 +1412,7 @@ public final class NativeCPU
 				// Sets the frame task ID
 			case SystemCallIndex.FRAME_TASK_ID_SET:
 				{
-					LinkedList<Frame> frames = this._frames;
+					__FrameStack__ frames = this._frames;
 					Frame frame = frames.getLast();
 					
 					// Set
@@ -1670,7 +1649,7 @@ public final class NativeCPU
 	public static final class Frame
 	{
 		/** Execution slices. */
-		final Deque<ExecutionSlice> _execslices;
+		Deque<ExecutionSlice> _execslices;
 		
 		/** Registers for this frame. */
 		final int[] _registers =
@@ -1709,6 +1688,9 @@ public final class NativeCPU
 		/** Source file pointer. */
 		int _insourcefilep;
 		
+		/** Have the strings been loaded from their pointers? */
+		boolean _indebugloaded;
+		
 		/** The current line. */
 		int _inline;
 		
@@ -1729,6 +1711,39 @@ public final class NativeCPU
 				new LinkedList<ExecutionSlice>() :
 				(Deque<ExecutionSlice>)null);
 		}
+		
+		/**
+		 * Resets the frame to its initial state so that it may be used
+		 * again.
+		 *
+		 * @since 2020/07/29
+		 */
+		final void __reset()
+		{
+			// The slices of the old frame may still be referred to
+			this._execslices = (NativeCPU.ENABLE_DEBUG ?
+				new LinkedList<ExecutionSlice>() :
+				(Deque<ExecutionSlice>)null);
+			
+			Arrays.fill(this._registers, 0);
+			
+			this._entrypc = 0;
+			this._pc = 0;
+			this._lastpc = 0;
+			this._inclass = null;
+			this._inclassp = 0;
+			this._inmethodname = null;
+			this._inmethodnamep = 0;
+			this._inmethodtype = null;
+			this._inmethodtypep = 0;
+			this._insourcefile = null;
+			this._insourcefilep = 0;
+			this._indebugloaded = false;
+			this._inline = 0;
+			this._injop = 0;
+			this._injpc = 0;
+			this._taskid = 0;
+		}
 	}
 }
 
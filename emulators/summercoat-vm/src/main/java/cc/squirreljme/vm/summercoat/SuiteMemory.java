@@ -12,7 +12,6 @@ package cc.squirreljme.vm.summercoat;
 import cc.squirreljme.vm.VMClassLibrary;
 import cc.squirreljme.emulator.vm.VMException;
 import cc.squirreljme.emulator.vm.VMSuiteManager;
-import dev.shadowtail.jarfile.JarMinimizer;
 import dev.shadowtail.jarfile.MinimizedJarHeader;
 import java.io.IOException;
 
@@ -192,8 +191,9 @@ public final class SuiteMemory
 		// Debug
 		todo.DEBUG.note("Initialize suite %s @%08d", libname, this.offset);
 		
-		// Minimize and format the JAR
-		byte[] jf = JarMinimizer.minimize(
+		// Minimize and format the JAR, this is cached so it is only done
+		// the first time the library is used
+		byte[] jf = __SuiteCache__.minimize(
 			(libname.startsWith("cldc-compact.") ||
 			libname.startsWith("cldc-compact-")), clib);
 		
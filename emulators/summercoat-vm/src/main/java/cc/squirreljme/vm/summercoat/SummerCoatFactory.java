@@ -19,12 +19,11 @@ import cc.squirreljme.emulator.vm.VirtualMachine;
 import dev.shadowtail.classfile.nncc.NativeCode;
 import dev.shadowtail.jarfile.MinimizedJarHeader;
 import dev.shadowtail.packfile.MinimizedPackHeader;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
@@ -105,32 +104,27 @@ public class SummerCoatFactory
 			// Debug
 			todo.DEBUG.note("Using ROM %s", romfile);
 			
-			// Copy all of the file data
+			// Map the file directly into memory, it is never written to
+			// and only the parts which are used are read
 			Path p = Paths.get(romfile);
-			try (InputStream in = Files.newInputStream(p,
-					StandardOpenOption.READ);
-				ByteArrayOutputStream baos = new ByteArrayOutputStream(
-					(int)Files.size(p)))
+			try (FileChannel fc = FileChannel.open(p,
+				StandardOpenOption.READ))
 			{
-				// Read data
-				byte[] buf = new byte[512];
-				for (;;)
-				{
-					int rc = in.read(buf);
-					
-					if (rc < 0)
-						break;
-					
-					baos.write(buf, 0, rc);
-				}
+				// {@squirreljme.error AE0r SummerCoat ROM is too large.
+				// (File; The size of the file)}
+				long fsize = fc.size();
+				if (fsize > 0x7FFFFFFFL - rombase)
+					throw new RuntimeException("AE0r " + romfile + " " +
+						fsize);
 				
-				// Initialize memory with the ROM data
-				ReadableMemory sm = new ByteArrayMemory(rombase,
-					baos.toByteArray());
+				// Initialize memory with the ROM data, the mapping remains
+				// valid after the channel is closed
+				ReadableMemory sm = new ByteBufferMemory(rombase,
+					fc.map(FileChannel.MapMode.READ_ONLY, 0, fsize));
 				vmem.mapRegion(sm);
 				
 				// Record size of ROM
-				romsize = baos.size();
+				romsize = (int)fsize;
 			}
 			
 			// {@squirreljme.error AE0c Could not load SummerCoat ROM. (File)}
@@ -11,24 +11,90 @@ package cc.squirreljme.vm.summercoat;
 
 import cc.squirreljme.emulator.vm.VMException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * This class contains the entirety of virtual memory, this includes access
  * to the various on-demand minification of suites and classes.
  *
+ * Addresses are translated with a page table which points directly at the
+ * first region which is mapped into each page, so that the mapped regions
+ * do not need to be searched on every access. Only when that region does
+ * not contain the address are the regions searched in the order they were
+ * mapped, so that earlier regions take precedence and writes fall through
+ * to the first region which is writable.
+ *
+ * Pages which contain code that has been decoded are marked, writing to
+ * any of these pages changes the code generation so that any decoded
+ * instructions can be discarded.
+ *
  * @since 2019/04/21
  */
 public final class VirtualMemory
 	extends AbstractWritableMemory
 {
+	/** The number of bits in the page size. */
+	private static final int _PAGE_BITS =
+		16;
+	
+	/** The number of pages, only positive addresses are mapped. */
+	private static final int _NUM_PAGES =
+		1 << (31 - VirtualMemory._PAGE_BITS);
+	
 	/** Memory map. */
 	private final List<Memory> _memories =
 		new ArrayList<>();
 	
 	/** Active cache map. */
-	private volatile Memory[] _cache =
-		new Memory[0];
+	private volatile __MappedRegion__[] _cache =
+		new __MappedRegion__[0];
+	
+	/** The first region which is mapped into each page. */
+	private volatile __MappedRegion__[] _pages =
+		new __MappedRegion__[VirtualMemory._NUM_PAGES];
+	
+	/** Pages which contain decoded code. */
+	private final boolean[] _codepages =
+		new boolean[VirtualMemory._NUM_PAGES];
+	
+	/** The code generation, changes when code pages are written. */
+	private volatile int _codegen;
+	
+	/**
+	 * Returns the code generation, if this changes then code which was
+	 * previously decoded may have been written to.
+	 *
+	 * @return The code generation.
+	 * @since 2020/07/29
+	 */
+	public final int codeGeneration()
+	{
+		return this._codegen;
+	}
+	
+	/**
+	 * Marks the page containing the given address as containing code, so
+	 * writes to it change the code generation.
+	 *
+	 * @param __addr The address of the code.
+	 * @since 2020/07/29
+	 */
+	public final void markCode(int __addr)
+	{
+		if (__addr < 0)
+			return;
+		
+		// The generation changes so that the mark is visible to other
+		// threads which are writing, this only happens once per page
+		boolean[] codepages = this._codepages;
+		int page = __addr >>> VirtualMemory._PAGE_BITS;
+		if (!codepages[page])
+		{
+			codepages[page] = true;
+			this._codegen++;
+		}
+	}
 	
 	/**
 	 * Maps the given region of memory.
@@ -48,9 +114,26 @@ public final class VirtualMemory
 		{
 			memories.add(__mem);
 			
-			// Redo cache
-			this._cache = memories.<Memory>toArray(
-				new Memory[memories.size()]);
+			// Redo cache, earlier regions take precedence
+			__MappedRegion__ region = new __MappedRegion__(__mem);
+			__MappedRegion__[] cache = Arrays.copyOf(this._cache,
+				this._cache.length + 1);
+			cache[cache.length - 1] = region;
+			
+			// Place into every page it covers which is not already used
+			__MappedRegion__[] pages = this._pages.clone();
+			if (region.size > 0 && region.base >= 0)
+			{
+				int first = region.base >>> VirtualMemory._PAGE_BITS,
+					last = (int)(((long)region.base + region.size - 1) >>>
+						VirtualMemory._PAGE_BITS);
+				for (int i = first; i <= last && i < pages.length; i++)
+					if (pages[i] == null)
+						pages[i] = region;
+			}
+			
+			this._cache = cache;
+			this._pages = pages;
 		}
 	}
 	
@@ -61,21 +144,75 @@ public final class VirtualMemory
 	@Override
 	public final int memReadByte(int __addr)
 	{
-		// Find memory to read from
-		Memory[] cache = this._cache;
-		for (Memory c : cache)
+		// {@squirreljme.error AE0i Invalid read from unmapped or non-writable
+		// memory! (The address)}
+		__MappedRegion__ region = this.__region(__addr, 1, false);
+		if (region == null || region.readable == null)
+			throw new VMException(String.format("AE0i %08x", __addr));
+		
+		return region.readable.memReadByte(__addr - region.base);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final void memReadBytes(int __addr, byte[] __b, int __o, int __l)
+		throws IndexOutOfBoundsException, NullPointerException
+	{
+		if (__b == null)
+			throw new NullPointerException("NARG");
+		if (__o < 0 || __l < 0 || (__o + __l) > __b.length)
+			throw new IndexOutOfBoundsException("IOOB");
+		
+		// Read in chunks, since the bytes may span multiple regions
+		while (__l > 0)
 		{
-			int cbase = c.memRegionOffset(),
-				csize = c.memRegionSize(),
-				vaddr = __addr - cbase;
+			__MappedRegion__ region = this.__region(__addr, 1, false);
+			if (region == null || region.readable == null)
+				throw new VMException(String.format("AE0i %08x", __addr));
+			
+			int vaddr = __addr - region.base,
+				count = Math.min(__l, region.size - vaddr);
+			region.readable.memReadBytes(vaddr, __b, __o, count);
 			
-			if (vaddr >= 0 && vaddr < csize)
-				return ((ReadableMemory)c).memReadByte(vaddr);
+			__addr += count;
+			__o += count;
+			__l -= count;
 		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final int memReadInt(int __addr)
+	{
+		// Read directly from the region if the value is within it
+		__MappedRegion__ region = this.__region(__addr, 4, false);
+		if (region != null && region.readable != null)
+			return region.readable.memReadInt(__addr - region.base);
 		
-		// {@squirreljme.error AE0i Invalid read from unmapped or non-writable
-		// memory! (The address)}
-		throw new VMException(String.format("AE0i %08x", __addr));
+		return super.memReadInt(__addr);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final int memReadShort(int __addr)
+	{
+		// Read directly from the region if the value is within it, not all
+		// regions zero extend
+		__MappedRegion__ region = this.__region(__addr, 2, false);
+		if (region != null && region.readable != null)
+			return region.readable.memReadShort(__addr - region.base) &
+				0xFFFF;
+		
+		return super.memReadShort(__addr);
 	}
 	
 	/**
@@ -105,27 +242,138 @@ public final class VirtualMemory
 	@Override
 	public final void memWriteByte(int __addr, int __v)
 	{
-		// Find memory to write to
-		Memory[] cache = this._cache;
-		for (Memory c : cache)
+		// {@squirreljme.error AE0j Invalid write to unmapped or non-writable
+		// memory! (The address; The value to write)}
+		__MappedRegion__ region = this.__region(__addr, 1, true);
+		if (region == null || region.writable == null)
+			throw new VMException(String.format("AE0j %08x %d", __addr, __v));
+		
+		region.writable.memWriteByte(__addr - region.base, __v);
+		this.__written(__addr, 1);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final void memWriteBytes(int __a, byte[] __b, int __o, int __l)
+	{
+		if (__b == null)
+			throw new NullPointerException("NARG");
+		if (__o < 0 || __l < 0 || (__o + __l) > __b.length)
+			throw new IndexOutOfBoundsException("IOOB");
+		
+		// Write in chunks, since the bytes may span multiple regions
+		while (__l > 0)
 		{
-			int cbase = c.memRegionOffset(),
-				csize = c.memRegionSize(),
-				vaddr = __addr - cbase;
+			__MappedRegion__ region = this.__region(__a, 1, true);
+			if (region == null || region.writable == null)
+				throw new VMException(String.format("AE0j %08x %d", __a,
+					__b[__o] & 0xFF));
 			
-			if (vaddr >= 0 && vaddr < csize)
-			{
-				if (c instanceof WritableMemory)
-				{
-					((WritableMemory)c).memWriteByte(vaddr, __v);
-					return;
-				}
-			}
+			int vaddr = __a - region.base,
+				count = Math.min(__l, region.size - vaddr);
+			region.writable.memWriteBytes(vaddr, __b, __o, count);
+			this.__written(__a, count);
+			
+			__a += count;
+			__o += count;
+			__l -= count;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final void memWriteInt(int __addr, int __v)
+	{
+		// Write directly to the region if the value is within it
+		__MappedRegion__ region = this.__region(__addr, 4, true);
+		if (region != null && region.writable != null)
+		{
+			region.writable.memWriteInt(__addr - region.base, __v);
+			this.__written(__addr, 4);
+		}
+		else
+			super.memWriteInt(__addr, __v);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final void memWriteShort(int __addr, int __v)
+	{
+		// Write directly to the region if the value is within it
+		__MappedRegion__ region = this.__region(__addr, 2, true);
+		if (region != null && region.writable != null)
+		{
+			region.writable.memWriteShort(__addr - region.base, __v);
+			this.__written(__addr, 2);
+		}
+		else
+			super.memWriteShort(__addr, __v);
+	}
+	
+	/**
+	 * Returns the first region which completely contains the given address
+	 * range.
+	 *
+	 * @param __addr The address.
+	 * @param __len The number of bytes.
+	 * @param __write Is this a write? If so then only writable regions are
+	 * considered.
+	 * @return The region or {@code null} if no single region contains the
+	 * range.
+	 * @since 2020/07/29
+	 */
+	private __MappedRegion__ __region(int __addr, int __len, boolean __write)
+	{
+		// Go through the page table, the page may only be partially covered
+		// by the region. Since it is the first region mapped into the page
+		// no earlier region can contain the address.
+		if (__addr >= 0)
+		{
+			__MappedRegion__ region =
+				this._pages[__addr >>> VirtualMemory._PAGE_BITS];
+			if (region != null && region.contains(__addr, __len) &&
+				(!__write || region.writable != null))
+				return region;
 		}
 		
-		// {@squirreljme.error AE0j Invalid write to unmapped or non-writable
-		// memory! (The address; The value to write)}
-		throw new VMException(String.format("AE0j %08x %d", __addr, __v));
+		// Pages which are shared by multiple regions need to be searched,
+		// along with writes which fall through to a later region
+		for (__MappedRegion__ c : this._cache)
+			if (c.contains(__addr, __len) && (!__write || c.writable != null))
+				return c;
+		
+		return null;
+	}
+	
+	/**
+	 * Changes the code generation if any code was written to.
+	 *
+	 * @param __addr The address written to.
+	 * @param __len The number of bytes written.
+	 * @since 2020/07/29
+	 */
+	private void __written(int __addr, int __len)
+	{
+		// Read the generation first, so that marked pages are seen
+		int gen = this._codegen;
+		
+		boolean[] codepages = this._codepages;
+		for (int i = __addr >>> VirtualMemory._PAGE_BITS,
+			n = (__addr + __len - 1) >>> VirtualMemory._PAGE_BITS;
+			i <= n && i < codepages.length; i++)
+			if (codepages[i])
+			{
+				this._codegen = gen + 1;
+				return;
+			}
 	}
 }
-
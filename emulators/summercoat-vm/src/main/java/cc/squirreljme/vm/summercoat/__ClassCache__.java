@@ -0,0 +1,103 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.summercoat;
+
+import dev.shadowtail.classfile.mini.MinimizedClassHeader;
+import dev.shadowtail.jarfile.MinimizedClassCache;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * This is a cache of minimized classes which is kept on the disk, each class
+ * is stored by the hash of the class file along with the version of the
+ * minimizer.
+ *
+ * @since 2020/07/29
+ */
+final class __ClassCache__
+	implements MinimizedClassCache
+{
+	/** The directory where classes are cached. */
+	protected final Path dir;
+	
+	/**
+	 * Initializes the class cache.
+	 *
+	 * @param __dir The directory where classes are cached.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	__ClassCache__(Path __dir)
+		throws NullPointerException
+	{
+		if (__dir == null)
+			throw new NullPointerException("NARG");
+		
+		this.dir = __dir;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public byte[] get(byte[] __class)
+		throws IOException, NullPointerException
+	{
+		if (__class == null)
+			throw new NullPointerException("NARG");
+		
+		// Only use classes which look like they were minimized, otherwise
+		// they get minimized again
+		byte[] rv = __SuiteCache__.__load(this.__file(__class));
+		if (rv == null ||
+			rv.length < MinimizedClassHeader.HEADER_SIZE_WITH_MAGIC + 4 ||
+			__SuiteCache__.__intAt(rv, 0) !=
+				MinimizedClassHeader.MAGIC_NUMBER ||
+			__SuiteCache__.__intAt(rv, rv.length - 4) !=
+				MinimizedClassHeader.END_MAGIC_NUMBER)
+			return null;
+		
+		return rv;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public void put(byte[] __class, byte[] __min)
+		throws IOException, NullPointerException
+	{
+		if (__class == null || __min == null)
+			throw new NullPointerException("NARG");
+		
+		__SuiteCache__.__store(this.__file(__class), __min);
+	}
+	
+	/**
+	 * Returns the file where the given class is cached.
+	 *
+	 * @param __class The bytes of the class file.
+	 * @return The file for the class.
+	 * @throws IOException If the key could not be calculated.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private Path __file(byte[] __class)
+		throws IOException, NullPointerException
+	{
+		if (__class == null)
+			throw new NullPointerException("NARG");
+		
+		return this.dir.resolve(__SuiteCache__.__hex(
+			__SuiteCache__.__digest().digest(__class)) + ".mcls");
+	}
+}
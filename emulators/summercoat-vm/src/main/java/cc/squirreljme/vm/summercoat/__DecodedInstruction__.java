@@ -0,0 +1,161 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.summercoat;
+
+import cc.squirreljme.emulator.vm.VMException;
+import dev.shadowtail.classfile.nncc.ArgumentFormat;
+import dev.shadowtail.classfile.nncc.NativeCode;
+import dev.shadowtail.classfile.nncc.NativeInstruction;
+
+/**
+ * This is a single native instruction which has been decoded from memory,
+ * so that it does not need to be decoded again each time it is executed.
+ *
+ * The arguments and register list must not be modified.
+ *
+ * @since 2020/07/29
+ */
+final class __DecodedInstruction__
+{
+	/** The maximum number of arguments. */
+	public static final int MAX_ARGUMENTS =
+		6;
+	
+	/** The address of the instruction. */
+	protected final int pc;
+	
+	/** The operation. */
+	protected final int op;
+	
+	/** The encoding of the operation. */
+	protected final int encoding;
+	
+	/** The arguments, unused arguments are zero. */
+	protected final int[] args;
+	
+	/** The number of arguments used. */
+	protected final int numargs;
+	
+	/** The register list, if there is one. */
+	protected final int[] reglist;
+	
+	/** The address of the instruction which follows this one. */
+	protected final int nextpc;
+	
+	/**
+	 * Decodes the instruction at the given address.
+	 *
+	 * @param __mem The memory to read from.
+	 * @param __pc The address of the instruction.
+	 * @throws NullPointerException On null arguments.
+	 * @throws VMException If the instruction is not valid.
+	 * @since 2020/07/29
+	 */
+	__DecodedInstruction__(ReadableMemory __mem, int __pc)
+		throws NullPointerException, VMException
+	{
+		if (__mem == null)
+			throw new NullPointerException("NARG");
+		
+		// Read operation
+		int op = __mem.memReadByte(__pc) & 0xFF;
+		
+		// Arguments and the register list, if one is used
+		int[] args = new int[__DecodedInstruction__.MAX_ARGUMENTS];
+		int[] reglist = null;
+		
+		// Load arguments for this instruction
+		ArgumentFormat[] af = NativeInstruction.argumentFormat(op);
+		int rargp = __pc + 1;
+		for (int i = 0, n = af.length; i < n; i++)
+			switch (af[i])
+			{
+				// Variable sized entries, may be pool values
+				case VUINT:
+				case VUREG:
+				case VPOOL:
+				case VJUMP:
+					{
+						// Long value?
+						int base = (__mem.memReadByte(rargp++) & 0xFF);
+						if ((base & 0x80) != 0)
+						{
+							base = ((base & 0x7F) << 8);
+							base |= (__mem.memReadByte(rargp++) & 0xFF);
+						}
+						
+						// Set
+						if (af[i] == ArgumentFormat.VJUMP)
+							args[i] = (short)(base |
+								((base & 0x4000) << 1));
+						else
+							args[i] = base;
+						
+						// {@squirreljme.error AE03 Reference to register
+						// which is out of range of maximum number of
+						// registers. (The register index)}
+						if (af[i] == ArgumentFormat.VUREG &&
+							(base < 0 || base >= NativeCode.MAX_REGISTERS))
+							throw new VMException("AE03 " + base);
+					}
+					break;
+				
+				// Register list.
+				case REGLIST:
+					{
+						// Wide
+						int count = (__mem.memReadByte(rargp++) & 0xFF);
+						if ((count & 0x80) != 0)
+						{
+							count = ((count & 0x7F) << 8) |
+								(__mem.memReadByte(rargp++) & 0xFF);
+							
+							// Read values
+							reglist = new int[count];
+							for (int r = 0; r < count; r++, rargp += 2)
+								reglist[r] =
+									__mem.memReadShort(rargp) & 0xFFFF;
+						}
+						// Narrow
+						else
+						{
+							reglist = new int[count];
+							
+							// Read values
+							for (int r = 0; r < count; r++)
+								reglist[r] =
+									(__mem.memReadByte(rargp++) & 0xFF);
+						}
+					}
+					break;
+				
+				// 32-bit integer/float
+				case INT32:
+				case FLOAT32:
+					args[i] = __mem.memReadInt(rargp);
+					rargp += 4;
+					break;
+				
+					// {@squirreljme.error AE0v Instruction has an argument
+					// with an unknown format. (The operation; The format)}
+				default:
+					throw new VMException(String.format("AE0v %02x %s",
+						op, af[i].name()));
+			}
+		
+		this.pc = __pc;
+		this.op = op;
+		this.encoding = NativeInstruction.encoding(op);
+		this.args = args;
+		this.numargs = af.length;
+		this.reglist = reglist;
+		this.nextpc = rargp;
+	}
+}
@@ -0,0 +1,138 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.summercoat;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * This is the stack of frames for a CPU, it is backed by an array and frames
+ * which are popped are kept so that they can be used again by the next
+ * frame which is pushed at the same depth.
+ *
+ * A frame which was popped is only valid until the next frame is pushed.
+ *
+ * @since 2020/07/29
+ */
+final class __FrameStack__
+{
+	/** The initial capacity. */
+	private static final int _INITIAL_CAPACITY =
+		32;
+	
+	/** The frames, including ones which can be used again. */
+	private NativeCPU.Frame[] _frames =
+		new NativeCPU.Frame[__FrameStack__._INITIAL_CAPACITY];
+	
+	/** The number of frames in the stack. */
+	private int _size;
+	
+	/**
+	 * Returns the frame at the given index, the bottom-most frame is zero.
+	 *
+	 * @param __i The index of the frame.
+	 * @return The frame.
+	 * @throws IndexOutOfBoundsException If the index is not valid.
+	 * @since 2020/07/29
+	 */
+	public final NativeCPU.Frame get(int __i)
+		throws IndexOutOfBoundsException
+	{
+		if (__i < 0 || __i >= this._size)
+			throw new IndexOutOfBoundsException("IOOB");
+		
+		return this._frames[__i];
+	}
+	
+	/**
+	 * Returns the top-most frame.
+	 *
+	 * @return The top-most frame.
+	 * @throws NoSuchElementException If there are no frames.
+	 * @since 2020/07/29
+	 */
+	public final NativeCPU.Frame getLast()
+		throws NoSuchElementException
+	{
+		int size = this._size;
+		if (size == 0)
+			throw new NoSuchElementException("NSEE");
+		
+		return this._frames[size - 1];
+	}
+	
+	/**
+	 * Returns the top-most frame.
+	 *
+	 * @return The top-most frame or {@code null} if there are no frames.
+	 * @since 2020/07/29
+	 */
+	public final NativeCPU.Frame peekLast()
+	{
+		int size = this._size;
+		return (size == 0 ? null : this._frames[size - 1]);
+	}
+	
+	/**
+	 * Pushes a new frame to the top of the stack, a previously popped frame
+	 * is used if there is one.
+	 *
+	 * @return The new frame, it will be in its initial state.
+	 * @since 2020/07/29
+	 */
+	public final NativeCPU.Frame push()
+	{
+		NativeCPU.Frame[] frames = this._frames;
+		int size = this._size;
+		
+		// Need more room?
+		if (size >= frames.length)
+			this._frames = (frames = Arrays.copyOf(frames, size * 2));
+		
+		// Use the old frame here, if there is one
+		NativeCPU.Frame rv = frames[size];
+		if (rv == null)
+			frames[size] = (rv = new NativeCPU.Frame());
+		else
+			rv.__reset();
+		
+		this._size = size + 1;
+		return rv;
+	}
+	
+	/**
+	 * Removes the top-most frame, it is only valid until the next push.
+	 *
+	 * @return The removed frame.
+	 * @throws NoSuchElementException If there are no frames.
+	 * @since 2020/07/29
+	 */
+	public final NativeCPU.Frame removeLast()
+		throws NoSuchElementException
+	{
+		int size = this._size;
+		if (size == 0)
+			throw new NoSuchElementException("NSEE");
+		
+		this._size = --size;
+		return this._frames[size];
+	}
+	
+	/**
+	 * Returns the number of frames.
+	 *
+	 * @return The number of frames.
+	 * @since 2020/07/29
+	 */
+	public final int size()
+	{
+		return this._size;
+	}
+}
@@ -0,0 +1,67 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.summercoat;
+
+/**
+ * This is a region of memory which has been mapped into virtual memory, the
+ * bounds of the region are read once so that they do not need to be
+ * requested on every access.
+ *
+ * @since 2020/07/29
+ */
+final class __MappedRegion__
+{
+	/** The base address of the region. */
+	protected final int base;
+	
+	/** The size of the region. */
+	protected final int size;
+	
+	/** The memory to read from. */
+	protected final ReadableMemory readable;
+	
+	/** The memory to write to, {@code null} if this is read-only. */
+	protected final WritableMemory writable;
+	
+	/**
+	 * Initializes the mapped region.
+	 *
+	 * @param __mem The memory to map.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	__MappedRegion__(Memory __mem)
+		throws NullPointerException
+	{
+		if (__mem == null)
+			throw new NullPointerException("NARG");
+		
+		this.base = __mem.memRegionOffset();
+		this.size = __mem.memRegionSize();
+		this.readable = (__mem instanceof ReadableMemory ?
+			(ReadableMemory)__mem : null);
+		this.writable = (__mem instanceof WritableMemory ?
+			(WritableMemory)__mem : null);
+	}
+	
+	/**
+	 * Checks if the given address range is completely within this region.
+	 *
+	 * @param __addr The address.
+	 * @param __len The number of bytes.
+	 * @return If the range is within this region.
+	 * @since 2020/07/29
+	 */
+	public final boolean contains(int __addr, int __len)
+	{
+		return __addr >= this.base &&
+			(__addr - this.base) <= this.size - __len;
+	}
+}
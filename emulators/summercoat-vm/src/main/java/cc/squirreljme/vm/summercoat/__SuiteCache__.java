@@ -0,0 +1,520 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package cc.squirreljme.vm.summercoat;
+
+import cc.squirreljme.vm.VMClassLibrary;
+import dev.shadowtail.classfile.mini.Minimizer;
+import dev.shadowtail.jarfile.JarMinimizer;
+import dev.shadowtail.jarfile.MinimizedJarHeader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is a cache of minimized suites which is kept on the disk, so that
+ * suites only need to be minimized once rather than every time the virtual
+ * machine is started.
+ *
+ * Each minimized suite is stored by the hash of the library contents along
+ * with anything else which changes the result of minimization. Classes are
+ * also cached on their own with {@link __ClassCache__} so that if a suite
+ * changes only the classes which changed are minimized again.
+ *
+ * Nothing is cached unless a directory is given, since the cached suites
+ * are used as they are. When the cache grows past its limit the entries
+ * which were least recently used are removed.
+ *
+ * @since 2020/07/29
+ */
+final class __SuiteCache__
+{
+	/**
+	 * {@squirreljme.property cc.squirreljme.summercoat.suitecache=path
+	 * The directory where minimized suites and classes are cached, if this
+	 * is not set or is blank then nothing is cached. This directory should
+	 * only be writable by the current user.}
+	 */
+	public static final String CACHE_PROPERTY =
+		"cc.squirreljme.summercoat.suitecache";
+	
+	/**
+	 * {@squirreljme.property cc.squirreljme.summercoat.suitecache.limit=int
+	 * The maximum size of the suite cache in megabytes, when it is exceeded
+	 * the entries which were least recently used are removed.}
+	 */
+	public static final String LIMIT_PROPERTY =
+		"cc.squirreljme.summercoat.suitecache.limit";
+	
+	/** The default cache limit in megabytes. */
+	public static final int DEFAULT_LIMIT =
+		256;
+	
+	/** The property which selects the native code optimizations. */
+	private static final String _OPTIMIZE_PROPERTY =
+		"dev.shadowtail.classfile.nncc.optimize";
+	
+	/** The version of the cache, this is changed if the format changes. */
+	private static final int _VERSION =
+		3;
+	
+	/** The buffer size used for hashing. */
+	private static final int _BUFFER_SIZE =
+		4096;
+	
+	/**
+	 * Not used.
+	 *
+	 * @since 2020/07/29
+	 */
+	private __SuiteCache__()
+	{
+	}
+	
+	/**
+	 * Minimizes the given library, if it was minimized before then the
+	 * cached result is used.
+	 *
+	 * @param __boot Should pre-created boot memory be created?
+	 * @param __lib The library to minimize.
+	 * @return The minimized library.
+	 * @throws IOException On read errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public static byte[] minimize(boolean __boot, VMClassLibrary __lib)
+		throws IOException, NullPointerException
+	{
+		if (__lib == null)
+			throw new NullPointerException("NARG");
+		
+		// Caching is disabled, or cannot be used
+		Path dir = __SuiteCache__.__directory();
+		if (dir == null)
+			return JarMinimizer.minimize(__boot, __lib);
+		
+		Path file = dir.resolve(__SuiteCache__.__key(__boot, __lib) +
+			".mjar");
+		
+		// Use the cached copy if there is one and it looks like a suite
+		byte[] rv = __SuiteCache__.__load(file);
+		if (rv != null &&
+			rv.length >= MinimizedJarHeader.HEADER_SIZE_WITH_MAGIC &&
+			__SuiteCache__.__intAt(rv, 0) == MinimizedJarHeader.MAGIC_NUMBER)
+			return rv;
+		
+		// Minimize and store it, then make room for it
+		rv = JarMinimizer.minimize(__boot, __lib,
+			new __ClassCache__(dir.resolve("classes")));
+		
+		// The suite is still usable if the cache cannot be written to
+		try
+		{
+			__SuiteCache__.__store(file, rv);
+			__SuiteCache__.__trim(dir);
+		}
+		catch (IOException e)
+		{
+			todo.DEBUG.note("Could not update the suite cache: %s (%s)",
+				e.getMessage(), e.getCause());
+		}
+		
+		return rv;
+	}
+	
+	/**
+	 * Returns a new digest used for keys.
+	 *
+	 * @return The digest.
+	 * @throws IOException If there is no digest.
+	 * @since 2020/07/29
+	 */
+	static MessageDigest __digest()
+		throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		
+		// {@squirreljme.error AE0s No SHA-256 digest is available.}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IOException("AE0s", e);
+		}
+		
+		// Anything which changes the minimized output
+		digest.update(__SuiteCache__.__longBytes(__SuiteCache__._VERSION));
+		digest.update(__SuiteCache__.__longBytes(Minimizer.VERSION));
+		digest.update(__SuiteCache__.__longBytes(
+			MinimizedJarHeader.VERSION));
+		
+		// The optimizations change the output as well
+		String optimize = System.getProperty(
+			__SuiteCache__._OPTIMIZE_PROPERTY);
+		if (optimize != null)
+		{
+			byte[] opt = optimize.getBytes("utf-8");
+			digest.update(__SuiteCache__.__longBytes(opt.length));
+			digest.update(opt);
+		}
+		else
+			digest.update(__SuiteCache__.__longBytes(-1));
+		
+		return digest;
+	}
+	
+	/**
+	 * Returns the cache directory.
+	 *
+	 * @return The cache directory or {@code null} if caching is disabled.
+	 * @since 2020/07/29
+	 */
+	private static Path __directory()
+	{
+		try
+		{
+			// The cache is only used if a directory was given
+			String dir = System.getProperty(__SuiteCache__.CACHE_PROPERTY);
+			if (dir == null || dir.trim().isEmpty())
+				return null;
+			
+			return Paths.get(dir);
+		}
+		catch (SecurityException|IllegalArgumentException e)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the key for the given library, this is the hash of all of the
+	 * resources in the library.
+	 *
+	 * @param __boot Should pre-created boot memory be created?
+	 * @param __lib The library to get the key of.
+	 * @return The key for the library.
+	 * @throws IOException On read errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private static String __key(boolean __boot, VMClassLibrary __lib)
+		throws IOException, NullPointerException
+	{
+		if (__lib == null)
+			throw new NullPointerException("NARG");
+		
+		MessageDigest digest = __SuiteCache__.__digest();
+		digest.update((byte)(__boot ? 1 : 0));
+		
+		// Then every resource in a stable order, the lengths are included
+		// so that the names and data cannot be confused
+		String[] resources = __lib.listResources().clone();
+		Arrays.sort(resources);
+		byte[] buf = new byte[__SuiteCache__._BUFFER_SIZE];
+		for (String rc : resources)
+		{
+			byte[] name = rc.getBytes("utf-8");
+			digest.update(__SuiteCache__.__longBytes(name.length));
+			digest.update(name);
+			
+			long total = 0;
+			try (InputStream in = __lib.resourceAsStream(rc))
+			{
+				if (in != null)
+					for (;;)
+					{
+						int rn = in.read(buf);
+						if (rn < 0)
+							break;
+						
+						digest.update(buf, 0, rn);
+						total += rn;
+					}
+			}
+			digest.update(__SuiteCache__.__longBytes(total));
+		}
+		
+		return __SuiteCache__.__hex(digest.digest());
+	}
+	
+	/**
+	 * Returns the hexadecimal form of the given bytes.
+	 *
+	 * @param __b The bytes.
+	 * @return The hexadecimal string.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	static String __hex(byte[] __b)
+		throws NullPointerException
+	{
+		if (__b == null)
+			throw new NullPointerException("NARG");
+		
+		StringBuilder sb = new StringBuilder();
+		for (byte b : __b)
+			sb.append(Character.forDigit((b >>> 4) & 0xF, 16))
+				.append(Character.forDigit(b & 0xF, 16));
+		return sb.toString();
+	}
+	
+	/**
+	 * Returns the bytes of a long value.
+	 *
+	 * @param __v The value.
+	 * @return The bytes of the value.
+	 * @since 2020/07/29
+	 */
+	private static byte[] __longBytes(long __v)
+	{
+		byte[] rv = new byte[8];
+		for (int i = 7; i >= 0; i--, __v >>>= 8)
+			rv[i] = (byte)__v;
+		return rv;
+	}
+	
+	/**
+	 * Returns the big endian integer at the given position.
+	 *
+	 * @param __b The bytes to read from.
+	 * @param __at The position to read from.
+	 * @return The read value.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	static int __intAt(byte[] __b, int __at)
+		throws NullPointerException
+	{
+		if (__b == null)
+			throw new NullPointerException("NARG");
+		
+		return ((__b[__at] & 0xFF) << 24) |
+			((__b[__at + 1] & 0xFF) << 16) |
+			((__b[__at + 2] & 0xFF) << 8) |
+			(__b[__at + 3] & 0xFF);
+	}
+	
+	/**
+	 * Loads the given cache file and marks it as used.
+	 *
+	 * @param __file The file to load.
+	 * @return The data of the file or {@code null} if it is not cached.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	static byte[] __load(Path __file)
+		throws NullPointerException
+	{
+		if (__file == null)
+			throw new NullPointerException("NARG");
+		
+		try
+		{
+			byte[] rv = Files.readAllBytes(__file);
+			
+			// The modification time is the last use, so that entries which
+			// are still used are not removed when the cache is trimmed
+			Files.setLastModifiedTime(__file,
+				FileTime.fromMillis(System.currentTimeMillis()));
+			
+			return rv;
+		}
+		catch (IOException e)
+		{
+			// Not cached or not readable, so it gets minimized
+			return null;
+		}
+	}
+	
+	/**
+	 * Stores the given data into the cache file, the data is written to a
+	 * temporary file first so that other virtual machines never see a
+	 * partially written file.
+	 *
+	 * @param __file The file to write.
+	 * @param __b The data to write.
+	 * @throws IOException On write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	static void __store(Path __file, byte[] __b)
+		throws IOException, NullPointerException
+	{
+		if (__file == null || __b == null)
+			throw new NullPointerException("NARG");
+		
+		// {@squirreljme.error AE0t Could not write to the suite cache.
+		// (The file)}
+		try
+		{
+			Path dir = __file.getParent();
+			Files.createDirectories(dir);
+			
+			Path temp = Files.createTempFile(dir, "cache", ".tmp");
+			try
+			{
+				try (OutputStream out = Files.newOutputStream(temp))
+				{
+					out.write(__b);
+				}
+				
+				try
+				{
+					Files.move(temp, __file, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (AtomicMoveNotSupportedException e)
+				{
+					Files.move(temp, __file,
+						StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			finally
+			{
+				Files.deleteIfExists(temp);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new IOException("AE0t " + __file, e);
+		}
+	}
+	
+	/**
+	 * Removes the entries which were least recently used until the cache
+	 * is within its limit.
+	 *
+	 * @param __dir The cache directory.
+	 * @throws IOException If the cache could not be trimmed.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private static void __trim(Path __dir)
+		throws IOException, NullPointerException
+	{
+		if (__dir == null)
+			throw new NullPointerException("NARG");
+		
+		long limit = Math.max(0, Integer.getInteger(
+			__SuiteCache__.LIMIT_PROPERTY, __SuiteCache__.DEFAULT_LIMIT)) *
+			1048576L;
+		
+		// {@squirreljme.error AE0u Could not trim the suite cache.
+		// (The directory)}
+		try
+		{
+			// Suites and classes share the same limit
+			List<Path> files = new ArrayList<>();
+			__SuiteCache__.__entries(__dir, ".mjar", files);
+			__SuiteCache__.__entries(__dir.resolve("classes"), ".mcls",
+				files);
+			
+			// Determine the used size and when each entry was last used
+			long total = 0;
+			Map<Path, Long> sizes = new HashMap<>();
+			final Map<Path, FileTime> times = new HashMap<>();
+			for (Iterator<Path> it = files.iterator(); it.hasNext();)
+			{
+				Path file = it.next();
+				
+				// Another virtual machine may have removed it already
+				long size;
+				FileTime time;
+				try
+				{
+					size = Files.size(file);
+					time = Files.getLastModifiedTime(file);
+				}
+				catch (NoSuchFileException e)
+				{
+					it.remove();
+					continue;
+				}
+				
+				total += size;
+				sizes.put(file, size);
+				times.put(file, time);
+			}
+			
+			// Nothing needs to be removed
+			if (total <= limit)
+				return;
+			
+			// The oldest entries are removed first
+			Collections.sort(files, new Comparator<Path>()
+				{
+					@Override
+					public int compare(Path __a, Path __b)
+					{
+						return times.get(__a).compareTo(times.get(__b));
+					}
+				});
+			for (Path file : files)
+			{
+				if (total <= limit)
+					break;
+				
+				// Another virtual machine may have removed it already
+				if (Files.deleteIfExists(file))
+					total -= sizes.get(file);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new IOException("AE0u " + __dir, e);
+		}
+	}
+	
+	/**
+	 * Adds the cache entries in the given directory to the list.
+	 *
+	 * @param __dir The directory to list.
+	 * @param __ext The extension of the entries.
+	 * @param __out The list to add to.
+	 * @throws IOException On read errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private static void __entries(Path __dir, String __ext, List<Path> __out)
+		throws IOException, NullPointerException
+	{
+		if (__dir == null || __ext == null || __out == null)
+			throw new NullPointerException("NARG");
+		
+		if (!Files.isDirectory(__dir))
+			return;
+		
+		try (DirectoryStream<Path> ds = Files.newDirectoryStream(__dir,
+			"*" + __ext))
+		{
+			for (Path file : ds)
+				if (Files.isRegularFile(file))
+					__out.add(file);
+		}
+	}
+}
@@ -22,6 +22,10 @@ import cc.squirreljme.jvm.boot.io.MemoryBlob;
 public final class BootRomLibrary
 	extends ClassLibrary
 {
+	/** Offset of the magic number. */
+	public static final byte JAR_MAGIC_OFFSET =
+		0;
+	
 	/** Offset of the resource count. */
 	public static final byte JAR_NUMRC_OFFSET =
 		4;
@@ -94,6 +98,22 @@ public final class BootRomLibrary
 	public static final byte JAR_RUNTIMEPOOLSIZE_OFFSET =
 		72;
 	
+	/** The version of the format. */
+	public static final byte JAR_VERSION_OFFSET =
+		76;
+	
+	/** Table of contents index offset. */
+	public static final byte JAR_TOCINDEX_OFFSET_OFFSET =
+		80;
+	
+	/** The format version which has the table of contents index. */
+	public static final int VERSION_TOCINDEX =
+		1;
+	
+	/** The magic number of JARs which have a format version. */
+	public static final int VERSIONED_MAGIC_NUMBER =
+		0x00456571;
+	
 	/** TOC hashcode offset. */
 	public static final int TOC_HASHCODE_OFFSET =
 		0;
@@ -114,6 +134,10 @@ public final class BootRomLibrary
 	public static final int TOC_ENTRY_SIZE =
 		16;
 	
+	/** Size of table of contents index entries. */
+	public static final int TOC_INDEX_ENTRY_SIZE =
+		4;
+	
 	/** The name of this library. */
 	protected final String name;
 	
@@ -181,23 +205,61 @@ public final class BootRomLibrary
 		// Hash code for this string
 		int hash = __name.hashCode();
 		
-		// Scan through the table of contents
+		// Table of contents and the number of entries in it
 		int bp = this.address,
-			sp = bp + Assembly.memReadJavaInt(bp,
-				BootRomLibrary.JAR_TOC_OFFSET_OFFSET);
-		for (int i = 0, n = Assembly.memReadJavaInt(bp,
-			BootRomLibrary.JAR_NUMRC_OFFSET); i < n;
-			 i++, sp += BootRomLibrary.TOC_ENTRY_SIZE)
+			toc = bp + Assembly.memReadJavaInt(bp,
+				BootRomLibrary.JAR_TOC_OFFSET_OFFSET),
+			n = Assembly.memReadJavaInt(bp,
+				BootRomLibrary.JAR_NUMRC_OFFSET);
+		
+		// Older JARs do not have an index, so scan through the table of
+		// contents. These have another magic number and no version, so
+		// the version is only read from JARs which have one.
+		if (Assembly.memReadJavaInt(bp, BootRomLibrary.JAR_MAGIC_OFFSET) !=
+			BootRomLibrary.VERSIONED_MAGIC_NUMBER ||
+			Assembly.memReadJavaInt(bp, BootRomLibrary.JAR_VERSION_OFFSET) <
+			BootRomLibrary.VERSION_TOCINDEX)
+		{
+			for (int i = 0; i < n; i++)
+				if (this.__isEntry(toc, i, hash, __name))
+					return i;
+			
+			// Not found
+			return -1;
+		}
+		
+		// The index is sorted by hash code, so find the first entry with
+		// the hash code
+		int index = bp + Assembly.memReadJavaInt(bp,
+			BootRomLibrary.JAR_TOCINDEX_OFFSET_OFFSET);
+		int lo = 0,
+			hi = n;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			
+			if (Assembly.memReadJavaInt(toc, (BootRomLibrary.TOC_ENTRY_SIZE *
+				Assembly.memReadJavaInt(index,
+					BootRomLibrary.TOC_INDEX_ENTRY_SIZE * mid)) +
+				BootRomLibrary.TOC_HASHCODE_OFFSET) < hash)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		
+		// Check every entry with the same hash code
+		for (; lo < n; lo++)
 		{
-			// Hash code does not match
-			if (hash != Assembly.memReadJavaInt(sp,
+			int i = Assembly.memReadJavaInt(index,
+				BootRomLibrary.TOC_INDEX_ENTRY_SIZE * lo);
+			
+			// Gone past the hash code
+			if (hash != Assembly.memReadJavaInt(toc,
+				(BootRomLibrary.TOC_ENTRY_SIZE * i) +
 				BootRomLibrary.TOC_HASHCODE_OFFSET))
-				continue;
+				break;
 			
-			// Is at this index
-			if (__name.equals(JVMFunction.jvmLoadString(
-				bp + Assembly.memReadJavaInt(sp,
-					BootRomLibrary.TOC_NAME_OFFSET))))
+			if (this.__isEntry(toc, i, hash, __name))
 				return i;
 		}
 		
@@ -286,5 +348,28 @@ public final class BootRomLibrary
 		
 		return rv;
 	}
+	
+	/**
+	 * Checks if the given table of contents entry is for the given name.
+	 *
+	 * @param __toc The address of the table of contents.
+	 * @param __i The index of the entry.
+	 * @param __hash The hash code of the name.
+	 * @param __name The name.
+	 * @return If the entry is for this name.
+	 * @since 2020/07/29
+	 */
+	private boolean __isEntry(int __toc, int __i, int __hash, String __name)
+	{
+		int sp = __toc + (BootRomLibrary.TOC_ENTRY_SIZE * __i);
+		
+		// Hash code does not match
+		if (__hash != Assembly.memReadJavaInt(sp,
+			BootRomLibrary.TOC_HASHCODE_OFFSET))
+			return false;
+		
+		return __name.equals(JVMFunction.jvmLoadString(
+			this.address + Assembly.memReadJavaInt(sp,
+				BootRomLibrary.TOC_NAME_OFFSET)));
+	}
 }
-
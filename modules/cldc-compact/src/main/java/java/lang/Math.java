@@ -175,9 +175,20 @@ public final strictfp class Math
 		return __b;
 	}
 	
+	/**
+	 * Returns the higher of the two values.
+	 *
+	 * @param __a The first.
+	 * @param __b The second.
+	 * @return The higher value.
+	 * @since 2020/07/27
+	 */
+	@SuppressWarnings("ManualMinMaxCalculation")
 	public static long max(long __a, long __b)
 	{
-		throw new todo.TODO();
+		if (__a > __b)
+			return __a;
+		return __b;
 	}
 	
 	public static float max(float __a, float __b)
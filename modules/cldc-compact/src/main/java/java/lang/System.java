@@ -87,8 +87,8 @@ public final class System
 		// Destination length; The copy length)}
 		int srcLen = ObjectShelf.arrayLength(__src),
 			destLen = ObjectShelf.arrayLength(__dest);
-		if (__srcOff + __copyLen > srcLen ||
-			__destOff + __copyLen > destLen)
+		if (__copyLen > srcLen - __srcOff ||
+			__copyLen > destLen - __destOff)
 			throw new IndexOutOfBoundsException(String.format(
 				"ZZ1x %d %d %d %d %d", __srcOff, srcLen, __destOff, destLen,
 				__copyLen));
@@ -0,0 +1,131 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package lang;
+
+import net.multiphasicapps.tac.TestRunnable;
+
+/**
+ * Tests the library methods which virtual machines may replace with
+ * intrinsics, including the cases which must fall back to the actual
+ * method. The results must be the same whether intrinsics are used or not.
+ *
+ * @since 2020/07/27
+ */
+public class TestIntrinsics
+	extends TestRunnable
+{
+	/** String A. */
+	public static final String A =
+		"Squirrels";
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/27
+	 */
+	@Override
+	public void test()
+	{
+		// Built at run-time so it is not the same object
+		String b = new StringBuilder("Squir").append("rels").toString();
+		
+		this.secondary("hashcode", TestIntrinsics.A.hashCode());
+		this.secondary("hashcodeagain", TestIntrinsics.A.hashCode());
+		this.secondary("hashcodeempty", new String(new char[0]).hashCode());
+		this.secondary("length", TestIntrinsics.A.length());
+		this.secondary("charat", (int)TestIntrinsics.A.charAt(3));
+		
+		this.secondary("equalssame",
+			TestIntrinsics.A.equals(TestIntrinsics.A));
+		this.secondary("equalscopy", TestIntrinsics.A.equals(b));
+		this.secondary("equalsdiff", TestIntrinsics.A.equals("Squirrelz"));
+		this.secondary("equalslength", TestIntrinsics.A.equals("Squirrel"));
+		this.secondary("equalsnull", TestIntrinsics.A.equals(null));
+		this.secondary("equalsother", TestIntrinsics.A.equals(new Object()));
+		
+		try
+		{
+			this.secondary("charatover", (int)TestIntrinsics.A.charAt(
+				TestIntrinsics.A.length()));
+		}
+		catch (StringIndexOutOfBoundsException e)
+		{
+			this.secondary("charatover", "oob");
+		}
+		
+		try
+		{
+			this.secondary("charatneg", (int)TestIntrinsics.A.charAt(-1));
+		}
+		catch (StringIndexOutOfBoundsException e)
+		{
+			this.secondary("charatneg", "oob");
+		}
+		
+		// Appending past the initial capacity grows the buffer
+		StringBuilder sb = new StringBuilder(2);
+		for (int i = 0; i < 7; i++)
+			if (sb.append((char)('a' + i)) != sb)
+				throw new RuntimeException("Not self?");
+		this.secondary("append", sb.toString());
+		
+		// Overlapping copies within the same array
+		int[] ints = new int[]{1, 2, 3, 4, 5, 6};
+		System.arraycopy(ints, 0, ints, 2, 4);
+		this.secondary("copyforward", ints);
+		System.arraycopy(ints, 2, ints, 0, 4);
+		this.secondary("copybackward", ints);
+		
+		// Copies between arrays of different types need store checks
+		Object[] objects = new Object[3];
+		System.arraycopy(new String[]{"a", "b", "c"}, 1, objects, 0, 2);
+		this.secondary("copyobjects", objects[0] + "" + objects[1] +
+			objects[2]);
+		
+		try
+		{
+			System.arraycopy(new Object[]{"a", 2}, 0, new String[2], 0, 2);
+			this.secondary("copystore", "copied");
+		}
+		catch (ArrayStoreException e)
+		{
+			this.secondary("copystore", "ase");
+		}
+		
+		try
+		{
+			System.arraycopy(ints, 4, new int[6], 0, 3);
+			this.secondary("copybounds", "copied");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			this.secondary("copybounds", "oob");
+		}
+		
+		// Offsets and lengths which overflow when added
+		try
+		{
+			System.arraycopy(ints, 2, new int[6], 0, Integer.MAX_VALUE);
+			this.secondary("copyoverflow", "copied");
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			this.secondary("copyoverflow", "oob");
+		}
+		
+		this.secondary("absint", Math.abs(-12));
+		this.secondary("absintmin",
+			Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE);
+		this.secondary("abslong", Math.abs(-1234567890123L));
+		this.secondary("maxint", Math.max(-3, 7));
+		this.secondary("maxlong", Math.max(Long.MIN_VALUE, 7L));
+		this.secondary("minint", Math.min(-3, 7));
+		this.secondary("minlong", Math.min(Long.MAX_VALUE, -7L));
+	}
+}
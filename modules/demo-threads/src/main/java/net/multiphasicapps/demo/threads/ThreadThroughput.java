@@ -0,0 +1,191 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+//     Copyright (C) Multi-Phasic Applications <multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package net.multiphasicapps.demo.threads;
+
+import java.io.PrintStream;
+
+/**
+ * Measures how the throughput of the virtual machine scales with the number
+ * of threads. Every thread performs the same amount of independent work
+ * which shares no locks, so ideally the throughput grows with the number
+ * of threads.
+ *
+ * The thread counts to measure may be given as arguments.
+ *
+ * @since 2020/07/27
+ */
+public class ThreadThroughput
+	implements Runnable
+{
+	/** The thread counts which are measured by default. */
+	private static final int[] _DEFAULT_COUNTS =
+		new int[]{1, 2, 4};
+	
+	/** The number of rounds each thread performs. */
+	private static final int _ROUNDS =
+		50;
+	
+	/** The number of iterations in each round. */
+	private static final int _ITERATIONS =
+		1000;
+	
+	/** Lock for the finished thread count. */
+	private static final Object _LOCK =
+		new Object();
+	
+	/** The number of threads which have finished. */
+	private static int _finished;
+	
+	/** The seed for the work. */
+	protected final int seed;
+	
+	/** The result of the work. */
+	private volatile int _result;
+	
+	/**
+	 * Initializes the worker.
+	 *
+	 * @param __seed The seed for the work.
+	 * @since 2020/07/27
+	 */
+	public ThreadThroughput(int __seed)
+	{
+		this.seed = __seed;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/27
+	 */
+	@Override
+	public void run()
+	{
+		int x = this.seed;
+		for (int r = 0; r < ThreadThroughput._ROUNDS; r++)
+			x = ThreadThroughput.__round(x);
+		this._result = x;
+		
+		// Signal that this thread is done, this is used instead of join()
+		// so that only the work is measured
+		synchronized (ThreadThroughput._LOCK)
+		{
+			ThreadThroughput._finished++;
+			ThreadThroughput._LOCK.notifyAll();
+		}
+	}
+	
+	/**
+	 * Main entry point.
+	 *
+	 * @param __args Program arguments, the thread counts to measure.
+	 * @throws InterruptedException If the main thread was interrupted.
+	 * @since 2020/07/27
+	 */
+	public static void main(String... __args)
+		throws InterruptedException
+	{
+		PrintStream out = System.out;
+		
+		// Use the given thread counts, if any were specified
+		int[] counts;
+		int an;
+		if (__args != null && (an = __args.length) > 0)
+		{
+			counts = new int[an];
+			for (int i = 0; i < an; i++)
+				counts[i] = Math.max(1, Integer.parseInt(__args[i]));
+		}
+		else
+			counts = ThreadThroughput._DEFAULT_COUNTS;
+		
+		// Measure each count
+		for (int count : counts)
+		{
+			long ms = Math.max(1, ThreadThroughput.__measure(count));
+			long ops = (long)count * ThreadThroughput._ROUNDS *
+				ThreadThroughput._ITERATIONS;
+			
+			out.println("threads=" + count + " time=" + ms + "ms " +
+				"iterations/s=" + ((ops * 1000L) / ms));
+		}
+	}
+	
+	/**
+	 * Runs the work on the given number of threads and measures the time
+	 * it took for all of them to finish.
+	 *
+	 * @param __count The number of threads to use.
+	 * @return The time taken in milliseconds.
+	 * @throws InterruptedException If the main thread was interrupted.
+	 * @since 2020/07/27
+	 */
+	private static long __measure(int __count)
+		throws InterruptedException
+	{
+		synchronized (ThreadThroughput._LOCK)
+		{
+			ThreadThroughput._finished = 0;
+		}
+		
+		// Setup all of the threads before any are started
+		Thread[] threads = new Thread[__count];
+		for (int i = 0; i < __count; i++)
+			threads[i] = new Thread(new ThreadThroughput(i + 1),
+				"Throughput-" + i);
+		
+		long start = System.currentTimeMillis();
+		for (Thread thread : threads)
+			thread.start();
+		
+		// Wait for every thread to finish
+		synchronized (ThreadThroughput._LOCK)
+		{
+			while (ThreadThroughput._finished < __count)
+				ThreadThroughput._LOCK.wait();
+		}
+		
+		return System.currentTimeMillis() - start;
+	}
+	
+	/**
+	 * Mixes the two values together.
+	 *
+	 * @param __x The current value.
+	 * @param __i The iteration.
+	 * @return The mixed value.
+	 * @since 2020/07/27
+	 */
+	private static int __mix(int __x, int __i)
+	{
+		return (__x * 31) + (__i ^ (__x >>> 7));
+	}
+	
+	/**
+	 * Performs a single round of work.
+	 *
+	 * @param __x The current value.
+	 * @return The resulting value.
+	 * @since 2020/07/27
+	 */
+	private static int __round(int __x)
+	{
+		// Arithmetic, branches and calls as most code would do
+		int x = __x;
+		for (int i = 0; i < ThreadThroughput._ITERATIONS; i++)
+		{
+			x = ThreadThroughput.__mix(x, i);
+			if ((x & 1) == 0)
+				x ^= i;
+		}
+		
+		return x;
+	}
+}
@@ -14,8 +14,11 @@ import dev.shadowtail.classfile.nncc.ArgumentFormat;
 import dev.shadowtail.classfile.nncc.NativeCode;
 import dev.shadowtail.classfile.nncc.NativeInstruction;
 import dev.shadowtail.classfile.nncc.RegisterList;
+import dev.shadowtail.classfile.pool.BasicPool;
+import dev.shadowtail.classfile.pool.DualClassRuntimePool;
 import dev.shadowtail.classfile.pool.DualClassRuntimePoolBuilder;
 import dev.shadowtail.classfile.xlate.DataType;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -47,6 +50,21 @@ import net.multiphasicapps.io.TableSectionOutputStream;
  */
 public final class Minimizer
 {
+	/**
+	 * The version of the translator, this is changed whenever the minimized
+	 * output of a class changes so that previously minimized classes are
+	 * not used.
+	 */
+	public static final int VERSION =
+		1;
+	
+	/**
+	 * The offset of the file size in the header, it is followed by an unused
+	 * value and the static and run-time pool offsets and sizes.
+	 */
+	private static final int _FILE_SIZE_OFFSET =
+		MinimizedClassHeader.HEADER_SIZE_WITH_MAGIC - 24;
+	
 	/** Counter for UUIDs. */
 	private static volatile int _UUID_COUNTER =
 		17;
@@ -61,6 +79,15 @@ public final class Minimizer
 	protected final DualClassRuntimePoolBuilder localpool =
 		new DualClassRuntimePoolBuilder();
 	
+	/** The output sections, set when prepared. */
+	private TableSectionOutputStream _output;
+	
+	/** The header section, set when prepared. */
+	private TableSectionOutputStream.Section _header;
+	
+	/** Has this been finished? */
+	private boolean _finished;
+	
 	/**
 	 * Initializes the minimizer.
 	 *
@@ -82,19 +109,75 @@ public final class Minimizer
 	}
 	
 	/**
-	 * Performs the minimization process.
+	 * Finishes minimization of the class by encoding the pool, this is the
+	 * only step which uses the Jar or ROM pool and as such when a pool is
+	 * shared between classes this must not be called by multiple threads at
+	 * the same time.
+	 *
+	 * @return The minimized class.
+	 * @throws IllegalStateException If this was already finished.
+	 * @throws IOException On write errors.
+	 * @since 2020/07/29
+	 */
+	public final byte[] finish()
+		throws IllegalStateException, IOException
+	{
+		// Minimization is straight to a byte format so just read that in
+		// again
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream(1048576))
+		{
+			// Output minimized code to the byte array
+			this.finish(baos);
+			
+			// The class data is in the resulting byte array
+			return baos.toByteArray();
+		}
+	}
+	
+	/**
+	 * Finishes minimization of the class by encoding the pool, this is the
+	 * only step which uses the Jar or ROM pool and as such when a pool is
+	 * shared between classes this must not be called by multiple threads at
+	 * the same time.
 	 *
 	 * @param __os The stream to write the result to.
+	 * @throws IllegalStateException If this was already finished.
 	 * @throws IOException On write errors.
 	 * @throws NullPointerException On null arguments.
-	 * @since 2019/03/10
+	 * @since 2020/07/29
 	 */
-	private final void __run(OutputStream __os)
-		throws IOException, NullPointerException
+	public final void finish(OutputStream __os)
+		throws IllegalStateException, IOException, NullPointerException
 	{
 		if (__os == null)
 			throw new NullPointerException("NARG");
-			
+		
+		// {@squirreljme.error JC4m The minimized class was already
+		// finished.}
+		if (this._finished)
+			throw new IllegalStateException("JC4m");
+		this._finished = true;
+		
+		// Was prepared already
+		Minimizer.__finish(this._output, this._header, this.localpool,
+			this.jarpool, __os);
+		
+		// These are no longer needed
+		this._output = null;
+		this._header = null;
+	}
+	
+	/**
+	 * Processes the fields and methods of the class and lays out everything
+	 * except for the constant pool, this only uses state which is local to
+	 * this class.
+	 *
+	 * @throws IOException On write errors.
+	 * @since 2019/03/10
+	 */
+	private final void __prepare()
+		throws IOException
+	{
 		// The input class
 		ClassFile input = this.input;
 		
@@ -207,29 +290,9 @@ public final class Minimizer
 		// Not used anymore
 		header.writeInt(0);
 		
-		// Where our pools are going
-		TableSectionOutputStream.Section lpd = output.addSection();
-		
-		// Encode the local pool or the local pool on top of the JAR pool
-		DualClassRuntimePoolBuilder jarpool = this.jarpool;
-		DualPoolEncodeResult der = (jarpool == null ?
-			DualPoolEncoder.encode(localpool, lpd) :
-			DualPoolEncoder.encodeLayered(localpool, jarpool, lpd));
-		
-		// Static pool
-		header.writeSectionAddressInt(lpd, der.staticpooloff);
-		header.writeInt(der.staticpoolsize);
-		
-		// Run-time pool
-		header.writeSectionAddressInt(lpd, der.runtimepooloff);
-		header.writeInt(der.runtimepoolsize);
-		
-		// Write end magic number, which is at the end of the file
-		TableSectionOutputStream.Section eofmagic = output.addSection(4);
-		eofmagic.writeInt(MinimizedClassHeader.END_MAGIC_NUMBER);
-		
-		// Write resulting file
-		output.writeTo(__os);
+		// The pool is written when this is finished
+		this._output = output;
+		this._header = header;
 	}
 	
 	/**
@@ -660,6 +723,72 @@ public final class Minimizer
 		return rand.nextLong();
 	}
 	
+	/**
+	 * Places a class which was minimized without a Jar or ROM pool on top of
+	 * the given pool, the result is the same as if the class were minimized
+	 * with that pool. This allows minimized classes to be kept and used
+	 * again for different pools, since the encoding of the pool is much
+	 * faster than minimizing.
+	 *
+	 * @param __b The class which was minimized without a pool.
+	 * @param __dp The pool to place the class on, if {@code null} then the
+	 * class is returned as is.
+	 * @return The class on top of the given pool.
+	 * @throws InvalidClassFormatException If the class is not valid.
+	 * @throws IOException On read or write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public static final byte[] layer(byte[] __b,
+		DualClassRuntimePoolBuilder __dp)
+		throws InvalidClassFormatException, IOException, NullPointerException
+	{
+		if (__b == null)
+			throw new NullPointerException("NARG");
+		
+		// Is already in this form
+		if (__dp == null)
+			return __b;
+		
+		// Where the pools and everything else are
+		MinimizedClassHeader mheader = MinimizedClassHeader.decode(
+			new ByteArrayInputStream(__b));
+		DualClassRuntimePool pool = DualPoolEncoder.decode(__b,
+			mheader.staticpooloff, mheader.staticpoolsize,
+			mheader.runtimepooloff, mheader.runtimepoolsize);
+		
+		// Rebuild the local pool, the static pool is done first so that the
+		// run-time pool does not add anything to it
+		DualClassRuntimePoolBuilder localpool =
+			new DualClassRuntimePoolBuilder();
+		Minimizer.__rebuildPool(localpool, false, pool.classPool());
+		Minimizer.__rebuildPool(localpool, true, pool.runtimePool());
+		
+		// Everything in the header before the file size does not change,
+		// the pool is written when this is finished
+		TableSectionOutputStream output = new TableSectionOutputStream();
+		TableSectionOutputStream.Section header =
+			output.addSection(MinimizedClassHeader.HEADER_SIZE_WITH_MAGIC);
+		header.write(__b, 0, Minimizer._FILE_SIZE_OFFSET);
+		header.writeFileSizeInt();
+		header.writeInt(0);
+		
+		// The field and method sections are the same since they are at the
+		// same addresses
+		int start = MinimizedClassHeader.HEADER_SIZE_WITH_MAGIC;
+		TableSectionOutputStream.Section body = output.addSection(
+			TableSectionOutputStream.VARIABLE_SIZE, 4);
+		body.write(__b, start, (mheader.imoff + mheader.imsize) - start);
+		
+		// Finish it
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream(
+			__b.length))
+		{
+			Minimizer.__finish(output, header, localpool, __dp, baos);
+			return baos.toByteArray();
+		}
+	}
+	
 	/**
 	 * Minimizes the given class and returns the minimized version of it.
 	 *
@@ -694,16 +823,7 @@ public final class Minimizer
 		if (__cf == null)
 			throw new NullPointerException("NARG");
 		
-		// Minimization is straight to a byte format so just read that in
-		// again
-		try (ByteArrayOutputStream baos = new ByteArrayOutputStream(1048576))
-		{
-			// Output minimized code to the byte array
-			Minimizer.minimize(__dp, __cf, baos);
-			
-			// The class data is in the resulting byte array
-			return baos.toByteArray();
-		}
+		return Minimizer.prepare(__dp, __cf).finish();
 	}
 	
 	/**
@@ -742,7 +862,7 @@ public final class Minimizer
 		if (__cf == null || __os == null)
 			throw new NullPointerException("NARG");
 		
-		new Minimizer(__dp, __cf).__run(__os);
+		Minimizer.prepare(__dp, __cf).finish(__os);
 	}
 	
 	/**
@@ -775,6 +895,33 @@ public final class Minimizer
 		}
 	}
 	
+	/**
+	 * Prepares the given class for minimization, this does everything except
+	 * for encoding the constant pool which is done by {@link #finish()}.
+	 * Since the Jar or ROM pool is not used here, multiple classes which
+	 * share the same pool may be prepared at the same time by different
+	 * threads.
+	 *
+	 * @param __dp Dual constant pool, may be {@code null}.
+	 * @param __cf The class file to minimize.
+	 * @return The prepared minimizer.
+	 * @throws InvalidClassFormatException If the class format is not valid.
+	 * @throws IOException On write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public static final Minimizer prepare(DualClassRuntimePoolBuilder __dp,
+		ClassFile __cf)
+		throws InvalidClassFormatException, IOException, NullPointerException
+	{
+		if (__cf == null)
+			throw new NullPointerException("NARG");
+		
+		Minimizer rv = new Minimizer(__dp, __cf);
+		rv.__prepare();
+		return rv;
+	}
+	
 	/**
 	 * Writes variable size unsigned short, only 15-bits are possible to be
 	 * written.
@@ -918,6 +1065,86 @@ public final class Minimizer
 		return __dos.size();
 	}
 	
+	/**
+	 * Finishes the output of a class by encoding the pool.
+	 *
+	 * @param __output The output sections.
+	 * @param __header The header section.
+	 * @param __lp The local pool.
+	 * @param __jp The Jar or ROM pool, may be {@code null}.
+	 * @param __os The stream to write the result to.
+	 * @throws IOException On write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private static final void __finish(TableSectionOutputStream __output,
+		TableSectionOutputStream.Section __header,
+		DualClassRuntimePoolBuilder __lp, DualClassRuntimePoolBuilder __jp,
+		OutputStream __os)
+		throws IOException, NullPointerException
+	{
+		if (__output == null || __header == null || __lp == null ||
+			__os == null)
+			throw new NullPointerException("NARG");
+		
+		// Where our pools are going
+		TableSectionOutputStream.Section lpd = __output.addSection();
+		
+		// Encode the local pool or the local pool on top of the JAR pool
+		DualPoolEncodeResult der = (__jp == null ?
+			DualPoolEncoder.encode(__lp, lpd) :
+			DualPoolEncoder.encodeLayered(__lp, __jp, lpd));
+		
+		// Static pool
+		__header.writeSectionAddressInt(lpd, der.staticpooloff);
+		__header.writeInt(der.staticpoolsize);
+		
+		// Run-time pool
+		__header.writeSectionAddressInt(lpd, der.runtimepooloff);
+		__header.writeInt(der.runtimepoolsize);
+		
+		// Write end magic number, which is at the end of the file
+		TableSectionOutputStream.Section eofmagic = __output.addSection(4);
+		eofmagic.writeInt(MinimizedClassHeader.END_MAGIC_NUMBER);
+		
+		// Write resulting file
+		__output.writeTo(__os);
+	}
+	
+	/**
+	 * Adds every entry of a decoded pool to the builder, since the entries
+	 * are added in order they are at the same indexes.
+	 *
+	 * @param __dp The pool to add to.
+	 * @param __rt Is this the run-time pool?
+	 * @param __from The pool to add from.
+	 * @throws InvalidClassFormatException If an entry is not at the same
+	 * index.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private static final void __rebuildPool(DualClassRuntimePoolBuilder __dp,
+		boolean __rt, BasicPool __from)
+		throws InvalidClassFormatException, NullPointerException
+	{
+		if (__dp == null || __from == null)
+			throw new NullPointerException("NARG");
+		
+		// The first entry is always null
+		for (int i = 1, n = __from.size(); i < n; i++)
+		{
+			Object value = __from.byIndex(i).value;
+			
+			// {@squirreljme.error JC4n The rebuilt pool entry is not at the
+			// same index as it was. (The value; The old index; The new
+			// index)}
+			int dx = __dp.add(__rt, value).index;
+			if (dx != i)
+				throw new InvalidClassFormatException("JC4n " + value + " " +
+					i + " " + dx);
+		}
+	}
+	
 	/**
 	 * Adds length data to the relative offset.
 	 *
@@ -440,14 +440,46 @@ public final class NativeCodeBuilder
 	 * @since 2019/03/22
 	 */
 	public final NativeCode build()
+	{
+		return this.__build(__Optimizer__.PASSES);
+	}
+	
+	/**
+	 * Builds the register code with only the given optimizations, all
+	 * references to other portions in the code itself are resolved.
+	 *
+	 * @param __opt The optimizations to use, this is in the same form as the
+	 * {@code dev.shadowtail.classfile.nncc.optimize} property. If this is
+	 * {@code null} then every optimization is used.
+	 * @return The built register code.
+	 * @since 2020/07/29
+	 */
+	public final NativeCode build(String __opt)
+	{
+		return this.__build(__Optimizer__.passes(__opt));
+	}
+	
+	/**
+	 * Builds the register code, all references to other portions in the
+	 * code itself are resolved.
+	 *
+	 * @param __passes The optimization passes to run.
+	 * @return The built register code.
+	 * @since 2020/07/29
+	 */
+	private NativeCode __build(int __passes)
 	{
 		// Labels which point to addresses
 		Map<NativeCodeLabel, Integer> labels = this._labels;
 		
+		// Optimize the code first, this may leave jumps to the next
+		// instruction which are removed below
+		List<Point> in = __Optimizer__.optimize(
+			new ArrayList<>(this._points.values()), labels, __passes);
+		
 		// If there are any jump points which refer to the instruction index
 		// directly following it, then remove the jump.
 		// Also possibly perform other modifications
-		List<Point> in = new ArrayList<>(this._points.values());
 		for (int i = in.size() - 1; i >= 0; i--)
 		{
 			// Get the instruction and its various properties
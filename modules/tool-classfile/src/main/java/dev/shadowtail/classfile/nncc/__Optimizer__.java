@@ -0,0 +1,1175 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package dev.shadowtail.classfile.nncc;
+
+import dev.shadowtail.classfile.xlate.CompareType;
+import dev.shadowtail.classfile.xlate.MathType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This runs optimization passes over the instructions of a method before
+ * the labels in it are resolved, when instructions are removed or added the
+ * labels are moved along with them.
+ *
+ * Control flow in native code is always explicit since exceptions are
+ * checked after every invocation, so only jumps and returns change where
+ * execution goes. The only registers which are optimized away are those
+ * which are not global, since the globals are implicitly passed to and from
+ * invoked methods.
+ *
+ * @since 2020/07/29
+ */
+final class __Optimizer__
+{
+	/**
+	 * {@squirreljme.property dev.shadowtail.classfile.nncc.optimize=passes
+	 * The comma separated optimization passes to run on native code, the
+	 * passes are {@code constant}, {@code copy}, {@code jump} and
+	 * {@code dead}. A pass prefixed with {@code -} is disabled, {@code all}
+	 * enables every pass and {@code none} disables every pass. The default
+	 * is {@code all}.}
+	 */
+	public static final String OPTIMIZE_PROPERTY =
+		"dev.shadowtail.classfile.nncc.optimize";
+	
+	/** Branches on values which are known are folded. */
+	public static final int CONSTANT =
+		0b0001;
+	
+	/** Copies of registers are used in place of the copy. */
+	public static final int COPY =
+		0b0010;
+	
+	/** Jumps to other jumps or the method exit are threaded. */
+	public static final int JUMP =
+		0b0100;
+	
+	/** Unreachable code and unused values are removed. */
+	public static final int DEAD =
+		0b1000;
+	
+	/** All of the passes. */
+	public static final int ALL =
+		0b1111;
+	
+	/** The passes which are enabled. */
+	public static final int PASSES;
+	
+	/** The names of the passes, in the order of their bits. */
+	private static final String[] _NAMES =
+		{"constant", "copy", "jump", "dead"};
+	
+	/** The maximum number of times the passes are run. */
+	private static final int _MAX_ROUNDS =
+		4;
+	
+	/** The maximum number of jumps which are followed when threading. */
+	private static final int _MAX_HOPS =
+		8;
+	
+	/** The registers which are global and always used when invoking. */
+	private static final long _GLOBALS =
+		(1L << NativeCode.ARGUMENT_REGISTER_BASE) - 1;
+	
+	/** The registers which are global and set after invoking. */
+	private static final long _INVOKE_SETS =
+		__Optimizer__._GLOBALS & ~((1L << NativeCode.ZERO_REGISTER) |
+		(1L << NativeCode.POOL_REGISTER));
+	
+	/** The registers which are global and used by return. */
+	private static final long _RETURN_USES =
+		(1L << NativeCode.LOCAL_REGISTER_BASE) - 1;
+	
+	/** Labels and the indexes they point to. */
+	private final Map<NativeCodeLabel, Integer> _labels;
+	
+	/** The instructions, those which are removed are {@code null}. */
+	private NativeInstruction[] _code;
+	
+	/** Instructions which are placed after instructions, may be null. */
+	private NativeInstruction[] _after;
+	
+	/** Where each instruction jumps to, cached until the code moves. */
+	private int[] _targets;
+	
+	/** Were instructions removed or added? */
+	private boolean _moved;
+	
+	/** Was anything changed? */
+	private boolean _changed;
+	
+	/**
+	 * Gets the passes which are enabled.
+	 *
+	 * @since 2020/07/29
+	 */
+	static
+	{
+		// Get property
+		String prop = null;
+		try
+		{
+			prop = System.getProperty(__Optimizer__.OPTIMIZE_PROPERTY);
+		}
+		catch (SecurityException e)
+		{
+		}
+		
+		// Set
+		PASSES = __Optimizer__.passes(prop);
+	}
+	
+	/**
+	 * Initializes the optimizer.
+	 *
+	 * @param __code The instructions.
+	 * @param __labels The labels, these are moved as code changes.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private __Optimizer__(NativeInstruction[] __code,
+		Map<NativeCodeLabel, Integer> __labels)
+		throws NullPointerException
+	{
+		if (__code == null || __labels == null)
+			throw new NullPointerException("NARG");
+		
+		this._code = __code;
+		this._after = new NativeInstruction[__code.length];
+		this._labels = __labels;
+	}
+	
+	/**
+	 * Runs the given passes over the given code.
+	 *
+	 * @param __in The input code.
+	 * @param __labels The labels, these are moved as code changes.
+	 * @param __passes The passes to run.
+	 * @return The optimized code.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	static List<NativeCodeBuilder.Point> optimize(
+		List<NativeCodeBuilder.Point> __in,
+		Map<NativeCodeLabel, Integer> __labels, int __passes)
+		throws NullPointerException
+	{
+		if (__in == null || __labels == null)
+			throw new NullPointerException("NARG");
+		
+		// Nothing to do
+		int passes = __passes & __Optimizer__.ALL;
+		if (passes == 0)
+			return __in;
+		
+		// Setup code
+		int n = __in.size();
+		NativeInstruction[] code = new NativeInstruction[n];
+		for (int i = 0; i < n; i++)
+		{
+			NativeInstruction inst = __in.get(i).instruction;
+			
+			// Labels which are not defined are reported when the code is
+			// built, so do not touch this code at all
+			if (__Optimizer__.__isJump(inst.op) &&
+				!__labels.containsKey(__Optimizer__.__label(inst)))
+				return __in;
+			
+			code[i] = inst;
+		}
+		
+		// Run passes until nothing changes
+		__Optimizer__ opt = new __Optimizer__(code, __labels);
+		for (int round = 0; round < __Optimizer__._MAX_ROUNDS; round++)
+		{
+			opt._changed = false;
+			
+			if ((passes & __Optimizer__.CONSTANT) != 0)
+			{
+				opt.__constant();
+				opt.__compact();
+			}
+			
+			if ((passes & __Optimizer__.COPY) != 0)
+			{
+				opt.__copy();
+				opt.__compact();
+			}
+			
+			if ((passes & __Optimizer__.JUMP) != 0)
+			{
+				opt.__jump();
+				opt.__compact();
+			}
+			
+			if ((passes & __Optimizer__.DEAD) != 0)
+			{
+				opt.__dead();
+				opt.__compact();
+			}
+			
+			if (!opt._changed)
+				break;
+		}
+		
+		// Use the new code
+		code = opt._code;
+		List<NativeCodeBuilder.Point> rv = new ArrayList<>(code.length);
+		for (NativeInstruction inst : code)
+			rv.add(new NativeCodeBuilder.Point(inst));
+		return rv;
+	}
+	
+	/**
+	 * Returns the passes which are enabled by the given string, which is in
+	 * the same form as the optimization property.
+	 *
+	 * @param __s The passes to enable or disable, if {@code null} then every
+	 * pass is enabled.
+	 * @return The passes which are enabled.
+	 * @since 2020/07/29
+	 */
+	static int passes(String __s)
+	{
+		if (__s == null)
+			return __Optimizer__.ALL;
+		
+		// Enable or disable the given passes
+		int passes = 0;
+		for (String name : __s.split(","))
+		{
+			name = name.trim();
+			
+			boolean off = name.startsWith("-");
+			if (off)
+				name = name.substring(1);
+			
+			int bits = 0;
+			if (name.equals("all"))
+				bits = __Optimizer__.ALL;
+			else if (name.equals("none"))
+				passes = 0;
+			else
+				for (int i = 0, n = __Optimizer__._NAMES.length; i < n; i++)
+					if (name.equals(__Optimizer__._NAMES[i]))
+						bits = 1 << i;
+			
+			if (off)
+				passes &= ~bits;
+			else
+				passes |= bits;
+		}
+		
+		return passes;
+	}
+	
+	/**
+	 * Removes and adds instructions which were removed or added and moves
+	 * the labels to match.
+	 *
+	 * @since 2020/07/29
+	 */
+	private void __compact()
+	{
+		if (!this._moved)
+			return;
+		
+		NativeInstruction[] code = this._code,
+			after = this._after;
+		int n = code.length;
+		
+		// Determine where every instruction ends up, removed instructions
+		// end up where the next instruction is
+		int[] moved = new int[n + 1];
+		int at = 0;
+		for (int i = 0; i < n; i++)
+		{
+			moved[i] = at;
+			
+			if (code[i] != null)
+				at++;
+			if (after[i] != null)
+				at++;
+		}
+		moved[n] = at;
+		
+		// Place instructions
+		NativeInstruction[] newcode = new NativeInstruction[at];
+		for (int i = 0, o = 0; i < n; i++)
+		{
+			if (code[i] != null)
+				newcode[o++] = code[i];
+			if (after[i] != null)
+				newcode[o++] = after[i];
+		}
+		
+		// Move the labels
+		for (Map.Entry<NativeCodeLabel, Integer> e :
+			this._labels.entrySet())
+		{
+			int val = e.getValue();
+			if (val >= 0)
+				e.setValue((val < n ? moved[val] : at + (val - n)));
+		}
+		
+		this._code = newcode;
+		this._after = new NativeInstruction[at];
+		this._targets = null;
+		this._moved = false;
+	}
+	
+	/**
+	 * Folds branches on registers which have values that are known in the
+	 * same block, such as the reference counting of a register which was
+	 * just cleared.
+	 *
+	 * @since 2020/07/29
+	 */
+	private void __constant()
+	{
+		NativeInstruction[] code = this._code;
+		boolean[] starts = this.__starts();
+		
+		// Only the zero register is known at the start of blocks
+		int[] values = new int[NativeCode.MAX_REGISTERS];
+		long known = 0;
+		
+		for (int i = 0, n = code.length; i < n; i++)
+		{
+			if (starts[i])
+				known = 1L << NativeCode.ZERO_REGISTER;
+			
+			NativeInstruction inst = code[i];
+			int op = inst.op;
+			Object[] args = inst._args;
+			
+			// Does this set a known value?
+			boolean has = false;
+			int value = 0;
+			
+			switch (NativeInstruction.encoding(op))
+			{
+				case NativeInstructionType.COPY:
+					{
+						int a = __Optimizer__.__int(args[0]);
+						if ((has = (known & (1L << a)) != 0))
+							value = values[a];
+					}
+					break;
+				
+				case NativeInstructionType.MATH_CONST_INT:
+				case NativeInstructionType.MATH_REG_INT:
+					{
+						int a = __Optimizer__.__int(args[0]),
+							b = __Optimizer__.__int(args[1]);
+						boolean isconst = ((op & 0x80) != 0);
+						
+						if ((known & (1L << a)) != 0 &&
+							(isconst || (known & (1L << b)) != 0))
+						{
+							MathType mt = MathType.of(op & 0xF);
+							int bv = (isconst ? b : values[b]);
+							
+							// Division by zero must still trap
+							if ((has = !(bv == 0 && (mt == MathType.DIV ||
+								mt == MathType.REM))))
+								value = __Optimizer__.__math(mt,
+									values[a], bv);
+						}
+						
+						// Use the known value directly, so that the register
+						// which holds it may be removed
+						if (!isconst && (known & (1L << b)) != 0)
+						{
+							inst = new NativeInstruction(
+								NativeInstructionType.MATH_CONST_INT |
+								(op & 0xF), a, values[b], args[2]);
+							code[i] = inst;
+							this._changed = true;
+						}
+					}
+					break;
+				
+				case NativeInstructionType.IF_ICMP:
+					{
+						CompareType ct = CompareType.of(op & 0b111);
+						if (ct == CompareType.TRUE || ct == CompareType.FALSE)
+							break;
+						
+						int a = __Optimizer__.__int(args[0]),
+							b = __Optimizer__.__int(args[1]);
+						
+						// Comparing a register with itself, or two values
+						// which are known
+						if (a == b)
+							this.__fold(i, __Optimizer__.__compare(ct, 0, 0));
+						else if ((known & (1L << a)) != 0 &&
+							(known & (1L << b)) != 0)
+							this.__fold(i,
+								__Optimizer__.__compare(ct, values[a],
+									values[b]));
+					}
+					break;
+				
+				case NativeInstructionType.IFEQ_CONST:
+					{
+						int a = __Optimizer__.__int(args[0]);
+						if ((known & (1L << a)) != 0)
+							this.__fold(i,
+								values[a] == __Optimizer__.__int(args[1]));
+					}
+					break;
+			}
+			
+			// Anything set is no longer known, unless it was calculated
+			known &= ~__Optimizer__.__defs(inst);
+			if (has)
+			{
+				int d = __Optimizer__.__int(
+					args[__Optimizer__.__defArg(op)]);
+				
+				known |= 1L << d;
+				values[d] = value;
+			}
+		}
+	}
+	
+	/**
+	 * Replaces registers which are copies of other registers with the
+	 * register they are a copy of, within the same block.
+	 *
+	 * @since 2020/07/29
+	 */
+	private void __copy()
+	{
+		NativeInstruction[] code = this._code;
+		boolean[] starts = this.__starts();
+		
+		// The registers which are copies and what they are a copy of
+		int[] copyof = new int[NativeCode.MAX_REGISTERS];
+		long copies = 0;
+		
+		for (int i = 0, n = code.length; i < n; i++)
+		{
+			if (starts[i])
+				copies = 0;
+			
+			// Use the originals
+			NativeInstruction inst = code[i];
+			if (copies != 0)
+			{
+				NativeInstruction was = inst;
+				inst = __Optimizer__.__replaceUses(inst, copyof, copies);
+				
+				if (inst != was)
+				{
+					code[i] = inst;
+					this._changed = true;
+				}
+			}
+			
+			int op = inst.op;
+			Object[] args = inst._args;
+			
+			// Copying a register to itself does nothing
+			int from = -1,
+				to = -1;
+			if (NativeInstruction.encoding(op) == NativeInstructionType.COPY)
+			{
+				from = __Optimizer__.__int(args[0]);
+				to = __Optimizer__.__int(args[1]);
+				
+				if (from == to)
+				{
+					code[i] = null;
+					this._moved = true;
+					this._changed = true;
+					continue;
+				}
+			}
+			
+			// Registers which are set are no longer copies, neither are
+			// copies of them
+			long defs = __Optimizer__.__defs(inst);
+			if (defs != 0)
+			{
+				copies &= ~defs;
+				for (int r = 0; (copies >>> r) != 0; r++)
+					if ((copies & (1L << r)) != 0 &&
+						(defs & (1L << copyof[r])) != 0)
+						copies &= ~(1L << r);
+			}
+			
+			// This is now a copy
+			if (to >= 0)
+			{
+				copies |= 1L << to;
+				copyof[to] = from;
+			}
+		}
+	}
+	
+	/**
+	 * Removes code which cannot be reached, values which are never used and
+	 * operations which do nothing.
+	 *
+	 * @since 2020/07/29
+	 */
+	private void __dead()
+	{
+		NativeInstruction[] code = this._code;
+		int n = code.length;
+		
+		// Where each instruction goes, if it jumps or ends
+		int[] targets = this.__targets();
+		boolean[] ends = new boolean[n];
+		for (int i = 0; i < n; i++)
+			ends[i] = __Optimizer__.__isTerminal(code[i].op);
+		
+		// Determine which instructions can be reached
+		boolean[] reached = new boolean[n];
+		int[] queue = new int[n];
+		int queued = 0;
+		if (n > 0)
+		{
+			reached[0] = true;
+			queue[queued++] = 0;
+		}
+		while (queued > 0)
+		{
+			int i = queue[--queued];
+			
+			for (int s = 0; s < 2; s++)
+			{
+				int to = (s == 0 ? (ends[i] ? -1 : i + 1) : targets[i]);
+				
+				if (to >= 0 && to < n && !reached[to])
+				{
+					reached[to] = true;
+					queue[queued++] = to;
+				}
+			}
+		}
+		
+		// Remove unreached code
+		for (int i = 0; i < n; i++)
+			if (!reached[i])
+			{
+				code[i] = null;
+				this._moved = true;
+				this._changed = true;
+			}
+		
+		// Determine the registers which are used and set
+		long[] uses = new long[n],
+			defs = new long[n];
+		for (int i = 0; i < n; i++)
+		{
+			NativeInstruction inst = code[i];
+			if (inst != null)
+			{
+				uses[i] = __Optimizer__.__uses(inst);
+				defs[i] = __Optimizer__.__defs(inst);
+			}
+		}
+		
+		// Determine which registers are live after each instruction, this
+		// is repeated until nothing changes
+		long[] livein = new long[n + 1],
+			liveout = new long[n];
+		for (boolean again = true; again;)
+		{
+			again = false;
+			
+			for (int i = n - 1; i >= 0; i--)
+			{
+				if (code[i] == null)
+				{
+					livein[i] = livein[i + 1];
+					continue;
+				}
+				
+				// Live after this is whatever is live where it goes
+				long out = 0;
+				if (!ends[i])
+					out |= livein[i + 1];
+				int to = targets[i];
+				if (to >= 0 && to < n)
+					out |= livein[to];
+				liveout[i] = out;
+				
+				long in = uses[i] | (out & ~defs[i]);
+				if (in != livein[i])
+				{
+					livein[i] = in;
+					again = true;
+				}
+			}
+		}
+		
+		// Remove operations which do nothing or set unused values
+		for (int i = 0; i < n; i++)
+		{
+			NativeInstruction inst = code[i];
+			if (inst == null)
+				continue;
+			
+			if (__Optimizer__.__isNop(inst.op) ||
+				(__Optimizer__.__isPure(inst) &&
+				(liveout[i] & defs[i]) == 0))
+			{
+				code[i] = null;
+				this._moved = true;
+				this._changed = true;
+			}
+		}
+	}
+	
+	/**
+	 * Replaces a branch with a goto or removes it.
+	 *
+	 * @param __i The index of the branch.
+	 * @param __branch Does the branch always happen?
+	 * @since 2020/07/29
+	 */
+	private void __fold(int __i, boolean __branch)
+	{
+		NativeInstruction[] code = this._code;
+		
+		if (__branch)
+			code[__i] = __Optimizer__.__goto(
+				__Optimizer__.__label(code[__i]));
+		else
+		{
+			code[__i] = null;
+			this._moved = true;
+		}
+		
+		this._changed = true;
+	}
+	
+	/**
+	 * Threads jumps which go to other gotos so that they go to where
+	 * the goto goes, gotos which go to a return are replaced with the
+	 * return.
+	 *
+	 * @since 2020/07/29
+	 */
+	private void __jump()
+	{
+		NativeInstruction[] code = this._code,
+			after = this._after;
+		Map<NativeCodeLabel, Integer> labels = this._labels;
+		
+		for (int i = 0, n = code.length; i < n; i++)
+		{
+			NativeInstruction inst = code[i];
+			if (!__Optimizer__.__isJump(inst.op) ||
+				__Optimizer__.__isNop(inst.op))
+				continue;
+			
+			// Follow gotos to where they end up
+			NativeCodeLabel label = __Optimizer__.__label(inst);
+			int to = labels.get(label);
+			for (int hop = 0; hop < __Optimizer__._MAX_HOPS &&
+				to >= 0 && to < n && to != i &&
+				__Optimizer__.__isGoto(code[to].op); hop++)
+			{
+				NativeCodeLabel next = __Optimizer__.__label(code[to]);
+				int nextto = labels.get(next);
+				if (nextto == to)
+					break;
+				
+				label = next;
+				to = nextto;
+			}
+			
+			// Goto to the return, which may or may not be debugged
+			if (__Optimizer__.__isGoto(inst.op) && to >= 0 && to < n)
+			{
+				int rop = code[to].op;
+				if (rop == NativeInstructionType.RETURN)
+				{
+					code[i] = code[to];
+					this._targets = null;
+					this._changed = true;
+					continue;
+				}
+				
+				else if (rop == NativeInstructionType.DEBUG_EXIT &&
+					to + 1 < n &&
+					code[to + 1].op == NativeInstructionType.RETURN)
+				{
+					code[i] = code[to];
+					after[i] = code[to + 1];
+					this._moved = true;
+					this._changed = true;
+					continue;
+				}
+			}
+			
+			// Jump to the new label
+			if (label != __Optimizer__.__label(inst))
+			{
+				Object[] args = inst.arguments();
+				args[2] = label;
+				code[i] = new NativeInstruction(inst.op, args);
+				this._targets = null;
+				this._changed = true;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the instructions which start blocks, these are the start of
+	 * the method and any place which is jumped to.
+	 *
+	 * @return The instructions which start blocks.
+	 * @since 2020/07/29
+	 */
+	private boolean[] __starts()
+	{
+		int[] targets = this.__targets();
+		int n = targets.length;
+		boolean[] rv = new boolean[n + 1];
+		
+		rv[0] = true;
+		for (int to : targets)
+			if (to >= 0 && to < n)
+				rv[to] = true;
+		
+		return rv;
+	}
+	
+	/**
+	 * Returns the index the given instruction jumps to.
+	 *
+	 * @param __i The instruction.
+	 * @return The index it jumps to or {@code -1} if it does not jump.
+	 * @since 2020/07/29
+	 */
+	private int __target(NativeInstruction __i)
+	{
+		if (!__Optimizer__.__isJump(__i.op) || __Optimizer__.__isNop(__i.op))
+			return -1;
+		
+		return this._labels.get(__Optimizer__.__label(__i));
+	}
+	
+	/**
+	 * Returns where each instruction jumps to.
+	 *
+	 * @return The index each instruction jumps to, or {@code -1} if it does
+	 * not jump.
+	 * @since 2020/07/29
+	 */
+	private int[] __targets()
+	{
+		int[] rv = this._targets;
+		if (rv != null)
+			return rv;
+		
+		NativeInstruction[] code = this._code;
+		int n = code.length;
+		
+		rv = new int[n];
+		for (int i = 0; i < n; i++)
+			rv[i] = this.__target(code[i]);
+		
+		this._targets = rv;
+		return rv;
+	}
+	
+	/**
+	 * Compares two values.
+	 *
+	 * @param __ct The comparison.
+	 * @param __a The first value.
+	 * @param __b The second value.
+	 * @return The result of the comparison.
+	 * @since 2020/07/29
+	 */
+	private static boolean __compare(CompareType __ct, int __a, int __b)
+	{
+		switch (__ct)
+		{
+			case EQUALS:					return __a == __b;
+			case NOT_EQUALS:				return __a != __b;
+			case LESS_THAN:					return __a < __b;
+			case LESS_THAN_OR_EQUALS:		return __a <= __b;
+			case GREATER_THAN:				return __a > __b;
+			case GREATER_THAN_OR_EQUALS:	return __a >= __b;
+			case TRUE:						return true;
+			case FALSE:						return false;
+			
+				// {@squirreljme.error JC4t Cannot fold an unknown comparison.
+				// (The comparison)}
+			default:
+				throw new IllegalArgumentException("JC4t " + __ct);
+		}
+	}
+	
+	/**
+	 * Returns the argument which is the register that is set.
+	 *
+	 * @param __op The operation.
+	 * @return The argument which is set or {@code -1} if none is.
+	 * @since 2020/07/29
+	 */
+	private static int __defArg(int __op)
+	{
+		switch (NativeInstruction.encoding(__op))
+		{
+			case NativeInstructionType.COPY:
+			case NativeInstructionType.LOAD_POOL:
+			case NativeInstructionType.ATOMIC_COMPARE_GET_AND_SET:
+				return 1;
+			
+			case NativeInstructionType.MATH_CONST_INT:
+			case NativeInstructionType.MATH_REG_INT:
+				return 2;
+			
+			case NativeInstructionType.ATOMIC_INT_DECREMENT_AND_GET:
+			case NativeInstructionType.LOAD_FROM_INTARRAY:
+				return 0;
+				
+				// Loads set the value register
+			case NativeInstructionType.MEMORY_OFF_REG:
+			case NativeInstructionType.MEMORY_OFF_REG_JAVA:
+			case NativeInstructionType.MEMORY_OFF_ICONST:
+			case NativeInstructionType.MEMORY_OFF_ICONST_JAVA:
+				return ((__op & 0b1000) != 0 ? 0 : -1);
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Returns the registers which are set by the instruction.
+	 *
+	 * @param __i The instruction.
+	 * @return The registers which are set.
+	 * @since 2020/07/29
+	 */
+	private static long __defs(NativeInstruction __i)
+	{
+		int op = __i.op;
+		
+		long rv = 0;
+		int arg = __Optimizer__.__defArg(op);
+		if (arg >= 0)
+			rv |= 1L << __Optimizer__.__int(__i._args[arg]);
+		
+		// Invoked methods and system calls set the globals when they return
+		switch (NativeInstruction.encoding(op))
+		{
+			case NativeInstructionType.INVOKE:
+			case NativeInstructionType.SYSTEM_CALL:
+				rv |= __Optimizer__._INVOKE_SETS;
+				break;
+		}
+		
+		return rv;
+	}
+	
+	/**
+	 * Returns a goto to the given label.
+	 *
+	 * @param __l The label to go to.
+	 * @return The goto instruction.
+	 * @since 2020/07/29
+	 */
+	private static NativeInstruction __goto(NativeCodeLabel __l)
+	{
+		return new NativeInstruction(NativeInstructionType.IF_ICMP |
+			CompareType.TRUE.ordinal(), NativeCode.ZERO_REGISTER,
+			NativeCode.ZERO_REGISTER, __l);
+	}
+	
+	/**
+	 * Returns the integer value of the given argument.
+	 *
+	 * @param __o The argument.
+	 * @return The integer value.
+	 * @since 2020/07/29
+	 */
+	private static int __int(Object __o)
+	{
+		return ((Number)__o).intValue();
+	}
+	
+	/**
+	 * Is this a goto?
+	 *
+	 * @param __op The operation.
+	 * @return If this always jumps.
+	 * @since 2020/07/29
+	 */
+	private static boolean __isGoto(int __op)
+	{
+		return __op == (NativeInstructionType.IF_ICMP |
+			CompareType.TRUE.ordinal());
+	}
+	
+	/**
+	 * Is this a jump?
+	 *
+	 * @param __op The operation.
+	 * @return If this is a jump.
+	 * @since 2020/07/29
+	 */
+	private static boolean __isJump(int __op)
+	{
+		int enc = NativeInstruction.encoding(__op);
+		return enc == NativeInstructionType.IF_ICMP ||
+			enc == NativeInstructionType.IFEQ_CONST;
+	}
+	
+	/**
+	 * Is this a jump which never jumps?
+	 *
+	 * @param __op The operation.
+	 * @return If this does nothing.
+	 * @since 2020/07/29
+	 */
+	private static boolean __isNop(int __op)
+	{
+		return __op == (NativeInstructionType.IF_ICMP |
+			CompareType.FALSE.ordinal());
+	}
+	
+	/**
+	 * Does this instruction only set a register and do nothing else?
+	 *
+	 * @param __i The instruction.
+	 * @return If this only sets a register.
+	 * @since 2020/07/29
+	 */
+	private static boolean __isPure(NativeInstruction __i)
+	{
+		int op = __i.op;
+		int d;
+		
+		switch (NativeInstruction.encoding(op))
+		{
+			case NativeInstructionType.COPY:
+				d = __Optimizer__.__int(__i._args[1]);
+				break;
+				
+				// Division by zero traps
+			case NativeInstructionType.MATH_CONST_INT:
+			case NativeInstructionType.MATH_REG_INT:
+				MathType mt = MathType.of(op & 0xF);
+				if ((mt == MathType.DIV || mt == MathType.REM) &&
+					(NativeInstruction.encoding(op) !=
+						NativeInstructionType.MATH_CONST_INT ||
+					__Optimizer__.__int(__i._args[1]) == 0))
+					return false;
+				
+				d = __Optimizer__.__int(__i._args[2]);
+				break;
+			
+			default:
+				return false;
+		}
+		
+		// Globals are always kept
+		return d >= NativeCode.ARGUMENT_REGISTER_BASE;
+	}
+	
+	/**
+	 * Is this an instruction which never goes to the next instruction?
+	 *
+	 * @param __op The operation.
+	 * @return If this never goes to the next instruction.
+	 * @since 2020/07/29
+	 */
+	private static boolean __isTerminal(int __op)
+	{
+		return __op == NativeInstructionType.RETURN ||
+			__Optimizer__.__isGoto(__op);
+	}
+	
+	/**
+	 * Returns the label of a jump.
+	 *
+	 * @param __i The jump.
+	 * @return The label it jumps to.
+	 * @since 2020/07/29
+	 */
+	private static NativeCodeLabel __label(NativeInstruction __i)
+	{
+		return (NativeCodeLabel)__i._args[2];
+	}
+	
+	/**
+	 * Performs math on two values.
+	 *
+	 * @param __mt The math type.
+	 * @param __a The first value.
+	 * @param __b The second value.
+	 * @return The result.
+	 * @since 2020/07/29
+	 */
+	private static int __math(MathType __mt, int __a, int __b)
+	{
+		switch (__mt)
+		{
+			case ADD:		return __a + __b;
+			case SUB:		return __a - __b;
+			case MUL:		return __a * __b;
+			case DIV:		return __a / __b;
+			case REM:		return __a % __b;
+			case NEG:		return -__a;
+			case SHL:		return __a << __b;
+			case SHR:		return __a >> __b;
+			case USHR:		return __a >>> __b;
+			case AND:		return __a & __b;
+			case OR:		return __a | __b;
+			case XOR:		return __a ^ __b;
+			case SIGNX8:	return (byte)__a;
+			case SIGNX16:	return (short)__a;
+			
+			case CMPL:
+			case CMPG:
+				return (__a < __b ? -1 : (__a == __b ? 0 : 1));
+			
+				// {@squirreljme.error JC4u Cannot fold an unknown math
+				// operation. (The math operation)}
+			default:
+				throw new IllegalArgumentException("JC4u " + __mt);
+		}
+	}
+	
+	/**
+	 * Replaces the registers used by an instruction with the registers
+	 * they are copies of.
+	 *
+	 * @param __i The instruction.
+	 * @param __copyof What each register is a copy of.
+	 * @param __copies The registers which are copies.
+	 * @return The instruction, which may be the same instruction.
+	 * @since 2020/07/29
+	 */
+	private static NativeInstruction __replaceUses(NativeInstruction __i,
+		int[] __copyof, long __copies)
+	{
+		int op = __i.op;
+		Object[] args = __i._args;
+		
+		// Every register argument which is not set is used
+		ArgumentFormat[] afmt = NativeInstruction.argumentFormat(op);
+		int defarg = __Optimizer__.__defArg(op);
+		Object[] newargs = null;
+		for (int j = 0, n = afmt.length; j < n; j++)
+		{
+			if (j == defarg)
+				continue;
+			
+			// Replace single register
+			if (afmt[j] == ArgumentFormat.VUREG)
+			{
+				int r = __Optimizer__.__int(args[j]);
+				if ((__copies & (1L << r)) == 0)
+					continue;
+				
+				if (newargs == null)
+					newargs = args.clone();
+				newargs[j] = __copyof[r];
+			}
+			
+			// Replace within the register list
+			else if (afmt[j] == ArgumentFormat.REGLIST)
+			{
+				RegisterList list = (RegisterList)args[j];
+				int[] regs = null;
+				for (int k = 0, kn = list.size(); k < kn; k++)
+				{
+					int r = list.get(k);
+					if ((__copies & (1L << r)) == 0)
+						continue;
+					
+					if (regs == null)
+					{
+						regs = new int[kn];
+						for (int l = 0; l < kn; l++)
+							regs[l] = list.get(l);
+					}
+					regs[k] = __copyof[r];
+				}
+				
+				if (regs == null)
+					continue;
+				
+				if (newargs == null)
+					newargs = args.clone();
+				newargs[j] = new RegisterList(regs);
+			}
+		}
+		
+		if (newargs == null)
+			return __i;
+		return new NativeInstruction(op, newargs);
+	}
+	
+	/**
+	 * Returns the registers which are used by the instruction.
+	 *
+	 * @param __i The instruction.
+	 * @return The registers which are used.
+	 * @since 2020/07/29
+	 */
+	private static long __uses(NativeInstruction __i)
+	{
+		int op = __i.op;
+		Object[] args = __i._args;
+		int defarg = __Optimizer__.__defArg(op);
+		
+		long rv = 0;
+		switch (NativeInstruction.encoding(op))
+		{
+				// Everything may be looked at
+			case NativeInstructionType.BREAKPOINT:
+				return ~0L;
+			
+			case NativeInstructionType.RETURN:
+				return __Optimizer__._RETURN_USES;
+			
+			case NativeInstructionType.LOAD_POOL:
+				return 1L << NativeCode.POOL_REGISTER;
+			
+			case NativeInstructionType.STORE_POOL:
+				return (1L << NativeCode.POOL_REGISTER) |
+					(1L << __Optimizer__.__int(args[1]));
+			
+			case NativeInstructionType.INVOKE:
+			case NativeInstructionType.SYSTEM_CALL:
+				{
+					rv = __Optimizer__._GLOBALS |
+						(1L << __Optimizer__.__int(args[0]));
+					
+					RegisterList list = (RegisterList)args[1];
+					for (int j = 0, n = list.size(); j < n; j++)
+						rv |= 1L << list.get(j);
+				}
+				return rv;
+		}
+		
+		// Every other register argument which is not set is used
+		ArgumentFormat[] afmt = NativeInstruction.argumentFormat(op);
+		for (int j = 0, n = afmt.length; j < n; j++)
+			if (j != defarg && afmt[j] == ArgumentFormat.VUREG)
+				rv |= 1L << __Optimizer__.__int(args[j]);
+		
+		return rv;
+	}
+}
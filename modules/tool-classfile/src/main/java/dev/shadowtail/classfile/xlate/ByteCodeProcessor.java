@@ -140,6 +140,9 @@ public final class ByteCodeProcessor
 		Map<Integer, JavaStackState> stacks = state.stacks;
 		Map<Integer, StateOperations> stackpoison = state.stackpoison;
 		
+		// Most instructions are not jumped to, so they share this
+		InstructionJumpTargets nojumps = new InstructionJumpTargets();
+		
 		// Go through each operation twice, performing pre-processing first
 		// to make things a bit simpler and more well known when it comes
 		// to caching.
@@ -195,8 +198,7 @@ public final class ByteCodeProcessor
 				// Reverse jump targets are used to detect jumps to previous
 				// addresses
 				rijt = this._revjumps.get(addr);
-				state.reversejumptargets = (rijt != null ? rijt :
-					new InstructionJumpTargets());
+				state.reversejumptargets = (rijt != null ? rijt : nojumps);
 				
 				// Get the stack, which must exist
 				JavaStackState stack = stacks.get(addr);
@@ -1480,8 +1482,7 @@ public final class ByteCodeProcessor
 				// Lazily calculate the exception handler since it might
 				// not always be needed
 				if (isexception && hypoex == null)
-					hypoex = newstack.doExceptionHandler(new JavaType(
-						new ClassName("java/lang/Throwable"))).after();
+					hypoex = newstack.doExceptionHandler().after();
 				
 				// The type of stack to target
 				JavaStackState use = (isexception ? hypoex : newstack);
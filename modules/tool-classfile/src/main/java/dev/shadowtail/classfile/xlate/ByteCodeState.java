@@ -24,7 +24,10 @@ import net.multiphasicapps.classfile.MethodName;
  */
 public class ByteCodeState
 {
-	/** The positions of all the stack information. */
+	/**
+	 * The positions of all the stack information, since natural flow is
+	 * also a jump target this has a state for every instruction.
+	 */
 	public final Map<Integer, JavaStackState> stacks =
 		new LinkedHashMap<>();
 		
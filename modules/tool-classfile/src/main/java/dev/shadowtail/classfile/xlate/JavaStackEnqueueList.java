@@ -9,14 +9,12 @@
 
 package dev.shadowtail.classfile.xlate;
 
-import cc.squirreljme.runtime.cldc.util.SortedTreeSet;
 import java.lang.ref.Reference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Set;
 
 /**
  * This contains every register which can be cleared after the specified
@@ -53,29 +51,17 @@ public final class JavaStackEnqueueList
 	{
 		// Bin the registers into unique local and stack entries
 		__rs = (__rs == null ? new int[0] : __rs.clone());
-		Set<Integer> ll = new SortedTreeSet<>(),
-			ls = new SortedTreeSet<>();
-		for (int i = 0, n = __rs.length; i < n; i++)
-		{
-			int v = __rs[i];
-			
-			if (i < __ss)
-				ll.add(v);
-			else
-				ls.add(v);
-		}
+		int n = __rs.length,
+			ss = Math.max(0, Math.min(__ss, n));
 		
-		// Setup new resulting array
-		int[] registers = new int[ll.size() + ls.size()];
-		int at = 0;
-		for (int v : ll)
-			registers[at++] = v;
-		for (int v : ls)
-			registers[at++] = v;
+		// Both bins are sorted and have their duplicates removed, this can
+		// be done in place since no more entries are written than are read
+		int numlocals = JavaStackEnqueueList.__unique(__rs, 0, ss, 0),
+			at = JavaStackEnqueueList.__unique(__rs, ss, n, numlocals);
 		
 		// Set
-		this._registers = registers;
-		this.stackstart = ll.size();
+		this._registers = (at == n ? __rs : Arrays.copyOf(__rs, at));
+		this.stackstart = numlocals;
 	}
 	
 	/**
@@ -89,38 +75,7 @@ public final class JavaStackEnqueueList
 	public JavaStackEnqueueList(int __ss, Iterable<Integer> __rs)
 		throws NullPointerException
 	{
-		if (__rs == null)
-			throw new NullPointerException("NARG");
-		
-		// Copy input list
-		List<Integer> inreg = new ArrayList<>();
-		for (Integer i : __rs)
-			inreg.add(i);
-		
-		// Bin the registers into unique local and stack entries
-		Set<Integer> ll = new SortedTreeSet<>(),
-			ls = new SortedTreeSet<>();
-		for (int i = 0, n = inreg.size(); i < n; i++)
-		{
-			int v = inreg.get(i);
-			
-			if (i < __ss)
-				ll.add(v);
-			else
-				ls.add(v);
-		}
-		
-		// Setup new resulting array
-		int[] registers = new int[ll.size() + ls.size()];
-		int at = 0;
-		for (int v : ll)
-			registers[at++] = v;
-		for (int v : ls)
-			registers[at++] = v;
-		
-		// Set
-		this._registers = registers;
-		this.stackstart = ll.size();
+		this(__ss, JavaStackEnqueueList.__toArray(__rs));
 	}
 	
 	/**
@@ -434,6 +389,64 @@ public final class JavaStackEnqueueList
 		return new JavaStackEnqueueList(numlocals, locals);
 	}
 	
+	/**
+	 * Copies the registers into an array.
+	 *
+	 * @param __rs The registers to copy.
+	 * @return The array of registers.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private static int[] __toArray(Iterable<Integer> __rs)
+		throws NullPointerException
+	{
+		if (__rs == null)
+			throw new NullPointerException("NARG");
+		
+		// Copy input list
+		List<Integer> inreg = new ArrayList<>();
+		for (Integer i : __rs)
+			inreg.add(i);
+		
+		int n = inreg.size();
+		int[] rv = new int[n];
+		for (int i = 0; i < n; i++)
+			rv[i] = inreg.get(i);
+		
+		return rv;
+	}
+	
+	/**
+	 * Sorts the given range of registers and moves the unique registers
+	 * down to the given index.
+	 *
+	 * @param __rs The registers.
+	 * @param __from The start of the range.
+	 * @param __to The end of the range.
+	 * @param __at The index where the unique registers are written, this
+	 * must not be higher than the start of the range.
+	 * @return The index after the last unique register.
+	 * @since 2020/07/29
+	 */
+	private static int __unique(int[] __rs, int __from, int __to, int __at)
+	{
+		// Sorting places duplicates next to each other
+		if (__to - __from > 1)
+			Arrays.sort(__rs, __from, __to);
+		
+		// The previous entry may have been written over, so remember it
+		int last = 0;
+		for (int i = __from; i < __to; i++)
+		{
+			int v = __rs[i];
+			if (i == __from || v != last)
+				__rs[__at++] = v;
+			last = v;
+		}
+		
+		return __at;
+	}
+	
 	/**
 	 * Iterator over stack slots.
 	 *
@@ -11,9 +11,7 @@ package dev.shadowtail.classfile.xlate;
 
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import net.multiphasicapps.classfile.ClassName;
 import net.multiphasicapps.classfile.JavaType;
 
@@ -90,23 +88,32 @@ public final class JavaStackResult
 		if (__bs == null || __as == null)
 			throw new NullPointerException("NARG");
 		
-		// Sort through input/output and put into their own pile
-		List<Input> in = new ArrayList<>();
-		List<Output> out = new ArrayList<>();
-		for (InputOutput x : (__io = (__io == null ?
-			new InputOutput[0] : __io.clone())))
+		// Count the inputs so they can be sorted into their own pile
+		if (__io == null)
+			__io = new InputOutput[0];
+		int numin = 0;
+		for (InputOutput x : __io)
 			if (x == null)
 				throw new NullPointerException("NARG");
 			else if (x instanceof Input)
-				in.add((Input)x);
+				numin++;
+		
+		// Sort through input/output and put into their own pile
+		Input[] in = new Input[numin];
+		Output[] out = new Output[__io.length - numin];
+		int ni = 0,
+			no = 0;
+		for (InputOutput x : __io)
+			if (x instanceof Input)
+				in[ni++] = (Input)x;
 			else
-				out.add((Output)x);
+				out[no++] = (Output)x;
 		
 		this.before = __bs;
 		this.after = __as;
 		this.enqueue = (__eq == null ? new JavaStackEnqueueList(0) : __eq);
-		this._in = in.<Input>toArray(new Input[in.size()]);
-		this._out = out.<Output>toArray(new Output[out.size()]);
+		this._in = in;
+		this._out = out;
 		this.ops = (__ops == null ? new StateOperations() : __ops);
 		
 		// Debug
@@ -117,8 +124,8 @@ public final class JavaStackResult
 			todo.DEBUG.note("AFT: %s", __as);
 			if (__eq != null && !__eq.isEmpty())
 				todo.DEBUG.note("ENQ: %s", __eq);
-			todo.DEBUG.note("IN : %s", in);
-			todo.DEBUG.note("OUT: %s", out);
+			todo.DEBUG.note("IN : %s", Arrays.asList(in));
+			todo.DEBUG.note("OUT: %s", Arrays.asList(out));
 			if (__ops != null && !__ops.isEmpty())
 				todo.DEBUG.note("OPS: %s", __ops);
 			todo.DEBUG.note("********************");
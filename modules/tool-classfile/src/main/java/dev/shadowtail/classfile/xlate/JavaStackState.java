@@ -14,9 +14,7 @@ import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import net.multiphasicapps.classfile.InvalidClassFormatException;
 import net.multiphasicapps.classfile.JavaType;
 import net.multiphasicapps.classfile.StackMapTableEntry;
@@ -26,7 +24,10 @@ import net.multiphasicapps.classfile.StackMapTableState;
  * This class contains the state of the Java stack, it is mostly used in
  * the generation of the register code as it handles caching as well.
  *
- * This class is immutable.
+ * This class is immutable, however the arrays of unchanged locals and stack
+ * entries are shared between states since they are never written to. States
+ * are kept for every instruction and are used as keys for exception and
+ * class handling, so there is no mutable working form of this state.
  *
  * @since 2019/03/30
  */
@@ -66,17 +67,42 @@ public final class JavaStackState
 	 */
 	public JavaStackState(Info[] __l, Info[] __s, int __ss)
 		throws NullPointerException
+	{
+		this(__l, __s, __ss, true);
+	}
+	
+	/**
+	 * Initializes the stack state, the state will be modified to ensure that
+	 * it is correct for normalization purposes.
+	 *
+	 * If the arrays are not copied then they are used as is and may be
+	 * shared with other states, so they must never be written to after
+	 * this is called. The stack is copied if it needs to be normalized.
+	 *
+	 * @param __l The locals.
+	 * @param __s The stack.
+	 * @param __ss The top of the stack.
+	 * @param __copy Should the arrays be copied and checked?
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private JavaStackState(Info[] __l, Info[] __s, int __ss, boolean __copy)
+		throws NullPointerException
 	{
 		if (__l == null || __s == null)
 			throw new NullPointerException("NARG");
 		
-		for (Info i : (__l = __l.clone()))
-			if (i == null)
-				throw new NullPointerException("NARG");
-		
-		for (Info i : (__s = __s.clone()))
-			if (i == null)
-				throw new NullPointerException("NARG");
+		// Copy the input arrays since they come from the outside
+		if (__copy)
+		{
+			for (Info i : (__l = __l.clone()))
+				if (i == null)
+					throw new NullPointerException("NARG");
+			
+			for (Info i : (__s = __s.clone()))
+				if (i == null)
+					throw new NullPointerException("NARG");
+		}
 		
 		// Make sure locals are correct
 		for (int i = 0, n = __l.length; i < n; i++)
@@ -93,13 +119,24 @@ public final class JavaStackState
 			}
 		}
 		
+		// The stack is only copied when something in it has to change
+		boolean owned = __copy;
+		
 		// Correct pre-stack entries?
 		for (int i = 0; i < __ss; i++)
 		{
 			Info x = __s[i];
 			if (x.readonly)
+			{
+				if (!owned)
+				{
+					__s = __s.clone();
+					owned = true;
+				}
+				
 				__s[i] = (x = new Info(x.register, x.type, x.value, false,
 					x.nocounting));
+			}
 			
 			// Checks if there is something here
 			if (!x.type.isNothing())
@@ -117,8 +154,16 @@ public final class JavaStackState
 			Info x = __s[i];
 			if (!x.type.isNothing() || x.value != -1 || x.readonly ||
 				x.nocounting)
+			{
+				if (!owned)
+				{
+					__s = __s.clone();
+					owned = true;
+				}
+				
 				__s[i] = (x = new Info(x.register, JavaType.NOTHING, -1, false,
 					false));
+			}
 		}
 		
 		// Set
@@ -231,7 +276,7 @@ public final class JavaStackState
 		}
 		
 		// Build it
-		return new JavaStackState(this._locals, stack, stacktop);
+		return new JavaStackState(this._locals, stack, stacktop, false);
 	}
 	
 	/**
@@ -303,7 +348,7 @@ public final class JavaStackState
 		
 		// Create the result
 		return new JavaStackResult(this,
-			new JavaStackState(this._locals, newstack, stacktop),
+			new JavaStackState(this._locals, newstack, stacktop, false),
 			enq,
 			new StateOperations(),
 			JavaStackResult.makeInput(topitem));
@@ -381,7 +426,7 @@ public final class JavaStackState
 		
 		// Create result
 		return new JavaStackResult(this,
-			new JavaStackState(newlocals, stack, 0),
+			new JavaStackState(newlocals, stack, 0, false),
 			new JavaStackEnqueueList(eqss, enqueue),
 			new StateOperations(sops),
 			io.<JavaStackResult.InputOutput>toArray(
@@ -453,7 +498,7 @@ public final class JavaStackState
 		// Build result, only stack items were enqueued so all entries are
 		// stack entries
 		return new JavaStackResult(this,
-			new JavaStackState(this._locals, newstack, 1),
+			new JavaStackState(this._locals, newstack, 1, false),
 			new JavaStackEnqueueList(0, enq),
 			new StateOperations(ops),
 			JavaStackResult.makeOutput(dest));
@@ -501,7 +546,8 @@ public final class JavaStackState
 		
 		// Create resulting state
  		return new JavaStackResult(this,
-			new JavaStackState(this._locals, newstack, stacktop + space),
+			new JavaStackState(this._locals, newstack, stacktop + space,
+				false),
 			null,
 			JavaStackResult.makeInput(from),
 			JavaStackResult.makeOutput(dest));
@@ -608,7 +654,7 @@ public final class JavaStackState
 		
 		// Create resulting state
  		return new JavaStackResult(this,
-			new JavaStackState(newlocals, newstack, stacktop),
+			new JavaStackState(newlocals, newstack, stacktop, false),
 			new JavaStackEnqueueList(enq.size(), enq),
 			new StateOperations(ops),
 			JavaStackResult.makeOutput(pushed));
@@ -708,8 +754,9 @@ public final class JavaStackState
 		if (__n < 0)
 			throw new IllegalArgumentException("JC1l");
 		
-		// Force blank types for pushing
-		__pts = (__pts == null ? new JavaType[0] : __pts.clone());
+		// Force blank types for pushing, these are only read from
+		if (__pts == null)
+			__pts = new JavaType[0];
 		for (JavaType pt : __pts)
 			if (pt == null)
 				throw new NullPointerException("NARG");
@@ -723,13 +770,18 @@ public final class JavaStackState
 		int stacktop = this.stacktop,
 			stacklimit = stack.length;
 		
+		// Inputs are the popped entries and outputs are the pushed entries
+		int numpush = __pts.length;
+		JavaStackResult.InputOutput[] ios =
+			new JavaStackResult.InputOutput[__n + numpush];
+		
 		// Enqueues to clear popped entries
-		List<Integer> enqs = new ArrayList<>();
-		List<StateOperation> ops = new ArrayList<>();
+		int[] enqs = new int[__n];
+		int numenqs = 0;
 		
-		// Pop entries off the stack first
-		List<Info> popped = new ArrayList<>();
-		for (int i = 0; i < __n; i++)
+		// Pop entries off the stack first, since these are popped in reverse
+		// they are placed in the input from the end
+		for (int i = __n - 1; i >= 0; i--)
 		{
 			// {@squirreljme.error JC1n Stack underflow.}
 			if (stacktop <= 0)
@@ -743,19 +795,23 @@ public final class JavaStackState
 			// Only enqueue objects which are counting and which do not have
 			// values of another register
 			if (inf.canEnqueue())
-				enqs.add(inf.value);
+				enqs[numenqs++] = inf.value;
 			
-			// Was popped, so add to to the pop list
-			popped.add(0, inf);
+			// Convert to input, note that there is a rare case in the
+			// compiler where it nukes stack entries to nothing.
+			ios[i] = (inf.isNothing() ? JavaStackResult.INPUT_ZERO :
+				JavaStackResult.makeInput(inf));
 		}
 		
-		// Setup new stack for pushing
-		Info[] newstack = stack.clone();
+		// Setup new stack for pushing, if nothing is pushed then the stack
+		// entries are only cleared which is done when the state is made
+		Info[] newstack = (numpush == 0 ? stack : stack.clone());
 		
 		// Push new entries to the stack
-		List<Info> pushed = new ArrayList<>();
-		for (JavaType pt : __pts)
+		for (int p = 0; p < numpush; p++)
 		{
+			JavaType pt = __pts[p];
+			
 			// {@squirreljme.error JC1o Stack overflow. (Top; Limit)}
 			if (stacktop >= stacklimit)
 				throw new IllegalArgumentException("JC1o " + stacktop + " " +
@@ -773,26 +829,17 @@ public final class JavaStackState
 				stacktop++;
 			}
 			
-			// Add to pushed set
-			pushed.add(inf);
+			// Add to the output
+			ios[__n + p] = JavaStackResult.makeOutput(inf);
 		}
 		
-		// Convert infos to I/O, note that there is a rare case in the compiler
-		// where it nukes stack entries to nothing.
-		List<JavaStackResult.InputOutput> ios = new ArrayList<>();
-		for (Info i : popped)
-			ios.add((i.isNothing() ? JavaStackResult.INPUT_ZERO :
-				JavaStackResult.makeInput(i)));
-		for (Info o : pushed)
-			ios.add(JavaStackResult.makeOutput(o));
-		
 		// Build result
 		return new JavaStackResult(this,
-			new JavaStackState(this._locals, newstack, stacktop),
-			new JavaStackEnqueueList(enqs.size(), enqs),
-			new StateOperations(ops),
-			ios.<JavaStackResult.InputOutput>toArray(
-				new JavaStackResult.InputOutput[ios.size()]));
+			new JavaStackState(this._locals, newstack, stacktop, false),
+			new JavaStackEnqueueList(numenqs, (numenqs == __n ? enqs :
+				Arrays.copyOf(enqs, numenqs))),
+			(StateOperations)null,
+			ios);
 	}
 	
 	/**
@@ -821,32 +868,29 @@ public final class JavaStackState
 		int maxpop = func.in.max,
 			basetop = stacktop - maxpop;
 		
-		// Load section of stack to be popped
-		List<Info> pops = new ArrayList<>(maxpop);
-		for (int i = basetop; i < stacktop; i++)
-			pops.add(stack[i]);
-		
 		// Input and output slots
 		JavaStackShuffleType.Slots sin = func.in,
 			sout = func.out;
 		
 		// Map virtual variables to entries on the input so we know what is
 		// what. Also include the register values are stored at for caching.
-		Map<Integer, Info> source = new LinkedHashMap<>();
-		Map<Integer, Integer> storedat = new LinkedHashMap<>();
+		// Variables are lettered in order so there are never more variables
+		// than there are entries being popped.
+		Info[] source = new Info[maxpop];
+		int[] storedat = new int[maxpop];
 		for (int ldx = 0; ldx < maxpop; ldx++)
 		{
 			int var = sin._var[ldx];
 			if (var >= 0)
 			{
-				source.put(var, pops.get(ldx));
-				storedat.put(var, -1);
+				source[var] = stack[basetop + ldx];
+				storedat[var] = -1;
 			}
 		}
 		
 		// Debug
 		if (__Debug__.ENABLED)
-			todo.DEBUG.note("Source map: %s", source);
+			todo.DEBUG.note("Source map: %s", Arrays.asList(source));
 		
 		// Number of entries to push
 		int pushcount = sout.max;
@@ -855,14 +899,16 @@ public final class JavaStackState
 		Info[] newstack = stack.clone();
 		int newstacktop = basetop + pushcount;
 		
-		// Any enqueues and operations to perform
-		List<Integer> enqs = new ArrayList<>();
+		// Any operations to perform
 		List<StateOperation> sops = new ArrayList<>();
 		
 		// For registers which have a value collision, they must be
-		// pre-copied to temporary space
+		// pre-copied to temporary space, these are kept in the order they
+		// were added. There can only be a single pre-copy per pushed entry.
 		int tempbase = this.usedregisters;
-		Map<Integer, Integer> precopy = new LinkedHashMap<>();
+		int[] precopyfrom = new int[pushcount],
+			precopyto = new int[pushcount];
+		int numprecopy = 0;
 		
 		// Setup the new stack by pushing around
 		for (int at = basetop, ldx = 0; ldx < pushcount; at++, ldx++)
@@ -882,7 +928,7 @@ public final class JavaStackState
 			
 			// Get the source info to use for this slot
 			// Also the original destination
-			Info ssl = source.get(vardx),
+			Info ssl = source[vardx],
 				ods = newstack[at];
 				
 			// Is this type wide?
@@ -890,7 +936,7 @@ public final class JavaStackState
 			
 			// If the value was never used before, try to use the original
 			// register for it
-			int useval = storedat.get(vardx);
+			int useval = storedat[vardx];
 			if (useval < 0)
 				useval = ssl.value;
 			
@@ -900,11 +946,20 @@ public final class JavaStackState
 			{
 				// Try to use an already copied value, if it has not yet had
 				// a pre-copy then map it to the copied source instead
-				Integer pre = precopy.get(useval);
-				if (pre == null)
+				int pre = 0;
+				boolean hadpre = false;
+				for (int i = 0; i < numprecopy; i++)
+					if (precopyfrom[i] == useval)
+					{
+						pre = precopyto[i];
+						hadpre = true;
+						break;
+					}
+				if (!hadpre)
 				{
-					precopy.put(useval,
-						(pre = (iswide ? -tempbase : tempbase)));
+					pre = (iswide ? -tempbase : tempbase);
+					precopyfrom[numprecopy] = useval;
+					precopyto[numprecopy++] = pre;
 					tempbase += (iswide ? 2 : 1);
 				}
 				
@@ -919,7 +974,7 @@ public final class JavaStackState
 			}
 			
 			// Set value as being stored here
-			storedat.put(vardx, useval);
+			storedat[vardx] = useval;
 			
 			// Setup slot
 			newstack[at] = newstack[at].newTypeValue(ssl.type, useval,
@@ -929,15 +984,14 @@ public final class JavaStackState
 		// Pre-copies which are needed, but make sure that the original
 		// link order is maintained, negative premaps are treated as
 		// being wide
-		int vdat = 0;
-		for (Map.Entry<Integer, Integer> e : precopy.entrySet())
-			sops.add(vdat++, StateOperation.copy(
-				e.getValue() < 0, e.getKey(), Math.abs(e.getValue())));
+		for (int i = 0; i < numprecopy; i++)
+			sops.add(i, StateOperation.copy(
+				precopyto[i] < 0, precopyfrom[i], Math.abs(precopyto[i])));
 		
 		// Build
 		return new JavaStackResult(this,
-			new JavaStackState(this._locals, newstack, newstacktop),
-			new JavaStackEnqueueList(enqs.size(), enqs),
+			new JavaStackState(this._locals, newstack, newstacktop, false),
+			new JavaStackEnqueueList(0),
 			new StateOperations(sops));
 	}
 	
@@ -1196,7 +1250,7 @@ public final class JavaStackState
 		
 		// Only return a new state if it actually changed
 		if (changed)
-			return new JavaStackState(locals, stack, stacktop);
+			return new JavaStackState(locals, stack, stacktop, false);
 		return this;
 	}
 	
@@ -1298,8 +1352,8 @@ public final class JavaStackState
 		int hash = this._hash;
 		if (hash == 0)
 			this._hash = (hash = this.stacktop -
-				Arrays.asList(this._locals).hashCode() ^
-				Arrays.asList(this._stack).hashCode());
+				JavaStackState.__hashCode(this._locals) ^
+				JavaStackState.__hashCode(this._stack));
 		return hash;
 	}
 	
@@ -1360,7 +1414,7 @@ public final class JavaStackState
 		}
 		
 		// Build, do not return the new object if it ends up being the same
-		JavaStackState rv = new JavaStackState(locals, stack, stacktop);
+		JavaStackState rv = new JavaStackState(locals, stack, stacktop, false);
 		if (this.equals(rv))
 			return this;
 		return rv;
@@ -1488,7 +1542,23 @@ public final class JavaStackState
 		}
 		
 		// Build it
-		return new JavaStackState(locals, stack, stacktop);
+		return new JavaStackState(locals, stack, stacktop, false);
+	}
+	
+	/**
+	 * Calculates the hash code of the given information, this is the same
+	 * as the hash code of a list of them.
+	 *
+	 * @param __i The information to hash.
+	 * @return The hash code.
+	 * @since 2020/07/29
+	 */
+	private static int __hashCode(Info[] __i)
+	{
+		int rv = 1;
+		for (Info i : __i)
+			rv = (31 * rv) + i.hashCode();
+		return rv;
 	}
 	
 	/**
@@ -1643,10 +1713,12 @@ public final class JavaStackState
 		public final Info newTypeValue(JavaType __t, int __v, boolean __nc)
 			throws NullPointerException
 		{
-			Info rv = new Info(this.register, __t, __v, false, __nc);
-			if (this.equals(rv))
+			if (__t == null)
+				throw new NullPointerException("NARG");
+			
+			if (this.__isSame(__t, __v, __nc))
 				return this;
-			return rv;
+			return new Info(this.register, __t, __v, false, __nc);
 		}
 		
 		/**
@@ -1659,10 +1731,39 @@ public final class JavaStackState
 		 */
 		public final Info newValue(int __v, boolean __nc)
 		{
-			Info rv = new Info(this.register, this.type, __v, false, __nc);
-			if (this.equals(rv))
+			if (this.__isSame(this.type, __v, __nc))
 				return this;
-			return rv;
+			return new Info(this.register, this.type, __v, false, __nc);
+		}
+		
+		/**
+		 * Checks if this information would be the same as information with
+		 * the given type and value, this is done in the same way as the
+		 * constructor so that no new information needs to be created when
+		 * it would be equal to this one.
+		 *
+		 * @param __t The type to use.
+		 * @param __v The value to use.
+		 * @param __nc Do not count this?
+		 * @return If the information would be the same.
+		 * @since 2020/07/29
+		 */
+		private boolean __isSame(JavaType __t, int __v, boolean __nc)
+		{
+			// The resulting information is never read-only
+			if (this.readonly || !this.type.equals(__t))
+				return false;
+			
+			// Same value normalization as the constructor
+			int register = this.register;
+			if (!__t.isNothing() && __v < 0)
+				__v = register;
+			if (__t.isNothing())
+				__v = -1;
+			
+			return this.value == __v &&
+				this.nocounting == (__t.isObject() &&
+					(__nc || register != __v || __v < 0));
 		}
 		
 		/**
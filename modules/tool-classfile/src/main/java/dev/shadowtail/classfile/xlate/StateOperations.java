@@ -25,6 +25,10 @@ import net.multiphasicapps.collections.UnmodifiableIterator;
 public final class StateOperations
 	implements Iterable<StateOperation>
 {
+	/** No operations, this is shared since it cannot be changed. */
+	private static final StateOperation[] _NO_OPS =
+		new StateOperation[0];
+	
 	/** The operations. */
 	private final StateOperation[] _ops;
 	
@@ -44,8 +48,8 @@ public final class StateOperations
 	public StateOperations(StateOperation... __ops)
 		throws NullPointerException
 	{
-		for (StateOperation x : (__ops = (__ops == null ?
-			new StateOperation[0] : __ops.clone())))
+		for (StateOperation x : (__ops = (__ops == null ||
+			__ops.length == 0 ? StateOperations._NO_OPS : __ops.clone())))
 			if (x == null)
 				throw new NullPointerException("NARG");
 		
@@ -72,8 +76,8 @@ public final class StateOperations
 			else
 				out.add(x);
 		
-		this._ops = out.<StateOperation>toArray(
-			new StateOperation[out.size()]);
+		this._ops = (out.isEmpty() ? StateOperations._NO_OPS :
+			out.<StateOperation>toArray(new StateOperation[out.size()]));
 	}
 	
 	/**
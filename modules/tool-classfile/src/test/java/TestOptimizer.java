@@ -0,0 +1,267 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+import dev.shadowtail.classfile.nncc.NativeCode;
+import dev.shadowtail.classfile.nncc.NativeCodeBuilder;
+import dev.shadowtail.classfile.nncc.NativeCodeLabel;
+import dev.shadowtail.classfile.nncc.NativeInstruction;
+import dev.shadowtail.classfile.nncc.NativeInstructionType;
+import dev.shadowtail.classfile.nncc.RegisterList;
+import dev.shadowtail.classfile.xlate.CompareType;
+import dev.shadowtail.classfile.xlate.MathType;
+import dev.shadowtail.classfile.xlate.StackJavaType;
+import net.multiphasicapps.tac.TestRunnable;
+
+/**
+ * Tests that the optimization passes on native code are performed properly.
+ *
+ * @since 2020/07/29
+ */
+public class TestOptimizer
+	extends TestRunnable
+{
+	/** The first register which is not global. */
+	private static final int _LOCAL =
+		NativeCode.ARGUMENT_REGISTER_BASE;
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public void test()
+		throws Throwable
+	{
+		// Branches on known values are folded
+		this.secondary("constant-none",
+			TestOptimizer.__constant().build("none").length());
+		this.secondary("constant",
+			TestOptimizer.__string(TestOptimizer.__constant()
+				.build("constant")));
+		
+		// Copies are replaced with the original, the copy is removed when
+		// it is no longer used
+		this.secondary("copy",
+			TestOptimizer.__string(TestOptimizer.__copy().build("copy")));
+		this.secondary("copy-dead",
+			TestOptimizer.__string(TestOptimizer.__copy()
+				.build("copy,dead")));
+		
+		// Gotos to gotos and returns are threaded
+		this.secondary("jump",
+			TestOptimizer.__string(TestOptimizer.__jump().build("jump")));
+		
+		// Unreachable code and unused values are removed
+		this.secondary("dead",
+			TestOptimizer.__string(TestOptimizer.__dead().build("dead")));
+		
+		// Globals are implicitly passed to invoked methods and are set by
+		// them, so they are never optimized away
+		this.secondary("invoke",
+			TestOptimizer.__string(TestOptimizer.__invoke().build("all")));
+		this.secondary("systemcall",
+			TestOptimizer.__string(TestOptimizer.__systemCall()
+				.build("all")));
+		
+		// Division by zero must still trap
+		this.secondary("divzero",
+			TestOptimizer.__string(TestOptimizer.__divZero().build("all")));
+		
+		// Passes which are turned off are not run
+		this.secondary("switch-all",
+			TestOptimizer.__dead().build(null).length());
+		this.secondary("switch-off",
+			TestOptimizer.__dead().build("all,-dead").length());
+		this.secondary("switch-none",
+			TestOptimizer.__dead().build("none").length());
+	}
+	
+	/**
+	 * Builds code with a branch on a known value.
+	 *
+	 * @return The code builder.
+	 * @since 2020/07/29
+	 */
+	private static NativeCodeBuilder __constant()
+	{
+		int r = TestOptimizer._LOCAL;
+		NativeCodeBuilder rv = new NativeCodeBuilder();
+		NativeCodeLabel done = new NativeCodeLabel("done", 0);
+		
+		rv.addMathConst(StackJavaType.INTEGER, MathType.ADD,
+			NativeCode.ZERO_REGISTER, 2, r);
+		rv.addIfICmp(CompareType.NOT_EQUALS, r, NativeCode.ZERO_REGISTER,
+			done);
+		rv.addCopy(r, NativeCode.RETURN_REGISTER);
+		rv.label(done);
+		rv.add(NativeInstructionType.RETURN);
+		
+		return rv;
+	}
+	
+	/**
+	 * Builds code which uses a copy of a register.
+	 *
+	 * @return The code builder.
+	 * @since 2020/07/29
+	 */
+	private static NativeCodeBuilder __copy()
+	{
+		int r = TestOptimizer._LOCAL;
+		NativeCodeBuilder rv = new NativeCodeBuilder();
+		
+		rv.addCopy(NativeCode.ARGUMENT_REGISTER_BASE + 4, r);
+		rv.addMathConst(StackJavaType.INTEGER, MathType.ADD, r, 1,
+			NativeCode.RETURN_REGISTER);
+		rv.add(NativeInstructionType.RETURN);
+		
+		return rv;
+	}
+	
+	/**
+	 * Builds code with unreachable code and unused values.
+	 *
+	 * @return The code builder.
+	 * @since 2020/07/29
+	 */
+	private static NativeCodeBuilder __dead()
+	{
+		int r = TestOptimizer._LOCAL;
+		NativeCodeBuilder rv = new NativeCodeBuilder();
+		NativeCodeLabel done = new NativeCodeLabel("done", 0);
+		
+		rv.addMathConst(StackJavaType.INTEGER, MathType.ADD,
+			NativeCode.RETURN_REGISTER, 5, r);
+		rv.addIfICmp(CompareType.EQUALS, NativeCode.RETURN_REGISTER,
+			NativeCode.RETURN_TWO_REGISTER, done);
+		rv.add(NativeInstructionType.RETURN);
+		rv.addCopy(r, NativeCode.RETURN_REGISTER);
+		rv.label(done);
+		rv.add(NativeInstructionType.RETURN);
+		
+		return rv;
+	}
+	
+	/**
+	 * Builds code which divides by zero.
+	 *
+	 * @return The code builder.
+	 * @since 2020/07/29
+	 */
+	private static NativeCodeBuilder __divZero()
+	{
+		int r = TestOptimizer._LOCAL;
+		NativeCodeBuilder rv = new NativeCodeBuilder();
+		
+		rv.addMathConst(StackJavaType.INTEGER, MathType.ADD,
+			NativeCode.ZERO_REGISTER, 7, r);
+		rv.addMathReg(StackJavaType.INTEGER, MathType.DIV, r,
+			NativeCode.ZERO_REGISTER, r + 1);
+		rv.addMathConst(StackJavaType.INTEGER, MathType.REM, r, 0, r + 2);
+		rv.add(NativeInstructionType.RETURN);
+		
+		return rv;
+	}
+	
+	/**
+	 * Builds code which invokes a method.
+	 *
+	 * @return The code builder.
+	 * @since 2020/07/29
+	 */
+	private static NativeCodeBuilder __invoke()
+	{
+		int r = TestOptimizer._LOCAL;
+		NativeCodeBuilder rv = new NativeCodeBuilder();
+		
+		// The value of the global is passed to the method
+		rv.addMathConst(StackJavaType.INTEGER, MathType.ADD,
+			NativeCode.ZERO_REGISTER, 3, NativeCode.NEXT_POOL_REGISTER);
+		
+		// This copy is of a register which the method sets
+		rv.addCopy(NativeCode.RETURN_REGISTER, r);
+		rv.add(NativeInstructionType.INVOKE, r + 1, new RegisterList(r));
+		rv.addCopy(r, NativeCode.RETURN_REGISTER);
+		rv.add(NativeInstructionType.RETURN);
+		
+		return rv;
+	}
+	
+	/**
+	 * Builds code with gotos which go to other gotos.
+	 *
+	 * @return The code builder.
+	 * @since 2020/07/29
+	 */
+	private static NativeCodeBuilder __jump()
+	{
+		NativeCodeBuilder rv = new NativeCodeBuilder();
+		NativeCodeLabel a = new NativeCodeLabel("a", 0),
+			b = new NativeCodeLabel("b", 0),
+			c = new NativeCodeLabel("c", 0);
+		
+		rv.addIfICmp(CompareType.EQUALS, NativeCode.RETURN_REGISTER,
+			NativeCode.RETURN_TWO_REGISTER, a);
+		rv.addGoto(c);
+		rv.label(a);
+		rv.addGoto(b);
+		rv.addCopy(NativeCode.RETURN_TWO_REGISTER,
+			NativeCode.RETURN_REGISTER);
+		rv.label(b);
+		rv.addGoto(c);
+		rv.addCopy(NativeCode.ZERO_REGISTER, NativeCode.RETURN_REGISTER);
+		rv.label(c);
+		rv.add(NativeInstructionType.RETURN);
+		
+		return rv;
+	}
+	
+	/**
+	 * Returns the string form of the given code.
+	 *
+	 * @param __c The code.
+	 * @return The string form.
+	 * @since 2020/07/29
+	 */
+	private static String __string(NativeCode __c)
+	{
+		StringBuilder sb = new StringBuilder();
+		for (NativeInstruction i : __c)
+		{
+			if (sb.length() > 0)
+				sb.append(' ');
+			sb.append(i);
+		}
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Builds code which performs a system call.
+	 *
+	 * @return The code builder.
+	 * @since 2020/07/29
+	 */
+	private static NativeCodeBuilder __systemCall()
+	{
+		int r = TestOptimizer._LOCAL;
+		NativeCodeBuilder rv = new NativeCodeBuilder();
+		
+		// The value of the global is used by the system call
+		rv.addMathConst(StackJavaType.INTEGER, MathType.ADD,
+			NativeCode.ZERO_REGISTER, 9, NativeCode.THREAD_REGISTER);
+		rv.addMathConst(StackJavaType.INTEGER, MathType.ADD,
+			NativeCode.ZERO_REGISTER, 1, r);
+		rv.add(NativeInstructionType.SYSTEM_CALL, r,
+			new RegisterList(NativeCode.ZERO_REGISTER));
+		rv.add(NativeInstructionType.RETURN);
+		
+		return rv;
+	}
+}
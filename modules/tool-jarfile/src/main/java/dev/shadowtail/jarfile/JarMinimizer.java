@@ -12,7 +12,6 @@ package dev.shadowtail.jarfile;
 import cc.squirreljme.vm.VMClassLibrary;
 import dev.shadowtail.classfile.mini.DualPoolEncodeResult;
 import dev.shadowtail.classfile.mini.DualPoolEncoder;
-import dev.shadowtail.classfile.mini.Minimizer;
 import dev.shadowtail.classfile.pool.DualClassRuntimePoolBuilder;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -20,7 +19,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Arrays;
-import net.multiphasicapps.classfile.ClassFile;
 import net.multiphasicapps.classfile.ClassName;
 import net.multiphasicapps.classfile.MethodName;
 import net.multiphasicapps.io.TableSectionOutputStream;
@@ -55,6 +53,9 @@ public final class JarMinimizer
 	/** Are we using our own dual pool? */
 	protected final boolean owndualpool;
 	
+	/** The cache for minimized classes, may be {@code null}. */
+	protected final MinimizedClassCache cache;
+	
 	/** The resulting JAR header. */
 	private MinimizedJarHeader _jheader;
 	
@@ -65,11 +66,12 @@ public final class JarMinimizer
 	 * use the pack-file global one.
 	 * @param __boot Is this a boot JAR?
 	 * @param __in The input library.
+	 * @param __cache The cache for minimized classes, may be {@code null}.
 	 * @throws NullPointerException On null arguments.
 	 * @since 2019/04/27
 	 */
 	private JarMinimizer(DualClassRuntimePoolBuilder __dp, boolean __boot,
-		VMClassLibrary __in)
+		VMClassLibrary __in, MinimizedClassCache __cache)
 		throws NullPointerException
 	{
 		if (__in == null)
@@ -77,6 +79,7 @@ public final class JarMinimizer
 			
 		this.boot = __boot;
 		this.input = __in;
+		this.cache = __cache;
 		
 		// Use the passed pool if it was passed, but otherwise just use one
 		// in the event one was not passed through (uses our own pool)
@@ -144,7 +147,41 @@ public final class JarMinimizer
 		// Buffer for byte copies
 		byte[] copybuf = new byte[512];
 		
-		// Go through and add every resource
+		// Read in every class, so that they can be decoded and prepared for
+		// minimization at the same time
+		byte[][] classdata = new byte[numrc][];
+		byte[] classbuf = new byte[512];
+		for (int i = 0; i < numrc; i++)
+		{
+			String rc = rcnames[i];
+			if (!JarMinimizer.__isClass(rc))
+				continue;
+			
+			try (InputStream in = input.resourceAsStream(rc);
+				ByteArrayOutputStream baos = new ByteArrayOutputStream())
+			{
+				for (;;)
+				{
+					int ll = in.read(classbuf);
+					
+					// EOF?
+					if (ll < 0)
+						break;
+					
+					baos.write(classbuf, 0, ll);
+				}
+				
+				classdata[i] = baos.toByteArray();
+			}
+		}
+		
+		// Prepare all of the classes
+		__ParallelMinimizer__ parallel =
+			new __ParallelMinimizer__(dualpool, classdata, this.cache);
+		parallel.prepareAll();
+		
+		// Go through and add every resource, this is done in order so that
+		// the resulting pool and layout are always the same
 		for (int i = 0; i < numrc; i++)
 		{
 			// Resource to encode/copy
@@ -158,12 +195,11 @@ public final class JarMinimizer
 			try (InputStream in = input.resourceAsStream(rc))
 			{
 				// Minimizing class file if it is a valid class
-				if (rc.endsWith(".class") && ClassName.isValidClassName(
-					rc.substring(0, rc.length() - 6)))
+				if (JarMinimizer.__isClass(rc))
 				{
-					// Minimize the class
-					byte[] bytes = Minimizer.minimize(dualpool,
-						ClassFile.decode(in));
+					// Finish minimizing the class, this places entries in
+					// the shared pool
+					byte[] bytes = parallel.minimized(i);
 					
 					// Write to ROM!
 					rcdata.write(bytes);
@@ -205,6 +241,19 @@ public final class JarMinimizer
 			toc.writeSectionSizeInt(rcdata);
 		}
 		
+		// The index is the table of contents sorted by the hash code of the
+		// names, so that resources can be found with a binary search
+		long[] hashes = new long[numrc];
+		for (int i = 0; i < numrc; i++)
+			hashes[i] = (((long)rcnames[i].hashCode()) << 32) | i;
+		Arrays.sort(hashes);
+		
+		// Write the table of contents index
+		TableSectionOutputStream.Section tocindex = out.addSection(
+			numrc * MinimizedJarHeader.TOC_INDEX_ENTRY_SIZE, 4);
+		for (int i = 0; i < numrc; i++)
+			tocindex.writeInt((int)hashes[i]);
+		
 		// Uncompressed and copied manifest?
 		try (InputStream in = input.resourceAsStream("META-INF/MANIFEST.MF"))
 		{
@@ -349,6 +398,10 @@ public final class JarMinimizer
 			header.writeInt(-1);
 		}
 		
+		// Format version and the table of contents index
+		header.writeInt(MinimizedJarHeader.VERSION);
+		header.writeSectionAddressInt(tocindex);
+		
 		// Since we need the header we need the byte array for the JAR
 		byte[] jardata = out.toByteArray();
 		
@@ -373,6 +426,25 @@ public final class JarMinimizer
 	 */
 	public static final byte[] minimize(boolean __boot, VMClassLibrary __in)
 		throws IOException, NullPointerException
+	{
+		return JarMinimizer.minimize(__boot, __in, (MinimizedClassCache)null);
+	}
+	
+	/**
+	 * Minimizes the specified Jar file.
+	 *
+	 * @param __boot Should pre-created boot memory be created to quickly
+	 * initialize the virtual machine?
+	 * @param __in The input JAR file.
+	 * @param __cache The cache for minimized classes, may be {@code null}.
+	 * @return The resulting byte array of minimization.
+	 * @throws IOException On read/write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public static final byte[] minimize(boolean __boot, VMClassLibrary __in,
+		MinimizedClassCache __cache)
+		throws IOException, NullPointerException
 	{
 		if (__in == null)
 			throw new NullPointerException("NARG");
@@ -381,7 +453,7 @@ public final class JarMinimizer
 		try (ByteArrayOutputStream baos = new ByteArrayOutputStream(1048576))
 		{
 			// Perform minimization
-			JarMinimizer.minimize(null, __boot, __in, baos, null);
+			JarMinimizer.minimize(null, __boot, __in, baos, null, __cache);
 			
 			// Return the generated array
 			return baos.toByteArray();
@@ -442,16 +514,56 @@ public final class JarMinimizer
 		boolean __boot, VMClassLibrary __in, OutputStream __out,
 		MinimizedJarHeader[] __mjh)
 		throws IOException, NullPointerException
+	{
+		JarMinimizer.minimize(__dp, __boot, __in, __out, __mjh, null);
+	}
+	
+	/**
+	 * Minimizes the specified Jar file.
+	 *
+	 * @param __dp The dual-pool.
+	 * @param __boot Should pre-created boot memory be created to quickly
+	 * initialize the virtual machine?
+	 * @param __in The input JAR file.
+	 * @param __out The stream where JAR data will be placed.
+	 * @param __mjh The output JAR header.
+	 * @param __cache The cache for minimized classes, may be {@code null}.
+	 * @throws IOException On read/write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public static final void minimize(DualClassRuntimePoolBuilder __dp,
+		boolean __boot, VMClassLibrary __in, OutputStream __out,
+		MinimizedJarHeader[] __mjh, MinimizedClassCache __cache)
+		throws IOException, NullPointerException
 	{
 		if (__in == null || __out == null)
 			throw new NullPointerException("NARG");
 		
 		// Use helper class
-		JarMinimizer jm = new JarMinimizer(__dp, __boot, __in);
+		JarMinimizer jm = new JarMinimizer(__dp, __boot, __in, __cache);
 		jm.__process(__out);
 		
 		// Set header that was generated
 		if (__mjh != null && __mjh.length > 0)
 			__mjh[0] = jm._jheader;
 	}
+	
+	/**
+	 * Checks if the given resource is a class which is minimized.
+	 *
+	 * @param __rc The resource name.
+	 * @return If this is a class.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	private static boolean __isClass(String __rc)
+		throws NullPointerException
+	{
+		if (__rc == null)
+			throw new NullPointerException("NARG");
+		
+		return __rc.endsWith(".class") && ClassName.isValidClassName(
+			__rc.substring(0, __rc.length() - 6));
+	}
 }
@@ -0,0 +1,52 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package dev.shadowtail.jarfile;
+
+import java.io.IOException;
+
+/**
+ * This is a cache of classes which have been minimized, it is used so that
+ * classes which have not changed do not need to be minimized again.
+ *
+ * The classes which are cached are minimized without a Jar or ROM pool and
+ * are placed on top of the pool when they are used, so the same cached class
+ * may be used for any pool.
+ *
+ * Since classes are minimized by multiple threads, implementations must be
+ * thread safe.
+ *
+ * @since 2020/07/29
+ */
+public interface MinimizedClassCache
+{
+	/**
+	 * Returns the cached minimized class.
+	 *
+	 * @param __class The bytes of the class file.
+	 * @return The minimized class or {@code null} if it is not cached.
+	 * @throws IOException On read errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	byte[] get(byte[] __class)
+		throws IOException, NullPointerException;
+	
+	/**
+	 * Stores the minimized class into the cache.
+	 *
+	 * @param __class The bytes of the class file.
+	 * @param __min The minimized class.
+	 * @throws IOException On write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	void put(byte[] __class, byte[] __min)
+		throws IOException, NullPointerException;
+}
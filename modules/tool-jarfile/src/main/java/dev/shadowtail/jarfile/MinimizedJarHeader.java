@@ -21,22 +21,45 @@ import net.multiphasicapps.classfile.InvalidClassFormatException;
  */
 public final class MinimizedJarHeader
 {
-	/** Magic number for the JAR. */
+	/**
+	 * Magic number for the JAR, this was changed when the format version was
+	 * added so that the version is never read from older JARs.
+	 */
 	public static final int MAGIC_NUMBER =
+		0x00456571;
+	
+	/** Magic number for JARs from before the format had a version. */
+	public static final int UNVERSIONED_MAGIC_NUMBER =
 		0x00456570;
 	
+	/**
+	 * The version of the format, this is increased when something is added
+	 * to the format.
+	 *
+	 * Version 1 adds the table of contents index, which is the index of
+	 * every entry in the table of contents sorted by the hash code of the
+	 * name and then by index, so that resources may be found with a binary
+	 * search.
+	 */
+	public static final int VERSION =
+		1;
+	
 	/** The size of the header without the magic number. */
 	public static final int HEADER_SIZE_WITHOUT_MAGIC =
-		72;
+		80;
 	
 	/** The size of the header with the magic number. */
 	public static final int HEADER_SIZE_WITH_MAGIC =
-		76;
+		84;
 	
 	/** Size of table of contents entries. */
 	public static final int TOC_ENTRY_SIZE =
 		16;
 	
+	/** Size of table of contents index entries. */
+	public static final int TOC_INDEX_ENTRY_SIZE =
+		4;
+	
 	/** Number of resources. */
 	public final int numrc;
 	
@@ -91,6 +114,12 @@ public final class MinimizedJarHeader
 	/** Runtime constant pool size. */
 	public final int runtimepoolsize;
 	
+	/** The version of the format. */
+	public final int version;
+	
+	/** Table of contents index offset. */
+	public final int tocindexoffset;
+	
 	/**
 	 * Initializes the Jar header.
 	 *
@@ -131,6 +160,10 @@ public final class MinimizedJarHeader
 		this.staticpoolsize = __fs[at++];
 		this.runtimepooloff = __fs[at++];
 		this.runtimepoolsize = __fs[at++];
+		
+		// Format version and table of contents index
+		this.version = __fs[at++];
+		this.tocindexoffset = __fs[at++];
 	}
 	
 	/**
@@ -151,10 +184,15 @@ public final class MinimizedJarHeader
 		// Need to read fields
 		DataInputStream din = new DataInputStream(__in);
 		
+		// {@squirreljme.error BC0h The minimized Jar is in the older format
+		// which has no version, it must be minimized again.}
+		int wasmagic = din.readInt();
+		if (wasmagic == MinimizedJarHeader.UNVERSIONED_MAGIC_NUMBER)
+			throw new InvalidClassFormatException("BC0h");
+		
 		// {@squirreljme.error BC0a Invalid minimized Jar magic number.
 		// (The read magic number; The expected magic number)}
-		int wasmagic;
-		if (MinimizedJarHeader.MAGIC_NUMBER != (wasmagic = din.readInt()))
+		if (MinimizedJarHeader.MAGIC_NUMBER != wasmagic)
 			throw new InvalidClassFormatException(String.format(
 				"BC0a %08x %08x", wasmagic, MinimizedJarHeader.MAGIC_NUMBER));
 		
@@ -183,7 +221,11 @@ public final class MinimizedJarHeader
 			/* staticpooloff */ din.readInt(),
 			/* staticpoolsize */ din.readInt(),
 			/* runtimepooloff */ din.readInt(),
-			/* runtimepoolsize */ din.readInt());
+			/* runtimepoolsize */ din.readInt(),
+			
+			// Format version and table of contents index
+			/* version */ din.readInt(),
+			/* tocindexoffset */ din.readInt());
 	}
 }
 
@@ -0,0 +1,261 @@
+// -*- Mode: Java; indent-tabs-mode: t; tab-width: 4 -*-
+// ---------------------------------------------------------------------------
+// Multi-Phasic Applications: SquirrelJME
+//     Copyright (C) Stephanie Gawroriski <xer@multiphasicapps.net>
+// ---------------------------------------------------------------------------
+// SquirrelJME is under the GNU General Public License v3+, or later.
+// See license.mkd for licensing and copyright information.
+// ---------------------------------------------------------------------------
+
+package dev.shadowtail.jarfile;
+
+import dev.shadowtail.classfile.mini.Minimizer;
+import dev.shadowtail.classfile.pool.DualClassRuntimePoolBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import net.multiphasicapps.classfile.ClassFile;
+
+/**
+ * This decodes and prepares classes for minimization using multiple threads,
+ * the preparation of classes does not use the shared pool so it can be done
+ * at the same time. The prepared classes are then finished by the caller
+ * in the order of the classes so that the resulting output is the same as
+ * if it were done with a single thread.
+ *
+ * If there is a cache then classes are minimized without the shared pool
+ * so that they can be cached, they are then placed on top of the shared pool
+ * when they are finished.
+ *
+ * @since 2020/07/29
+ */
+final class __ParallelMinimizer__
+	implements Runnable
+{
+	/**
+	 * {@squirreljme.property dev.shadowtail.jarfile.threads=int
+	 * The number of threads to use when minimizing classes, if this is
+	 * one or lower then classes are minimized on the calling thread.}
+	 */
+	public static final String THREADS_PROPERTY =
+		"dev.shadowtail.jarfile.threads";
+	
+	/** The default number of threads. */
+	private static final int _DEFAULT_THREADS =
+		4;
+	
+	/** The pool used for minimizing, may be {@code null}. */
+	protected final DualClassRuntimePoolBuilder dualpool;
+	
+	/** The cache for minimized classes, may be {@code null}. */
+	protected final MinimizedClassCache cache;
+	
+	/** The class data to minimize, entries may be {@code null}. */
+	private final byte[][] _classes;
+	
+	/** The prepared classes. */
+	private final Minimizer[] _prepared;
+	
+	/** Classes which were minimized without the pool, when cached. */
+	private final byte[][] _minimized;
+	
+	/** Failures which occurred while preparing. */
+	private final Throwable[] _failures;
+	
+	/** The next class to prepare. */
+	private int _next;
+	
+	/**
+	 * Initializes the parallel minimizer.
+	 *
+	 * @param __dp The pool used for minimizing, may be {@code null}.
+	 * @param __cl The class data to minimize, entries which are
+	 * {@code null} are skipped.
+	 * @param __cache The cache for minimized classes, may be {@code null}.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	__ParallelMinimizer__(DualClassRuntimePoolBuilder __dp, byte[][] __cl,
+		MinimizedClassCache __cache)
+		throws NullPointerException
+	{
+		if (__cl == null)
+			throw new NullPointerException("NARG");
+		
+		int n = __cl.length;
+		
+		this.dualpool = __dp;
+		this.cache = __cache;
+		this._classes = __cl;
+		this._prepared = new Minimizer[n];
+		this._minimized = new byte[n][];
+		this._failures = new Throwable[n];
+	}
+	
+	/**
+	 * Finishes the class at the given index, since this uses the shared
+	 * pool the classes must be finished in order by a single thread.
+	 *
+	 * @param __i The index of the class.
+	 * @return The minimized class.
+	 * @throws IOException If the class could not be read or minimized.
+	 * @since 2020/07/29
+	 */
+	public final byte[] minimized(int __i)
+		throws IOException
+	{
+		// Rethrow the failure, as if it happened here
+		Throwable t = this._failures[__i];
+		if (t != null)
+		{
+			if (t instanceof IOException)
+				throw (IOException)t;
+			if (t instanceof RuntimeException)
+				throw (RuntimeException)t;
+			if (t instanceof Error)
+				throw (Error)t;
+			
+			// {@squirreljme.error BC0g Could not minimize class.}
+			throw new RuntimeException("BC0g", t);
+		}
+		
+		// Was minimized without the pool, so place it on top of the pool
+		byte[] minimized = this._minimized[__i];
+		if (minimized != null)
+		{
+			this._minimized[__i] = null;
+			return Minimizer.layer(minimized, this.dualpool);
+		}
+		
+		// Only needed once
+		Minimizer prepared = this._prepared[__i];
+		this._prepared[__i] = null;
+		return prepared.finish();
+	}
+	
+	/**
+	 * Prepares every class, this will return when all of them are prepared.
+	 *
+	 * @since 2020/07/29
+	 */
+	public final void prepareAll()
+	{
+		// Use no more threads than there are classes
+		int numthreads = Math.min(this._classes.length,
+			Integer.getInteger(__ParallelMinimizer__.THREADS_PROPERTY,
+				__ParallelMinimizer__._DEFAULT_THREADS));
+		
+		// Just do it here
+		if (numthreads <= 1)
+		{
+			this.run();
+			return;
+		}
+		
+		// Start all the workers, this thread is one of them
+		Thread[] threads = new Thread[numthreads - 1];
+		for (int i = 0, n = threads.length; i < n; i++)
+		{
+			Thread thread = new Thread(this, "JarMinimizer-" + i);
+			threads[i] = thread;
+			thread.start();
+		}
+		this.run();
+		
+		// Wait for the workers to finish
+		for (Thread thread : threads)
+			for (;;)
+				try
+				{
+					thread.join();
+					break;
+				}
+				catch (InterruptedException e)
+				{
+					// Ignore
+				}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @since 2020/07/29
+	 */
+	@Override
+	public final void run()
+	{
+		DualClassRuntimePoolBuilder dualpool = this.dualpool;
+		MinimizedClassCache cache = this.cache;
+		byte[][] classes = this._classes;
+		Minimizer[] prepared = this._prepared;
+		byte[][] minimized = this._minimized;
+		Throwable[] failures = this._failures;
+		
+		for (;;)
+		{
+			int dx = this.__next();
+			if (dx < 0)
+				return;
+			
+			// Not a class
+			byte[] data = classes[dx];
+			if (data == null)
+				continue;
+			
+			// Decode and prepare it, the results are made visible to the
+			// finishing thread when it joins this one
+			try
+			{
+				// Without a cache, prepare it for the pool
+				if (cache == null)
+					prepared[dx] = Minimizer.prepare(dualpool,
+						ClassFile.decode(new ByteArrayInputStream(data)));
+				
+				// Otherwise use the cached class, or minimize and cache it
+				else
+				{
+					byte[] min = cache.get(data);
+					if (min == null)
+					{
+						min = Minimizer.minimize(
+							ClassFile.decode(new ByteArrayInputStream(data)));
+						
+						// The class is still usable if it cannot be cached
+						try
+						{
+							cache.put(data, min);
+						}
+						catch (IOException e)
+						{
+							todo.DEBUG.note("Could not cache class: %s (%s)",
+								e.getMessage(), e.getCause());
+						}
+					}
+					
+					minimized[dx] = min;
+				}
+			}
+			catch (Throwable t)
+			{
+				failures[dx] = t;
+			}
+			
+			// The data is no longer needed
+			classes[dx] = null;
+		}
+	}
+	
+	/**
+	 * Returns the index of the next class to prepare.
+	 *
+	 * @return The next index or {@code -1} if there are no more.
+	 * @since 2020/07/29
+	 */
+	private final synchronized int __next()
+	{
+		int rv = this._next;
+		if (rv >= this._classes.length)
+			return -1;
+		
+		this._next = rv + 1;
+		return rv;
+	}
+}
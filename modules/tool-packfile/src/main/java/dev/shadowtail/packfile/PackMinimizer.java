@@ -14,6 +14,7 @@ import dev.shadowtail.classfile.mini.DualPoolEncodeResult;
 import dev.shadowtail.classfile.mini.DualPoolEncoder;
 import dev.shadowtail.classfile.pool.DualClassRuntimePoolBuilder;
 import dev.shadowtail.jarfile.JarMinimizer;
+import dev.shadowtail.jarfile.MinimizedClassCache;
 import dev.shadowtail.jarfile.MinimizedJarHeader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -78,6 +79,31 @@ public class PackMinimizer
 		String[] __initcp, String __mainbc, boolean __ismid,
 		VMClassLibrary... __libs)
 		throws IOException, NullPointerException
+	{
+		PackMinimizer.minimize(null, __os, __boot, __initcp, __mainbc,
+			__ismid, __libs);
+	}
+	
+	/**
+	 * Minimizes the class library, classes which were previously minimized
+	 * are taken from the cache so that only changed classes need to be
+	 * minimized again.
+	 *
+	 * @param __cache The cache for minimized classes, may be {@code null}.
+	 * @param __os The stream to write the minimized file to.
+	 * @param __boot The boot class used for the entry point.
+	 * @param __initcp Initial classpath.
+	 * @param __mainbc Main boot class.
+	 * @param __ismid Is this a MIDlet?
+	 * @param __libs The libraries to minimize.
+	 * @throws IOException On read/write errors.
+	 * @throws NullPointerException On null arguments.
+	 * @since 2020/07/29
+	 */
+	public static final void minimize(MinimizedClassCache __cache,
+		OutputStream __os, String __boot, String[] __initcp,
+		String __mainbc, boolean __ismid, VMClassLibrary... __libs)
+		throws IOException, NullPointerException
 	{
 		if (__os == null || __libs == null ||
 			(__boot != null && (__initcp == null || __mainbc == null)))
@@ -171,7 +197,7 @@ public class PackMinimizer
 				// The boot JAR is completely stand-alone, so do not use
 				// a global JAR pool for it.
 				JarMinimizer.minimize((isboot ? null : dualpool), isboot, lib,
-					jdata, mjha);
+					jdata, mjha, __cache);
 				
 				// Get the generated header
 				mjh = mjha[0];
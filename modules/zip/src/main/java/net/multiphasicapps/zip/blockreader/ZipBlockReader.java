@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import net.multiphasicapps.zip.ZipException;
@@ -92,6 +93,13 @@ public class ZipBlockReader
 	/** Entries within this ZIP file. */
 	private final Reference<ZipBlockEntry>[] _entries;
 	
+	/**
+	 * The hash code of each entry name in the upper bits and the index of
+	 * the entry in the lower bits, sorted, this is built when an entry is
+	 * first looked up.
+	 */
+	private volatile long[] _hashindex;
+	
 	/**
 	 * Accesses the given array as a ZIP file.
 	 *
@@ -243,10 +251,35 @@ public class ZipBlockReader
 		if (__s == null)
 			throw new NullPointerException("NARG");
 		
-		// Use linear search since entries might be in any order
-		for (ZipBlockEntry e : this)
+		// The index is sorted by hash code, so find the first entry with
+		// the hash code
+		long[] hashindex = this.__hashIndex();
+		int hash = __s.hashCode();
+		int lo = 0,
+			hi = hashindex.length;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			
+			if ((int)(hashindex[mid] >> 32) < hash)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		
+		// Check every entry with the same hash code
+		for (int n = hashindex.length; lo < n; lo++)
+		{
+			long key = hashindex[lo];
+			
+			// Gone past the hash code
+			if ((int)(key >> 32) != hash)
+				break;
+			
+			ZipBlockEntry e = this.__entry((int)key);
 			if (e.toString().equals(__s))
 				return e;
+		}
 		
 		// {@squirreljme.error BF0l Could not find the entry with the
 		// specified name. (The name of the entry)}
@@ -299,6 +332,55 @@ public class ZipBlockReader
 		return this.numentries;
 	}
 	
+	/**
+	 * Returns the entry at the given index.
+	 *
+	 * @param __i The index of the entry.
+	 * @return The entry.
+	 * @since 2020/07/29
+	 */
+	private ZipBlockEntry __entry(int __i)
+	{
+		// Parse and return entry
+		Reference<ZipBlockEntry>[] entries = this._entries;
+		Reference<ZipBlockEntry> ref = entries[__i];
+		ZipBlockEntry rv;
+		
+		// Need to load the entry?
+		if (ref == null || null == (rv = ref.get()))
+			entries[__i] = new WeakReference<>(
+				(rv = new ZipBlockEntry(this, __i)));
+		
+		return rv;
+	}
+	
+	/**
+	 * Returns the index of entries sorted by the hash code of their names,
+	 * it is built if it has not been built yet.
+	 *
+	 * @return The hash code index.
+	 * @throws IOException If the entry names could not be read.
+	 * @since 2020/07/29
+	 */
+	private long[] __hashIndex()
+		throws IOException
+	{
+		long[] rv = this._hashindex;
+		if (rv != null)
+			return rv;
+		
+		// The hash code is in the upper bits so it is sorted first
+		int numentries = this.numentries;
+		rv = new long[numentries];
+		for (int i = 0; i < numentries; i++)
+			rv[i] = (((long)this.__entry(i).name().hashCode()) << 32) |
+				i;
+		Arrays.sort(rv);
+		
+		this._hashindex = rv;
+		return rv;
+	}
+	
 	/**
 	 * Reads the offsets within the ZIP file for central directory items.
 	 *
@@ -464,16 +546,7 @@ public class ZipBlockReader
 			this._next = next + 1;
 			
 			// Parse and return entry
-			Reference<ZipBlockEntry>[] entries = ZipBlockReader.this._entries;
-			Reference<ZipBlockEntry> ref = entries[next];
-			ZipBlockEntry rv;
-			
-			// Need to load the entry?
-			if (ref == null || null == (rv = ref.get()))
-				entries[next] = new WeakReference<>(
-					(rv = new ZipBlockEntry(ZipBlockReader.this, next)));
-			
-			return rv;
+			return ZipBlockReader.this.__entry(next);
 		}
 		
 		/**
@@ -46,7 +46,10 @@ extern "C"
 #define SJME_ROM_MAGIC_NUMBER SJME_JINT_C(0x58455223)
 
 /** Magic number for JARs. */
-#define SJME_JAR_MAGIC_NUMBER SJME_JINT_C(0x00456570)
+#define SJME_JAR_MAGIC_NUMBER SJME_JINT_C(0x00456571)
+
+/** Magic number for JARs from before the format had a version. */
+#define SJME_JAR_UNVERSIONED_MAGIC_NUMBER SJME_JINT_C(0x00456570)
 
 /** Check magic for BootRAM. */
 #define SJME_BOOTRAM_CHECK_MAGIC SJME_JINT_C(0xFFFFFFFF)
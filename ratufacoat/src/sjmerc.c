@@ -2038,9 +2038,10 @@ sjme_jint sjme_initboot(sjme_jvm* jvm, sjme_error* error)
 		error);
 	rp = bootjar = vrombase + bootjaroff;
 	
-	/* Check JAR magic number. */
-	if ((qq = sjme_vmmreadp(jvm->vmem, SJME_VMMTYPE_JAVAINTEGER, &rp, error))
-		!= SJME_JAR_MAGIC_NUMBER)
+	/* Check JAR magic number, the older format has the same offsets. */
+	qq = sjme_vmmreadp(jvm->vmem, SJME_VMMTYPE_JAVAINTEGER, &rp, error);
+	if (qq != SJME_JAR_MAGIC_NUMBER &&
+		qq != SJME_JAR_UNVERSIONED_MAGIC_NUMBER)
 	{
 		sjme_seterror(error, SJME_ERROR_INVALIDROMMAGIC, qq);
 		